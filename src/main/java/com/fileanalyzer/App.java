@@ -1,12 +1,18 @@
 package com.fileanalyzer;
 
+import com.fileanalyzer.controller.MainController;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 
 /**
  * Основной класс приложения File Analyzer.
@@ -14,6 +20,14 @@ import java.io.IOException;
  */
 public class App extends Application {
 
+    private static final Logger logger = LogManager.getLogger(App.class);
+
+    /**
+     * Системное свойство для обучающего запуска при создании архива AppCDS:
+     * приложение завершается, как только окно показано и сервисы загружены.
+     */
+    public static final String EXIT_AFTER_STARTUP_PROPERTY = "fileanalyzer.exitAfterStartup";
+
     /**
      * Точка входа в JavaFX приложение.
      * Загружает FXML файл интерфейса и отображает главное окно.
@@ -30,6 +44,25 @@ public class App extends Application {
         stage.setTitle("File Analyzer - Определение и восстановление расширений файлов");
         stage.setScene(scene);
         stage.show();
+        logStartupTime("Окно показано");
+
+        MainController controller = fxmlLoader.getController();
+        controller.getServicesLoading().thenRun(() -> {
+            logStartupTime("Сервисы анализа загружены");
+            if (Boolean.getBoolean(EXIT_AFTER_STARTUP_PROPERTY)) {
+                Platform.runLater(Platform::exit);
+            }
+        });
+    }
+
+    /**
+     * Записывает в журнал время, прошедшее с запуска процесса JVM.
+     *
+     * @param stage название этапа запуска
+     */
+    static void logStartupTime(String stage) {
+        ProcessHandle.current().info().startInstant().ifPresent(start -> logger.info(
+                "{} через {} мс после запуска JVM", stage, Duration.between(start, Instant.now()).toMillis()));
     }
 
     /**
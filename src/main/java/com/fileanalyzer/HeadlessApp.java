@@ -0,0 +1,379 @@
+package com.fileanalyzer;
+
+import com.fileanalyzer.model.ScanResult;
+import com.fileanalyzer.service.AsyncReadEngine;
+import com.fileanalyzer.service.BatchScanService;
+import com.fileanalyzer.service.DatabaseService;
+import com.fileanalyzer.service.DirectoryWatchService;
+import com.fileanalyzer.service.FileAnalyzerService;
+import com.fileanalyzer.service.FileRestoreService;
+import com.fileanalyzer.service.ImageCarver;
+import com.fileanalyzer.service.MetadataService;
+import com.fileanalyzer.service.ScanCoordinator;
+import com.fileanalyzer.service.ScanIndexReader;
+import com.fileanalyzer.service.ScanIndexWriter;
+import com.fileanalyzer.service.ScanJournal;
+import com.fileanalyzer.service.ScanResultFile;
+import com.fileanalyzer.service.ScanThrottle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Консольная точка входа File Analyzer без графического интерфейса.
+ * Используется для пакетного анализа каталогов из скриптов и планировщиков.
+ */
+public class HeadlessApp {
+
+    /** Допустимое число поврежденных байт сигнатуры для restore --repair-headers. */
+    private static final int DEFAULT_REPAIR_MISMATCHES = 2;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Использование:",
+            "  scan <каталог> [--index <файл>] [--hash] [--follow-links] [--async-reads <количество>]",
+            "                [--metadata]",
+            "                   - однократный анализ всех файлов каталога;",
+            "                     с --index результаты сохраняются в колоночный индекс,",
+            "                     с --follow-links анализируются файлы по символическим ссылкам,",
+            "                     с --async-reads заголовки читаются асинхронно с указанным",
+            "                     числом одновременных операций (для сетевых хранилищ),",
+            "                     с --metadata выводятся размеры изображений, версия PDF,",
+            "                     теги и битрейт MP3, длительность MP4 и содержимое GZIP",
+            "  scan <каталог> --journal <файл> --output <файл>",
+            "                   - анализ с контрольными точками; повторный запуск",
+            "                     с тем же журналом продолжает прерванный анализ",
+            "  watch <каталог>  - анализ каталога и отслеживание изменений",
+            "  cluster-scan <каталог>... [--workers <количество>]",
+            "                   - анализ нескольких деревьев каталогов отдельными рабочими JVM",
+            "  query <индекс> [--type <расширение>] [--min-size <байт>] [--under <каталог>]",
+            "                   - поиск по сохраненному индексу без повторного сканирования",
+            "  restore <каталог> [--repair-headers]",
+            "                   - анализ каталога и восстановление расширений всех",
+            "                     распознанных файлов (копии с правильным расширением);",
+            "                     с --repair-headers поврежденные байты заголовка",
+            "                     в копиях заменяются байтами сигнатуры",
+            "  carve <образ> [--sector <байт>] [--max-size <байт>]",
+            "                   - поиск файлов по сигнатурам в сыром образе диска;",
+            "                     выводит смещение, оценку конца и тип каждого файла",
+            "Поврежденные заголовки для scan, watch и restore:",
+            "  --max-mismatches <байт>",
+            "                   - допустимое число поврежденных байт сигнатуры",
+            "                     (по умолчанию 0, с --repair-headers - 2)",
+            "Повторяющиеся заголовки для scan, watch и restore:",
+            "  --prefix-cache   - кэш результатов по префиксу заголовка; ускоряет",
+            "                     анализ, только если большинство заголовков совпадает",
+            "Ограничение нагрузки для scan, watch и restore:",
+            "  --max-bytes-per-sec <байт> --max-files-per-sec <файлов> --low-priority",
+            "                   - лимиты скорости; в режиме низкого приоритета анализ",
+            "                     приостанавливается при росте задержки устройства");
+
+    /**
+     * Главный метод консольного приложения.
+     *
+     * @param args команда и ее аргументы
+     * @throws Exception если выполнение команды завершилось ошибкой
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        if ("query".equals(args[0])) {
+            query(Paths.get(args[1]), args);
+            return;
+        }
+        if ("cluster-scan".equals(args[0])) {
+            clusterScan(args);
+            return;
+        }
+        if ("carve".equals(args[0])) {
+            carve(Paths.get(args[1]), args);
+            return;
+        }
+
+        DatabaseService databaseService = new DatabaseService();
+        FileAnalyzerService fileAnalyzerService = new FileAnalyzerService(databaseService);
+        boolean repairHeaders = hasFlag(args, "--repair-headers");
+        String maxMismatches = option(args, "--max-mismatches");
+        if (maxMismatches != null || repairHeaders) {
+            fileAnalyzerService.setMaxHeaderMismatches(
+                    maxMismatches != null ? Integer.parseInt(maxMismatches) : DEFAULT_REPAIR_MISMATCHES);
+        }
+        fileAnalyzerService.setPrefixCaching(hasFlag(args, "--prefix-cache"));
+        BatchScanService batchScanService = new BatchScanService(fileAnalyzerService);
+        ScanThrottle throttle = throttle(args);
+        batchScanService.setThrottle(throttle);
+        Path root = Paths.get(args[1]);
+
+        switch (args[0]) {
+            case "scan":
+                try (AsyncReadEngine engine = asyncReadEngine(fileAnalyzerService, args)) {
+                    batchScanService.setAsyncReadEngine(engine);
+                    if (hasFlag(args, "--metadata")) {
+                        batchScanService.setMetadataService(new MetadataService(databaseService));
+                    }
+                    scan(batchScanService, root, args);
+                }
+                System.err.println("Статистика чтения: " + fileAnalyzerService.getStatistics());
+                System.err.println("Детекторы: " + fileAnalyzerService.getDetectionPipeline());
+                break;
+            case "watch":
+                watch(batchScanService, root);
+                break;
+            case "restore":
+                restore(batchScanService, root, throttle, repairHeaders ? fileAnalyzerService : null);
+                break;
+            default:
+                System.err.println(USAGE);
+                System.exit(2);
+        }
+    }
+
+    /**
+     * Выполняет однократный анализ каталога.
+     * При указании --index результаты записываются в индекс потоково.
+     *
+     * @param batchScanService сервис пакетного анализа
+     * @param root корневой каталог
+     * @param args аргументы командной строки
+     * @throws IOException если произошла ошибка чтения или записи
+     */
+    private static void scan(BatchScanService batchScanService, Path root, String[] args) throws IOException {
+        batchScanService.setComputeContentHash(hasFlag(args, "--hash"));
+        batchScanService.setFollowLinks(hasFlag(args, "--follow-links"));
+        String journalPath = option(args, "--journal");
+        if (journalPath != null) {
+            scanWithJournal(batchScanService, root, Paths.get(journalPath), option(args, "--output"));
+            return;
+        }
+        String indexPath = option(args, "--index");
+        if (indexPath == null) {
+            batchScanService.scan(root, HeadlessApp::printResult);
+            return;
+        }
+        try (ScanIndexWriter writer = new ScanIndexWriter(Paths.get(indexPath))) {
+            batchScanService.scan(root, writer);
+            System.out.println("Записано в индекс: " + writer.getRecordCount());
+        }
+    }
+
+    /**
+     * Выполняет анализ с контрольными точками, продолжая прерванный запуск.
+     *
+     * @param batchScanService сервис пакетного анализа
+     * @param root корневой каталог
+     * @param journalPath путь к журналу
+     * @param outputPath путь к файлу результатов
+     * @throws IOException если произошла ошибка чтения или записи
+     */
+    private static void scanWithJournal(BatchScanService batchScanService, Path root, Path journalPath,
+                                        String outputPath) throws IOException {
+        if (outputPath == null) {
+            System.err.println("Для анализа с журналом укажите --output <файл>");
+            System.exit(2);
+            return;
+        }
+        try (ScanJournal journal = ScanJournal.open(journalPath, root)) {
+            if (journal.isFinished()) {
+                System.err.println("Анализ по журналу " + journalPath + " уже завершен");
+                return;
+            }
+            try (ScanResultFile output = new ScanResultFile(Paths.get(outputPath), journal.getCommittedOffset())) {
+                long total = batchScanService.scan(root, output, journal);
+                System.err.println("Проанализировано файлов: " + total
+                        + (journal.isResumed() ? " (с учетом прерванного запуска)" : ""));
+            }
+        }
+    }
+
+    /**
+     * Анализирует каталог и восстанавливает расширения распознанных файлов.
+     *
+     * @param batchScanService сервис пакетного анализа
+     * @param root корневой каталог
+     * @param throttle ограничитель нагрузки или null
+     * @param headerRepair анализатор для исправления заголовков или null
+     * @throws IOException если произошла ошибка чтения
+     */
+    private static void restore(BatchScanService batchScanService, Path root, ScanThrottle throttle,
+                                FileAnalyzerService headerRepair) throws IOException {
+        List<ScanResult> results = new ArrayList<>();
+        batchScanService.scan(root, results::add);
+        FileRestoreService fileRestoreService = new FileRestoreService();
+        fileRestoreService.setHeaderRepair(headerRepair);
+        List<File> restored = fileRestoreService.restoreAll(results, throttle);
+        for (File file : restored) {
+            System.out.println(file.getPath());
+        }
+        System.err.println("Восстановлено файлов: " + restored.size() + " из " + results.size());
+    }
+
+    /**
+     * Создает ограничитель нагрузки по параметрам командной строки.
+     *
+     * @param args аргументы командной строки
+     * @return ограничитель или null, если ограничения не заданы
+     */
+    private static ScanThrottle throttle(String[] args) {
+        String bytes = option(args, "--max-bytes-per-sec");
+        String files = option(args, "--max-files-per-sec");
+        boolean lowPriority = hasFlag(args, "--low-priority");
+        if (bytes == null && files == null && !lowPriority) {
+            return null;
+        }
+        ScanThrottle throttle = new ScanThrottle();
+        throttle.setBytesPerSecond(bytes != null ? Long.parseLong(bytes) : 0);
+        throttle.setFilesPerSecond(files != null ? Double.parseDouble(files) : 0);
+        throttle.setLowPriority(lowPriority);
+        return throttle;
+    }
+
+    /**
+     * Создает движок асинхронного чтения по параметру --async-reads.
+     *
+     * @param fileAnalyzerService сервис анализа файлов
+     * @param args аргументы командной строки
+     * @return движок или null, если параметр не задан
+     */
+    private static AsyncReadEngine asyncReadEngine(FileAnalyzerService fileAnalyzerService, String[] args) {
+        String outstanding = option(args, "--async-reads");
+        return outstanding != null ? new AsyncReadEngine(fileAnalyzerService, Integer.parseInt(outstanding)) : null;
+    }
+
+    /**
+     * Выполняет распределенный анализ деревьев каталогов рабочими процессами.
+     *
+     * @param args аргументы командной строки
+     * @throws IOException если анализ не удалось завершить
+     */
+    private static void clusterScan(String[] args) throws IOException {
+        String workers = option(args, "--workers");
+        List<Path> roots = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                i++;
+            } else {
+                roots.add(Paths.get(args[i]));
+            }
+        }
+        int workerCount = workers != null ? Integer.parseInt(workers) : Runtime.getRuntime().availableProcessors();
+        ScanCoordinator coordinator = new ScanCoordinator(new DatabaseService(), workerCount);
+        long total = coordinator.scan(roots, HeadlessApp::printResult);
+        System.err.println("Проанализировано файлов: " + total + ", передано шардов: "
+                + coordinator.getStolenShards() + ", перезапущено шардов: " + coordinator.getReassignedShards());
+    }
+
+    /**
+     * Ищет файлы в сыром образе диска и выводит найденные области.
+     *
+     * @param image путь к образу
+     * @param args аргументы командной строки
+     * @throws IOException если образ не читается
+     */
+    private static void carve(Path image, String[] args) throws IOException {
+        ImageCarver carver = new ImageCarver(new DatabaseService());
+        String sector = option(args, "--sector");
+        if (sector != null) {
+            carver.setAlignment(Integer.parseInt(sector));
+        }
+        String maxSize = option(args, "--max-size");
+        if (maxSize != null) {
+            carver.setMaxFileSize(Long.parseLong(maxSize));
+        }
+        long start = System.nanoTime();
+        long found = carver.carve(image, region -> System.out.println(region.getOffset() + "\t" + region.getEnd()
+                + "\t" + region.getFileType().getExtension() + "\t" + region.getEndReason()));
+        System.err.printf("Найдено файлов: %d за %.1f с%n", found, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Выполняет запрос к сохраненному индексу.
+     *
+     * @param indexFile путь к файлу индекса
+     * @param args аргументы командной строки
+     * @throws IOException если индекс не читается
+     */
+    private static void query(Path indexFile, String[] args) throws IOException {
+        String minSize = option(args, "--min-size");
+        try (ScanIndexReader reader = new ScanIndexReader(indexFile)) {
+            reader.query(option(args, "--type"), minSize != null ? Long.parseLong(minSize) : 0L,
+                    option(args, "--under"), entry -> System.out.println(
+                            (entry.getExtension() != null ? entry.getExtension() : "unknown")
+                                    + "\t" + entry.getSize() + "\t" + entry.getPath()));
+        }
+    }
+
+    /**
+     * Запускает режим наблюдения за каталогом до завершения процесса.
+     *
+     * @param batchScanService сервис пакетного анализа
+     * @param root корневой каталог
+     * @throws IOException если не удалось запустить наблюдение
+     * @throws InterruptedException если ожидание было прервано
+     */
+    private static void watch(BatchScanService batchScanService, Path root) throws IOException, InterruptedException {
+        DirectoryWatchService watchService = new DirectoryWatchService(batchScanService);
+        watchService.setChangeListener(HeadlessApp::printResult);
+        CountDownLatch shutdown = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("Ошибка при остановке наблюдения: " + e.getMessage());
+            }
+            shutdown.countDown();
+        }));
+        watchService.start(root);
+        shutdown.await();
+    }
+
+    /**
+     * Возвращает значение именованного параметра командной строки.
+     *
+     * @param args аргументы командной строки
+     * @param name имя параметра (например, "--index")
+     * @return значение параметра или null, если параметр не указан
+     */
+    private static String option(String[] args, String name) {
+        for (int i = 2; i < args.length - 1; i++) {
+            if (name.equals(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Проверяет наличие флага в аргументах командной строки.
+     *
+     * @param args аргументы командной строки
+     * @param name имя флага
+     * @return true, если флаг указан
+     */
+    private static boolean hasFlag(String[] args, String name) {
+        for (int i = 2; i < args.length; i++) {
+            if (name.equals(args[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Выводит результат анализа в стандартный поток вывода.
+     *
+     * @param result результат анализа файла
+     */
+    private static void printResult(ScanResult result) {
+        String extension = result.isDetected() ? result.getFileType().getExtension() : "unknown";
+        System.out.println(extension + "\t" + result.getSize() + "\t" + result.getPath()
+                + (result.getMetadata() != null ? "\t" + result.getMetadata() : ""));
+    }
+}
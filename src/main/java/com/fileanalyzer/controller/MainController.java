@@ -1,10 +1,13 @@
 package com.fileanalyzer.controller;
 
+import com.fileanalyzer.model.DetectionResult;
 import com.fileanalyzer.model.FileType;
 import com.fileanalyzer.service.DatabaseService;
 import com.fileanalyzer.service.FileAnalyzerService;
 import com.fileanalyzer.service.FileRestoreService;
+import com.fileanalyzer.service.PriorityTaskExecutor;
 import com.fileanalyzer.view.FileInfoDialog;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.FileChooser;
@@ -13,7 +16,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Контроллер главного окна приложения.
@@ -22,12 +27,16 @@ import java.util.Optional;
 public class MainController {
 
     private static final Logger logger = LogManager.getLogger(MainController.class);
+
+    /** Допустимое число поврежденных байт сигнатуры при анализе одного файла. */
+    private static final int MAX_HEADER_MISMATCHES = 2;
+
     private File selectedFile;
     private FileType detectedFileType;
+    private DetectionResult detection;
 
     // Сервисы
-    private final DatabaseService databaseService;
-    private final FileAnalyzerService fileAnalyzerService;
+    private final CompletableFuture<FileAnalyzerService> fileAnalyzerServiceFuture;
     private final FileRestoreService fileRestoreService;
 
     // FXML элементы
@@ -50,14 +59,31 @@ public class MainController {
 
     /**
      * Конструктор контроллера.
-     * Инициализирует сервисы приложения.
+     * Загрузка базы сигнатур (Jackson и разбор JSON) запускается в фоне,
+     * чтобы окно появлялось, не дожидаясь ее; анализ файла ожидает
+     * завершения загрузки. Заголовки с несколькими поврежденными байтами
+     * распознаются неточно, и при восстановлении предлагается их исправить.
      */
     public MainController() {
-        this.databaseService = new DatabaseService();
-        this.fileAnalyzerService = new FileAnalyzerService(databaseService);
+        this.fileAnalyzerServiceFuture = CompletableFuture.supplyAsync(
+                () -> {
+                    FileAnalyzerService service = new FileAnalyzerService(new DatabaseService());
+                    service.setMaxHeaderMismatches(MAX_HEADER_MISMATCHES);
+                    return service;
+                },
+                task -> PriorityTaskExecutor.getShared().submit(PriorityTaskExecutor.Lane.INTERACTIVE, task));
         this.fileRestoreService = new FileRestoreService();
     }
 
+    /**
+     * Возвращает загрузку сервисов анализа.
+     *
+     * @return завершается, когда база сигнатур загружена
+     */
+    public CompletableFuture<?> getServicesLoading() {
+        return fileAnalyzerServiceFuture;
+    }
+
     /**
      * Инициализация контроллера.
      * Вызывается после загрузки FXML файла.
@@ -73,41 +99,75 @@ public class MainController {
 
     /**
      * Анализирует файл с использованием реальных сервисов.
+     * Анализ выполняется в интерактивной полосе общего исполнителя, поэтому
+     * опережает фоновый пакетный анализ и не блокирует поток интерфейса.
      */
     private void analyzeFileWithServices() {
-        try {
-            progressIndicator.setVisible(true);
-            logToUI("Начинаю анализ файла: " + selectedFile.getName());
+        File file = selectedFile;
+        progressIndicator.setVisible(true);
+        analyzeButton.setDisable(true);
+        logToUI("Начинаю анализ файла: " + file.getName());
+
+        PriorityTaskExecutor.getShared().submit(PriorityTaskExecutor.Lane.INTERACTIVE, () -> {
+            try {
+                FileAnalyzerService service = fileAnalyzerServiceFuture.join();
+                Optional<DetectionResult> result = service.detectPath(file.toPath());
+                Optional<FileType> fileTypeOptional = service.resolve(result);
+                Platform.runLater(() -> {
+                    detection = result.orElse(null);
+                    showAnalysisResult(fileTypeOptional);
+                });
+            } catch (Exception e) {
+                logger.error("Ошибка при анализе файла", e);
+                Platform.runLater(() -> showAnalysisError(e));
+            }
+        });
+    }
 
-            Optional<FileType> fileTypeOptional = fileAnalyzerService.analyzeFile(selectedFile);
+    /**
+     * Отображает результат анализа. Вызывается в потоке интерфейса.
+     *
+     * @param fileTypeOptional определенный тип файла
+     */
+    private void showAnalysisResult(Optional<FileType> fileTypeOptional) {
+        progressIndicator.setVisible(false);
+        analyzeButton.setDisable(false);
 
-            if (fileTypeOptional.isPresent()) {
-                detectedFileType = fileTypeOptional.get();
+        if (fileTypeOptional.isPresent()) {
+            detectedFileType = fileTypeOptional.get();
 
-                fileTypeLabel.setText(detectedFileType.getExtension().toUpperCase() + " File");
-                extensionLabel.setText("." + detectedFileType.getExtension());
-                descriptionLabel.setText(detectedFileType.getDescription());
+            fileTypeLabel.setText(detectedFileType.getExtension().toUpperCase() + " File");
+            extensionLabel.setText("." + detectedFileType.getExtension());
+            descriptionLabel.setText(detectedFileType.getDescription());
 
-                logToUI("Файл определен как: " + detectedFileType.getExtension());
-                restoreButton.setDisable(false);
-            } else {
-                fileTypeLabel.setText("Неизвестный тип");
-                extensionLabel.setText(".unknown");
-                descriptionLabel.setText("Не удалось определить тип файла по содержимому");
-                logToUI("Не удалось определить тип файла");
-                restoreButton.setDisable(true);
+            logToUI("Файл определен как: " + detectedFileType.getExtension());
+            if (detection != null && detection.isApproximate()) {
+                logToUI("Заголовок поврежден, отличающиеся байты по смещениям: "
+                        + Arrays.toString(detection.getDamagedOffsets()));
             }
+            restoreButton.setDisable(false);
+        } else {
+            fileTypeLabel.setText("Неизвестный тип");
+            extensionLabel.setText(".unknown");
+            descriptionLabel.setText("Не удалось определить тип файла по содержимому");
+            logToUI("Не удалось определить тип файла");
+            restoreButton.setDisable(true);
+        }
 
-            logToUI("Анализ завершен успешно");
+        logToUI("Анализ завершен успешно");
+    }
 
-        } catch (Exception e) {
-            logger.error("Ошибка при анализе файла", e);
-            showAlert(Alert.AlertType.ERROR, "Ошибка анализа",
-                    "Не удалось проанализировать файл: " + e.getMessage());
-            logToUI("Ошибка анализа: " + e.getMessage());
-        } finally {
-            progressIndicator.setVisible(false);
-        }
+    /**
+     * Отображает ошибку анализа. Вызывается в потоке интерфейса.
+     *
+     * @param e ошибка анализа
+     */
+    private void showAnalysisError(Exception e) {
+        progressIndicator.setVisible(false);
+        analyzeButton.setDisable(false);
+        showAlert(Alert.AlertType.ERROR, "Ошибка анализа",
+                "Не удалось проанализировать файл: " + e.getMessage());
+        logToUI("Ошибка анализа: " + e.getMessage());
     }
 
     /**
@@ -121,7 +181,12 @@ public class MainController {
             }
 
             logToUI("Восстанавливаю расширение для файла...");
-            File restoredFile = fileRestoreService.restoreFileExtension(selectedFile, detectedFileType);
+            File restoredFile;
+            if (detection != null && detection.isApproximate()) {
+                restoredFile = fileRestoreService.restoreFileExtension(selectedFile, detection, confirmHeaderRepair());
+            } else {
+                restoredFile = fileRestoreService.restoreFileExtension(selectedFile, detectedFileType);
+            }
 
             logToUI("Файл сохранен как: " + restoredFile.getName());
             showAlert(Alert.AlertType.INFORMATION, "Успех",
@@ -135,6 +200,23 @@ public class MainController {
         }
     }
 
+    /**
+     * Предлагает исправить поврежденный заголовок в восстановленной копии.
+     *
+     * @return true, если пользователь согласился
+     */
+    private boolean confirmHeaderRepair() {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Поврежденный заголовок");
+        alert.setHeaderText("Заголовок совпал с сигнатурой " + detection.getFileType().getExtension().toUpperCase()
+                + " неточно");
+        alert.setContentText("Отличающиеся байты по смещениям " + Arrays.toString(detection.getDamagedOffsets())
+                + ". Заменить их байтами сигнатуры в копии файла? Исходный файл не изменится.");
+        boolean repair = alert.showAndWait().filter(button -> button == ButtonType.OK).isPresent();
+        logToUI(repair ? "Заголовок будет исправлен в копии" : "Заголовок оставлен без изменений");
+        return repair;
+    }
+
     // Обновляем обработчики кнопок:
     @FXML
     private void handleAnalyzeButton() {
@@ -254,6 +336,7 @@ public class MainController {
         extensionLabel.setText("Не определено");
         descriptionLabel.setText("-");
         restoreButton.setDisable(true);
+        detection = null;
     }
 
     /**
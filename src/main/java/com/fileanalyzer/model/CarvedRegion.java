@@ -0,0 +1,87 @@
+package com.fileanalyzer.model;
+
+/**
+ * Файл, найденный в образе диска по сигнатуре: смещение начала,
+ * определенный тип и оценка конца.
+ */
+public class CarvedRegion {
+
+    /**
+     * Чем определен конец области.
+     */
+    public enum EndReason {
+        /** Найден завершающий маркер формата. */
+        FOOTER,
+        /** Начинается следующий найденный файл. */
+        NEXT_HEADER,
+        /** Достигнут предельный размер файла. */
+        SIZE_LIMIT,
+        /** Достигнут конец образа. */
+        END_OF_IMAGE
+    }
+
+    private final long offset;
+    private final long end;
+    private final FileType fileType;
+    private final EndReason endReason;
+
+    /**
+     * Конструктор найденной области.
+     *
+     * @param offset смещение начала файла в образе
+     * @param end оценка смещения конца файла (не включительно)
+     * @param fileType определенный тип файла
+     * @param endReason чем определен конец
+     */
+    public CarvedRegion(long offset, long end, FileType fileType, EndReason endReason) {
+        this.offset = offset;
+        this.end = end;
+        this.fileType = fileType;
+        this.endReason = endReason;
+    }
+
+    /**
+     * @return смещение начала файла в образе
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return оценка смещения конца файла (не включительно)
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return оценка размера файла в байтах
+     */
+    public long getLength() {
+        return end - offset;
+    }
+
+    /**
+     * @return определенный тип файла
+     */
+    public FileType getFileType() {
+        return fileType;
+    }
+
+    /**
+     * @return чем определен конец области
+     */
+    public EndReason getEndReason() {
+        return endReason;
+    }
+
+    @Override
+    public String toString() {
+        return "CarvedRegion{" +
+                "offset=" + offset +
+                ", end=" + end +
+                ", extension=" + fileType.getExtension() +
+                ", endReason=" + endReason +
+                '}';
+    }
+}
@@ -0,0 +1,108 @@
+package com.fileanalyzer.model;
+
+import java.util.Arrays;
+
+/**
+ * Ответ одного детектора типа файла: найденный тип и уверенность в нем.
+ * Для заголовка, совпавшего с сигнатурой неточно, ответ также содержит
+ * смещения поврежденных байт и их значения по сигнатуре, по которым
+ * заголовок можно исправить при восстановлении.
+ */
+public class DetectionResult {
+
+    private static final int[] NO_OFFSETS = new int[0];
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final FileType fileType;
+    private final double confidence;
+    private final String detector;
+    private final int[] damagedOffsets;
+    private final byte[] expectedBytes;
+
+    /**
+     * Конструктор результата.
+     *
+     * @param fileType определенный тип файла
+     * @param confidence уверенность от 0 до 1
+     * @param detector имя детектора, давшего ответ
+     */
+    public DetectionResult(FileType fileType, double confidence, String detector) {
+        this(fileType, confidence, detector, NO_OFFSETS, NO_BYTES);
+    }
+
+    /**
+     * Конструктор результата неточного совпадения с сигнатурой.
+     *
+     * @param fileType определенный тип файла
+     * @param confidence уверенность от 0 до 1
+     * @param detector имя детектора, давшего ответ
+     * @param damagedOffsets смещения поврежденных байт от начала файла
+     * @param expectedBytes значения этих байт по сигнатуре
+     */
+    public DetectionResult(FileType fileType, double confidence, String detector,
+                           int[] damagedOffsets, byte[] expectedBytes) {
+        if (fileType == null) {
+            throw new IllegalArgumentException("Тип файла не указан");
+        }
+        if (damagedOffsets.length != expectedBytes.length) {
+            throw new IllegalArgumentException("Число поврежденных байт и их значений не совпадает");
+        }
+        this.fileType = fileType;
+        this.confidence = confidence;
+        this.detector = detector;
+        this.damagedOffsets = damagedOffsets.clone();
+        this.expectedBytes = expectedBytes.clone();
+    }
+
+    /**
+     * @return определенный тип файла
+     */
+    public FileType getFileType() {
+        return fileType;
+    }
+
+    /**
+     * @return уверенность от 0 до 1
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return имя детектора, давшего ответ
+     */
+    public String getDetector() {
+        return detector;
+    }
+
+    /**
+     * @return true, если заголовок совпал с сигнатурой неточно
+     */
+    public boolean isApproximate() {
+        return damagedOffsets.length > 0;
+    }
+
+    /**
+     * @return смещения поврежденных байт заголовка от начала файла
+     */
+    public int[] getDamagedOffsets() {
+        return damagedOffsets.clone();
+    }
+
+    /**
+     * @return значения поврежденных байт по сигнатуре, в порядке смещений
+     */
+    public byte[] getExpectedBytes() {
+        return expectedBytes.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "DetectionResult{" +
+                "extension=" + fileType.getExtension() +
+                ", confidence=" + confidence +
+                ", detector=" + detector +
+                (isApproximate() ? ", damagedOffsets=" + Arrays.toString(damagedOffsets) : "") +
+                '}';
+    }
+}
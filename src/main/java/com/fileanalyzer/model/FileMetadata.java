@@ -0,0 +1,74 @@
+package com.fileanalyzer.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Метаданные файла, извлеченные после определения типа: размеры
+ * изображения, версия PDF, параметры и теги MP3, длительность MP4.
+ * Значения хранятся строками в порядке добавления.
+ */
+public class FileMetadata {
+    private final Map<String, String> values = new LinkedHashMap<>();
+
+    /**
+     * Добавляет значение; null пропускается.
+     *
+     * @param key ключ (например, "width")
+     * @param value значение
+     * @return эти же метаданные
+     */
+    public FileMetadata put(String key, Object value) {
+        if (value != null) {
+            values.put(key, String.valueOf(value));
+        }
+        return this;
+    }
+
+    /**
+     * Возвращает значение по ключу.
+     *
+     * @param key ключ
+     * @return Optional со значением
+     */
+    public Optional<String> get(String key) {
+        return Optional.ofNullable(values.get(key));
+    }
+
+    /**
+     * Проверяет, что ни одно значение не извлечено.
+     *
+     * @return true, если метаданных нет
+     */
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Возвращает все значения в порядке добавления.
+     *
+     * @return неизменяемое отображение ключ - значение
+     */
+    public Map<String, String> asMap() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Возвращает метаданные одной строкой {@code ключ=значение;ключ=значение}
+     * для пакетного вывода. Разделители и переводы строк в значениях
+     * заменяются пробелами.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (builder.length() > 0) {
+                builder.append(';');
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue().replaceAll("[\\t\\r\\n;]", " "));
+        }
+        return builder.toString();
+    }
+}
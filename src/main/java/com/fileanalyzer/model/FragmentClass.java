@@ -0,0 +1,34 @@
+package com.fileanalyzer.model;
+
+/**
+ * Класс содержимого фрагмента файла, не имеющего распознаваемой сигнатуры.
+ * Определяется статистическим анализом (энтропия, частоты байт, биграммы,
+ * структурные признаки) и связывается с расширением из базы типов файлов.
+ */
+public enum FragmentClass {
+    /** Текст в ASCII или UTF-8. */
+    TEXT("txt"),
+    /** Сжатые энтропийным кодированием данные JPEG (тело изображения без заголовка). */
+    JPEG_BODY("jpg"),
+    /** Поток кадров MPEG Audio Layer III. */
+    MP3_STREAM("mp3"),
+    /** Сжатые или зашифрованные данные с равномерным распределением байт. */
+    COMPRESSED_OR_ENCRYPTED("bin"),
+    /** Класс определить не удалось. */
+    UNKNOWN(null);
+
+    private final String extension;
+
+    FragmentClass(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Возвращает расширение типа файла, соответствующего классу.
+     *
+     * @return расширение или null для {@link #UNKNOWN}
+     */
+    public String getExtension() {
+        return extension;
+    }
+}
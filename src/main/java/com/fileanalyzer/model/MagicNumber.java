@@ -1,5 +1,7 @@
 package com.fileanalyzer.model;
 
+import java.util.Arrays;
+
 /**
  * Класс, представляющий магическое число для идентификации типа файла.
  * Содержит смещение и последовательность байтов для сравнения.
@@ -83,28 +85,41 @@ public class MagicNumber {
         this.hex = hex;
         // Автоматически конвертируем HEX в байты
         if (hex != null && !hex.trim().isEmpty()) {
-            this.bytes = hexStringToByteArray(hex.replaceAll("\\s+", ""));
+            this.bytes = hexStringToByteArray(hex);
         }
     }
 
     /**
-     * Конвертирует HEX строку в массив байт.
+     * Конвертирует HEX строку в массив байт за один проход.
+     * Пробельные символы между цифрами пропускаются.
      *
-     * @param hexString HEX строка (без пробелов)
-     * @return массив байт
+     * @param hexString HEX строка (допускаются пробелы)
+     * @return массив байт; пустой массив, если строка содержит
+     *         недопустимые символы или нечетное количество цифр
      */
-    private byte[] hexStringToByteArray(String hexString) {
-        try {
-            int len = hexString.length();
-            byte[] data = new byte[len / 2];
-            for (int i = 0; i < len; i += 2) {
-                data[i / 2] = (byte) ((Character.digit(hexString.charAt(i), 16) << 4)
-                        + Character.digit(hexString.charAt(i + 1), 16));
+    private static byte[] hexStringToByteArray(String hexString) {
+        byte[] data = new byte[hexString.length() / 2];
+        int digits = 0;
+        for (int i = 0; i < hexString.length(); i++) {
+            char c = hexString.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                return new byte[0];
+            }
+            if ((digits & 1) == 0) {
+                data[digits >> 1] = (byte) (digit << 4);
+            } else {
+                data[digits >> 1] |= (byte) digit;
             }
-            return data;
-        } catch (Exception e) {
+            digits++;
+        }
+        if ((digits & 1) != 0) {
             return new byte[0];
         }
+        return digits / 2 == data.length ? data : Arrays.copyOf(data, digits / 2);
     }
 
     /**
@@ -116,6 +131,17 @@ public class MagicNumber {
         return bytes != null ? bytes.length : 0;
     }
 
+    /**
+     * Проверяет, пригодна ли сигнатура для сопоставления: содержит байты
+     * и имеет неотрицательное смещение. Неверная HEX строка дает пустую
+     * сигнатуру.
+     *
+     * @return true, если сигнатуру можно использовать
+     */
+    public boolean isValid() {
+        return getLength() > 0 && offset >= 0;
+    }
+
     @Override
     public String toString() {
         return "MagicNumber{" +
@@ -0,0 +1,119 @@
+package com.fileanalyzer.model;
+
+import java.nio.file.Path;
+
+/**
+ * Результат анализа одного файла при пакетном сканировании каталога.
+ * Содержит путь, размер и определенный тип файла (может отсутствовать),
+ * а также необязательные хэш содержимого и метаданные.
+ */
+public class ScanResult {
+    private final Path path;
+    private final long size;
+    private final FileType fileType;
+    private final long contentHash;
+    private final FileMetadata metadata;
+
+    /**
+     * Конструктор результата сканирования без хэша содержимого.
+     *
+     * @param path путь к файлу
+     * @param size размер файла в байтах
+     * @param fileType определенный тип файла или null, если тип не определен
+     */
+    public ScanResult(Path path, long size, FileType fileType) {
+        this(path, size, fileType, 0L);
+    }
+
+    /**
+     * Конструктор результата сканирования.
+     *
+     * @param path путь к файлу
+     * @param size размер файла в байтах
+     * @param fileType определенный тип файла или null, если тип не определен
+     * @param contentHash 64-битный хэш содержимого (0, если не вычислялся)
+     */
+    public ScanResult(Path path, long size, FileType fileType, long contentHash) {
+        this(path, size, fileType, contentHash, null);
+    }
+
+    /**
+     * Конструктор результата сканирования с метаданными.
+     *
+     * @param path путь к файлу
+     * @param size размер файла в байтах
+     * @param fileType определенный тип файла или null, если тип не определен
+     * @param contentHash 64-битный хэш содержимого (0, если не вычислялся)
+     * @param metadata метаданные файла или null, если они не извлекались
+     */
+    public ScanResult(Path path, long size, FileType fileType, long contentHash, FileMetadata metadata) {
+        this.path = path;
+        this.size = size;
+        this.fileType = fileType;
+        this.contentHash = contentHash;
+        this.metadata = metadata;
+    }
+
+    /**
+     * Возвращает путь к файлу.
+     *
+     * @return путь к файлу
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Возвращает размер файла.
+     *
+     * @return размер в байтах
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Возвращает определенный тип файла.
+     *
+     * @return тип файла или null, если тип не определен
+     */
+    public FileType getFileType() {
+        return fileType;
+    }
+
+    /**
+     * Возвращает 64-битный хэш содержимого файла.
+     *
+     * @return хэш содержимого или 0, если он не вычислялся
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Возвращает метаданные файла.
+     *
+     * @return метаданные или null, если они не извлекались или не найдены
+     */
+    public FileMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Проверяет, удалось ли определить тип файла.
+     *
+     * @return true, если тип определен
+     */
+    public boolean isDetected() {
+        return fileType != null;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanResult{" +
+                "path=" + path +
+                ", size=" + size +
+                ", extension=" + (fileType != null ? fileType.getExtension() : "unknown") +
+                '}';
+    }
+}
@@ -0,0 +1,133 @@
+package com.fileanalyzer.service;
+
+/**
+ * Адаптивный ограничитель количества одновременных операций ввода-вывода
+ * по схеме AIMD (аддитивное увеличение, мультипликативное уменьшение).
+ *
+ * <p>Ограничитель измеряет задержку каждой операции и сравнивает сглаженную
+ * задержку с минимальной наблюдаемой. Пока задержка не растет, устройство
+ * справляется с нагрузкой, и лимит увеличивается на единицу за окно измерений.
+ * Рост задержки означает образование очереди на устройстве (например, лишние
+ * перемещения головок HDD), и лимит уменьшается вдвое. Так на HDD число
+ * параллельных чтений остается небольшим, а на SSD/NVMe растет до максимума.
+ */
+public class AimdConcurrencyLimiter {
+
+    /** Коэффициент сглаживания задержки. */
+    private static final double SMOOTHING = 0.1;
+    /** Задержка, ниже которой колебания считаются шумом (чтение из кэша). */
+    private static final long NOISE_FLOOR_NANOS = 200_000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private int limit;
+    private int inFlight;
+    private double smoothedLatency;
+    private long windowMinLatency = Long.MAX_VALUE;
+    private long previousWindowMinLatency = Long.MAX_VALUE;
+    private int windowSamples;
+
+    /**
+     * Конструктор ограничителя.
+     *
+     * @param minLimit минимальное количество одновременных операций
+     * @param maxLimit максимальное количество одновременных операций
+     * @param initialLimit начальный лимит
+     * @param tolerance во сколько раз сглаженная задержка может превышать
+     *                  минимальную, прежде чем лимит будет уменьшен
+     */
+    public AimdConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit, double tolerance) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Некорректные границы лимита: " + minLimit + ".." + maxLimit);
+        }
+        if (tolerance <= 1.0) {
+            throw new IllegalArgumentException("Допуск должен быть больше 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Ожидает, пока количество выполняющихся операций не станет меньше лимита.
+     *
+     * @throws InterruptedException если ожидание было прервано
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Сообщает о завершении операции и ее задержке, корректируя лимит.
+     *
+     * @param latencyNanos задержка операции в наносекундах
+     */
+    public synchronized void release(long latencyNanos) {
+        inFlight--;
+        onSample(latencyNanos);
+        notifyAll();
+    }
+
+    /**
+     * Учитывает измерение задержки без захвата разрешения.
+     *
+     * @param latencyNanos задержка операции в наносекундах
+     */
+    public synchronized void onSample(long latencyNanos) {
+        smoothedLatency = smoothedLatency == 0
+                ? latencyNanos
+                : smoothedLatency + SMOOTHING * (latencyNanos - smoothedLatency);
+        windowMinLatency = Math.min(windowMinLatency, latencyNanos);
+
+        // Окно измерений соответствует текущему лимиту (один "круг" операций)
+        if (++windowSamples < limit) {
+            return;
+        }
+
+        long baseline = Math.min(windowMinLatency, previousWindowMinLatency);
+        boolean congested = smoothedLatency > NOISE_FLOOR_NANOS && smoothedLatency > tolerance * baseline;
+        if (congested) {
+            limit = Math.max(minLimit, limit / 2);
+        } else {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+
+        previousWindowMinLatency = windowMinLatency;
+        windowMinLatency = Long.MAX_VALUE;
+        windowSamples = 0;
+        notifyAll();
+    }
+
+    /**
+     * Возвращает текущий лимит одновременных операций.
+     *
+     * @return лимит
+     */
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Возвращает количество выполняющихся операций.
+     *
+     * @return количество операций
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Возвращает сглаженную задержку операций.
+     *
+     * @return задержка в наносекундах
+     */
+    public synchronized long getSmoothedLatencyNanos() {
+        return (long) smoothedLatency;
+    }
+}
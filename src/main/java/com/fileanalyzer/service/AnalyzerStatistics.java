@@ -0,0 +1,156 @@
+package com.fileanalyzer.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики работы анализатора: количество файлов, прочитанных байт
+ * и обращений к файловой системе. Счетчики потокобезопасны и рассчитаны
+ * на частое обновление из нескольких потоков пакетного анализа.
+ */
+public class AnalyzerStatistics {
+
+    private final LongAdder filesAnalyzed = new LongAdder();
+    private final LongAdder filesSkipped = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder readCalls = new LongAdder();
+    private final LongAdder fragmentsClassified = new LongAdder();
+    private final LongAdder prefixCacheHits = new LongAdder();
+    private final LongAdder prefixCacheMisses = new LongAdder();
+
+    /**
+     * Учитывает анализ одного файла.
+     *
+     * @param bytes количество байт, прочитанных для анализа файла
+     * @param reads количество операций чтения
+     */
+    public void recordFile(long bytes, int reads) {
+        filesAnalyzed.increment();
+        bytesRead.add(bytes);
+        readCalls.add(reads);
+    }
+
+    /**
+     * Учитывает файл, тип которого не определялся без открытия: пустой или
+     * не являющийся обычным файлом по атрибутам обхода каталога.
+     */
+    public void recordSkipped() {
+        filesSkipped.increment();
+    }
+
+    /**
+     * Учитывает дополнительное чтение выборки для классификации содержимого
+     * файла, у которого не совпала ни одна сигнатура.
+     *
+     * @param bytes количество байт выборки
+     * @param reads количество операций чтения
+     */
+    public void recordFragmentSample(long bytes, int reads) {
+        fragmentsClassified.increment();
+        bytesRead.add(bytes);
+        readCalls.add(reads);
+    }
+
+    /**
+     * Учитывает обращение к кэшу результатов по префиксу заголовка.
+     *
+     * @param hit true, если результат найден в кэше
+     */
+    public void recordPrefixLookup(boolean hit) {
+        if (hit) {
+            prefixCacheHits.increment();
+        } else {
+            prefixCacheMisses.increment();
+        }
+    }
+
+    /**
+     * @return количество файлов, пропущенных без открытия
+     */
+    public long getFilesSkipped() {
+        return filesSkipped.sum();
+    }
+
+    /**
+     * @return количество проанализированных файлов
+     */
+    public long getFilesAnalyzed() {
+        return filesAnalyzed.sum();
+    }
+
+    /**
+     * @return общее количество прочитанных байт
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return количество файлов, классифицированных по содержимому
+     */
+    public long getFragmentsClassified() {
+        return fragmentsClassified.sum();
+    }
+
+    /**
+     * @return общее количество операций чтения
+     */
+    public long getReadCalls() {
+        return readCalls.sum();
+    }
+
+    /**
+     * @return количество попаданий в кэш префиксов
+     */
+    public long getPrefixCacheHits() {
+        return prefixCacheHits.sum();
+    }
+
+    /**
+     * @return количество промахов кэша префиксов
+     */
+    public long getPrefixCacheMisses() {
+        return prefixCacheMisses.sum();
+    }
+
+    /**
+     * Возвращает долю заголовков, результат для которых найден в кэше префиксов.
+     *
+     * @return доля попаданий от 0 до 1 или 0, если кэш не использовался
+     */
+    public double getPrefixCacheHitRate() {
+        long hits = prefixCacheHits.sum();
+        long lookups = hits + prefixCacheMisses.sum();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Возвращает среднее количество байт, прочитанных на один файл.
+     *
+     * @return среднее количество байт или 0, если файлы не анализировались
+     */
+    public double getAverageBytesPerFile() {
+        long files = filesAnalyzed.sum();
+        return files == 0 ? 0 : (double) bytesRead.sum() / files;
+    }
+
+    /**
+     * Сбрасывает все счетчики.
+     */
+    public void reset() {
+        filesAnalyzed.reset();
+        filesSkipped.reset();
+        bytesRead.reset();
+        readCalls.reset();
+        fragmentsClassified.reset();
+        prefixCacheHits.reset();
+        prefixCacheMisses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("файлов: %d, пропущено без открытия: %d, прочитано байт: %d (в среднем %.1f на файл), операций чтения: %d, "
+                        + "классифицировано по содержимому: %d, попаданий в кэш префиксов: %.1f%%",
+                getFilesAnalyzed(), getFilesSkipped(), getBytesRead(), getAverageBytesPerFile(), getReadCalls(),
+                getFragmentsClassified(), getPrefixCacheHitRate() * 100);
+    }
+}
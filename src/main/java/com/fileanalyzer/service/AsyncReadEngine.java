@@ -0,0 +1,318 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.DetectionResult;
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.ScanResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Асинхронное чтение заголовков при пакетном анализе через
+ * {@link AsynchronousFileChannel}. В отличие от {@link IoScheduler}, поток
+ * не ждет завершения чтения: заголовок целиком читается одним запросом в буфер
+ * из пула, а обработчик завершения сразу передает его детекторам
+ * ({@link FileAnalyzerService#detectHeader}). Если ответа по заголовку
+ * недостаточно, тем же способом читается выборка для классификации
+ * содержимого. Количество одновременно выполняемых операций ограничено
+ * параметром {@code maxOutstanding}.
+ *
+ * <p>Результаты совпадают с синхронным анализом. Поэтапное чтение заголовка
+ * не используется: на сетевых хранилищах лишний запрос дороже лишних байт.
+ *
+ * <p>Открытие файла синхронно, поэтому оно тоже выполняется в пуле движка.
+ * В Windows чтения идут через порт завершения, и потоки пула заняты только
+ * открытием и обработкой результатов. В Linux JDK выполняет чтения
+ * {@link AsynchronousFileChannel} блокирующими вызовами в том же пуле,
+ * поэтому его размер по умолчанию равен {@code maxOutstanding}.
+ */
+public class AsyncReadEngine implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AsyncReadEngine.class);
+
+    /** Количество одновременных операций по умолчанию. */
+    public static final int DEFAULT_MAX_OUTSTANDING = 256;
+    private static final Set<OpenOption> READ = Collections.singleton(StandardOpenOption.READ);
+    private static final long IDLE_THREAD_SECONDS = 30;
+
+    private final FileAnalyzerService fileAnalyzerService;
+    private final int maxOutstanding;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final Semaphore permits;
+    private final int headerSize;
+    private final ConcurrentLinkedQueue<ByteBuffer> headerBuffers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<byte[]> sampleBuffers = new ConcurrentLinkedQueue<>();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private volatile ScanThrottle throttle;
+
+    /**
+     * Конструктор движка с собственным пулом из {@code maxOutstanding} потоков;
+     * простаивающие потоки завершаются.
+     *
+     * @param fileAnalyzerService сервис анализа файлов
+     * @param maxOutstanding максимальное количество одновременных операций
+     */
+    public AsyncReadEngine(FileAnalyzerService fileAnalyzerService, int maxOutstanding) {
+        this(fileAnalyzerService, maxOutstanding, createExecutor(maxOutstanding), true);
+    }
+
+    /**
+     * Конструктор движка с внешним пулом для открытия файлов и обработчиков
+     * завершения. Пул не останавливается при закрытии движка.
+     *
+     * @param fileAnalyzerService сервис анализа файлов
+     * @param maxOutstanding максимальное количество одновременных операций
+     * @param executor пул потоков
+     */
+    public AsyncReadEngine(FileAnalyzerService fileAnalyzerService, int maxOutstanding, ExecutorService executor) {
+        this(fileAnalyzerService, maxOutstanding, executor, false);
+    }
+
+    private AsyncReadEngine(FileAnalyzerService fileAnalyzerService, int maxOutstanding,
+                            ExecutorService executor, boolean ownExecutor) {
+        if (maxOutstanding <= 0) {
+            throw new IllegalArgumentException("Количество операций должно быть положительным");
+        }
+        this.fileAnalyzerService = fileAnalyzerService;
+        this.maxOutstanding = maxOutstanding;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.permits = new Semaphore(maxOutstanding);
+        this.headerSize = fileAnalyzerService.getHeaderCapacity();
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "async-read-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Устанавливает ограничение нагрузки на устройство.
+     *
+     * @param throttle ограничитель или null, чтобы снять ограничения
+     */
+    public void setThrottle(ScanThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * @return максимальное количество одновременных операций
+     */
+    public int getMaxOutstanding() {
+        return maxOutstanding;
+    }
+
+    /**
+     * Возвращает гистограмму задержек от открытия файла до определения типа.
+     *
+     * @return гистограмма задержек
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latencies;
+    }
+
+    /**
+     * Выполняет пакет запросов и ожидает завершения всех операций.
+     * Получатель вызывается из потоков пула, возможно одновременно.
+     *
+     * @param requests запросы на чтение
+     * @param sink получатель результатов
+     * @throws InterruptedException если ожидание было прервано
+     */
+    public void execute(List<IoScheduler.ReadRequest> requests, Consumer<ScanResult> sink)
+            throws InterruptedException {
+        List<IoScheduler.ReadRequest> ordered = new ArrayList<>(requests);
+        ordered.sort(IoScheduler.LOCALITY_ORDER);
+        CountDownLatch done = new CountDownLatch(ordered.size());
+        ScanThrottle currentThrottle = throttle;
+        for (IoScheduler.ReadRequest request : ordered) {
+            if (!request.needsRead()) {
+                // Пустые и специальные файлы определяются по атрибутам без открытия
+                fileAnalyzerService.getStatistics().recordSkipped();
+                try {
+                    sink.accept(new ScanResult(request.getPath(), request.getSize(), null));
+                } finally {
+                    done.countDown();
+                }
+                continue;
+            }
+            if (currentThrottle != null) {
+                currentThrottle.acquire(Math.min(request.getSize(), headerSize));
+            }
+            permits.acquire();
+            Operation operation = new Operation(request, sink, done, currentThrottle);
+            try {
+                executor.execute(operation::open);
+            } catch (RuntimeException e) {
+                operation.failed(e, null);
+            }
+        }
+        done.await();
+        logger.debug("Пакет из {} асинхронных чтений выполнен", ordered.size());
+    }
+
+    /**
+     * Анализ одного файла: открытие, чтение заголовка и, при необходимости,
+     * выборки содержимого. Обработчик завершения для обоих чтений.
+     */
+    private final class Operation implements CompletionHandler<Integer, Void> {
+        private final IoScheduler.ReadRequest request;
+        private final Consumer<ScanResult> sink;
+        private final CountDownLatch done;
+        private final ScanThrottle throttle;
+        private final long start = System.nanoTime();
+        private AsynchronousFileChannel channel;
+        private ByteBuffer header;
+        private byte[] sample;
+        private ByteBuffer sampleBuffer;
+        private Optional<DetectionResult> detection;
+        private int sampleReads;
+
+        Operation(IoScheduler.ReadRequest request, Consumer<ScanResult> sink, CountDownLatch done,
+                  ScanThrottle throttle) {
+            this.request = request;
+            this.sink = sink;
+            this.done = done;
+            this.throttle = throttle;
+        }
+
+        void open() {
+            try {
+                channel = AsynchronousFileChannel.open(request.getPath(), READ, executor);
+                header = headerBuffers.poll();
+                if (header == null) {
+                    header = ByteBuffer.allocateDirect(headerSize);
+                }
+                header.clear();
+                channel.read(header, 0, null, this);
+            } catch (IOException | RuntimeException e) {
+                failed(e, null);
+            }
+        }
+
+        @Override
+        public void completed(Integer read, Void attachment) {
+            try {
+                if (sampleBuffer == null) {
+                    headerCompleted(read);
+                } else {
+                    sampleCompleted(read);
+                }
+            } catch (IOException | RuntimeException e) {
+                failed(e, null);
+            }
+        }
+
+        private void headerCompleted(int read) throws IOException {
+            if (read > 0 && header.hasRemaining()) {
+                // Короткое чтение: дочитываем с текущей позиции
+                channel.read(header, header.position(), null, this);
+                return;
+            }
+            int available = header.position();
+            if (available == 0) {
+                finish(Optional.empty());
+                return;
+            }
+            boolean endOfFile = header.hasRemaining();
+            long size = request.getSize();
+            detection = fileAnalyzerService.detectHeader(header, available, endOfFile, size);
+            if (!fileAnalyzerService.needsContentSample(detection, endOfFile, size)) {
+                finish(fileAnalyzerService.resolve(detection));
+                return;
+            }
+            sample = sampleBuffers.poll();
+            if (sample == null) {
+                sample = new byte[FragmentClassifier.DEFAULT_SAMPLE_SIZE];
+            }
+            sampleBuffer = ByteBuffer.wrap(sample);
+            readSample();
+        }
+
+        private void sampleCompleted(int read) {
+            if (read > 0 && sampleBuffer.hasRemaining()) {
+                readSample();
+                return;
+            }
+            finish(fileAnalyzerService.classifySample(detection, sample, sampleBuffer.position(), sampleReads));
+        }
+
+        private void readSample() {
+            sampleReads++;
+            channel.read(sampleBuffer, sampleBuffer.position(), null, this);
+        }
+
+        @Override
+        public void failed(Throwable e, Void attachment) {
+            logger.warn("Ошибка при чтении {}: {}", request.getPath(), e.getMessage());
+            finish(Optional.empty());
+        }
+
+        private void finish(Optional<FileType> fileType) {
+            try {
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        logger.debug("Не удалось закрыть {}: {}", request.getPath(), e.getMessage());
+                    }
+                }
+                if (header != null) {
+                    headerBuffers.offer(header);
+                }
+                if (sample != null) {
+                    sampleBuffers.offer(sample);
+                }
+                long latency = System.nanoTime() - start;
+                latencies.record(latency);
+                if (throttle != null) {
+                    throttle.onLatency(latency);
+                }
+                permits.release();
+                sink.accept(new ScanResult(request.getPath(), request.getSize(), fileType.orElse(null)));
+            } catch (RuntimeException e) {
+                logger.error("Ошибка при обработке результата чтения {}", request.getPath(), e);
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+    /**
+     * Останавливает собственный пул движка.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.ScanResult;
+import com.fileanalyzer.util.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Сервис пакетного анализа каталогов.
+ * Обходит дерево каталогов и определяет тип каждого найденного файла.
+ * Атрибуты, полученные при обходе, передаются до анализа, поэтому для
+ * файла не выполняются отдельные проверки существования, типа и размера.
+ */
+public class BatchScanService {
+
+    private static final Logger logger = LogManager.getLogger(BatchScanService.class);
+
+    /** Количество файлов, передаваемых планировщику чтения за один раз. */
+    private static final int BATCH_SIZE = 4096;
+
+    private final FileAnalyzerService fileAnalyzerService;
+    private final IoScheduler ioScheduler;
+    private volatile boolean computeContentHash;
+    private volatile boolean followLinks;
+    private volatile AsyncReadEngine asyncReadEngine;
+    private volatile MetadataService metadataService;
+
+    /**
+     * Конструктор сервиса пакетного анализа с планировщиком чтения по умолчанию.
+     *
+     * @param fileAnalyzerService сервис анализа отдельных файлов
+     */
+    public BatchScanService(FileAnalyzerService fileAnalyzerService) {
+        this(fileAnalyzerService, new IoScheduler(fileAnalyzerService));
+    }
+
+    /**
+     * Конструктор сервиса пакетного анализа.
+     *
+     * @param fileAnalyzerService сервис анализа отдельных файлов
+     * @param ioScheduler планировщик чтения заголовков
+     */
+    public BatchScanService(FileAnalyzerService fileAnalyzerService, IoScheduler ioScheduler) {
+        this.fileAnalyzerService = fileAnalyzerService;
+        this.ioScheduler = ioScheduler;
+    }
+
+    /**
+     * Включает вычисление хэша содержимого для каждого файла.
+     * Требует полного чтения файлов, поэтому по умолчанию выключено.
+     *
+     * @param computeContentHash true, чтобы вычислять хэш содержимого
+     */
+    public void setComputeContentHash(boolean computeContentHash) {
+        this.computeContentHash = computeContentHash;
+    }
+
+    /**
+     * Включает извлечение метаданных после определения типа. Извлечение
+     * выполняется для каждого результата в потоке анализа, отдельно от
+     * чтения заголовков; по умолчанию выключено.
+     *
+     * @param metadataService сервис метаданных или null, чтобы выключить
+     */
+    public void setMetadataService(MetadataService metadataService) {
+        this.metadataService = metadataService;
+    }
+
+    /**
+     * Включает переход по символическим ссылкам при обходе дерева
+     * в {@link #scan(Path, Consumer)}. Циклы ссылок обнаруживаются по ключам
+     * файлов из уже прочитанных атрибутов и пропускаются. По умолчанию
+     * ссылки не отслеживаются.
+     *
+     * @param followLinks true, чтобы анализировать файлы и каталоги по ссылкам
+     */
+    public void setFollowLinks(boolean followLinks) {
+        this.followLinks = followLinks;
+    }
+
+    /**
+     * Устанавливает ограничение нагрузки на устройство: скорость чтения,
+     * количество файлов в секунду и режим низкого приоритета. При вычислении
+     * хэша содержимого ограничение учитывает полное чтение файла.
+     *
+     * @param throttle ограничитель или null, чтобы снять ограничения
+     */
+    public void setThrottle(ScanThrottle throttle) {
+        ioScheduler.setThrottle(throttle);
+        AsyncReadEngine engine = asyncReadEngine;
+        if (engine != null) {
+            engine.setThrottle(throttle);
+        }
+    }
+
+    /**
+     * Переключает чтение заголовков на асинхронный движок вместо
+     * планировщика. Полезно для хранилищ с большой задержкой, где число
+     * одновременных операций важнее числа потоков. Ограничение нагрузки
+     * планировщика передается движку.
+     *
+     * @param asyncReadEngine движок асинхронного чтения или null, чтобы вернуться к планировщику
+     */
+    public void setAsyncReadEngine(AsyncReadEngine asyncReadEngine) {
+        if (asyncReadEngine != null) {
+            asyncReadEngine.setThrottle(ioScheduler.getThrottle());
+        }
+        this.asyncReadEngine = asyncReadEngine;
+    }
+
+    /**
+     * Анализирует все файлы в дереве каталогов.
+     * Результаты передаются получателю по мере готовности и не накапливаются в памяти.
+     *
+     * @param root корневой каталог (или отдельный файл)
+     * @param sink получатель результатов
+     * @return количество проанализированных файлов
+     * @throws IOException если не удалось обойти дерево каталогов
+     */
+    public long scan(Path root, Consumer<ScanResult> sink) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            throw new IllegalArgumentException("Каталог не существует или равен null");
+        }
+
+        // Чтения выполняются параллельно, а получатель вызывается строго последовательно
+        Object sinkLock = new Object();
+        Consumer<ScanResult> serializedSink = result -> {
+            ScanResult completed = complete(result);
+            synchronized (sinkLock) {
+                sink.accept(completed);
+            }
+        };
+
+        List<IoScheduler.ReadRequest> batch = new ArrayList<>(BATCH_SIZE);
+        long[] counter = new long[1];
+        Set<FileVisitOption> options = followLinks
+                ? EnumSet.of(FileVisitOption.FOLLOW_LINKS) : EnumSet.noneOf(FileVisitOption.class);
+        Files.walkFileTree(root, options, Integer.MAX_VALUE, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                // Каналы, устройства, сокеты и оборванные ссылки не анализируются
+                if (attrs.isRegularFile()) {
+                    batch.add(new IoScheduler.ReadRequest(file, attrs));
+                    counter[0]++;
+                    if (batch.size() >= BATCH_SIZE) {
+                        executeBatch(batch, serializedSink);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                if (e instanceof FileSystemLoopException) {
+                    logger.debug("Пропущен цикл символических ссылок: {}", file);
+                } else {
+                    logger.warn("Не удалось прочитать {}: {}", file, e.getMessage());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        executeBatch(batch, serializedSink);
+
+        logger.info("Пакетный анализ {} завершен. Обработано файлов: {}", root, counter[0]);
+        logger.info("Статистика чтения: {}", fileAnalyzerService.getStatistics());
+        logger.info("Детекторы: {}", fileAnalyzerService.getDetectionPipeline());
+        return counter[0];
+    }
+
+    /**
+     * Анализирует дерево каталогов с контрольными точками в журнале.
+     * Обход выполняется в глубину по явному фронту каталогов; каталоги читаются
+     * целиком, поэтому после выполнения пакета все прочитанные каталоги
+     * обработаны полностью и могут быть зафиксированы. Если журнал содержит
+     * контрольную точку, обход продолжается с сохраненного фронта, а уже
+     * обработанные поддеревья пропускаются.
+     *
+     * <p>Если получатель реализует {@link ScanJournal.Output}, перед записью
+     * контрольной точки его вывод фиксируется, и в журнал попадает смещение,
+     * до которого нужно обрезать вывод при возобновлении.
+     *
+     * @param root корневой каталог
+     * @param sink получатель результатов
+     * @param journal журнал контрольных точек
+     * @return общее количество проанализированных файлов с учетом предыдущих запусков
+     * @throws IOException если не удалось записать журнал или вывод
+     */
+    public long scan(Path root, Consumer<ScanResult> sink, ScanJournal journal) throws IOException {
+        if (root == null || !Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Каталог не существует или равен null");
+        }
+        ScanJournal.Output output = sink instanceof ScanJournal.Output ? (ScanJournal.Output) sink : null;
+
+        Object sinkLock = new Object();
+        long[] counter = {journal.getCommittedResults()};
+        Consumer<ScanResult> serializedSink = result -> {
+            ScanResult completed = complete(result);
+            synchronized (sinkLock) {
+                sink.accept(completed);
+                counter[0]++;
+            }
+        };
+
+        Deque<Path> frontier = journal.takeFrontier();
+        List<IoScheduler.ReadRequest> batch = new ArrayList<>(BATCH_SIZE);
+        int directories = 0;
+        long lastCheckpoint = System.currentTimeMillis();
+        while (!frontier.isEmpty()) {
+            Path directory = frontier.pollLast();
+            listDirectory(directory, batch, subdirectory -> {
+                frontier.addLast(subdirectory);
+                journal.pushed(subdirectory);
+            });
+            journal.popped(directory);
+            directories++;
+
+            if (batch.size() >= BATCH_SIZE || frontier.isEmpty()
+                    || journal.isCheckpointDue(directories, lastCheckpoint)) {
+                executeBatch(batch, serializedSink);
+                journal.checkpoint(counter[0], output);
+                directories = 0;
+                lastCheckpoint = System.currentTimeMillis();
+            }
+        }
+        journal.finish(counter[0], output);
+
+        logger.info("Пакетный анализ {} завершен. Обработано файлов: {}, контрольных точек: {}, fsync: {}",
+                root, counter[0], journal.getCheckpoints(), journal.getSyncs());
+        return counter[0];
+    }
+
+    /**
+     * Добавляет в пакет запросы на чтение файлов каталога, вложенные каталоги
+     * передает отдельному получателю. Символические ссылки не отслеживаются.
+     *
+     * @param directory каталог
+     * @param batch пакет запросов на чтение
+     * @param subdirectories получатель вложенных каталогов
+     */
+    private void listDirectory(Path directory, List<IoScheduler.ReadRequest> batch, Consumer<Path> subdirectories) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    logger.warn("Не удалось прочитать {}: {}", entry, e.getMessage());
+                    continue;
+                }
+                if (attrs.isDirectory()) {
+                    subdirectories.accept(entry);
+                } else if (attrs.isRegularFile()) {
+                    batch.add(new IoScheduler.ReadRequest(entry, attrs));
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось прочитать каталог {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Анализирует файлы, находящиеся непосредственно в каталоге, без обхода
+     * вложенных каталогов. Вложенные каталоги передаются отдельному получателю,
+     * чтобы вызывающий код сам решал, где и когда их обрабатывать
+     * (используется распределенным сканированием для передачи работы).
+     *
+     * @param directory каталог
+     * @param sink получатель результатов
+     * @param subdirectories получатель вложенных каталогов
+     * @return количество проанализированных файлов
+     * @throws IOException если каталог не удалось прочитать
+     */
+    public long scanDirectory(Path directory, Consumer<ScanResult> sink, Consumer<Path> subdirectories)
+            throws IOException {
+        Object sinkLock = new Object();
+        Consumer<ScanResult> serializedSink = result -> {
+            ScanResult completed = complete(result);
+            synchronized (sinkLock) {
+                sink.accept(completed);
+            }
+        };
+
+        List<IoScheduler.ReadRequest> batch = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            throw new IOException("Не каталог: " + directory);
+        }
+        listDirectory(directory, batch, subdirectories);
+        long count = batch.size();
+        executeBatch(batch, serializedSink);
+        return count;
+    }
+
+    /**
+     * Передает накопленный пакет запросов планировщику (или асинхронному
+     * движку, если он задан) и очищает его.
+     *
+     * @param batch пакет запросов на чтение
+     * @param sink получатель результатов
+     * @throws IOException если ожидание завершения пакета было прервано
+     */
+    private void executeBatch(List<IoScheduler.ReadRequest> batch, Consumer<ScanResult> sink) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            AsyncReadEngine engine = asyncReadEngine;
+            if (engine != null) {
+                engine.execute(batch, sink);
+            } else {
+                ioScheduler.execute(batch, sink);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Пакетный анализ прерван");
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Дополняет результат хэшем содержимого и метаданными, если они включены.
+     *
+     * @param result результат анализа
+     * @return дополненный результат
+     */
+    private ScanResult complete(ScanResult result) {
+        return withMetadata(withContentHash(result));
+    }
+
+    /**
+     * Дополняет результат метаданными, если их извлечение включено.
+     *
+     * @param result результат анализа
+     * @return результат с метаданными
+     */
+    private ScanResult withMetadata(ScanResult result) {
+        MetadataService service = metadataService;
+        if (service == null || !service.supports(result.getFileType())) {
+            return result;
+        }
+        try {
+            return service.extract(result.getPath(), result.getFileType())
+                    .map(metadata -> new ScanResult(result.getPath(), result.getSize(), result.getFileType(),
+                            result.getContentHash(), metadata))
+                    .orElse(result);
+        } catch (IOException e) {
+            logger.warn("Не удалось извлечь метаданные {}: {}", result.getPath(), e.getMessage());
+            return result;
+        }
+    }
+
+    /**
+     * Дополняет результат хэшем содержимого, если его вычисление включено.
+     *
+     * @param result результат анализа
+     * @return результат с хэшем содержимого
+     */
+    private ScanResult withContentHash(ScanResult result) {
+        if (!computeContentHash) {
+            return result;
+        }
+        ScanThrottle throttle = ioScheduler.getThrottle();
+        try {
+            if (throttle != null) {
+                throttle.acquire(result.getSize());
+            }
+            return new ScanResult(result.getPath(), result.getSize(), result.getFileType(),
+                    FileUtils.hashFileContent(result.getPath()));
+        } catch (IOException e) {
+            logger.warn("Не удалось вычислить хэш {}: {}", result.getPath(), e.getMessage());
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return result;
+        }
+    }
+
+    /**
+     * Анализирует один файл и формирует результат сканирования.
+     * Ошибки чтения не прерывают пакетную обработку.
+     *
+     * @param file путь к файлу
+     * @return результат сканирования (тип может отсутствовать)
+     */
+    public ScanResult analyze(Path file) {
+        try {
+            return analyze(file, Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (IOException e) {
+            logger.warn("Ошибка при анализе файла {}: {}", file, e.getMessage());
+            return new ScanResult(file, 0, null);
+        }
+    }
+
+    /**
+     * Анализирует один файл по уже прочитанным атрибутам.
+     * Ошибки чтения не прерывают пакетную обработку.
+     *
+     * @param file путь к файлу
+     * @param attributes атрибуты файла
+     * @return результат сканирования (тип может отсутствовать)
+     */
+    public ScanResult analyze(Path file, BasicFileAttributes attributes) {
+        try {
+            Optional<FileType> fileType = fileAnalyzerService.analyzePath(file, attributes);
+            return complete(new ScanResult(file, attributes.size(), fileType.orElse(null)));
+        } catch (IOException e) {
+            logger.warn("Ошибка при анализе файла {}: {}", file, e.getMessage());
+            return new ScanResult(file, attributes.size(), null);
+        }
+    }
+}
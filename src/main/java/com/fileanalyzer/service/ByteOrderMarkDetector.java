@@ -0,0 +1,65 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.DetectionResult;
+import com.fileanalyzer.model.FileType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Детектор текста по метке порядка байт (BOM) UTF-8 и UTF-16.
+ * Такие файлы не имеют сигнатуры в базе, а текст в UTF-16 не проходит
+ * текстовую проверку классификатора содержимого из-за нулевых байт.
+ * Подключается через {@link java.util.ServiceLoader} как пример
+ * стороннего детектора.
+ */
+public class ByteOrderMarkDetector implements FileTypeDetector {
+
+    /** Уверенность: BOM в начале двоичного файла встречается редко, но возможен. */
+    static final double CONFIDENCE = 0.95;
+
+    private volatile Optional<DetectionResult> result = Optional.empty();
+
+    @Override
+    public String getName() {
+        return "bom";
+    }
+
+    @Override
+    public int getCost() {
+        return 1;
+    }
+
+    @Override
+    public int getRequiredBytes() {
+        return 3;
+    }
+
+    @Override
+    public void init(DatabaseService databaseService) {
+        Optional<FileType> text = databaseService.findFileTypeByExtension("txt");
+        result = text.map(type -> new DetectionResult(type, CONFIDENCE, getName()));
+    }
+
+    @Override
+    public Optional<DetectionResult> detect(DetectionContext context) throws IOException {
+        int available = context.getAvailable();
+        ByteBuffer header = context.getHeader();
+        if (available < 2) {
+            return Optional.empty();
+        }
+        int first = header.get(0) & 0xFF;
+        int second = header.get(1) & 0xFF;
+        if ((first == 0xFE && second == 0xFF) || (first == 0xFF && second == 0xFE)) {
+            return result;
+        }
+        if (first == 0xEF && second == 0xBB) {
+            // Третий байт читается, только если первые два совпали
+            if (context.require(3) >= 3 && (header.get(2) & 0xFF) == 0xBF) {
+                return result;
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,360 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.MagicNumber;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Неизменяемое скомпилированное представление базы сигнатур.
+ *
+ * <p>Строится один раз из объектов {@link FileType} и {@link MagicNumber},
+ * которые после этого нужны только для загрузки и отображения. Сигнатуры
+ * хранятся в параллельных массивах примитивов в порядке приоритета типов:
+ * смещение, длина, первые 8 байт, упакованные в {@code long} (старший байт -
+ * первый), маска значимых байт и номер типа. Сопоставление - последовательный
+ * проход по массивам без обращения к объектам: заголовок упаковывается в
+ * {@code long} один раз для нулевого смещения, и большинство сигнатур
+ * проверяется одним сравнением. Байты длиннее 8 хранятся в общем массиве
+ * "хвостов".
+ *
+ * <p>Результат сопоставления - номер типа, равный его позиции в списке базы
+ * данных; объект типа по номеру возвращает {@link #getType(int)}.
+ */
+public final class CompiledSignatures {
+
+    /** Номер типа, возвращаемый, если ни одна сигнатура не совпала. */
+    public static final int NO_MATCH = -1;
+
+    private static final int PREFIX_BYTES = Long.BYTES;
+    /** Младшие 7 бит каждого байта: для поиска ненулевых байт в упакованном слове. */
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private final FileType[] types;
+    private final int[] offset;
+    private final int[] length;
+    private final long[] prefix;
+    private final long[] mask;
+    private final int[] typeId;
+    private final int[] tailStart;
+    private final byte[] tails;
+    private final int window;
+
+    /**
+     * Компилирует сигнатуры типов файлов.
+     *
+     * @param fileTypes типы файлов в порядке приоритета
+     */
+    public CompiledSignatures(List<FileType> fileTypes) {
+        this.types = fileTypes.toArray(new FileType[0]);
+
+        List<MagicNumber> magics = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (int id = 0; id < types.length; id++) {
+            if (!types[id].hasMagicNumbers()) {
+                continue;
+            }
+            for (MagicNumber magic : types[id].getMagicNumbers()) {
+                if (magic.getBytes() == null || magic.getLength() == 0 || magic.getOffset() < 0) {
+                    continue;
+                }
+                magics.add(magic);
+                owners.add(id);
+            }
+        }
+
+        int count = magics.size();
+        offset = new int[count];
+        length = new int[count];
+        prefix = new long[count];
+        mask = new long[count];
+        typeId = new int[count];
+        tailStart = new int[count];
+        byte[] tailBuffer = new byte[0];
+        int tailSize = 0;
+        int maxEnd = 0;
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = magics.get(i).getBytes();
+            offset[i] = magics.get(i).getOffset();
+            length[i] = bytes.length;
+            typeId[i] = owners.get(i);
+            int packed = Math.min(bytes.length, PREFIX_BYTES);
+            prefix[i] = pack(bytes, 0, packed);
+            mask[i] = -1L << (Long.SIZE - packed * Byte.SIZE);
+            tailStart[i] = tailSize;
+            if (bytes.length > PREFIX_BYTES) {
+                int tailLength = bytes.length - PREFIX_BYTES;
+                tailBuffer = Arrays.copyOf(tailBuffer, tailSize + tailLength);
+                System.arraycopy(bytes, PREFIX_BYTES, tailBuffer, tailSize, tailLength);
+                tailSize += tailLength;
+            }
+            maxEnd = Math.max(maxEnd, offset[i] + length[i]);
+        }
+        this.tails = tailBuffer;
+        this.window = maxEnd;
+    }
+
+    /**
+     * Ищет первый тип, сигнатура которого совпала с заголовком.
+     *
+     * @param header буфер заголовка (данные читаются по абсолютным индексам от 0)
+     * @param available количество прочитанных байт
+     * @return номер типа или {@link #NO_MATCH}
+     */
+    public int match(ByteBuffer header, int available) {
+        return match(header, 0, available);
+    }
+
+    /**
+     * Ищет первый тип, сигнатура которого совпала с данными, начинающимися
+     * с заданного индекса буфера. Используется при поиске сигнатур внутри
+     * большого отображенного в память образа без создания срезов.
+     *
+     * @param buffer буфер (данные читаются по абсолютным индексам)
+     * @param base индекс начала предполагаемого файла
+     * @param available количество байт, доступных начиная с {@code base}
+     * @return номер типа или {@link #NO_MATCH}
+     */
+    public int match(ByteBuffer buffer, int base, int available) {
+        int end = base + Math.min(available, buffer.limit() - base);
+        long window0 = pack(buffer, base, end);
+        for (int i = 0; i < offset.length; i++) {
+            int start = base + offset[i];
+            if (start + length[i] > end) {
+                continue;
+            }
+            long value = start == base ? window0 : pack(buffer, start, end);
+            if ((value & mask[i]) == prefix[i] && tailMatches(buffer, start, i)) {
+                return typeId[i];
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * Ищет сигнатуру, совпадающую с заголовком с точностью до нескольких
+     * байт, - для файлов с поврежденным заголовком. Заголовок упаковывается
+     * так же, как при точном сопоставлении, и для каждой сигнатуры
+     * отличающиеся байты находятся параллельно по всему слову: после XOR
+     * с сигнатурой в каждом ненулевом байте выставляется старший бит
+     * (SWAR), и число отличий равно числу выставленных бит. Поэтому
+     * проверка всех сигнатур стоит столько же сравнений, сколько точное
+     * сопоставление. Допустимое число отличий ограничено длиной сигнатуры
+     * ({@link #allowedMismatches(int, int)}), чтобы короткие сигнатуры не
+     * совпадали со случайными данными.
+     *
+     * @param header буфер заголовка (данные читаются по абсолютным индексам от 0)
+     * @param available количество прочитанных байт
+     * @param maxMismatches наибольшее число отличающихся байт
+     * @return номер сигнатуры (не типа) с наименьшим числом отличий, при
+     *         равенстве - первой по приоритету, или {@link #NO_MATCH}
+     */
+    public int matchApproximate(ByteBuffer header, int available, int maxMismatches) {
+        int end = Math.min(available, header.limit());
+        long window0 = pack(header, 0, end);
+        int best = NO_MATCH;
+        int bestMismatches = Integer.MAX_VALUE;
+        for (int i = 0; i < offset.length; i++) {
+            int start = offset[i];
+            int allowed = Math.min(allowedMismatches(length[i], maxMismatches), bestMismatches - 1);
+            if (start + length[i] > end || allowed < 0) {
+                continue;
+            }
+            long value = start == 0 ? window0 : pack(header, start, end);
+            int mismatches = Long.bitCount(differingBytes((value ^ prefix[i]) & mask[i]));
+            for (int j = PREFIX_BYTES; j < length[i] && mismatches <= allowed; j++) {
+                if (header.get(start + j) != tails[tailStart[i] + j - PREFIX_BYTES]) {
+                    mismatches++;
+                }
+            }
+            if (mismatches <= allowed) {
+                best = i;
+                bestMismatches = mismatches;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Возвращает смещения байт заголовка, отличающихся от сигнатуры.
+     *
+     * @param header буфер заголовка (данные читаются по абсолютным индексам от 0)
+     * @param signature номер сигнатуры; заголовок должен содержать ее целиком
+     * @return смещения от начала файла по возрастанию
+     */
+    public int[] mismatchOffsets(ByteBuffer header, int signature) {
+        int start = offset[signature];
+        long differing = differingBytes((pack(header, start, start + length[signature]) ^ prefix[signature])
+                & mask[signature]);
+        int[] offsets = new int[length[signature]];
+        int count = 0;
+        while (differing != 0) {
+            offsets[count++] = start + Long.numberOfLeadingZeros(differing) / Byte.SIZE;
+            differing &= ~(Long.MIN_VALUE >>> Long.numberOfLeadingZeros(differing));
+        }
+        for (int j = PREFIX_BYTES; j < length[signature]; j++) {
+            if (header.get(start + j) != tails[tailStart[signature] + j - PREFIX_BYTES]) {
+                offsets[count++] = start + j;
+            }
+        }
+        return Arrays.copyOf(offsets, count);
+    }
+
+    /**
+     * Возвращает допустимое число отличий для сигнатуры заданной длины:
+     * не больше трети байт сверх первого, то есть ни одного для сигнатур
+     * из 2-3 байт, одно для 4-6 байт и два для 7-9 байт.
+     *
+     * @param signatureLength длина сигнатуры
+     * @param maxMismatches запрошенный предел отличий
+     * @return допустимое число отличающихся байт
+     */
+    static int allowedMismatches(int signatureLength, int maxMismatches) {
+        return Math.min(maxMismatches, (signatureLength - 1) / 3);
+    }
+
+    /**
+     * Выставляет старший бит в каждом ненулевом байте слова и обнуляет
+     * остальные биты.
+     */
+    private static long differingBytes(long x) {
+        return (((x & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | x) & ~LOW_SEVEN_BITS;
+    }
+
+    /**
+     * Ищет первый тип, сигнатура которого совпала с заголовком в массиве.
+     *
+     * @param header байты заголовка
+     * @param available количество прочитанных байт
+     * @return номер типа или {@link #NO_MATCH}
+     */
+    public int match(byte[] header, int available) {
+        return match(ByteBuffer.wrap(header), Math.min(available, header.length));
+    }
+
+    /**
+     * Возвращает тип файла по номеру.
+     *
+     * @param id номер типа
+     * @return тип файла или null для {@link #NO_MATCH}
+     */
+    public FileType getType(int id) {
+        return id >= 0 && id < types.length ? types[id] : null;
+    }
+
+    /**
+     * Возвращает номер типа, к которому относится сигнатура.
+     *
+     * @param signature номер сигнатуры
+     * @return номер типа
+     */
+    public int getSignatureType(int signature) {
+        return typeId[signature];
+    }
+
+    /**
+     * Возвращает смещение сигнатуры от начала файла.
+     *
+     * @param signature номер сигнатуры
+     * @return смещение в байтах
+     */
+    public int getSignatureOffset(int signature) {
+        return offset[signature];
+    }
+
+    /**
+     * Возвращает байт сигнатуры.
+     *
+     * @param signature номер сигнатуры
+     * @param index номер байта (меньше длины сигнатуры)
+     * @return значение байта от 0 до 255
+     */
+    public int getSignatureByte(int signature, int index) {
+        if (index < PREFIX_BYTES) {
+            return (int) (prefix[signature] >>> (Long.SIZE - Byte.SIZE * (index + 1))) & 0xFF;
+        }
+        return tails[tailStart[signature] + index - PREFIX_BYTES] & 0xFF;
+    }
+
+    /**
+     * Возвращает длину сигнатуры.
+     *
+     * @param signature номер сигнатуры
+     * @return длина в байтах
+     */
+    public int getSignatureLength(int signature) {
+        return length[signature];
+    }
+
+    /**
+     * @return количество сигнатур
+     */
+    public int size() {
+        return offset.length;
+    }
+
+    /**
+     * @return количество типов
+     */
+    public int getTypeCount() {
+        return types.length;
+    }
+
+    /**
+     * Возвращает размер окна сигнатур: максимальное смещение конца сигнатуры.
+     *
+     * @return размер окна в байтах
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    private boolean tailMatches(ByteBuffer header, int position, int signature) {
+        int tailLength = length[signature] - PREFIX_BYTES;
+        if (tailLength <= 0) {
+            return true;
+        }
+        int tailPosition = position + PREFIX_BYTES;
+        int start = tailStart[signature];
+        for (int i = 0; i < tailLength; i++) {
+            if (header.get(tailPosition + i) != tails[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Упаковывает до 8 байт буфера начиная со смещения в {@code long},
+     * старший байт - первый, байты за пределами прочитанных равны нулю.
+     *
+     * @param buffer буфер (данные читаются по абсолютным индексам)
+     * @param start смещение первого байта
+     * @param available количество прочитанных байт буфера
+     * @return упакованное значение
+     */
+    static long pack(ByteBuffer buffer, int start, int available) {
+        int count = Math.min(PREFIX_BYTES, available - start);
+        if (count == PREFIX_BYTES) {
+            long value = buffer.getLong(start);
+            return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+        }
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value |= (buffer.get(start + i) & 0xFFL) << (Long.SIZE - Byte.SIZE * (i + 1));
+        }
+        return value;
+    }
+
+    private static long pack(byte[] bytes, int start, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value |= (bytes[start + i] & 0xFFL) << (Long.SIZE - Byte.SIZE * (i + 1));
+        }
+        return value;
+    }
+}
@@ -0,0 +1,266 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileMetadata;
+import com.fileanalyzer.model.FragmentClass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Метаданные сжатых потоков GZIP, BZIP2, XZ и Zstandard. У GZIP
+ * распаковывается не более {@link #MAX_PAYLOAD_BYTES} байт начала данных,
+ * и по ним повторно определяется тип: TAR (по "ustar" на смещении 257),
+ * сигнатуры базы, затем класс содержимого (текст, дамп SQL).
+ *
+ * <p>Распаковка ограничена по выходу, по объему прочитанных сжатых данных
+ * ({@link #MAX_INPUT_BYTES}) и по времени ({@link #MAX_INFLATE_NANOS}),
+ * поэтому "zip-бомбы" и поврежденные потоки не задерживают пакетный анализ.
+ * {@link Inflater} и буферы переиспользуются в пределах потока. Для BZIP2,
+ * XZ и Zstandard в JDK нет декодеров, поэтому у них читаются только
+ * параметры заголовка.
+ * Ключи: name, payload, uncompressedSize (GZIP); blockSize (BZIP2, КБ);
+ * check (XZ); contentSize (Zstandard).
+ */
+final class CompressedMetadataExtractor implements MetadataExtractor {
+
+    /** Наибольший объем распакованных данных для определения содержимого. */
+    static final int MAX_PAYLOAD_BYTES = 4096;
+    /** Наибольший объем сжатых данных, читаемых для распаковки. */
+    static final int MAX_INPUT_BYTES = 64 * 1024;
+    /** Предел времени распаковки одного файла. */
+    static final long MAX_INFLATE_NANOS = 5_000_000L;
+
+    private static final int INPUT_CHUNK = 4096;
+    private static final int GZIP_HEADER_LENGTH = 10;
+    private static final int GZIP_FHCRC = 0x02;
+    private static final int GZIP_FEXTRA = 0x04;
+    private static final int GZIP_FNAME = 0x08;
+    private static final int GZIP_FCOMMENT = 0x10;
+    private static final int TAR_MAGIC_OFFSET = 257;
+    private static final byte[] TAR_MAGIC = "ustar".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] XZ_MAGIC = {(byte) 0xFD, '7', 'z', 'X', 'Z', 0};
+    private static final int ZSTD_MAGIC = 0xFD2FB528;
+
+    private final CompiledSignatures signatures;
+    private final ThreadLocal<Sniffer> sniffers;
+
+    /**
+     * Буферы и декодер потока, переиспользуемые для всех файлов.
+     */
+    private static final class Sniffer {
+        private final Inflater inflater = new Inflater(true);
+        private final byte[] input = new byte[INPUT_CHUNK];
+        private final byte[] payload = new byte[MAX_PAYLOAD_BYTES];
+        private final FragmentClassifier classifier;
+
+        private Sniffer(FragmentModel fragmentModel) {
+            this.classifier = new FragmentClassifier(fragmentModel, MAX_PAYLOAD_BYTES);
+        }
+    }
+
+    /**
+     * Конструктор извлекателя.
+     *
+     * @param databaseService база типов для повторного сопоставления сигнатур
+     */
+    CompressedMetadataExtractor(DatabaseService databaseService) {
+        this.signatures = databaseService.getCompiledSignatures();
+        FragmentModel fragmentModel = FragmentModel.loadDefault();
+        this.sniffers = ThreadLocal.withInitial(() -> new Sniffer(fragmentModel));
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return Arrays.asList("gz", "bz2", "xz", "zst");
+    }
+
+    @Override
+    public void extract(FileChannel channel, long size, FileMetadata metadata) throws IOException {
+        Sniffer sniffer = sniffers.get();
+        int read = readChunk(channel, 0, sniffer.input);
+        byte[] input = sniffer.input;
+        if (read >= GZIP_HEADER_LENGTH && (input[0] & 0xFF) == 0x1F && (input[1] & 0xFF) == 0x8B) {
+            extractGzip(channel, size, read, sniffer, metadata);
+        } else if (read >= 4 && input[0] == 'B' && input[1] == 'Z' && input[2] == 'h'
+                && input[3] >= '1' && input[3] <= '9') {
+            metadata.put("blockSize", (input[3] - '0') * 100);
+        } else if (read >= 8 && Arrays.equals(input, 0, XZ_MAGIC.length, XZ_MAGIC, 0, XZ_MAGIC.length)) {
+            metadata.put("check", xzCheckName(input[7] & 0x0F));
+        } else if (read >= 5 && ByteBuffer.wrap(input).order(ByteOrder.LITTLE_ENDIAN).getInt(0) == ZSTD_MAGIC) {
+            extractZstdFrameHeader(input, read, metadata);
+        }
+    }
+
+    private void extractGzip(FileChannel channel, long size, int read, Sniffer sniffer, FileMetadata metadata)
+            throws IOException {
+        byte[] input = sniffer.input;
+        int flags = input[3] & 0xFF;
+        int position = GZIP_HEADER_LENGTH;
+        if ((flags & GZIP_FEXTRA) != 0) {
+            position = position + 2 > read ? read + 1
+                    : position + 2 + ((input[position] & 0xFF) | (input[position + 1] & 0xFF) << 8);
+        }
+        if ((flags & GZIP_FNAME) != 0 && position < read) {
+            int end = zeroTerminated(input, position, read);
+            metadata.put("name", new String(input, position, end - position, StandardCharsets.ISO_8859_1));
+            position = end + 1;
+        }
+        if ((flags & GZIP_FCOMMENT) != 0 && position < read) {
+            position = zeroTerminated(input, position, read) + 1;
+        }
+        if ((flags & GZIP_FHCRC) != 0) {
+            position += 2;
+        }
+
+        // ISIZE: размер распакованных данных последнего члена по модулю 2^32
+        if (size >= GZIP_HEADER_LENGTH + 8) {
+            ByteBuffer trailer = MetadataService.read(channel, size - 4, 4);
+            if (trailer.remaining() == 4) {
+                metadata.put("uncompressedSize",
+                        Integer.toUnsignedLong(trailer.order(ByteOrder.LITTLE_ENDIAN).getInt(0)));
+            }
+        }
+
+        if (position >= read) {
+            // Заголовок длиннее первого фрагмента: такие потоки не распаковываются
+            return;
+        }
+        int produced = inflate(channel, size, read, position, sniffer);
+        String payload = identify(sniffer, produced);
+        if (payload != null) {
+            metadata.put("payload", payload);
+        }
+    }
+
+    /**
+     * Распаковывает начало потока DEFLATE в буфер выборки с ограничениями
+     * по выходу, входу и времени.
+     *
+     * @return количество распакованных байт
+     */
+    private static int inflate(FileChannel channel, long size, int read, int position, Sniffer sniffer)
+            throws IOException {
+        Inflater inflater = sniffer.inflater;
+        byte[] payload = sniffer.payload;
+        inflater.reset();
+        inflater.setInput(sniffer.input, position, read - position);
+        long inputPosition = read;
+        long deadline = System.nanoTime() + MAX_INFLATE_NANOS;
+        int produced = 0;
+        try {
+            while (produced < payload.length && !inflater.finished() && !inflater.needsDictionary()) {
+                produced += inflater.inflate(payload, produced, payload.length - produced);
+                if (System.nanoTime() > deadline) {
+                    break;
+                }
+                if (inflater.needsInput()) {
+                    if (inputPosition >= size || inputPosition >= MAX_INPUT_BYTES) {
+                        break;
+                    }
+                    int chunk = readChunk(channel, inputPosition, sniffer.input);
+                    if (chunk <= 0) {
+                        break;
+                    }
+                    inflater.setInput(sniffer.input, 0, chunk);
+                    inputPosition += chunk;
+                }
+            }
+        } catch (DataFormatException e) {
+            // Поврежденный поток: определяется по уже распакованной части
+        }
+        return produced;
+    }
+
+    /**
+     * Определяет тип распакованных данных.
+     *
+     * @return расширение типа содержимого или null, если его определить не удалось
+     */
+    private String identify(Sniffer sniffer, int length) {
+        byte[] payload = sniffer.payload;
+        if (length >= TAR_MAGIC_OFFSET + TAR_MAGIC.length && Arrays.equals(payload, TAR_MAGIC_OFFSET,
+                TAR_MAGIC_OFFSET + TAR_MAGIC.length, TAR_MAGIC, 0, TAR_MAGIC.length)) {
+            return "tar";
+        }
+        if (length <= 0) {
+            return null;
+        }
+        int typeId = signatures.match(payload, length);
+        if (typeId != CompiledSignatures.NO_MATCH) {
+            return signatures.getType(typeId).getExtension();
+        }
+        FragmentClass fragmentClass = sniffer.classifier.classify(payload, 0, length);
+        if (fragmentClass == FragmentClass.TEXT && isSqlDump(payload, length)) {
+            return "sql";
+        }
+        return fragmentClass.getExtension();
+    }
+
+    private static boolean isSqlDump(byte[] payload, int length) {
+        String text = new String(payload, 0, length, StandardCharsets.ISO_8859_1).toUpperCase(Locale.ROOT);
+        return text.contains("CREATE TABLE") || text.contains("INSERT INTO") || text.contains("SQL DUMP")
+                || text.contains("DATABASE DUMP");
+    }
+
+    /**
+     * Заголовок кадра Zstandard: объявленный размер содержимого, если он записан.
+     */
+    private static void extractZstdFrameHeader(byte[] input, int read, FileMetadata metadata) {
+        int descriptor = input[4] & 0xFF;
+        int sizeFlag = descriptor >>> 6;
+        boolean singleSegment = (descriptor & 0x20) != 0;
+        int position = 5 + (singleSegment ? 0 : 1) + new int[] {0, 1, 2, 4}[descriptor & 0x03];
+        int length = sizeFlag == 0 ? (singleSegment ? 1 : 0) : 1 << sizeFlag;
+        if (length == 0 || position + length > read) {
+            return;
+        }
+        long contentSize = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            contentSize = (contentSize << 8) | (input[position + i] & 0xFF);
+        }
+        metadata.put("contentSize", length == 2 ? contentSize + 256 : contentSize);
+    }
+
+    private static String xzCheckName(int check) {
+        switch (check) {
+            case 0x00:
+                return "none";
+            case 0x01:
+                return "crc32";
+            case 0x04:
+                return "crc64";
+            case 0x0A:
+                return "sha256";
+            default:
+                return String.valueOf(check);
+        }
+    }
+
+    private static int zeroTerminated(byte[] data, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (data[i] == 0) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private static int readChunk(FileChannel channel, long position, byte[] target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(target);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read <= 0) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+}
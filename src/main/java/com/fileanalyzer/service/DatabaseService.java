@@ -6,7 +6,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -14,33 +18,108 @@ import java.util.Optional;
 /**
  * Сервис для работы с базой данных типов файлов.
  * Загружает и управляет информацией о магических числах различных форматов.
+ * Если задан файл общей таблицы сигнатур ({@link #SHARED_TABLE_PROPERTY}),
+ * база берется из него без разбора JSON, а при его отсутствии или устаревании
+ * разбирается и публикуется для других процессов ({@link SharedSignatureTable}).
  */
 public class DatabaseService {
 
+    /**
+     * Системное свойство с путем к общей таблице сигнатур, например
+     * /dev/shm/fileanalyzer-signatures. Передается рабочим JVM кластерного анализа.
+     */
+    public static final String SHARED_TABLE_PROPERTY = "fileanalyzer.sharedSignatures";
+
     private static final Logger logger = LogManager.getLogger(DatabaseService.class);
     private List<FileType> fileTypes;
-    private final ObjectMapper objectMapper;
+    private FileType fallbackType;
+    private int maxSignatureWindow;
+    private SignatureIndex signatureIndex;
+    private CompiledSignatures compiledSignatures;
 
     /**
      * Конструктор сервиса базы данных.
-     * Загружает базу типов файлов из JSON файла.
+     * Загружает базу типов файлов из JSON файла или из общей таблицы
+     * сигнатур, если задано свойство {@link #SHARED_TABLE_PROPERTY}.
      */
     public DatabaseService() {
-        this.objectMapper = new ObjectMapper();
+        this(sharedTableFromProperty());
+    }
+
+    /**
+     * Конструктор сервиса с общей таблицей сигнатур.
+     * Таблица используется, если она построена для того же filetypes.json;
+     * иначе база разбирается из JSON и таблица публикуется заново.
+     *
+     * @param sharedTable файл общей таблицы или null, чтобы всегда разбирать JSON
+     */
+    public DatabaseService(Path sharedTable) {
         this.fileTypes = new ArrayList<>();
-        loadFileTypes();
+        loadFileTypes(sharedTable);
+        buildIndexes();
         logger.info("DatabaseService инициализирован. Загружено {} типов файлов", fileTypes.size());
     }
 
     /**
-     * Загружает типы файлов из JSON файла в ресурсах.
+     * Конструктор сервиса с заданной базой типов файлов вместо filetypes.json.
+     * Используется для проверки сопоставления на сгенерированных базах.
+     *
+     * @param fileTypes типы файлов в порядке приоритета
+     */
+    DatabaseService(List<FileType> fileTypes) {
+        this.fileTypes = withValidSignatures(fileTypes);
+        buildIndexes();
+    }
+
+    /**
+     * @return путь из свойства {@link #SHARED_TABLE_PROPERTY} или null
+     */
+    private static Path sharedTableFromProperty() {
+        String path = System.getProperty(SHARED_TABLE_PROPERTY);
+        return path != null && !path.isEmpty() ? Paths.get(path) : null;
+    }
+
+    /**
+     * Строит представления базы для сопоставления: тип по умолчанию,
+     * скомпилированные сигнатуры и индекс для поэтапного чтения.
+     */
+    private void buildIndexes() {
+        fallbackType = fileTypes.stream()
+                .filter(fileType -> "txt".equals(fileType.getExtension()))
+                .findFirst()
+                .orElse(null);
+        compiledSignatures = new CompiledSignatures(fileTypes);
+        maxSignatureWindow = compiledSignatures.getWindow();
+        signatureIndex = new SignatureIndex(fileTypes);
+    }
+
+    /**
+     * Загружает типы файлов из общей таблицы сигнатур или из JSON файла
+     * в ресурсах. Версия таблицы сверяется с контрольной суммой
+     * filetypes.json, поэтому обновленная база публикуется заново.
+     *
+     * @param sharedTable файл общей таблицы или null
      */
-    private void loadFileTypes() {
+    private void loadFileTypes(Path sharedTable) {
         try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("filetypes.json")) {
             if (inputStream != null) {
-                FileType[] typesArray = objectMapper.readValue(inputStream, FileType[].class);
-                fileTypes = List.of(typesArray);
+                byte[] source = inputStream.readAllBytes();
+                long version = SharedSignatureTable.databaseVersion(source);
+                if (sharedTable != null) {
+                    Optional<List<FileType>> shared = SharedSignatureTable.open(sharedTable, version);
+                    if (shared.isPresent()) {
+                        fileTypes = shared.get();
+                        logger.debug("Типы файлов загружены из общей таблицы {}", sharedTable);
+                        return;
+                    }
+                }
+                // ObjectMapper создается только здесь: процессы с общей таблицей не загружают Jackson
+                FileType[] typesArray = new ObjectMapper().readValue(source, FileType[].class);
+                fileTypes = withValidSignatures(List.of(typesArray));
                 logger.debug("Успешно загружены типы файлов из JSON");
+                if (sharedTable != null) {
+                    publishSharedTable(sharedTable, version);
+                }
             } else {
                 logger.error("Не удалось найти filetypes.json в ресурсах");
                 loadDefaultFileTypes();
@@ -51,6 +130,48 @@ public class DatabaseService {
         }
     }
 
+    /**
+     * Исключает из базы некорректные сигнатуры: без байтов (например,
+     * из неверной HEX строки) или с отрицательным смещением. Такие записи
+     * не должны доходить до сопоставления, иначе пустая сигнатура совпала
+     * бы с любым заголовком.
+     *
+     * @param fileTypes типы файлов в порядке приоритета
+     * @return неизменяемый список типов; типы без некорректных сигнатур
+     *         возвращаются теми же объектами
+     */
+    private static List<FileType> withValidSignatures(List<FileType> fileTypes) {
+        List<FileType> result = new ArrayList<>(fileTypes.size());
+        for (FileType fileType : fileTypes) {
+            if (!fileType.hasMagicNumbers() || fileType.getMagicNumbers().stream().allMatch(MagicNumber::isValid)) {
+                result.add(fileType);
+                continue;
+            }
+            List<MagicNumber> valid = new ArrayList<>();
+            for (MagicNumber magic : fileType.getMagicNumbers()) {
+                if (magic.isValid()) {
+                    valid.add(magic);
+                } else {
+                    logger.warn("Некорректная сигнатура типа {} пропущена: {}", fileType.getExtension(), magic);
+                }
+            }
+            result.add(new FileType(fileType.getExtension(), fileType.getDescription(), List.copyOf(valid)));
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Публикует разобранную базу в общую таблицу. Ошибка публикации
+     * не мешает работе: база уже загружена в этот процесс.
+     */
+    private void publishSharedTable(Path sharedTable, long version) {
+        try {
+            SharedSignatureTable.publish(sharedTable, version, fileTypes);
+        } catch (IOException e) {
+            logger.warn("Не удалось опубликовать общую таблицу сигнатур {}", sharedTable, e);
+        }
+    }
+
     /**
      * Загружает стандартные типы файлов в случае ошибки загрузки из JSON.
      */
@@ -103,6 +224,86 @@ public class DatabaseService {
         return result;
     }
 
+    /**
+     * Ищет тип файла по магическим числам прямо в буфере заголовка.
+     * Семантика совпадает с {@link #findFileTypeByMagicNumbers(byte[], int)},
+     * но сопоставление выполняется по скомпилированным сигнатурам без
+     * промежуточных объектов; метод предназначен для пакетного анализа
+     * с переиспользуемыми буферами.
+     *
+     * @param header буфер заголовка (данные читаются по абсолютным индексам от 0)
+     * @param length количество байт для анализа
+     * @return Optional с найденным типом файла
+     */
+    public Optional<FileType> findFileTypeByMagicNumbers(ByteBuffer header, int length) {
+        if (header == null || length <= 0) {
+            return Optional.empty();
+        }
+        int typeId = compiledSignatures.match(header, length);
+
+        // Если не найден тип по магическим числам, возвращаем TXT как fallback
+        return Optional.ofNullable(typeId != CompiledSignatures.NO_MATCH
+                ? compiledSignatures.getType(typeId)
+                : fallbackType);
+    }
+
+    /**
+     * Ищет тип файла по расширению.
+     *
+     * @param extension расширение без точки
+     * @return Optional с найденным типом файла
+     */
+    public Optional<FileType> findFileTypeByExtension(String extension) {
+        if (extension == null) {
+            return Optional.empty();
+        }
+        for (FileType fileType : fileTypes) {
+            if (extension.equalsIgnoreCase(fileType.getExtension())) {
+                return Optional.of(fileType);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Возвращает тип, назначаемый файлам без совпавших сигнатур.
+     *
+     * @return тип TXT или null, если он отсутствует в базе
+     */
+    public FileType getFallbackType() {
+        return fallbackType;
+    }
+
+    /**
+     * Возвращает размер окна сигнатур: максимальное смещение конца
+     * магического числа среди всех типов. Байты за пределами окна
+     * не влияют на результат сопоставления.
+     *
+     * @return размер окна в байтах
+     */
+    public int getMaxSignatureWindow() {
+        return maxSignatureWindow;
+    }
+
+    /**
+     * Возвращает скомпилированное представление сигнатур.
+     * Номера типов в нем совпадают с позициями в {@link #getAllFileTypes()}.
+     *
+     * @return скомпилированные сигнатуры
+     */
+    public CompiledSignatures getCompiledSignatures() {
+        return compiledSignatures;
+    }
+
+    /**
+     * Возвращает индекс сигнатур для поэтапного чтения заголовка.
+     *
+     * @return индекс сигнатур
+     */
+    public SignatureIndex getSignatureIndex() {
+        return signatureIndex;
+    }
+
     /**
      * Проверяет, совпадает ли магическое число с заголовком файла.
      *
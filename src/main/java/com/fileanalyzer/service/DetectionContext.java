@@ -0,0 +1,181 @@
+package com.fileanalyzer.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Состояние анализа одного файла, передаваемое детекторам
+ * {@link DetectionPipeline}: канал файла и заголовок, дочитываемый по
+ * требованию. Заголовок хранится в буфере {@link ReadContext}, поэтому
+ * байты, прочитанные одним детектором, доступны следующим без повторного
+ * чтения. При асинхронном чтении ({@link AsyncReadEngine}) заголовок
+ * прочитан заранее целиком, и канал детекторам не передается.
+ *
+ * <p>Как и {@link ReadContext}, экземпляр привязан к потоку и
+ * переиспользуется для всех файлов, анализируемых этим потоком.
+ */
+public class DetectionContext {
+
+    /** Один из скольких вызовов конвейера измеряется по времени. */
+    static final int TIMING_SAMPLE = 8;
+
+    private final ReadContext readContext;
+    private FileChannel channel;
+    private ByteBuffer header;
+    private boolean preloaded;
+    private boolean preloadedEndOfFile;
+    private int available;
+    private int reads;
+    private long size;
+    private long detections;
+
+    /**
+     * Конструктор контекста.
+     *
+     * @param readContext контекст чтения заголовков текущего потока
+     */
+    DetectionContext(ReadContext readContext) {
+        this.readContext = readContext;
+    }
+
+    /**
+     * Начинает анализ файла: читает первый фрагмент заголовка.
+     *
+     * @param channel открытый канал файла
+     * @param initialReadSize количество байт первого чтения
+     * @param size размер файла, если он уже известен из атрибутов, иначе -1
+     * @return количество прочитанных байт
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    int begin(FileChannel channel, int initialReadSize, long size) throws IOException {
+        this.channel = channel;
+        this.header = readContext.getBuffer();
+        this.preloaded = false;
+        this.size = size;
+        this.reads = 1;
+        this.available = readContext.readHeader(channel, initialReadSize);
+        return available;
+    }
+
+    /**
+     * Начинает анализ файла по заголовку, уже прочитанному в чужой буфер.
+     *
+     * @param header буфер с заголовком от 0 до available
+     * @param available количество прочитанных байт
+     * @param endOfFile true, если заголовок содержит весь файл
+     * @param size размер файла
+     */
+    void beginPreloaded(ByteBuffer header, int available, boolean endOfFile, long size) {
+        this.channel = null;
+        this.header = header;
+        this.preloaded = true;
+        this.preloadedEndOfFile = endOfFile;
+        this.size = size;
+        this.reads = 1;
+        this.available = available;
+    }
+
+    /**
+     * Освобождает ссылки на канал и буфер после анализа файла.
+     */
+    void end() {
+        channel = null;
+        header = null;
+    }
+
+    /**
+     * Дочитывает заголовок до указанной длины, если он еще не прочитан.
+     * Длина ограничена размером буфера, то есть максимальным
+     * {@link FileTypeDetector#getRequiredBytes()} среди детекторов.
+     *
+     * @param bytes требуемое количество байт начала файла
+     * @return количество доступных байт заголовка (меньше требуемого у коротких файлов)
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public int require(int bytes) throws IOException {
+        if (!preloaded && bytes > available && !readContext.isEndOfFile() && available < readContext.getCapacity()) {
+            available = readContext.readMore(channel, bytes);
+            reads++;
+        }
+        return available;
+    }
+
+    /**
+     * Возвращает буфер заголовка; данные находятся в диапазоне от 0 до
+     * {@link #getAvailable()}. Детекторы не должны менять его содержимое.
+     *
+     * @return буфер заголовка
+     */
+    public ByteBuffer getHeader() {
+        return header;
+    }
+
+    /**
+     * @return количество уже прочитанных байт заголовка
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * @return true, если заголовок содержит весь файл
+     */
+    public boolean isEndOfFile() {
+        return preloaded ? preloadedEndOfFile : readContext.isEndOfFile();
+    }
+
+    /**
+     * Возвращает размер файла: из атрибутов обхода каталога или запросом
+     * к каналу, не более одного раза на файл.
+     *
+     * @return размер файла в байтах
+     * @throws IOException если размер не удалось получить
+     */
+    public long size() throws IOException {
+        if (size < 0) {
+            size = channel.size();
+        }
+        return size;
+    }
+
+    /**
+     * Возвращает канал файла для детекторов, которым нужно содержимое за
+     * пределами заголовка. Следует использовать позиционное чтение.
+     *
+     * @return открытый канал файла или null, если заголовок прочитан заранее
+     */
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return контекст чтения заголовков
+     */
+    ReadContext getReadContext() {
+        return readContext;
+    }
+
+    /**
+     * @return количество операций чтения заголовка для текущего файла
+     */
+    int getReads() {
+        return reads;
+    }
+
+    /**
+     * Считает вызов конвейера и сообщает, нужно ли измерять его по времени.
+     *
+     * @return true для каждого {@value #TIMING_SAMPLE}-го файла потока
+     */
+    boolean nextTimingSample() {
+        return ++detections % TIMING_SAMPLE == 0;
+    }
+
+    /**
+     * @return количество файлов, проанализированных потоком
+     */
+    long getDetections() {
+        return detections;
+    }
+}
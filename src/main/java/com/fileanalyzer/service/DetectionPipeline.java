@@ -0,0 +1,260 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.DetectionResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Конвейер детекторов типа файла. Детекторы вызываются по очереди, начиная
+ * с самых дешевых; первый уверенный ответ (уверенность не ниже порога)
+ * завершает конвейер. Если уверенного ответа нет, возвращается ответ
+ * с наибольшей уверенностью.
+ *
+ * <p>Для каждого детектора собирается статистика: количество вызовов,
+ * доля уверенных ответов и время вызова (по выборке из каждого
+ * {@value DetectionContext#TIMING_SAMPLE}-го файла). Периодически порядок
+ * пересчитывается по ожидаемой стоимости получения ответа - среднему
+ * времени вызова, деленному на долю уверенных ответов. Так на корпусе,
+ * где, например, большинство файлов распознает сторонний детектор, он
+ * со временем встанет перед более дешевыми, но бесполезными на этом корпусе.
+ * Если несколько детекторов уверенно распознают один файл по-разному,
+ * ответ зависит от текущего порядка.
+ */
+public class DetectionPipeline {
+
+    private static final Logger logger = LogManager.getLogger(DetectionPipeline.class);
+
+    /** Порог уверенности по умолчанию, завершающий конвейер. */
+    public static final double DEFAULT_CONFIDENCE_THRESHOLD = 0.9;
+    /** Через сколько файлов потока пересчитывается порядок. */
+    static final int REORDER_INTERVAL = 1024;
+    /** Количество измерений, после которого заявленная стоимость заменяется измеренной. */
+    static final int MIN_TIMED_CALLS = 16;
+    /** Время условной единицы стоимости, пока измерений недостаточно. */
+    static final long COST_UNIT_NANOS = 100;
+    /** Нижняя граница доли уверенных ответов при расчете порядка. */
+    private static final double MIN_CONFIDENT_RATE = 0.01;
+    /** Предел размера заголовка, который может запросить детектор. */
+    static final int MAX_REQUIRED_BYTES = 64 * 1024;
+
+    private final List<Stage> stages;
+    private final double confidenceThreshold;
+    private volatile Stage[] order;
+    private volatile boolean adaptive = true;
+
+    /**
+     * Этап конвейера: детектор и его статистика.
+     */
+    public static final class Stage {
+        private final FileTypeDetector detector;
+        private final int index;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder confident = new LongAdder();
+        private final LongAdder timedCalls = new LongAdder();
+        private final LongAdder timedNanos = new LongAdder();
+
+        private Stage(FileTypeDetector detector, int index) {
+            this.detector = detector;
+            this.index = index;
+        }
+
+        /**
+         * @return детектор этапа
+         */
+        public FileTypeDetector getDetector() {
+            return detector;
+        }
+
+        /**
+         * @return количество вызовов детектора
+         */
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        /**
+         * @return количество уверенных ответов
+         */
+        public long getConfident() {
+            return confident.sum();
+        }
+
+        /**
+         * @return среднее измеренное время вызова в наносекундах или -1, если измерений нет
+         */
+        public long getMeanNanos() {
+            long timed = timedCalls.sum();
+            return timed == 0 ? -1 : timedNanos.sum() / timed;
+        }
+
+        /**
+         * Ожидаемая стоимость получения уверенного ответа от этапа.
+         */
+        double expectedCost() {
+            long timed = timedCalls.sum();
+            double nanos = timed >= MIN_TIMED_CALLS
+                    ? (double) timedNanos.sum() / timed
+                    : (double) Math.max(1, detector.getCost()) * COST_UNIT_NANOS;
+            long total = calls.sum();
+            // Пока этап почти не вызывался, его доля уверенных ответов неизвестна
+            double rate = total >= MIN_TIMED_CALLS ? (double) confident.sum() / total : 1.0;
+            return nanos / Math.max(rate, MIN_CONFIDENT_RATE);
+        }
+
+        @Override
+        public String toString() {
+            return detector.getName() + "{calls=" + getCalls() + ", confident=" + getConfident()
+                    + ", meanNanos=" + getMeanNanos() + '}';
+        }
+    }
+
+    /**
+     * Конструктор конвейера. Начальный порядок - по заявленной стоимости,
+     * при равной стоимости - в порядке списка.
+     *
+     * @param detectors детекторы
+     * @param confidenceThreshold порог уверенности, завершающий конвейер
+     */
+    public DetectionPipeline(List<FileTypeDetector> detectors, double confidenceThreshold) {
+        List<Stage> created = new ArrayList<>();
+        for (FileTypeDetector detector : detectors) {
+            created.add(new Stage(detector, created.size()));
+        }
+        this.stages = Collections.unmodifiableList(created);
+        this.confidenceThreshold = confidenceThreshold;
+        Stage[] initial = created.toArray(new Stage[0]);
+        Arrays.sort(initial, Comparator.comparingInt((Stage stage) -> stage.detector.getCost())
+                .thenComparingInt(stage -> stage.index));
+        this.order = initial;
+    }
+
+    /**
+     * Загружает сторонние детекторы через {@link ServiceLoader} и
+     * инициализирует их базой типов. Детектор, который не удалось загрузить
+     * или инициализировать, пропускается с предупреждением.
+     *
+     * @param databaseService база типов файлов
+     * @return загруженные детекторы
+     */
+    public static List<FileTypeDetector> loadDetectors(DatabaseService databaseService) {
+        List<FileTypeDetector> detectors = new ArrayList<>();
+        Iterator<FileTypeDetector> iterator = ServiceLoader.load(FileTypeDetector.class).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                FileTypeDetector detector = iterator.next();
+                detector.init(databaseService);
+                detectors.add(detector);
+                logger.info("Подключен детектор {} ({})", detector.getName(), detector.getClass().getName());
+            } catch (ServiceConfigurationError | RuntimeException e) {
+                logger.warn("Не удалось подключить детектор: {}", e.getMessage());
+            }
+        }
+        return detectors;
+    }
+
+    /**
+     * Определяет тип файла, вызывая детекторы в текущем порядке.
+     *
+     * @param context контекст анализа файла с прочитанным началом заголовка
+     * @return Optional с уверенным ответом или ответом с наибольшей уверенностью
+     * @throws IOException если детектор не смог прочитать файл
+     */
+    public Optional<DetectionResult> detect(DetectionContext context) throws IOException {
+        Stage[] current = order;
+        boolean timed = context.nextTimingSample();
+        DetectionResult best = null;
+        for (Stage stage : current) {
+            long start = timed ? System.nanoTime() : 0;
+            Optional<DetectionResult> result = stage.detector.detect(context);
+            if (timed) {
+                stage.timedNanos.add(System.nanoTime() - start);
+                stage.timedCalls.increment();
+            }
+            stage.calls.increment();
+            if (result.isPresent()) {
+                DetectionResult detection = result.get();
+                if (detection.getConfidence() >= confidenceThreshold) {
+                    stage.confident.increment();
+                    best = detection;
+                    break;
+                }
+                if (best == null || detection.getConfidence() > best.getConfidence()) {
+                    best = detection;
+                }
+            }
+        }
+        if (adaptive && context.getDetections() % REORDER_INTERVAL == 0) {
+            reorder();
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Пересчитывает порядок детекторов по ожидаемой стоимости уверенного ответа.
+     */
+    synchronized void reorder() {
+        Stage[] updated = stages.toArray(new Stage[0]);
+        double[] costs = new double[updated.length];
+        for (Stage stage : updated) {
+            costs[stage.index] = stage.expectedCost();
+        }
+        Arrays.sort(updated, Comparator.comparingDouble((Stage stage) -> costs[stage.index])
+                .thenComparingInt(stage -> stage.index));
+        if (!Arrays.equals(updated, order)) {
+            order = updated;
+            logger.debug("Порядок детекторов изменен: {}", Arrays.toString(updated));
+        }
+    }
+
+    /**
+     * Возвращает наибольший размер заголовка, запрашиваемый детекторами.
+     *
+     * @return количество байт (не больше {@value #MAX_REQUIRED_BYTES})
+     */
+    public int getRequiredBytes() {
+        int required = 0;
+        for (Stage stage : stages) {
+            required = Math.max(required, stage.detector.getRequiredBytes());
+        }
+        return Math.min(required, MAX_REQUIRED_BYTES);
+    }
+
+    /**
+     * Возвращает этапы в текущем порядке вызова.
+     *
+     * @return этапы со статистикой
+     */
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(Arrays.asList(order));
+    }
+
+    /**
+     * Включает или отключает пересчет порядка по статистике.
+     * При отключении детекторы вызываются в текущем порядке.
+     *
+     * @param adaptive true, чтобы пересчитывать порядок
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    @Override
+    public String toString() {
+        return "DetectionPipeline" + Arrays.toString(order);
+    }
+}
@@ -0,0 +1,424 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.ScanResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Сервис инкрементального анализа каталогов по уведомлениям файловой системы.
+ * Регистрирует дерево каталогов в {@link WatchService}, накапливает события
+ * создания и изменения файлов и анализирует только изменившиеся файлы.
+ * Поддерживает в памяти актуальный индекс "путь - определенный тип".
+ */
+public class DirectoryWatchService implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(DirectoryWatchService.class);
+
+    /** Интервал тишины по умолчанию, после которого файл считается записанным. */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
+    /** Максимальное количество файлов, анализируемых за один проход. */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final BatchScanService batchScanService;
+    private final long debounceMillis;
+    private final Map<Path, FileType> index = new ConcurrentHashMap<>();
+    private final Map<Path, Long> pendingFiles = new ConcurrentHashMap<>();
+    private final Set<Path> pendingRescans = ConcurrentHashMap.newKeySet();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final Set<Path> registeredDirectories = ConcurrentHashMap.newKeySet();
+
+    private WatchService watchService;
+    private ScheduledExecutorService scheduler;
+    private Thread watchThread;
+    private Consumer<ScanResult> changeListener = result -> { };
+
+    /**
+     * Конструктор сервиса с интервалом тишины по умолчанию.
+     *
+     * @param batchScanService сервис пакетного анализа
+     */
+    public DirectoryWatchService(BatchScanService batchScanService) {
+        this(batchScanService, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Конструктор сервиса.
+     *
+     * @param batchScanService сервис пакетного анализа
+     * @param debounceMillis интервал тишины в миллисекундах, после которого
+     *                       накопленные события файла обрабатываются
+     */
+    public DirectoryWatchService(BatchScanService batchScanService, long debounceMillis) {
+        this.batchScanService = batchScanService;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Устанавливает получателя уведомлений об изменении индекса.
+     *
+     * @param changeListener получатель результатов повторного анализа
+     */
+    public void setChangeListener(Consumer<ScanResult> changeListener) {
+        this.changeListener = changeListener != null ? changeListener : result -> { };
+    }
+
+    /**
+     * Запускает наблюдение за деревом каталогов.
+     * Выполняет первичный полный анализ дерева для заполнения индекса.
+     *
+     * @param root корневой каталог
+     * @throws IOException если не удалось зарегистрировать каталоги
+     */
+    public synchronized void start(Path root) throws IOException {
+        watch(root);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "watch-debounce");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(debounceMillis / 2, 10);
+        scheduler.scheduleWithFixedDelay(this::flushPending, period, period, TimeUnit.MILLISECONDS);
+
+        watchThread = new Thread(this::processEvents, "directory-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+
+        logger.info("Наблюдение за {} запущено. Каталогов: {}, файлов в индексе: {}",
+                root, watchedDirectories.size(), index.size());
+    }
+
+    /**
+     * Регистрирует дерево каталогов и заполняет индекс, не запуская потоки
+     * обработки событий.
+     *
+     * @param root корневой каталог
+     * @throws IOException если не удалось зарегистрировать каталоги
+     */
+    synchronized void watch(Path root) throws IOException {
+        if (root == null || !Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Каталог не существует или равен null");
+        }
+        if (watchService != null) {
+            throw new IllegalStateException("Наблюдение уже запущено");
+        }
+
+        watchService = root.getFileSystem().newWatchService();
+        registerTree(root);
+        rescanSubtree(root);
+    }
+
+    /**
+     * Проверяет, зарегистрирован ли каталог в службе наблюдения.
+     *
+     * @param dir каталог
+     * @return true, если изменения в каталоге отслеживаются
+     */
+    boolean isWatched(Path dir) {
+        return registeredDirectories.contains(dir);
+    }
+
+    /**
+     * Возвращает неизменяемое представление текущего индекса.
+     *
+     * @return индекс "путь - тип файла"
+     */
+    public Map<Path, FileType> getIndex() {
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Возвращает определенный тип файла из индекса.
+     *
+     * @param path путь к файлу
+     * @return тип файла или null, если файл отсутствует в индексе
+     */
+    public FileType getDetectedType(Path path) {
+        return index.get(path);
+    }
+
+    /**
+     * Регистрирует каталог и все его подкаталоги в службе наблюдения.
+     * Уже зарегистрированные каталоги пропускаются, их подкаталоги
+     * проверяются.
+     *
+     * @param root корневой каталог
+     * @throws IOException если не удалось обойти дерево
+     */
+    private void registerTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!registeredDirectories.contains(dir)) {
+                    WatchKey key = dir.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE);
+                    watchedDirectories.put(key, dir);
+                    registeredDirectories.add(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.warn("Не удалось зарегистрировать {}: {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Основной цикл получения событий файловой системы.
+     */
+    private void processEvents() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = watchedDirectories.get(key);
+            if (dir != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    handleEvent(dir, event);
+                }
+            }
+
+            if (!key.reset()) {
+                Path removed = watchedDirectories.remove(key);
+                if (removed != null) {
+                    registeredDirectories.remove(removed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Обрабатывает одно событие файловой системы.
+     *
+     * @param dir каталог, в котором произошло событие
+     * @param event событие
+     */
+    void handleEvent(Path dir, WatchEvent<?> event) {
+        WatchEvent.Kind<?> kind = event.kind();
+
+        if (kind == StandardWatchEventKinds.OVERFLOW) {
+            // ОС потеряла часть событий: поддерево регистрируется и пересканируется при обработке
+            logger.warn("Переполнение очереди событий для {}, запланировано повторное сканирование", dir);
+            pendingRescans.add(dir);
+            return;
+        }
+
+        Path child = dir.resolve((Path) event.context());
+
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            pendingFiles.remove(child);
+            removeSubtree(child);
+            return;
+        }
+
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+            try {
+                registerTree(child);
+            } catch (IOException e) {
+                logger.warn("Не удалось зарегистрировать новый каталог {}: {}", child, e.getMessage());
+            }
+            // Файлы могли появиться до регистрации каталога
+            pendingRescans.add(child);
+            return;
+        }
+
+        pendingFiles.put(child, System.nanoTime());
+    }
+
+    /**
+     * Обрабатывает накопленные события: файлы, по которым не было
+     * событий дольше интервала тишины, анализируются одним пакетом.
+     */
+    void flushPending() {
+        try {
+            List<Path> rescans = new ArrayList<>(pendingRescans);
+            pendingRescans.removeAll(rescans);
+            for (Path dir : topmost(rescans)) {
+                // Каталоги, созданные во время потери событий, еще не зарегистрированы
+                registerNewDirectories(dir);
+                rescanSubtree(dir);
+            }
+
+            long threshold = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+            List<Path> batch = new ArrayList<>();
+            for (Map.Entry<Path, Long> entry : pendingFiles.entrySet()) {
+                if (entry.getValue() <= threshold) {
+                    batch.add(entry.getKey());
+                    if (batch.size() >= MAX_BATCH_SIZE) {
+                        break;
+                    }
+                }
+            }
+
+            for (Path file : batch) {
+                Long eventTime = pendingFiles.get(file);
+                // Файл мог снова измениться после формирования пакета
+                if (eventTime == null || eventTime > threshold || !pendingFiles.remove(file, eventTime)) {
+                    continue;
+                }
+                BasicFileAttributes attributes = readAttributes(file);
+                if (attributes != null && attributes.isRegularFile()) {
+                    updateIndex(batchScanService.analyze(file, attributes));
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                logger.debug("Обработан пакет изменений: {} файлов", batch.size());
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка при обработке накопленных событий", e);
+        }
+    }
+
+    /**
+     * Оставляет только каталоги, не вложенные в другие каталоги списка:
+     * при переполнении событие приходит для каждого каталога дерева,
+     * а поддерево достаточно обойти один раз.
+     */
+    private static List<Path> topmost(List<Path> dirs) {
+        Set<Path> all = new HashSet<>(dirs);
+        List<Path> result = new ArrayList<>();
+        for (Path dir : dirs) {
+            Path parent = dir.getParent();
+            while (parent != null && !all.contains(parent)) {
+                parent = parent.getParent();
+            }
+            if (parent == null) {
+                result.add(dir);
+            }
+        }
+        return result;
+    }
+
+    private void registerNewDirectories(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            registerTree(dir);
+        } catch (IOException e) {
+            logger.warn("Не удалось зарегистрировать каталоги {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * Полностью пересканирует поддерево и синхронизирует с ним индекс.
+     *
+     * @param dir корень поддерева
+     */
+    void rescanSubtree(Path dir) {
+        Set<Path> seen = new HashSet<>();
+        try {
+            if (Files.exists(dir)) {
+                batchScanService.scan(dir, result -> {
+                    seen.add(result.getPath());
+                    updateIndex(result);
+                });
+            }
+        } catch (IOException e) {
+            logger.warn("Ошибка повторного сканирования {}: {}", dir, e.getMessage());
+            return;
+        }
+        index.keySet().removeIf(path -> path.startsWith(dir) && !seen.contains(path));
+    }
+
+    /**
+     * Читает атрибуты измененного файла одним обращением: они нужны и для
+     * проверки типа, и для анализа.
+     *
+     * @param file путь к файлу
+     * @return атрибуты или null, если файл уже удален
+     */
+    private static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Обновляет запись индекса по результату анализа.
+     *
+     * @param result результат анализа файла
+     */
+    private void updateIndex(ScanResult result) {
+        if (result.isDetected()) {
+            index.put(result.getPath(), result.getFileType());
+        } else {
+            index.remove(result.getPath());
+        }
+        changeListener.accept(result);
+    }
+
+    /**
+     * Удаляет из индекса файл или все файлы удаленного каталога.
+     *
+     * @param path удаленный путь
+     */
+    private void removeSubtree(Path path) {
+        index.keySet().removeIf(indexed -> indexed.startsWith(path));
+        watchedDirectories.values().removeIf(watched -> watched.startsWith(path));
+        registeredDirectories.removeIf(watched -> watched.startsWith(path));
+    }
+
+    /**
+     * Останавливает наблюдение и освобождает ресурсы.
+     *
+     * @throws IOException если не удалось закрыть службу наблюдения
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService == null) {
+            return;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            watchThread.interrupt();
+            scheduler = null;
+            watchThread = null;
+        }
+        watchService.close();
+        watchService = null;
+        watchedDirectories.clear();
+        registeredDirectories.clear();
+        logger.info("Наблюдение остановлено");
+    }
+}
@@ -1,31 +1,97 @@
 package com.fileanalyzer.service;
 
+import com.fileanalyzer.model.DetectionResult;
 import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.FragmentClass;
+import com.fileanalyzer.util.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Сервис для анализа файлов и определения их типа по содержимому.
- * Использует базу магических чисел для идентификации форматов файлов.
+ * Тип определяется конвейером детекторов {@link DetectionPipeline}:
+ * встроенными (магические числа из базы и классификация содержимого)
+ * и сторонними, подключенными через {@link FileTypeDetector}.
  */
 public class FileAnalyzerService {
 
     private static final Logger logger = LogManager.getLogger(FileAnalyzerService.class);
+
+    /** Количество байт заголовка, используемых для анализа. */
+    public static final int HEADER_SIZE = 20;
+
+    /** Размер первого этапа чтения: большинство форматов различаются по 2-4 байтам. */
+    public static final int DEFAULT_INITIAL_READ_SIZE = 4;
+
+    /** Уверенность ответа классификатора содержимого: это статистическая оценка. */
+    static final double CONTENT_CONFIDENCE = 0.5;
+
+    /**
+     * Уверенность неточного совпадения с сигнатурой без поврежденных байт;
+     * уменьшается пропорционально доле поврежденных байт. Ниже порога
+     * конвейера, поэтому уверенный ответ другого детектора предпочтительнее,
+     * но выше уверенности классификатора содержимого.
+     */
+    static final double APPROXIMATE_CONFIDENCE = 0.8;
+
     private final DatabaseService databaseService;
+    private final int readWindow;
+    private final int headerCapacity;
+    private final ThreadLocal<DetectionContext> detectionContexts;
+    private final DetectionPipeline detectionPipeline;
+    private final AnalyzerStatistics statistics = new AnalyzerStatistics();
+    private final ThreadLocal<FragmentClassifier> fragmentClassifiers;
+    private final ThreadLocal<PrefixResultCache> prefixCaches;
+    private volatile int initialReadSize = DEFAULT_INITIAL_READ_SIZE;
+    private volatile boolean fragmentClassification = true;
+    private volatile boolean prefixCaching;
+    private volatile int maxHeaderMismatches;
 
     /**
-     * Конструктор сервиса анализа файлов.
+     * Конструктор сервиса анализа файлов. Сторонние детекторы загружаются
+     * через {@link java.util.ServiceLoader}.
      *
      * @param databaseService сервис базы данных типов файлов
      */
     public FileAnalyzerService(DatabaseService databaseService) {
+        this(databaseService, DetectionPipeline.loadDetectors(databaseService));
+    }
+
+    /**
+     * Конструктор сервиса анализа файлов с заданными сторонними детекторами.
+     *
+     * @param databaseService сервис базы данных типов файлов
+     * @param plugins сторонние детекторы, уже инициализированные базой типов
+     */
+    public FileAnalyzerService(DatabaseService databaseService, List<FileTypeDetector> plugins) {
         this.databaseService = databaseService;
-        logger.info("FileAnalyzerService инициализирован");
+        // Байты за пределами окна сигнатур не влияют на результат, читать их не нужно
+        this.readWindow = Math.max(1, Math.min(databaseService.getMaxSignatureWindow(), HEADER_SIZE));
+        List<FileTypeDetector> detectors = new ArrayList<>();
+        detectors.add(new SignatureDetector());
+        detectors.addAll(plugins);
+        detectors.add(new ContentClassDetector());
+        this.detectionPipeline = new DetectionPipeline(detectors, DetectionPipeline.DEFAULT_CONFIDENCE_THRESHOLD);
+        this.headerCapacity = Math.max(readWindow, detectionPipeline.getRequiredBytes());
+        this.detectionContexts = ThreadLocal.withInitial(
+                () -> new DetectionContext(new ReadContext(headerCapacity)));
+        FragmentModel fragmentModel = FragmentModel.loadDefault();
+        this.fragmentClassifiers = ThreadLocal.withInitial(
+                () -> new FragmentClassifier(fragmentModel, FragmentClassifier.DEFAULT_SAMPLE_SIZE));
+        this.prefixCaches = ThreadLocal.withInitial(
+                () -> new PrefixResultCache(PrefixResultCache.DEFAULT_MAX_ENTRIES));
+        logger.info("FileAnalyzerService инициализирован. Окно чтения: {} байт", readWindow);
     }
 
     /**
@@ -43,12 +109,432 @@ public class FileAnalyzerService {
 
         logger.debug("Начинаю анализ файла: {}", file.getName());
 
-        // Читаем первые 20 байт файла для анализа
-        byte[] fileHeader = Files.readAllBytes(file.toPath());
-        int bytesToRead = Math.min(fileHeader.length, 20);
+        return analyzePath(file.toPath());
+    }
+
+    /**
+     * Анализирует файл, читая заголовок в буфер контекста текущего потока.
+     * Не выполняет предварительных проверок существования файла.
+     *
+     * @param path путь к файлу
+     * @return Optional с определенным типом файла
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public Optional<FileType> analyzePath(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return analyzeChannel(channel);
+        }
+    }
+
+    /**
+     * Анализирует файл по атрибутам, уже полученным при обходе каталога.
+     * Пустые файлы и файлы, не являющиеся обычными (каналы, устройства,
+     * сокеты), не открываются: открытие канала FIFO заблокировало бы поток.
+     * Размер для детекторов берется из атрибутов, без отдельного fstat.
+     *
+     * @param path путь к файлу
+     * @param attributes атрибуты файла из обхода каталога
+     * @return Optional с определенным типом файла; пустой для пропущенных файлов
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public Optional<FileType> analyzePath(Path path, BasicFileAttributes attributes) throws IOException {
+        if (!FileUtils.isValidForAnalysis(attributes)) {
+            statistics.recordSkipped();
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return analyzeChannel(channel, attributes.size());
+        }
+    }
+
+    /**
+     * Анализирует открытый файл: читает первый фрагмент заголовка и передает
+     * его конвейеру детекторов. Детекторы дочитывают заголовок только при
+     * необходимости; если ни один не дал ответа, файлу назначается тип TXT.
+     *
+     * @param channel открытый канал файла
+     * @return Optional с определенным типом файла
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public Optional<FileType> analyzeChannel(FileChannel channel) throws IOException {
+        return analyzeChannel(channel, -1);
+    }
+
+    private Optional<FileType> analyzeChannel(FileChannel channel, long size) throws IOException {
+        Optional<DetectionResult> result = detectChannel(channel, size);
+        return result != null ? resolve(result) : Optional.empty();
+    }
+
+    /**
+     * Определяет тип файла и возвращает ответ конвейера целиком: с
+     * уверенностью, именем детектора и, при неточном совпадении с
+     * сигнатурой, смещениями поврежденных байт заголовка. Тип TXT для
+     * файлов без ответа не назначается (см. {@link #resolve(Optional)}).
+     *
+     * @param path путь к файлу
+     * @return Optional с ответом конвейера; пустой для пустых файлов и файлов без ответа
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public Optional<DetectionResult> detectPath(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Optional<DetectionResult> result = detectChannel(channel, -1);
+            return result != null ? result : Optional.empty();
+        }
+    }
+
+    /**
+     * Читает первый фрагмент заголовка и передает его конвейеру детекторов.
+     *
+     * @return ответ конвейера или null, если файл пуст
+     */
+    private Optional<DetectionResult> detectChannel(FileChannel channel, long size) throws IOException {
+        DetectionContext context = detectionContexts.get();
+        if (context.begin(channel, initialReadSize, size) <= 0) {
+            statistics.recordFile(0, context.getReads());
+            context.end();
+            return null;
+        }
+        try {
+            Optional<DetectionResult> result = detectionPipeline.detect(context);
+            statistics.recordFile(context.getAvailable(), context.getReads());
+            return result;
+        } finally {
+            context.end();
+        }
+    }
+
+    /**
+     * Определяет тип по заголовку, уже прочитанному в буфер асинхронным
+     * чтением. Классификация содержимого здесь не выполняется: выборку
+     * вызывающий код читает сам, если {@link #needsContentSample} это требует.
+     *
+     * @param header буфер с заголовком от 0 до available
+     * @param available количество прочитанных байт (не меньше 1)
+     * @param endOfFile true, если заголовок содержит весь файл
+     * @param size размер файла
+     * @return ответ конвейера детекторов
+     * @throws IOException если сторонний детектор завершился ошибкой
+     */
+    Optional<DetectionResult> detectHeader(ByteBuffer header, int available, boolean endOfFile, long size)
+            throws IOException {
+        DetectionContext context = detectionContexts.get();
+        context.beginPreloaded(header, available, endOfFile, size);
+        try {
+            Optional<DetectionResult> result = detectionPipeline.detect(context);
+            statistics.recordFile(available, 1);
+            return result;
+        } finally {
+            context.end();
+        }
+    }
+
+    /**
+     * Проверяет, изменила бы классификация содержимого ответ, полученный
+     * по заголовку: так же, как при синхронном анализе, она выполняется для
+     * непрочитанных целиком файлов без ответа увереннее, чем она сама.
+     *
+     * @param detection ответ по заголовку
+     * @param endOfFile true, если заголовок содержит весь файл
+     * @param size размер файла
+     * @return true, если нужно прочитать выборку содержимого
+     */
+    boolean needsContentSample(Optional<DetectionResult> detection, boolean endOfFile, long size) {
+        return fragmentClassification && !endOfFile && size >= FragmentClassifier.MIN_SAMPLE_SIZE
+                && (detection.isEmpty() || detection.get().getConfidence() < CONTENT_CONFIDENCE);
+    }
+
+    /**
+     * Завершает анализ по выборке содержимого из начала файла.
+     *
+     * @param detection ответ по заголовку
+     * @param sample выборка из начала файла
+     * @param length количество байт выборки
+     * @param reads количество операций чтения выборки
+     * @return тип по классу содержимого, иначе по ответу заголовка
+     */
+    Optional<FileType> classifySample(Optional<DetectionResult> detection, byte[] sample, int length, int reads) {
+        FragmentClassifier classifier = fragmentClassifiers.get();
+        FragmentClass fragmentClass = classifier.classify(sample, 0, length);
+        statistics.recordFragmentSample(length, reads);
+        Optional<FileType> content = databaseService.findFileTypeByExtension(fragmentClass.getExtension());
+        return content.isPresent() ? content : resolve(detection);
+    }
+
+    /**
+     * Преобразует ответ конвейера в тип файла; без ответа назначается TXT.
+     *
+     * @param detection ответ конвейера
+     * @return Optional с типом файла
+     */
+    public Optional<FileType> resolve(Optional<DetectionResult> detection) {
+        if (detection.isPresent()) {
+            return Optional.of(detection.get().getFileType());
+        }
+        return Optional.ofNullable(databaseService.getFallbackType());
+    }
+
+    /**
+     * Детектор по магическим числам базы с поэтапным чтением заголовка.
+     * Сначала анализируется небольшой фрагмент, по индексу сигнатур
+     * отбрасываются неподходящие кандидаты, и дополнительные позиционные
+     * чтения выполняются только если оставшемуся кандидату нужны более
+     * дальние байты. Если точного совпадения нет и разрешены отличия
+     * ({@link #setMaxHeaderMismatches(int)}), заголовок дочитывается до окна
+     * сигнатур и сопоставляется неточно.
+     */
+    private final class SignatureDetector implements FileTypeDetector {
+
+        private final CompiledSignatures signatures = databaseService.getCompiledSignatures();
+        private final DetectionResult[] results = new DetectionResult[signatures.getTypeCount()];
+
+        SignatureDetector() {
+            for (int id = 0; id < results.length; id++) {
+                results[id] = new DetectionResult(signatures.getType(id), 1.0, getName());
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "signatures";
+        }
+
+        @Override
+        public int getCost() {
+            return 1;
+        }
+
+        @Override
+        public int getRequiredBytes() {
+            return readWindow;
+        }
+
+        @Override
+        public Optional<DetectionResult> detect(DetectionContext context) throws IOException {
+            SignatureIndex signatureIndex = databaseService.getSignatureIndex();
+            ByteBuffer header = context.getHeader();
+            int available = context.getAvailable();
+            while (!context.isEndOfFile() && available < readWindow) {
+                int required = Math.min(signatureIndex.requiredBytes(header, available), readWindow);
+                if (required <= available) {
+                    break;
+                }
+                available = context.require(required);
+            }
+            int typeId = matchSignatures(signatures, header, available);
+            if (typeId != CompiledSignatures.NO_MATCH) {
+                return Optional.of(results[typeId]);
+            }
+            int maxMismatches = maxHeaderMismatches;
+            return maxMismatches > 0 ? matchApproximate(context, maxMismatches) : Optional.empty();
+        }
+
+        /**
+         * Сопоставляет заголовок с сигнатурами с точностью до maxMismatches
+         * байт. Уверенность ответа уменьшается с долей поврежденных байт.
+         */
+        private Optional<DetectionResult> matchApproximate(DetectionContext context, int maxMismatches)
+                throws IOException {
+            int available = context.require(readWindow);
+            ByteBuffer header = context.getHeader();
+            int signature = signatures.matchApproximate(header, available, maxMismatches);
+            if (signature == CompiledSignatures.NO_MATCH) {
+                return Optional.empty();
+            }
+            int[] damaged = signatures.mismatchOffsets(header, signature);
+            int start = signatures.getSignatureOffset(signature);
+            byte[] expected = new byte[damaged.length];
+            for (int i = 0; i < damaged.length; i++) {
+                expected[i] = (byte) signatures.getSignatureByte(signature, damaged[i] - start);
+            }
+            int length = signatures.getSignatureLength(signature);
+            double confidence = APPROXIMATE_CONFIDENCE * (length - damaged.length) / length;
+            FileType fileType = signatures.getType(signatures.getSignatureType(signature));
+            logger.debug("Заголовок совпал с сигнатурой {} неточно, поврежденные байты: {}",
+                    fileType.getExtension(), damaged);
+            return Optional.of(new DetectionResult(fileType, confidence, getName(), damaged, expected));
+        }
+    }
+
+    /**
+     * Детектор по статистике содержимого (см. {@link FragmentClassifier}) для
+     * файлов без распознанной сигнатуры. Самый дорогой из встроенных: читает
+     * выборку из начала файла.
+     */
+    private final class ContentClassDetector implements FileTypeDetector {
+
+        @Override
+        public String getName() {
+            return "content";
+        }
+
+        @Override
+        public int getCost() {
+            return 1000;
+        }
+
+        @Override
+        public int getRequiredBytes() {
+            return 0;
+        }
+
+        @Override
+        public Optional<DetectionResult> detect(DetectionContext context) throws IOException {
+            // Без канала (асинхронное чтение) выборку читает AsyncReadEngine
+            if (context.getChannel() == null || !fragmentClassification || context.isEndOfFile()
+                    || context.size() < FragmentClassifier.MIN_SAMPLE_SIZE) {
+                return Optional.empty();
+            }
+            return classifyContent(context.getChannel())
+                    .map(type -> new DetectionResult(type, CONTENT_CONFIDENCE, getName()));
+        }
+    }
+
+    /**
+     * Сопоставляет заголовок с сигнатурами через кэш потока: повторяющиеся
+     * префиксы заголовков не проходят через сопоставление повторно.
+     *
+     * @param signatures скомпилированные сигнатуры
+     * @param header буфер заголовка
+     * @param available количество прочитанных байт
+     * @return номер типа или {@link CompiledSignatures#NO_MATCH}
+     */
+    private int matchSignatures(CompiledSignatures signatures, ByteBuffer header, int available) {
+        if (!prefixCaching || !PrefixResultCache.isCacheable(available)) {
+            return signatures.match(header, available);
+        }
+        PrefixResultCache cache = prefixCaches.get();
+        int typeId = cache.lookup(header, available);
+        statistics.recordPrefixLookup(typeId != PrefixResultCache.MISS);
+        if (typeId == PrefixResultCache.MISS) {
+            typeId = signatures.match(header, available);
+            cache.put(header, available, typeId);
+        }
+        return typeId;
+    }
 
-        // Ищем совпадение в базе данных
-        return databaseService.findFileTypeByMagicNumbers(fileHeader, bytesToRead);
+    /**
+     * Определяет тип файла без сигнатуры по статистике его содержимого.
+     *
+     * @param channel открытый канал файла
+     * @return Optional с типом, соответствующим классу содержимого,
+     *         или пустой Optional, если класс определить не удалось
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    private Optional<FileType> classifyContent(FileChannel channel) throws IOException {
+        FragmentClassifier classifier = fragmentClassifiers.get();
+        FragmentClass fragmentClass = classifier.classify(channel);
+        statistics.recordFragmentSample(classifier.getProcessedBytes(), classifier.getReadCalls());
+        logger.debug("Файл без сигнатуры классифицирован как {}", fragmentClass);
+        return databaseService.findFileTypeByExtension(fragmentClass.getExtension());
+    }
+
+    /**
+     * Включает или отключает классификацию содержимого файлов без сигнатуры.
+     * При отключении такие файлы, как и раньше, получают тип TXT.
+     *
+     * @param fragmentClassification true, чтобы классифицировать содержимое
+     */
+    public void setFragmentClassification(boolean fragmentClassification) {
+        this.fragmentClassification = fragmentClassification;
+    }
+
+    /**
+     * Включает неточное сопоставление заголовков с сигнатурами для файлов
+     * с поврежденными байтами заголовка. Выполняется, только если точного
+     * совпадения нет; число отличий дополнительно ограничено длиной
+     * сигнатуры, поэтому сигнатуры из 2-3 байт сопоставляются только точно.
+     *
+     * @param maxHeaderMismatches наибольшее число поврежденных байт (0 - только точное совпадение)
+     */
+    public void setMaxHeaderMismatches(int maxHeaderMismatches) {
+        if (maxHeaderMismatches < 0) {
+            throw new IllegalArgumentException("Число отличий не может быть отрицательным");
+        }
+        this.maxHeaderMismatches = maxHeaderMismatches;
+    }
+
+    /**
+     * Включает или отключает кэш результатов по префиксу заголовка.
+     * По умолчанию выключен: поиск в кэше дороже сопоставления сигнатур,
+     * пока доля попаданий ниже примерно 85% (PrefixCacheBenchmark). Кэш
+     * стоит включать для наборов с большим числом одинаковых заголовков,
+     * например каталогов однотипных фотографий или журналов.
+     *
+     * @param prefixCaching true, чтобы запоминать результаты для повторяющихся заголовков
+     */
+    public void setPrefixCaching(boolean prefixCaching) {
+        this.prefixCaching = prefixCaching;
+    }
+
+    /**
+     * Устанавливает размер первого этапа чтения заголовка.
+     * Значение, не меньшее окна чтения, отключает поэтапное чтение.
+     *
+     * @param initialReadSize количество байт первого чтения
+     */
+    public void setInitialReadSize(int initialReadSize) {
+        if (initialReadSize <= 0) {
+            throw new IllegalArgumentException("Размер первого чтения должен быть положительным");
+        }
+        this.initialReadSize = initialReadSize;
+    }
+
+    /**
+     * Возвращает статистику работы анализатора.
+     *
+     * @return счетчики прочитанных байт и операций чтения
+     */
+    public AnalyzerStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Возвращает контекст чтения текущего потока.
+     * Буфер контекста переиспользуется для всех файлов потока.
+     *
+     * @return контекст чтения
+     */
+    public ReadContext getReadContext() {
+        return detectionContexts.get().getReadContext();
+    }
+
+    /**
+     * Возвращает конвейер детекторов со статистикой по каждому детектору.
+     *
+     * @return конвейер детекторов
+     */
+    public DetectionPipeline getDetectionPipeline() {
+        return detectionPipeline;
+    }
+
+    /**
+     * Возвращает размер окна чтения заголовка.
+     *
+     * @return количество байт, достаточное для сопоставления со всеми сигнатурами
+     */
+    public int getReadWindow() {
+        return readWindow;
+    }
+
+    /**
+     * Возвращает размер буфера заголовка: окно сигнатур или больше, если
+     * сторонним детекторам нужны более дальние байты.
+     *
+     * @return количество байт, достаточное для всех детекторов
+     */
+    public int getHeaderCapacity() {
+        return headerCapacity;
+    }
+
+    /**
+     * Определяет тип файла по уже прочитанному заголовку.
+     *
+     * @param fileHeader байты заголовка файла
+     * @param length количество прочитанных байт
+     * @return Optional с определенным типом файла
+     */
+    public Optional<FileType> analyzeHeader(byte[] fileHeader, int length) {
+        return databaseService.findFileTypeByMagicNumbers(fileHeader, Math.min(length, HEADER_SIZE));
     }
 
     /**
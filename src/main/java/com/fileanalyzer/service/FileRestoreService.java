@@ -1,25 +1,58 @@
 package com.fileanalyzer.service;
 
+import com.fileanalyzer.model.DetectionResult;
 import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.ScanResult;
+import com.fileanalyzer.util.DirectoryNameIndex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Сервис для восстановления правильного расширения файла.
  * Переименовывает файлы, добавляя корректное расширение на основе анализа.
+ * Заголовки, совпавшие с сигнатурой неточно, могут быть исправлены
+ * в создаваемой копии; исходные файлы не изменяются.
  */
 public class FileRestoreService {
 
     private static final Logger logger = LogManager.getLogger(FileRestoreService.class);
 
+    /** Объем копирования, на который нормируется задержка для режима низкого приоритета. */
+    private static final long LATENCY_UNIT_BYTES = 1024 * 1024;
+
+    private volatile FileAnalyzerService headerRepairAnalyzer;
+
+    /**
+     * Включает исправление поврежденных заголовков в {@link #restoreAll}.
+     * Перед копированием файл повторно анализируется, и если заголовок
+     * совпал с сигнатурой определенного типа неточно, поврежденные байты
+     * в копии заменяются байтами сигнатуры. Неточное сопоставление должно
+     * быть включено в анализаторе ({@link FileAnalyzerService#setMaxHeaderMismatches(int)}).
+     *
+     * @param analyzer анализатор или null, чтобы выключить исправление
+     */
+    public void setHeaderRepair(FileAnalyzerService analyzer) {
+        this.headerRepairAnalyzer = analyzer;
+    }
+
     /**
      * Восстанавливает расширение файла на основе определенного типа.
+     * Копия создается рядом с исходным файлом; существующие файлы
+     * не перезаписываются, при совпадении имени добавляется суффикс
+     * {@code _N}. Файл, у которого расширение уже правильное, не копируется.
      *
      * @param originalFile исходный файл
      * @param fileType определенный тип файла
@@ -27,6 +60,59 @@ public class FileRestoreService {
      * @throws IOException если произошла ошибка при копировании/переименовании
      */
     public File restoreFileExtension(File originalFile, FileType fileType) throws IOException {
+        return restore(originalFile, fileType, false).toFile();
+    }
+
+    /**
+     * Восстанавливает расширение файла по ответу анализатора и при
+     * необходимости исправляет поврежденный заголовок. Исправление
+     * выполняется только в копии: если расширение уже правильное, копия
+     * все равно создается (с суффиксом {@code _N}).
+     *
+     * @param originalFile исходный файл
+     * @param detection ответ анализатора
+     * @param repairHeader true, чтобы исправить поврежденные байты заголовка
+     * @return новый файл с правильным расширением
+     * @throws IOException если произошла ошибка при копировании или записи
+     */
+    public File restoreFileExtension(File originalFile, DetectionResult detection, boolean repairHeader)
+            throws IOException {
+        boolean repair = repairHeader && detection.isApproximate();
+        Path restored = restore(originalFile, detection.getFileType(), repair);
+        if (repair) {
+            repairHeader(restored, detection);
+        }
+        return restored.toFile();
+    }
+
+    /**
+     * Записывает в файл байты сигнатуры на место поврежденных байт заголовка.
+     *
+     * @param file файл (копия исходного)
+     * @param detection ответ анализатора с поврежденными байтами
+     * @throws IOException если произошла ошибка при записи
+     */
+    public void repairHeader(Path file, DetectionResult detection) throws IOException {
+        int[] offsets = detection.getDamagedOffsets();
+        byte[] expected = detection.getExpectedBytes();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < offsets.length; i++) {
+                channel.write(ByteBuffer.wrap(expected, i, 1), offsets[i]);
+            }
+        }
+        logger.info("Исправлен заголовок {}: {} байт", file.getFileName(), offsets.length);
+    }
+
+    /**
+     * Копирует файл под именем с правильным расширением.
+     *
+     * @param originalFile исходный файл
+     * @param fileType определенный тип файла
+     * @param forceCopy true, чтобы копировать и при правильном расширении
+     * @return путь к копии или к исходному файлу, если копия не нужна
+     * @throws IOException если произошла ошибка при копировании
+     */
+    private Path restore(File originalFile, FileType fileType, boolean forceCopy) throws IOException {
         if (originalFile == null || !originalFile.exists()) {
             throw new IllegalArgumentException("Файл не существует или равен null");
         }
@@ -40,27 +126,88 @@ public class FileRestoreService {
             extension = extension.substring(1);
         }
 
-        Path originalPath = originalFile.toPath();
+        Path originalPath = originalFile.toPath().toAbsolutePath();
         String fileName = originalFile.getName();
-        String newFileName;
+        String baseName;
 
         // Удаляем старое расширение, если есть
         int lastDotIndex = fileName.lastIndexOf('.');
         if (lastDotIndex > 0) {
-            newFileName = fileName.substring(0, lastDotIndex) + "." + extension;
+            baseName = fileName.substring(0, lastDotIndex);
         } else {
-            newFileName = fileName + "." + extension;
+            baseName = fileName;
+        }
+        if (!forceCopy && fileName.equalsIgnoreCase(baseName + "." + extension)) {
+            logger.debug("Расширение уже правильное: {}", fileName);
+            return originalFile.toPath();
         }
 
-        // Создаем новый путь
-        Path newPath = originalPath.getParent().resolve(newFileName);
+        // Имя выбирается по индексу каталога, общему для всех потоков восстановления
+        Path newPath = DirectoryNameIndex.forDirectory(originalPath.getParent())
+                .copy(originalPath, baseName, extension);
 
-        // Копируем файл с новым именем
-        Files.copy(originalPath, newPath, StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Расширение восстановлено: {} -> {}", fileName, newPath.getFileName());
 
-        logger.info("Расширение восстановлено: {} -> {}", originalFile.getName(), newFileName);
+        return newPath;
+    }
+
+    /**
+     * Восстанавливает расширения файлов по результатам пакетного анализа.
+     * Файлы без определенного типа пропускаются, ошибки отдельных файлов
+     * не прерывают обработку. Каждое копирование согласуется с ограничителем:
+     * расходуются токены по файлам и по размеру файла, а задержка копирования,
+     * нормированная на мегабайт, используется режимом низкого приоритета.
+     * Если включено исправление заголовков ({@link #setHeaderRepair}),
+     * поврежденные заголовки исправляются в копиях.
+     *
+     * @param results результаты анализа
+     * @param throttle ограничитель нагрузки или null
+     * @return восстановленные файлы
+     * @throws InterruptedIOException если ожидание ограничителя было прервано
+     */
+    public List<File> restoreAll(List<ScanResult> results, ScanThrottle throttle) throws InterruptedIOException {
+        List<File> restored = new ArrayList<>();
+        for (ScanResult result : results) {
+            if (!result.isDetected()) {
+                continue;
+            }
+            try {
+                if (throttle != null) {
+                    throttle.acquire(result.getSize());
+                }
+                long start = System.nanoTime();
+                restored.add(restore(result));
+                if (throttle != null) {
+                    long units = Math.max(1, result.getSize() / LATENCY_UNIT_BYTES);
+                    throttle.onLatency((System.nanoTime() - start) / units);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Восстановление прервано");
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Не удалось восстановить {}: {}", result.getPath(), e.getMessage());
+            }
+        }
+        logger.info("Восстановлено файлов: {} из {}", restored.size(), results.size());
+        return restored;
+    }
 
-        return newPath.toFile();
+    /**
+     * Восстанавливает один файл пакета, исправляя заголовок, если это
+     * включено и заголовок поврежден.
+     */
+    private File restore(ScanResult result) throws IOException {
+        File file = result.getPath().toFile();
+        FileAnalyzerService analyzer = headerRepairAnalyzer;
+        if (analyzer != null) {
+            Optional<DetectionResult> detection = analyzer.detectPath(result.getPath());
+            String extension = result.getFileType().getExtension();
+            if (detection.isPresent() && detection.get().isApproximate()
+                    && detection.get().getFileType().getExtension().equals(extension)) {
+                return restoreFileExtension(file, detection.get(), true);
+            }
+        }
+        return restoreFileExtension(file, result.getFileType());
     }
 
     /**
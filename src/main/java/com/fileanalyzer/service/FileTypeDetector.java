@@ -0,0 +1,66 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.DetectionResult;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Детектор типа файла, подключаемый к {@link DetectionPipeline}.
+ *
+ * <p>Сторонние детекторы находятся через {@link java.util.ServiceLoader}:
+ * реализация с открытым конструктором без параметров указывается в файле
+ * {@code META-INF/services/com.fileanalyzer.service.FileTypeDetector} своего
+ * jar, и jar добавляется в classpath анализатора. Встроенные детекторы
+ * (сигнатуры и классификация содержимого) создает {@link FileAnalyzerService}.
+ *
+ * <p>Один экземпляр вызывается из всех потоков анализа одновременно, поэтому
+ * реализация должна быть потокобезопасной; состояние, относящееся к одному
+ * файлу, передается через {@link DetectionContext}.
+ */
+public interface FileTypeDetector {
+
+    /**
+     * Возвращает имя детектора для статистики и журнала.
+     *
+     * @return короткое имя
+     */
+    String getName();
+
+    /**
+     * Возвращает заявленную стоимость одного вызова в условных единицах:
+     * 1 - сравнение нескольких байт заголовка, 10 - разбор структуры
+     * заголовка, 100 и больше - чтение и анализ содержимого. Используется
+     * для начального порядка, пока не накоплены измерения.
+     *
+     * @return условная стоимость вызова
+     */
+    int getCost();
+
+    /**
+     * Возвращает количество байт заголовка, которое детектор может запросить
+     * через {@link DetectionContext#require(int)}. Буфер заголовка
+     * выделяется по максимальному значению среди детекторов.
+     *
+     * @return количество байт начала файла
+     */
+    int getRequiredBytes();
+
+    /**
+     * Вызывается один раз после загрузки, до первого вызова
+     * {@link #detect(DetectionContext)}.
+     *
+     * @param databaseService база типов файлов анализатора
+     */
+    default void init(DatabaseService databaseService) {
+    }
+
+    /**
+     * Определяет тип файла.
+     *
+     * @param context заголовок и канал анализируемого файла
+     * @return Optional с результатом или пустой Optional, если тип не распознан
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    Optional<DetectionResult> detect(DetectionContext context) throws IOException;
+}
@@ -0,0 +1,379 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FragmentClass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Классификатор фрагментов без распознаваемой сигнатуры.
+ * За один потоковый проход по ограниченной выборке из начала файла
+ * вычисляет энтропию Шеннона по окнам, долю текстовых байт (ASCII и
+ * корректные последовательности UTF-8), долю байт-стаффинга JPEG (FF 00 и
+ * маркеры RST), длину цепочки заголовков кадров MP3 и оценку биграммной
+ * модели {@link FragmentModel}. Структурные признаки проверяются первыми,
+ * модель используется, когда они не дают однозначного ответа.
+ *
+ * <p>Все гистограммы и буферы выделяются один раз; экземпляр не является
+ * потокобезопасным и используется через {@link ThreadLocal}.
+ */
+public class FragmentClassifier {
+
+    /** Размер выборки по умолчанию. */
+    public static final int DEFAULT_SAMPLE_SIZE = 32 * 1024;
+    /** Минимальный размер выборки, по которому класс определяется надежно. */
+    public static final int MIN_SAMPLE_SIZE = 512;
+    /** Размер окна для расчета энтропии. */
+    static final int ENTROPY_WINDOW = 4096;
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final double TEXT_RATIO = 0.97;
+    private static final int JPEG_MIN_STUFFING = 4;
+    private static final int JPEG_ALLOWED_MARKERS = 2;
+    private static final int JPEG_STUFFING_PER_MARKER = 20;
+    private static final double JPEG_MIN_ENTROPY = 6.5;
+    private static final double COMPRESSED_MEAN_ENTROPY = 7.5;
+    private static final double COMPRESSED_MIN_ENTROPY = 7.0;
+    private static final int MP3_MIN_CHAIN = 3;
+    /** Минимальный отрыв лучшего класса модели, бит на биграмму. */
+    private static final double MODEL_MARGIN_BITS = 0.25;
+
+    private static final int[] MPEG1_BITRATES = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+    private static final int[] MPEG2_BITRATES = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160};
+    private static final int[] MPEG1_SAMPLE_RATES = {44100, 48000, 32000};
+    private static final int[] MPEG2_SAMPLE_RATES = {22050, 24000, 16000};
+    private static final int[] MPEG25_SAMPLE_RATES = {11025, 12000, 8000};
+
+    /** Таблица значений c * log2(c) для счетчиков окна. */
+    private static final double[] C_LOG_C = new double[ENTROPY_WINDOW + 1];
+    /** 1 для байт, допустимых в тексте: печатные ASCII, пробельные символы и байты UTF-8. */
+    private static final byte[] TEXT_BYTE = new byte[256];
+    /** Количество байт продолжения, которое ожидается после ведущего байта UTF-8. */
+    private static final byte[] UTF8_CONTINUATIONS = new byte[256];
+
+    static {
+        for (int c = 1; c <= ENTROPY_WINDOW; c++) {
+            C_LOG_C[c] = c * (Math.log(c) / Math.log(2));
+        }
+        for (int b = 0; b < 256; b++) {
+            boolean ascii = (b >= 0x20 && b < 0x7F) || b == '\n' || b == '\r' || b == '\t';
+            boolean continuation = b >= 0x80 && b <= 0xBF;
+            boolean lead = b >= 0xC2 && b <= 0xF4;
+            TEXT_BYTE[b] = (byte) (ascii || continuation || lead ? 1 : 0);
+            UTF8_CONTINUATIONS[b] = (byte) (!lead ? 0 : b >= 0xF0 ? 3 : b >= 0xE0 ? 2 : 1);
+        }
+    }
+
+    private final FragmentModel model;
+    private final int sampleSize;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private final ByteBuffer chunkBuffer = ByteBuffer.wrap(chunk);
+    private final int[] windowCounts = new int[256];
+    private final int[] bigramCounts = new int[FragmentModel.CELLS];
+    private final long[] modelScores = new long[FragmentModel.CLASSES.length];
+
+    private long processed;
+    private int readCalls;
+    private int previous;
+    private int windowFill;
+    private int windows;
+    private double entropySum;
+    private double minEntropy;
+    private long textBytes;
+    private long utf8ExpectedContinuations;
+    private long utf8ContinuationBytes;
+    private long jpegStuffing;
+    private long jpegOtherMarkers;
+    private int syncRegister;
+    private long expectedFrame;
+    private int chain;
+    private int maxChain;
+
+    /**
+     * Конструктор классификатора.
+     *
+     * @param model биграммная модель или null, если используются только эвристики
+     * @param sampleSize максимальное количество байт выборки
+     */
+    public FragmentClassifier(FragmentModel model, int sampleSize) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Размер выборки должен быть положительным");
+        }
+        this.model = model;
+        this.sampleSize = sampleSize;
+        reset();
+    }
+
+    /**
+     * Классифицирует начало открытого файла.
+     * Выборка читается позиционно частями по {@value #CHUNK_SIZE} байт,
+     * позиция канала не изменяется.
+     *
+     * @param channel открытый канал файла
+     * @return класс фрагмента
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public FragmentClass classify(FileChannel channel) throws IOException {
+        reset();
+        long position = 0;
+        while (position < sampleSize) {
+            chunkBuffer.clear();
+            chunkBuffer.limit((int) Math.min(CHUNK_SIZE, sampleSize - position));
+            int read = channel.read(chunkBuffer, position);
+            readCalls++;
+            if (read < 0) {
+                break;
+            }
+            update(chunk, 0, read);
+            position += read;
+        }
+        return finish();
+    }
+
+    /**
+     * Классифицирует фрагмент из массива байт.
+     *
+     * @param data данные
+     * @param offset начало фрагмента
+     * @param length длина фрагмента (используется не более размера выборки)
+     * @return класс фрагмента
+     */
+    public FragmentClass classify(byte[] data, int offset, int length) {
+        reset();
+        update(data, offset, Math.min(length, sampleSize));
+        return finish();
+    }
+
+    /**
+     * Возвращает количество байт, обработанных последней классификацией.
+     *
+     * @return размер выборки в байтах
+     */
+    public long getProcessedBytes() {
+        return processed;
+    }
+
+    /**
+     * Возвращает количество операций чтения последней классификации канала.
+     *
+     * @return количество операций чтения
+     */
+    public int getReadCalls() {
+        return readCalls;
+    }
+
+    /**
+     * Возвращает среднюю энтропию окон последней выборки.
+     *
+     * @return энтропия в битах на байт
+     */
+    public double getMeanEntropy() {
+        return windows == 0 ? 0 : entropySum / windows;
+    }
+
+    private void reset() {
+        processed = 0;
+        readCalls = 0;
+        previous = -1;
+        windowFill = 0;
+        windows = 0;
+        entropySum = 0;
+        minEntropy = Double.MAX_VALUE;
+        textBytes = 0;
+        utf8ExpectedContinuations = 0;
+        utf8ContinuationBytes = 0;
+        jpegStuffing = 0;
+        jpegOtherMarkers = 0;
+        syncRegister = 0;
+        expectedFrame = -1;
+        chain = 0;
+        maxChain = 0;
+        Arrays.fill(windowCounts, 0);
+        Arrays.fill(bigramCounts, 0);
+    }
+
+    private void update(byte[] data, int offset, int length) {
+        // Горячие счетчики держатся в локальных переменных и сохраняются в конце
+        long position = processed;
+        int last = previous;
+        int fill = windowFill;
+        long text = textBytes;
+        long utf8Expected = utf8ExpectedContinuations;
+        long utf8Continuations = utf8ContinuationBytes;
+        long stuffing = jpegStuffing;
+        long markers = jpegOtherMarkers;
+        int register = syncRegister;
+        int[] counts = windowCounts;
+        int[] pairs = bigramCounts;
+
+        for (int i = offset, end = offset + length; i < end; i++, position++) {
+            int b = data[i] & 0xFF;
+
+            counts[b]++;
+            if (++fill == ENTROPY_WINDOW) {
+                windowFill = fill;
+                closeWindow();
+                fill = 0;
+            }
+
+            // Без ветвлений: на случайных данных ветви непредсказуемы
+            text += TEXT_BYTE[b];
+            utf8Expected += UTF8_CONTINUATIONS[b];
+            utf8Continuations += b >>> 6 == 2 ? 1 : 0;
+
+            if (last == 0xFF) {
+                if (b == 0x00 || (b >= 0xD0 && b <= 0xD7)) {
+                    stuffing++;
+                } else if (b != 0xFF) {
+                    markers++;
+                }
+            }
+
+            register = (register << 8) | b;
+            if (position >= 3 && ((register >>> 21) == 0x7FF || position - 3 == expectedFrame)) {
+                trackFrames(register, position - 3);
+            }
+
+            if (last >= 0) {
+                pairs[FragmentModel.cell(last, b)]++;
+            }
+            last = b;
+        }
+
+        processed = position;
+        previous = last;
+        windowFill = fill;
+        textBytes = text;
+        utf8ExpectedContinuations = utf8Expected;
+        utf8ContinuationBytes = utf8Continuations;
+        jpegStuffing = stuffing;
+        jpegOtherMarkers = markers;
+        syncRegister = register;
+    }
+
+    private void closeWindow() {
+        double sum = 0;
+        for (int i = 0; i < 256; i++) {
+            int count = windowCounts[i];
+            if (count != 0) {
+                sum += C_LOG_C[count];
+                windowCounts[i] = 0;
+            }
+        }
+        double entropy = (C_LOG_C[windowFill] - sum) / windowFill;
+        entropySum += entropy;
+        minEntropy = Math.min(minEntropy, entropy);
+        windows++;
+        windowFill = 0;
+    }
+
+    /**
+     * Отслеживает цепочку заголовков кадров MP3: каждый найденный заголовок
+     * предсказывает позицию следующего по длине кадра.
+     */
+    private void trackFrames(int header, long headerPosition) {
+        int frameLength = mp3FrameLength(header);
+        if (headerPosition == expectedFrame) {
+            if (frameLength > 0) {
+                chain++;
+                maxChain = Math.max(maxChain, chain);
+                expectedFrame = headerPosition + frameLength;
+            } else {
+                chain = 0;
+                expectedFrame = -1;
+            }
+        } else if (frameLength > 0 && (expectedFrame < 0 || headerPosition > expectedFrame)) {
+            chain = 1;
+            maxChain = Math.max(maxChain, chain);
+            expectedFrame = headerPosition + frameLength;
+        }
+    }
+
+    /**
+     * Проверяет заголовок кадра MPEG Audio Layer III и вычисляет длину кадра.
+     *
+     * @param header 32 бита заголовка
+     * @return длина кадра в байтах или 0, если заголовок некорректен
+     */
+    static int mp3FrameLength(int header) {
+        if ((header >>> 21) != 0x7FF) {
+            return 0;
+        }
+        int version = (header >>> 19) & 3;
+        int layer = (header >>> 17) & 3;
+        int bitrateIndex = (header >>> 12) & 0xF;
+        int sampleRateIndex = (header >>> 10) & 3;
+        int padding = (header >>> 9) & 1;
+        if (version == 1 || layer != 1 || bitrateIndex == 0 || bitrateIndex == 15
+                || sampleRateIndex == 3 || (header & 3) == 2) {
+            return 0;
+        }
+        if (version == 3) {
+            return 144000 * MPEG1_BITRATES[bitrateIndex] / MPEG1_SAMPLE_RATES[sampleRateIndex] + padding;
+        }
+        int sampleRate = version == 2 ? MPEG2_SAMPLE_RATES[sampleRateIndex] : MPEG25_SAMPLE_RATES[sampleRateIndex];
+        return 72000 * MPEG2_BITRATES[bitrateIndex] / sampleRate + padding;
+    }
+
+    private FragmentClass finish() {
+        if (processed < MIN_SAMPLE_SIZE) {
+            return FragmentClass.UNKNOWN;
+        }
+        if (windowFill >= MIN_SAMPLE_SIZE || windows == 0) {
+            closeWindow();
+        }
+
+        // Байты UTF-8 считаются текстом, только если продолжений столько,
+        // сколько заявлено ведущими байтами
+        long utf8Mismatch = Math.abs(utf8ExpectedContinuations - utf8ContinuationBytes);
+        if (textBytes - 2 * utf8Mismatch >= TEXT_RATIO * processed) {
+            return FragmentClass.TEXT;
+        }
+        if (maxChain >= MP3_MIN_CHAIN) {
+            return FragmentClass.MP3_STREAM;
+        }
+        double meanEntropy = getMeanEntropy();
+        // В теле скана JPEG за FF следуют только 00 и RST; допускается пара
+        // настоящих маркеров (конец изображения, DHT перед следующим сканом)
+        if (jpegStuffing >= JPEG_MIN_STUFFING && jpegStuffing * 1024 >= processed
+                && jpegOtherMarkers <= JPEG_ALLOWED_MARKERS + jpegStuffing / JPEG_STUFFING_PER_MARKER
+                && meanEntropy >= JPEG_MIN_ENTROPY) {
+            return FragmentClass.JPEG_BODY;
+        }
+        if (meanEntropy >= COMPRESSED_MEAN_ENTROPY && minEntropy >= COMPRESSED_MIN_ENTROPY) {
+            return FragmentClass.COMPRESSED_OR_ENCRYPTED;
+        }
+        return classifyByModel();
+    }
+
+    private FragmentClass classifyByModel() {
+        if (model == null || processed < 2) {
+            return FragmentClass.UNKNOWN;
+        }
+        // Оценка модели - сумма log-вероятностей биграмм выборки для каждого класса
+        short[] table = model.getTable();
+        long[] scores = modelScores;
+        for (int c = 0; c < scores.length; c++) {
+            int base = c * FragmentModel.CELLS;
+            scores[c] = 0;
+            for (int cell = 0; cell < FragmentModel.CELLS; cell++) {
+                scores[c] += (long) bigramCounts[cell] * table[base + cell];
+            }
+        }
+
+        int best = 0;
+        int second = -1;
+        for (int c = 1; c < scores.length; c++) {
+            if (scores[c] > scores[best]) {
+                second = best;
+                best = c;
+            } else if (second < 0 || scores[c] > scores[second]) {
+                second = c;
+            }
+        }
+        double margin = (double) (scores[best] - scores[second]) / (processed - 1) / FragmentModel.SCALE;
+        return margin >= MODEL_MARGIN_BITS ? FragmentModel.CLASSES[best] : FragmentClass.UNKNOWN;
+    }
+}
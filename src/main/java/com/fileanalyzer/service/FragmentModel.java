@@ -0,0 +1,130 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FragmentClass;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Компактная биграммная модель классов фрагментов, обученная заранее.
+ * Байты сводятся к 16 группам (старший полубайт), для каждого класса хранится
+ * таблица из 256 логарифмов вероятностей биграмм групп, квантованных в short
+ * (единица - 1/256 бита). Модель загружается из ресурса fragment-model.bin,
+ * который создается инструментом обучения на размеченных образцах.
+ */
+public final class FragmentModel {
+
+    private static final Logger logger = LogManager.getLogger(FragmentModel.class);
+
+    /** Имя ресурса с обученной моделью. */
+    public static final String RESOURCE = "fragment-model.bin";
+    /** Сигнатура файла модели ("FAFM"). */
+    static final int MAGIC = 0x4D464146;
+    /** Количество ячеек таблицы биграмм. */
+    public static final int CELLS = 256;
+    /** Масштаб квантования: единиц на один бит. */
+    public static final int SCALE = 256;
+
+    /** Классы, для которых обучается модель, в порядке хранения таблиц. */
+    public static final FragmentClass[] CLASSES = {
+            FragmentClass.TEXT,
+            FragmentClass.JPEG_BODY,
+            FragmentClass.MP3_STREAM,
+            FragmentClass.COMPRESSED_OR_ENCRYPTED
+    };
+
+    private final short[] table;
+
+    private FragmentModel(short[] table) {
+        this.table = table;
+    }
+
+    /**
+     * Возвращает таблицу модели: {@code CLASSES.length * CELLS} значений
+     * log2 вероятности биграммы, умноженных на {@link #SCALE}.
+     *
+     * @return таблица модели (не изменять)
+     */
+    short[] getTable() {
+        return table;
+    }
+
+    /**
+     * Вычисляет номер ячейки для пары соседних байт.
+     *
+     * @param previous предыдущий байт (0-255)
+     * @param current текущий байт (0-255)
+     * @return номер ячейки таблицы
+     */
+    public static int cell(int previous, int current) {
+        return (previous & 0xF0) | (current >>> 4);
+    }
+
+    /**
+     * Загружает модель из ресурсов приложения.
+     *
+     * @return модель или null, если ресурс отсутствует или поврежден
+     */
+    public static FragmentModel loadDefault() {
+        try (InputStream inputStream = FragmentModel.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (inputStream == null) {
+                logger.warn("Модель фрагментов {} не найдена, используются только эвристики", RESOURCE);
+                return null;
+            }
+            return read(inputStream);
+        } catch (IOException e) {
+            logger.warn("Не удалось загрузить модель фрагментов: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Читает модель из потока.
+     *
+     * @param inputStream поток с моделью
+     * @return модель
+     * @throws IOException если формат не поддерживается
+     */
+    public static FragmentModel read(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC || in.readInt() != CLASSES.length || in.readInt() != CELLS) {
+            throw new IOException("Неподдерживаемый формат модели фрагментов");
+        }
+        short[] table = new short[CLASSES.length * CELLS];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = in.readShort();
+        }
+        return new FragmentModel(table);
+    }
+
+    /**
+     * Строит модель по счетчикам биграмм со сглаживанием Лапласа и записывает ее.
+     *
+     * @param counts счетчики биграмм: {@code counts[класс][ячейка]}
+     * @param outputStream поток для записи модели
+     * @throws IOException если запись не удалась
+     */
+    public static void write(long[][] counts, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(CLASSES.length);
+        out.writeInt(CELLS);
+        for (int c = 0; c < CLASSES.length; c++) {
+            long total = 0;
+            for (long count : counts[c]) {
+                total += count;
+            }
+            for (int cell = 0; cell < CELLS; cell++) {
+                double probability = (counts[c][cell] + 1.0) / (total + CELLS);
+                long quantized = Math.round(Math.log(probability) / Math.log(2) * SCALE);
+                out.writeShort((short) Math.max(Short.MIN_VALUE, quantized));
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,225 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.MagicNumber;
+import com.fileanalyzer.util.HexUtils;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Постраничное представление файла для шестнадцатеричного просмотра.
+ * Файл отображается в память окнами по {@value #WINDOW_SIZE} байт, поэтому
+ * просмотр файлов больше 2 ГБ не требует ни чтения файла целиком, ни одного
+ * отображения на весь файл. Строка формата
+ * {@code 00000010  89 50 4E 47 0D 0A 1A 0A  00 00 00 0D 49 48 44 52  |.PNG........IHDR|}
+ * формируется в переданный буфер символов без создания промежуточных строк.
+ *
+ * <p>Экземпляр не потокобезопасен: он рассчитан на поток интерфейса,
+ * который отрисовывает видимые строки.
+ */
+public class HexDump implements AutoCloseable {
+
+    /** Количество байт в строке. */
+    public static final int BYTES_PER_ROW = 16;
+    /** Размер окна отображения файла в память. */
+    static final int WINDOW_SIZE = 4 * 1024 * 1024;
+    /** Количество шестнадцатеричных цифр смещения для файлов до 4 ГБ. */
+    private static final int MIN_OFFSET_DIGITS = 8;
+    private static final int HEX_START_GAP = 2;
+    private static final int ASCII_GAP = 2;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int offsetDigits;
+    private MappedByteBuffer window;
+    private long windowStart = -1;
+
+    /**
+     * Открывает файл для просмотра.
+     *
+     * @param file путь к файлу
+     * @throws IOException если файл не удалось открыть
+     */
+    public HexDump(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        int bits = 64 - Long.numberOfLeadingZeros(Math.max(1, size - 1));
+        this.offsetDigits = Math.max(MIN_OFFSET_DIGITS, (bits + 3) / 4);
+    }
+
+    /**
+     * Диапазон байт файла [start, end).
+     */
+    public static final class Range {
+        private final long start;
+        private final long end;
+
+        /**
+         * Конструктор диапазона.
+         *
+         * @param start первый байт
+         * @param end байт после последнего
+         */
+        public Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return первый байт
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * @return байт после последнего
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")";
+        }
+    }
+
+    /**
+     * @return размер файла в байтах
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return количество строк просмотра
+     */
+    public long getRowCount() {
+        return (size + BYTES_PER_ROW - 1) / BYTES_PER_ROW;
+    }
+
+    /**
+     * @return длина строки в символах (размер буфера для {@link #formatRow})
+     */
+    public int getRowLength() {
+        return getAsciiColumn(0) + BYTES_PER_ROW + 1;
+    }
+
+    /**
+     * Возвращает столбец первого шестнадцатеричного символа байта строки.
+     *
+     * @param byteInRow номер байта в строке (0-15)
+     * @return номер столбца
+     */
+    public int getHexColumn(int byteInRow) {
+        // После восьмого байта добавляется дополнительный пробел
+        return offsetDigits + HEX_START_GAP + byteInRow * 3 + (byteInRow >= BYTES_PER_ROW / 2 ? 1 : 0);
+    }
+
+    /**
+     * Возвращает столбец символа байта в текстовой части строки.
+     *
+     * @param byteInRow номер байта в строке (0-15)
+     * @return номер столбца
+     */
+    public int getAsciiColumn(int byteInRow) {
+        return getHexColumn(BYTES_PER_ROW - 1) + 2 + ASCII_GAP + 1 + byteInRow;
+    }
+
+    /**
+     * Формирует строку просмотра в буфер символов.
+     *
+     * @param row номер строки
+     * @param dest буфер не короче {@link #getRowLength()}
+     * @return количество записанных символов
+     * @throws IOException если окно файла не удалось отобразить в память
+     */
+    public int formatRow(long row, char[] dest) throws IOException {
+        long offset = row * BYTES_PER_ROW;
+        int count = (int) Math.min(BYTES_PER_ROW, size - offset);
+        MappedByteBuffer buffer = windowFor(offset);
+        int base = (int) (offset - windowStart);
+
+        int position = HexUtils.encodeLong(offset, offsetDigits, dest, 0);
+        int asciiStart = getAsciiColumn(0);
+        for (int i = position; i < asciiStart - 1; i++) {
+            dest[i] = ' ';
+        }
+        dest[asciiStart - 1] = '|';
+        for (int i = 0; i < count; i++) {
+            byte value = buffer.get(base + i);
+            HexUtils.encodeByte(value, dest, getHexColumn(i));
+            dest[asciiStart + i] = value >= 0x20 && value < 0x7F ? (char) value : '.';
+        }
+        dest[asciiStart + count] = '|';
+        return asciiStart + count + 1;
+    }
+
+    /**
+     * Возвращает окно, содержащее строку с указанным смещением. Окна
+     * выравниваются по своему размеру, поэтому строка всегда целиком
+     * попадает в одно окно.
+     */
+    private MappedByteBuffer windowFor(long offset) throws IOException {
+        long start = offset - offset % WINDOW_SIZE;
+        if (start != windowStart) {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+            windowStart = start;
+        }
+        return window;
+    }
+
+    /**
+     * Находит в файле магические числа типа, совпадающие на своих смещениях.
+     *
+     * @param fileType определенный тип файла (может быть null)
+     * @return совпавшие диапазоны в порядке смещений
+     * @throws IOException если начало файла не удалось прочитать
+     */
+    public List<Range> findSignatureRanges(FileType fileType) throws IOException {
+        if (fileType == null || fileType.getMagicNumbers() == null) {
+            return Collections.emptyList();
+        }
+        List<Range> ranges = new ArrayList<>();
+        for (MagicNumber magicNumber : fileType.getMagicNumbers()) {
+            byte[] bytes = magicNumber.getBytes();
+            long start = magicNumber.getOffset();
+            if (bytes == null || bytes.length == 0 || start + bytes.length > size || !matches(start, bytes)) {
+                continue;
+            }
+            ranges.add(new Range(start, start + bytes.length));
+        }
+        ranges.sort((a, b) -> Long.compare(a.start, b.start));
+        return ranges;
+    }
+
+    private boolean matches(long start, byte[] bytes) throws IOException {
+        for (int i = 0; i < bytes.length; i++) {
+            long offset = start + i;
+            MappedByteBuffer buffer = windowFor(offset);
+            if (buffer.get((int) (offset - windowStart)) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Закрывает файл. Отображенные окна освобождаются сборщиком мусора.
+     *
+     * @throws IOException если файл не удалось закрыть
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
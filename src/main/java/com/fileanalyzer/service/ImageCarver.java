@@ -0,0 +1,512 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.CarvedRegion;
+import com.fileanalyzer.model.FileType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Поиск файлов в сыром образе диска по сигнатурам базы данных (карвинг).
+ *
+ * <p>Образ отображается в память сегментами по 1 ГБ, каждый сегмент
+ * захватывает следующий за ним участок длиной в самую длинную сигнатуру
+ * (или завершающий маркер), поэтому совпадение, начинающееся в сегменте,
+ * всегда проверяется целиком в нем. Сегменты делятся на блоки, которые
+ * просматриваются параллельно задачами fork/join: каждая позиция, кратная
+ * выравниванию (1 байт или сектор), сначала проверяется по битовой таблице
+ * возможных пар первых байт сигнатур (для каждого различного смещения
+ * сигнатуры своя таблица), и только кандидаты сопоставляются
+ * с {@link CompiledSignatures}.
+ *
+ * <p>При побайтовом просмотре блок копируется из отображения в массив
+ * частями по 64 КБ, и каждый байт массива читается один раз: таблица по
+ * значению байта сразу дает смещения сигнатур, первым байтом которых он
+ * может быть, а позиции-кандидаты получаются вычитанием смещения. Так
+ * проверка стоит одного чтения таблицы на байт вместо проверки каждого
+ * смещения в каждой позиции.
+ *
+ * <p>Конец файла оценивается по завершающему маркеру формата (JPEG, PNG,
+ * PDF, ZIP), началу следующего найденного файла, предельному размеру
+ * или концу образа - что наступит раньше. Блоки обрабатываются пачками,
+ * результаты передаются получателю в порядке смещений по мере обработки.
+ *
+ * <p>Встроенные файлы (например, миниатюры внутри JPEG) находятся как
+ * отдельные файлы и обрезают внешний файл - это оценка, а не разбор формата.
+ */
+public class ImageCarver {
+
+    private static final Logger logger = LogManager.getLogger(ImageCarver.class);
+
+    /** Размер блока, просматриваемого одной задачей, по умолчанию. */
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    /** Предельный размер найденного файла по умолчанию. */
+    public static final long DEFAULT_MAX_FILE_SIZE = 64L * 1024 * 1024;
+    /** Размер сегмента отображения по умолчанию (кратен размеру блока). */
+    static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+    /** Количество блоков в пачке на один поток. */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /** Размер части блока, копируемой в массив при побайтовом просмотре. */
+    private static final int COPY_SIZE = 64 * 1024;
+    /** Выравнивание, начиная с которого позиции читаются из отображения напрямую. */
+    private static final int DIRECT_ALIGNMENT = 8;
+
+    private static final Map<String, Footer> FOOTERS = Map.of(
+            "jpg", new Footer(new byte[]{(byte) 0xFF, (byte) 0xD9}, 0, false),
+            "png", new Footer(new byte[]{'I', 'E', 'N', 'D', (byte) 0xAE, 0x42, 0x60, (byte) 0x82}, 0, false),
+            "pdf", new Footer("%%EOF".getBytes(StandardCharsets.US_ASCII), 0, false),
+            // Запись конца центрального каталога: 22 байта и комментарий
+            "zip", new Footer(new byte[]{0x50, 0x4B, 0x05, 0x06}, 18, true));
+    private static final int MAX_FOOTER_LENGTH = 8;
+
+    private final CompiledSignatures signatures;
+    private final ForkJoinPool pool;
+    private final int[] keyOffsets;
+    private final long[] candidatePairs;
+    private final int[] keysByFirstByte;
+    private final int overlap;
+    private final long segmentSize;
+    private int alignment = 1;
+    private int chunkSize;
+    private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+
+    /**
+     * Завершающий маркер формата.
+     */
+    private static final class Footer {
+        final byte[] pattern;
+        final int trailer;
+        final boolean zipComment;
+
+        Footer(byte[] pattern, int trailer, boolean zipComment) {
+            this.pattern = pattern;
+            this.trailer = trailer;
+            this.zipComment = zipComment;
+        }
+    }
+
+    /**
+     * Найденное начало файла.
+     */
+    private static final class Hit {
+        final long offset;
+        final int typeId;
+        final long footerEnd;
+
+        Hit(long offset, int typeId, long footerEnd) {
+            this.offset = offset;
+            this.typeId = typeId;
+            this.footerEnd = footerEnd;
+        }
+    }
+
+    /**
+     * Конструктор с общим пулом fork/join.
+     *
+     * @param databaseService сервис базы данных типов файлов
+     */
+    public ImageCarver(DatabaseService databaseService) {
+        this(databaseService, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Конструктор.
+     *
+     * @param databaseService сервис базы данных типов файлов
+     * @param pool пул задач просмотра блоков
+     */
+    public ImageCarver(DatabaseService databaseService, ForkJoinPool pool) {
+        this(databaseService, pool, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Конструктор с заданным размером сегмента отображения. Используется
+     * для проверки границ сегментов на небольших образах.
+     *
+     * @param databaseService сервис базы данных типов файлов
+     * @param pool пул задач просмотра блоков
+     * @param segmentSize размер сегмента в байтах (степень двойки)
+     */
+    ImageCarver(DatabaseService databaseService, ForkJoinPool pool, long segmentSize) {
+        if (Long.bitCount(segmentSize) != 1 || segmentSize > DEFAULT_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Размер сегмента должен быть степенью двойки не больше 1 ГБ: "
+                    + segmentSize);
+        }
+        this.signatures = databaseService.getCompiledSignatures();
+        this.pool = pool;
+        this.segmentSize = segmentSize;
+        this.chunkSize = (int) Math.min(DEFAULT_CHUNK_SIZE, segmentSize);
+
+        int[] offsets = new int[signatures.size()];
+        int distinct = 0;
+        for (int i = 0; i < signatures.size(); i++) {
+            int offset = signatures.getSignatureOffset(i);
+            if (Arrays.stream(offsets, 0, distinct).noneMatch(value -> value == offset)) {
+                offsets[distinct++] = offset;
+            }
+        }
+        if (distinct > Integer.SIZE) {
+            throw new IllegalArgumentException("Слишком много различных смещений сигнатур: " + distinct);
+        }
+        this.keyOffsets = Arrays.copyOf(offsets, distinct);
+        Arrays.sort(keyOffsets);
+        // Бит (смещение, первый байт, второй байт) для каждой сигнатуры;
+        // у сигнатуры из одного байта подходит любой второй байт
+        this.candidatePairs = new long[distinct << 10];
+        this.keysByFirstByte = new int[256];
+        for (int i = 0; i < signatures.size(); i++) {
+            int keyIndex = indexOf(keyOffsets, signatures.getSignatureOffset(i));
+            keysByFirstByte[signatures.getSignatureByte(i, 0)] |= 1 << keyIndex;
+            int key = keyIndex << 16 | signatures.getSignatureByte(i, 0) << 8;
+            if (signatures.getSignatureLength(i) > 1) {
+                setPair(key | signatures.getSignatureByte(i, 1));
+            } else {
+                for (int second = 0; second < 256; second++) {
+                    setPair(key | second);
+                }
+            }
+        }
+        this.overlap = Math.max(signatures.getWindow(), MAX_FOOTER_LENGTH);
+    }
+
+    /**
+     * Задает выравнивание проверяемых позиций: 1 - каждый байт,
+     * 512 или 4096 - только начала секторов.
+     *
+     * @param alignment выравнивание в байтах (степень двойки)
+     */
+    public void setAlignment(int alignment) {
+        if (Integer.bitCount(alignment) != 1 || alignment > chunkSize) {
+            throw new IllegalArgumentException("Выравнивание должно быть степенью двойки не больше блока: " + alignment);
+        }
+        this.alignment = alignment;
+    }
+
+    /**
+     * Задает размер блока, просматриваемого одной задачей.
+     *
+     * @param chunkSize размер блока в байтах (степень двойки не больше сегмента)
+     */
+    public void setChunkSize(int chunkSize) {
+        if (Integer.bitCount(chunkSize) != 1 || chunkSize < alignment || chunkSize > segmentSize) {
+            throw new IllegalArgumentException("Размер блока должен быть степенью двойки: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Задает предельный размер найденного файла: дальше завершающий
+     * маркер не ищется.
+     *
+     * @param maxFileSize размер в байтах
+     */
+    public void setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = Math.max(1, maxFileSize);
+    }
+
+    /**
+     * Просматривает образ и передает найденные файлы получателю в порядке смещений.
+     *
+     * @param image путь к образу диска
+     * @param sink получатель найденных файлов (вызывается из текущего потока)
+     * @return количество найденных файлов
+     * @throws IOException если образ не удалось открыть или отобразить
+     */
+    public long carve(Path image, Consumer<CarvedRegion> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedImage mapped = new MappedImage(channel, size, segmentSize, overlap);
+            int chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+            int batch = Math.max(1, pool.getParallelism() * CHUNKS_PER_THREAD);
+            logger.info("Поиск сигнатур в {}: {} байт, {} блоков, выравнивание {}",
+                    image, size, chunkCount, alignment);
+
+            Hit pending = null;
+            long count = 0;
+            for (int first = 0; first < chunkCount; first += batch) {
+                List<Hit> hits = pool.invoke(new ChunkTask(mapped, first, Math.min(chunkCount, first + batch)));
+                for (Hit hit : hits) {
+                    if (pending != null) {
+                        sink.accept(region(pending, hit.offset, size));
+                        count++;
+                    }
+                    pending = hit;
+                }
+            }
+            if (pending != null) {
+                sink.accept(region(pending, size, size));
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Оценивает конец файла: ближайшее из завершающего маркера, следующего
+     * найденного файла, предельного размера и конца образа.
+     */
+    private CarvedRegion region(Hit hit, long nextOffset, long size) {
+        long end = size;
+        CarvedRegion.EndReason reason = CarvedRegion.EndReason.END_OF_IMAGE;
+        if (hit.offset + maxFileSize < end) {
+            end = hit.offset + maxFileSize;
+            reason = CarvedRegion.EndReason.SIZE_LIMIT;
+        }
+        if (nextOffset < end) {
+            end = nextOffset;
+            reason = CarvedRegion.EndReason.NEXT_HEADER;
+        }
+        if (hit.footerEnd >= 0 && hit.footerEnd <= end) {
+            end = hit.footerEnd;
+            reason = CarvedRegion.EndReason.FOOTER;
+        }
+        return new CarvedRegion(hit.offset, end, signatures.getType(hit.typeId), reason);
+    }
+
+    /**
+     * Просматривает один блок образа.
+     */
+    private List<Hit> scanChunk(MappedImage image, int chunk) {
+        long chunkStart = (long) chunk * chunkSize;
+        int segment = (int) (chunkStart / segmentSize);
+        long segmentStart = segment * segmentSize;
+        ByteBuffer buffer = image.segments[segment];
+        int limit = buffer.limit();
+        int from = (int) (chunkStart - segmentStart);
+        int to = (int) Math.min(from + (long) chunkSize, image.size - segmentStart);
+
+        List<Hit> hits = new ArrayList<>();
+        if (alignment >= DIRECT_ALIGNMENT) {
+            for (int position = from; position < to; position += alignment) {
+                if (isCandidate(buffer, position, limit)) {
+                    addHit(hits, image, buffer, position, limit - position, segmentStart + position);
+                }
+            }
+            return hits;
+        }
+
+        // Части блока копируются в массив вместе с перекрытием, чтобы сигнатура,
+        // начинающаяся в конце части, проверялась целиком
+        byte[] copy = new byte[COPY_SIZE + overlap];
+        ByteBuffer wrapped = ByteBuffer.wrap(copy);
+        ByteBuffer source = buffer.duplicate();
+        int[] candidates = new int[64];
+        for (int copyStart = from; copyStart < to; copyStart += COPY_SIZE) {
+            int length = Math.min(limit - copyStart, copy.length);
+            source.position(copyStart);
+            source.get(copy, 0, length);
+            int end = Math.min(to - copyStart, COPY_SIZE);
+
+            int count = 0;
+            int scanEnd = Math.min(length, end + (keyOffsets.length > 0 ? keyOffsets[keyOffsets.length - 1] : 0));
+            for (int index = 0; index < scanEnd; index++) {
+                int keys = keysByFirstByte[copy[index] & 0xFF];
+                if (keys == 0) {
+                    continue;
+                }
+                int pair = (copy[index] & 0xFF) << 8 | (index + 1 < length ? copy[index + 1] & 0xFF : 0);
+                for (int key = 0; keys != 0; key++, keys >>>= 1) {
+                    int position = index - keyOffsets[key];
+                    if ((keys & 1) == 0 || position < 0 || position >= end || (position & (alignment - 1)) != 0) {
+                        continue;
+                    }
+                    // Без второго байта (конец данных) позиция передается на сопоставление
+                    if (index + 1 >= length || hasPair(key << 16 | pair)) {
+                        if (count == candidates.length) {
+                            candidates = Arrays.copyOf(candidates, count * 2);
+                        }
+                        candidates[count++] = position;
+                    }
+                }
+            }
+
+            // Кандидаты от разных смещений сигнатур идут не по порядку и могут повторяться
+            if (keyOffsets.length > 1) {
+                Arrays.sort(candidates, 0, count);
+            }
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || candidates[i] != candidates[i - 1]) {
+                    addHit(hits, image, wrapped, candidates[i], length - candidates[i],
+                            segmentStart + copyStart + candidates[i]);
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Сопоставляет сигнатуры в позиции-кандидате и добавляет найденный файл.
+     */
+    private void addHit(List<Hit> hits, MappedImage image, ByteBuffer buffer, int position, int available,
+                        long offset) {
+        int typeId = signatures.match(buffer, position, available);
+        if (typeId != CompiledSignatures.NO_MATCH) {
+            hits.add(new Hit(offset, typeId, findFooter(image, signatures.getType(typeId), offset)));
+        }
+    }
+
+    /**
+     * Проверяет по таблице пар байт, может ли в позиции начинаться какая-либо
+     * сигнатура. В самом конце данных, где второго байта нет, позиция
+     * передается на сопоставление.
+     */
+    private boolean isCandidate(ByteBuffer buffer, int position, int limit) {
+        for (int i = 0; i < keyOffsets.length; i++) {
+            int index = position + keyOffsets[i];
+            if (index + 1 < limit) {
+                if (hasPair(i << 16 | (buffer.get(index) & 0xFF) << 8 | (buffer.get(index + 1) & 0xFF))) {
+                    return true;
+                }
+            } else if (index < limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasPair(int pair) {
+        return (candidatePairs[pair >>> 6] & 1L << pair) != 0;
+    }
+
+    private void setPair(int pair) {
+        candidatePairs[pair >>> 6] |= 1L << pair;
+    }
+
+    /**
+     * Ищет завершающий маркер формата в пределах предельного размера.
+     *
+     * @return смещение конца файла или -1, если маркер не найден или у формата его нет
+     */
+    private long findFooter(MappedImage image, FileType fileType, long offset) {
+        Footer footer = fileType.getExtension() != null
+                ? FOOTERS.get(fileType.getExtension().toLowerCase(Locale.ROOT))
+                : null;
+        if (footer == null) {
+            return -1;
+        }
+        long limit = Math.min(image.size, offset + maxFileSize);
+        long position = image.indexOf(footer.pattern, offset + 1, limit);
+        if (position < 0) {
+            return -1;
+        }
+        long end = position + footer.pattern.length + footer.trailer;
+        if (footer.zipComment && end <= image.size) {
+            end += image.get(end - 2) | image.get(end - 1) << 8;
+        }
+        return Math.min(end, image.size);
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Задача просмотра диапазона блоков: делится пополам до одного блока,
+     * результаты объединяются в порядке смещений.
+     */
+    private final class ChunkTask extends RecursiveTask<List<Hit>> {
+        private static final long serialVersionUID = 1L;
+
+        private final MappedImage image;
+        private final int first;
+        private final int last;
+
+        ChunkTask(MappedImage image, int first, int last) {
+            this.image = image;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected List<Hit> compute() {
+            if (last - first == 1) {
+                return scanChunk(image, first);
+            }
+            int middle = (first + last) >>> 1;
+            ChunkTask left = new ChunkTask(image, first, middle);
+            left.fork();
+            List<Hit> right = new ChunkTask(image, middle, last).compute();
+            List<Hit> hits = left.join();
+            hits.addAll(right);
+            return hits;
+        }
+    }
+
+    /**
+     * Образ, отображенный в память сегментами с перекрытием.
+     */
+    private static final class MappedImage {
+        final MappedByteBuffer[] segments;
+        final long size;
+        final long segmentSize;
+
+        MappedImage(FileChannel channel, long size, long segmentSize, int overlap) throws IOException {
+            this.size = size;
+            this.segmentSize = segmentSize;
+            int count = (int) ((size + segmentSize - 1) / segmentSize);
+            segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = i * segmentSize;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(segmentSize + overlap, size - start));
+            }
+        }
+
+        int get(long position) {
+            return segments[(int) (position / segmentSize)].get((int) (position % segmentSize)) & 0xFF;
+        }
+
+        /**
+         * Ищет первое вхождение шаблона, начинающееся в диапазоне [from, to).
+         * Шаблон не длиннее перекрытия сегментов, поэтому проверяется в
+         * сегменте, где начинается.
+         */
+        long indexOf(byte[] pattern, long from, long to) {
+            long position = from;
+            while (position < to) {
+                int segment = (int) (position / segmentSize);
+                long segmentStart = segment * segmentSize;
+                ByteBuffer buffer = segments[segment];
+                int start = (int) (position - segmentStart);
+                int end = (int) Math.min(segmentSize, to - segmentStart);
+                int last = buffer.limit() - pattern.length;
+                for (int i = start; i < end && i <= last; i++) {
+                    if (buffer.get(i) == pattern[0] && matches(buffer, i, pattern)) {
+                        return segmentStart + i;
+                    }
+                }
+                position = segmentStart + segmentSize;
+            }
+            return -1;
+        }
+
+        private static boolean matches(ByteBuffer buffer, int index, byte[] pattern) {
+            for (int i = 1; i < pattern.length; i++) {
+                if (buffer.get(index + i) != pattern[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.ScanResult;
+import com.fileanalyzer.util.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Планировщик чтения заголовков при пакетном анализе.
+ *
+ * <p>Сортирует запросы по физической близости (номер устройства и inode из
+ * {@code fileKey} как приближение расположения на диске), ограничивает число
+ * одновременных чтений адаптивным {@link AimdConcurrencyLimiter} и при
+ * включенном объединении выполняет открытие и чтение одним обращением,
+ * беря размер файла из атрибутов обхода вместо отдельного stat. Пустые
+ * файлы и файлы, не являющиеся обычными, по тем же атрибутам не открываются
+ * и не занимают потоки чтения.
+ *
+ * <p>Чтения выполняются в фоновой полосе общего {@link PriorityTaskExecutor},
+ * поэтому интерактивные запросы опережают пакетный анализ. Необязательный
+ * {@link ScanThrottle} ограничивает скорость чтения и уступает устройство
+ * пользовательской нагрузке.
+ */
+public class IoScheduler implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(IoScheduler.class);
+
+    /** Максимальное количество потоков чтения по умолчанию. */
+    public static final int DEFAULT_MAX_CONCURRENCY = 64;
+    /** Начальный лимит одновременных чтений. */
+    private static final int INITIAL_LIMIT = 4;
+    /** Допустимое превышение задержки над минимальной. */
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    private final FileAnalyzerService fileAnalyzerService;
+    private final AimdConcurrencyLimiter limiter;
+    private final PriorityTaskExecutor executor;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private volatile ScanThrottle throttle;
+    private volatile boolean localityOrdering = true;
+    private volatile boolean coalescedReads = true;
+
+    /**
+     * Запрос на чтение заголовка файла с атрибутами, полученными при обходе.
+     */
+    public static final class ReadRequest {
+        private final Path path;
+        private final long size;
+        private final long device;
+        private final long inode;
+        private final BasicFileAttributes attributes;
+
+        /**
+         * Конструктор запроса по атрибутам из обхода каталога.
+         *
+         * @param path путь к файлу
+         * @param attributes атрибуты файла
+         */
+        public ReadRequest(Path path, BasicFileAttributes attributes) {
+            this(path, attributes.size(), attributes.fileKey(), attributes);
+        }
+
+        /**
+         * Конструктор запроса.
+         *
+         * @param path путь к файлу
+         * @param size размер файла из атрибутов обхода
+         * @param fileKey ключ файла из {@code BasicFileAttributes.fileKey()} (может быть null)
+         */
+        public ReadRequest(Path path, long size, Object fileKey) {
+            this(path, size, fileKey, null);
+        }
+
+        private ReadRequest(Path path, long size, Object fileKey, BasicFileAttributes attributes) {
+            this.path = path;
+            this.attributes = attributes;
+            this.size = size;
+            long[] locality = parseFileKey(fileKey);
+            this.device = locality[0];
+            this.inode = locality[1];
+        }
+
+        /**
+         * @return путь к файлу
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * @return размер файла из атрибутов обхода
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Проверяет, нужно ли открывать файл: пустые и специальные файлы
+         * определяются по атрибутам обхода. Без атрибутов файл открывается.
+         */
+        boolean needsRead() {
+            return attributes == null || FileUtils.isValidForAnalysis(attributes);
+        }
+
+        /**
+         * @return номер inode или -1, если он недоступен
+         */
+        public long getInode() {
+            return inode;
+        }
+    }
+
+    /** Порядок чтения: по устройству и inode, запросы без inode сохраняют порядок обхода. */
+    static final Comparator<ReadRequest> LOCALITY_ORDER = Comparator
+            .comparingLong((ReadRequest request) -> request.device)
+            .thenComparingLong(request -> request.inode);
+
+    /**
+     * Конструктор планировщика с параметрами по умолчанию.
+     *
+     * @param fileAnalyzerService сервис анализа файлов
+     */
+    public IoScheduler(FileAnalyzerService fileAnalyzerService) {
+        this(fileAnalyzerService, new AimdConcurrencyLimiter(1, DEFAULT_MAX_CONCURRENCY,
+                INITIAL_LIMIT, LATENCY_TOLERANCE));
+    }
+
+    /**
+     * Конструктор планировщика.
+     *
+     * @param fileAnalyzerService сервис анализа файлов
+     * @param limiter ограничитель одновременных чтений
+     */
+    public IoScheduler(FileAnalyzerService fileAnalyzerService, AimdConcurrencyLimiter limiter) {
+        this(fileAnalyzerService, limiter, PriorityTaskExecutor.getShared());
+    }
+
+    /**
+     * Конструктор планировщика с отдельным исполнителем.
+     *
+     * @param fileAnalyzerService сервис анализа файлов
+     * @param limiter ограничитель одновременных чтений
+     * @param executor исполнитель чтений
+     */
+    public IoScheduler(FileAnalyzerService fileAnalyzerService, AimdConcurrencyLimiter limiter,
+                       PriorityTaskExecutor executor) {
+        this.fileAnalyzerService = fileAnalyzerService;
+        this.limiter = limiter;
+        this.executor = executor;
+    }
+
+    /**
+     * Устанавливает ограничение нагрузки на устройство.
+     *
+     * @param throttle ограничитель или null, чтобы снять ограничения
+     */
+    public void setThrottle(ScanThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * @return ограничитель нагрузки или null
+     */
+    public ScanThrottle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Возвращает гистограмму задержек чтения и анализа отдельных файлов
+     * (от начала чтения заголовка до определения типа).
+     *
+     * @return гистограмма задержек
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latencies;
+    }
+
+    /**
+     * Включает или выключает сортировку запросов по расположению на диске.
+     *
+     * @param localityOrdering true, чтобы сортировать по устройству и inode
+     */
+    public void setLocalityOrdering(boolean localityOrdering) {
+        this.localityOrdering = localityOrdering;
+    }
+
+    /**
+     * Включает или выключает объединение stat+open+read в одно обращение.
+     *
+     * @param coalescedReads true, чтобы брать размер из атрибутов обхода
+     */
+    public void setCoalescedReads(boolean coalescedReads) {
+        this.coalescedReads = coalescedReads;
+    }
+
+    /**
+     * Возвращает ограничитель одновременных чтений.
+     *
+     * @return ограничитель
+     */
+    public AimdConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Выполняет пакет запросов и ожидает завершения всех чтений.
+     * Получатель может вызываться из нескольких потоков одновременно.
+     *
+     * @param requests запросы на чтение
+     * @param sink получатель результатов
+     * @throws InterruptedException если ожидание было прервано
+     */
+    public void execute(List<ReadRequest> requests, Consumer<ScanResult> sink) throws InterruptedException {
+        List<ReadRequest> ordered = new ArrayList<>(requests);
+        if (localityOrdering) {
+            ordered.sort(LOCALITY_ORDER);
+        }
+
+        ScanThrottle currentThrottle = throttle;
+        long readWindow = fileAnalyzerService.getReadWindow();
+        List<Future<?>> futures = new ArrayList<>(ordered.size());
+        for (ReadRequest request : ordered) {
+            if (coalescedReads && !request.needsRead()) {
+                // Результат известен без обращения к устройству: не занимаем лимит и поток чтения
+                sink.accept(read(request));
+                continue;
+            }
+            // Разрешения берутся до постановки задачи, чтобы чтения шли в порядке сортировки
+            if (currentThrottle != null) {
+                currentThrottle.acquire(Math.min(request.getSize(), readWindow));
+            }
+            limiter.acquire();
+            futures.add(executor.submit(PriorityTaskExecutor.Lane.BATCH, () -> {
+                long start = System.nanoTime();
+                ScanResult result;
+                try {
+                    result = read(request);
+                } finally {
+                    long latency = System.nanoTime() - start;
+                    limiter.release(latency);
+                    latencies.record(latency);
+                    if (currentThrottle != null) {
+                        currentThrottle.onLatency(latency);
+                    }
+                }
+                sink.accept(result);
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                logger.error("Ошибка при обработке результата чтения", e.getCause());
+            }
+        }
+        logger.debug("Пакет из {} чтений выполнен, лимит параллелизма: {}", ordered.size(), limiter.getLimit());
+    }
+
+    /**
+     * Читает заголовок файла и определяет его тип.
+     *
+     * @param request запрос на чтение
+     * @return результат анализа
+     */
+    private ScanResult read(ReadRequest request) {
+        Path path = request.getPath();
+        try {
+            Optional<FileType> fileType;
+            long size;
+            if (coalescedReads) {
+                fileType = request.attributes != null
+                        ? fileAnalyzerService.analyzePath(path, request.attributes)
+                        : fileAnalyzerService.analyzePath(path);
+                size = request.getSize();
+            } else {
+                fileType = fileAnalyzerService.analyzeFile(path.toFile());
+                size = Files.size(path);
+            }
+            return new ScanResult(path, size, fileType.orElse(null));
+        } catch (IOException e) {
+            logger.warn("Ошибка при чтении {}: {}", path, e.getMessage());
+            return new ScanResult(path, request.getSize(), null);
+        }
+    }
+
+    /**
+     * Извлекает номер устройства и inode из ключа файла.
+     * На Unix ключ имеет вид "(dev=803,ino=1234567)".
+     *
+     * @param fileKey ключ файла или null
+     * @return массив {устройство, inode}; -1 для недоступных значений
+     */
+    static long[] parseFileKey(Object fileKey) {
+        long[] result = {-1, -1};
+        if (fileKey == null) {
+            return result;
+        }
+        String key = fileKey.toString();
+        result[0] = parseNumber(key, "dev=", 16);
+        result[1] = parseNumber(key, "ino=", 10);
+        return result;
+    }
+
+    private static long parseNumber(String key, String marker, int radix) {
+        int start = key.indexOf(marker);
+        if (start < 0) {
+            return -1;
+        }
+        start += marker.length();
+        int end = start;
+        while (end < key.length() && Character.digit(key.charAt(end), radix) >= 0) {
+            end++;
+        }
+        try {
+            return end > start ? Long.parseLong(key.substring(start, end), radix) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Останавливает потоки чтения, если планировщик использует отдельный исполнитель.
+     */
+    @Override
+    public void close() {
+        if (executor != PriorityTaskExecutor.getShared()) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Метаданные JPEG из маркера SOFn. Сегменты перебираются по заголовкам:
+ * читаются только маркер, длина и начало сегмента, данные (EXIF, таблицы,
+ * миниатюры) пропускаются смещением. Поиск прекращается на SOS, так как
+ * SOF всегда предшествует сжатым данным.
+ * Ключи: width, height, components, precision, process.
+ */
+final class JpegMetadataExtractor implements MetadataExtractor {
+
+    /** Маркер (2), длина (2), точность (1), высота (2), ширина (2), компоненты (1). */
+    private static final int SEGMENT_HEADER_LENGTH = 10;
+    /** Ограничение на число сегментов перед SOF для поврежденных файлов. */
+    private static final int MAX_SEGMENTS = 1024;
+
+    @Override
+    public List<String> getExtensions() {
+        return Arrays.asList("jpg", "jpeg");
+    }
+
+    @Override
+    public void extract(FileChannel channel, long size, FileMetadata metadata) throws IOException {
+        long position = 2;
+        for (int segment = 0; segment < MAX_SEGMENTS && position + 4 <= size; segment++) {
+            ByteBuffer header = MetadataService.read(channel, position, SEGMENT_HEADER_LENGTH);
+            if (header.remaining() < 4 || (header.get(0) & 0xFF) != 0xFF) {
+                return;
+            }
+            int marker = header.get(1) & 0xFF;
+            if (marker == 0xFF) {
+                // Заполняющий байт перед маркером
+                position++;
+                continue;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                // Маркеры без длины: TEM, RSTn, SOI
+                position += 2;
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                return;
+            }
+            if (isStartOfFrame(marker)) {
+                if (header.remaining() == SEGMENT_HEADER_LENGTH) {
+                    metadata.put("width", header.getShort(7) & 0xFFFF);
+                    metadata.put("height", header.getShort(5) & 0xFFFF);
+                    metadata.put("components", header.get(9) & 0xFF);
+                    metadata.put("precision", header.get(4) & 0xFF);
+                    metadata.put("process", processName(marker));
+                }
+                return;
+            }
+            int length = header.getShort(2) & 0xFFFF;
+            if (length < 2) {
+                return;
+            }
+            position += 2 + length;
+        }
+    }
+
+    /**
+     * SOF0-SOF15, кроме DHT (C4), JPG (C8) и DAC (CC).
+     */
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static String processName(int marker) {
+        switch (marker & 0x03) {
+            case 0:
+                return marker == 0xC0 ? "baseline" : "extended";
+            case 2:
+                return "progressive";
+            case 3:
+                return "lossless";
+            default:
+                return "extended";
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.fileanalyzer.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек с логарифмическими корзинами.
+ *
+ * <p>Значение в наносекундах относится к корзине по номеру старшего бита и
+ * следующим {@link #SUB_BUCKET_BITS} битам, поэтому относительная ошибка
+ * процентиля не превышает 1/16 при фиксированном размере в 1024 счетчика.
+ * Запись - одно атомарное увеличение счетчика, гистограмма рассчитана на
+ * обновление из нескольких потоков пакетного анализа.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(Long.SIZE * SUB_BUCKETS);
+
+    /**
+     * Учитывает одно измерение.
+     *
+     * @param nanos задержка в наносекундах (отрицательные значения считаются нулем)
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    /**
+     * @return количество измерений
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Возвращает процентиль задержки: верхнюю границу корзины, в которую
+     * попадает измерение с заданным рангом.
+     *
+     * @param percentile процентиль от 0 до 100
+     * @return задержка в наносекундах или 0, если измерений нет
+     */
+    public long getPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length() - 1);
+    }
+
+    /**
+     * Сбрасывает все счетчики.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Номер корзины: значения меньше {@link #SUB_BUCKETS} хранятся точно,
+     * остальные - по старшему биту и следующим за ним битам.
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> exponent) & (SUB_BUCKETS - 1);
+        return (exponent + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long mantissa = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        long upper = ((mantissa + 1) << exponent) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,34 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileMetadata;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Извлекатель метаданных одного формата, вызываемый после определения
+ * типа файла. Читает только нужные структуры позиционными чтениями
+ * ({@link MetadataService#read(FileChannel, long, int)}), а не файл целиком.
+ * Вызывается из нескольких потоков, поэтому не хранит состояние файла.
+ */
+public interface MetadataExtractor {
+
+    /**
+     * Возвращает расширения типов файлов, для которых работает извлекатель.
+     *
+     * @return расширения без точки
+     */
+    List<String> getExtensions();
+
+    /**
+     * Извлекает метаданные. Поврежденная структура не считается ошибкой:
+     * извлекатель останавливается и оставляет уже найденные значения.
+     *
+     * @param channel канал файла
+     * @param size размер файла
+     * @param metadata метаданные для заполнения
+     * @throws IOException если файл не удалось прочитать
+     */
+    void extract(FileChannel channel, long size, FileMetadata metadata) throws IOException;
+}
@@ -0,0 +1,127 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileMetadata;
+import com.fileanalyzer.model.FileType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис извлечения метаданных по определенному типу файла.
+ * Извлечение не входит в определение типа: оно выполняется по запросу
+ * (окно информации о файле) или отдельной фазой пакетного анализа
+ * ({@link BatchScanService#setMetadataService(MetadataService)}).
+ */
+public class MetadataService {
+
+    private static final Logger logger = LogManager.getLogger(MetadataService.class);
+
+    private final Map<String, MetadataExtractor> extractors = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор сервиса со встроенными извлекателями и собственной базой типов.
+     */
+    public MetadataService() {
+        this(new DatabaseService());
+    }
+
+    /**
+     * Конструктор сервиса со встроенными извлекателями PNG, JPEG, PDF, MP3,
+     * MP4 и сжатых потоков.
+     *
+     * @param databaseService база типов для определения содержимого сжатых потоков
+     */
+    public MetadataService(DatabaseService databaseService) {
+        register(new PngMetadataExtractor());
+        register(new JpegMetadataExtractor());
+        register(new PdfMetadataExtractor());
+        register(new Mp3MetadataExtractor());
+        register(new Mp4MetadataExtractor());
+        register(new CompressedMetadataExtractor(databaseService));
+    }
+
+    /**
+     * Регистрирует извлекатель для его расширений, заменяя прежний.
+     *
+     * @param extractor извлекатель метаданных
+     */
+    public void register(MetadataExtractor extractor) {
+        for (String extension : extractor.getExtensions()) {
+            extractors.put(extension.toLowerCase(Locale.ROOT), extractor);
+        }
+    }
+
+    /**
+     * Проверяет, есть ли извлекатель для типа файла.
+     *
+     * @param fileType тип файла (может быть null)
+     * @return true, если метаданные типа извлекаются
+     */
+    public boolean supports(FileType fileType) {
+        return extractorFor(fileType) != null;
+    }
+
+    /**
+     * Извлекает метаданные файла. Файл открывается, только если для типа
+     * есть извлекатель.
+     *
+     * @param file путь к файлу
+     * @param fileType определенный тип файла (может быть null)
+     * @return Optional с метаданными или пустой Optional, если ничего не извлечено
+     * @throws IOException если файл не удалось прочитать
+     */
+    public Optional<FileMetadata> extract(Path file, FileType fileType) throws IOException {
+        MetadataExtractor extractor = extractorFor(fileType);
+        if (extractor == null) {
+            return Optional.empty();
+        }
+        FileMetadata metadata = new FileMetadata();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            extractor.extract(channel, channel.size(), metadata);
+        }
+        logger.debug("Метаданные {}: {}", file, metadata);
+        return metadata.isEmpty() ? Optional.empty() : Optional.of(metadata);
+    }
+
+    private MetadataExtractor extractorFor(FileType fileType) {
+        if (fileType == null || fileType.getExtension() == null) {
+            return null;
+        }
+        String extension = fileType.getExtension();
+        if (extension.startsWith(".")) {
+            extension = extension.substring(1);
+        }
+        return extractors.get(extension.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Читает фрагмент файла одним позиционным чтением (при коротком
+     * чтении - дочитывает). Позиция канала не меняется.
+     *
+     * @param channel канал файла
+     * @param position смещение фрагмента
+     * @param length длина фрагмента
+     * @return буфер, готовый к чтению; короче length у конца файла
+     * @throws IOException если файл не удалось прочитать
+     */
+    static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read <= 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
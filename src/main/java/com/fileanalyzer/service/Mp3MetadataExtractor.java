@@ -0,0 +1,226 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Метаданные MP3: текстовые кадры ID3v2 (или ID3v1 в конце файла),
+ * параметры первого MPEG-кадра и длительность. Читаются заголовок ID3v2,
+ * сам тег (не более {@link #MAX_TAG_READ} байт), небольшое окно после
+ * тега для поиска первого кадра и при необходимости 128 байт ID3v1.
+ * Длительность берется из заголовка Xing/Info, а без него оценивается
+ * по битрейту первого кадра.
+ * Ключи: id3, title, artist, album, year, bitrate (кбит/с), sampleRate,
+ * channels, duration (секунды).
+ */
+final class Mp3MetadataExtractor implements MetadataExtractor {
+
+    private static final int ID3V2_HEADER_LENGTH = 10;
+    private static final int ID3V1_LENGTH = 128;
+    /** Наибольший читаемый объем тега ID3v2; обложки в конце тега не нужны. */
+    private static final int MAX_TAG_READ = 64 * 1024;
+    /** Окно поиска первого кадра после тега. */
+    private static final int FRAME_SEARCH_LENGTH = 4096;
+    private static final int XING = 0x58696E67;
+    private static final int INFO = 0x496E666F;
+
+    /** Битрейты в кбит/с для индексов 1-14: MPEG-1 слои I-III, MPEG-2/2.5 слой I, слои II-III. */
+    private static final int[][] BITRATES = {
+            {32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+            {32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+            {32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+            {32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+            {8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+    /** Частоты дискретизации MPEG-1; у MPEG-2 вдвое, у MPEG-2.5 вчетверо меньше. */
+    private static final int[] SAMPLE_RATES = {44100, 48000, 32000};
+
+    @Override
+    public List<String> getExtensions() {
+        return Collections.singletonList("mp3");
+    }
+
+    @Override
+    public void extract(FileChannel channel, long size, FileMetadata metadata) throws IOException {
+        long audioStart = 0;
+        ByteBuffer header = MetadataService.read(channel, 0, ID3V2_HEADER_LENGTH);
+        if (header.remaining() == ID3V2_HEADER_LENGTH
+                && header.get(0) == 'I' && header.get(1) == 'D' && header.get(2) == '3') {
+            int major = header.get(3);
+            int flags = header.get(5) & 0xFF;
+            int tagSize = syncsafe(header, 6);
+            audioStart = ID3V2_HEADER_LENGTH + (long) tagSize + ((flags & 0x10) != 0 ? ID3V2_HEADER_LENGTH : 0);
+            metadata.put("id3", "2." + major);
+            // Тег с общей десинхронизацией не разбирается: кадры в нем искажены
+            if ((flags & 0x80) == 0 && major >= 2 && major <= 4) {
+                readId3v2Frames(channel, major, flags, tagSize, metadata);
+            }
+        }
+        if (!metadata.get("title").isPresent() && !metadata.get("artist").isPresent()
+                && size >= audioStart + ID3V1_LENGTH) {
+            readId3v1(channel, size, metadata);
+        }
+        readFirstFrame(channel, size, audioStart, metadata);
+    }
+
+    private static void readId3v2Frames(FileChannel channel, int major, int flags, int tagSize,
+                                        FileMetadata metadata) throws IOException {
+        ByteBuffer tag = MetadataService.read(channel, ID3V2_HEADER_LENGTH, Math.min(tagSize, MAX_TAG_READ));
+        int limit = tag.remaining();
+        int position = 0;
+        if ((flags & 0x40) != 0 && limit >= 4) {
+            position = major >= 4 ? syncsafe(tag, 0) : tag.getInt(0) + 4;
+        }
+        int idLength = major == 2 ? 3 : 4;
+        int headerLength = major == 2 ? 6 : 10;
+        while (position >= 0 && position + headerLength <= limit && tag.get(position) != 0) {
+            String id = new String(tag.array(), position, idLength, StandardCharsets.ISO_8859_1);
+            int frameSize;
+            if (major == 2) {
+                frameSize = ((tag.get(position + 3) & 0xFF) << 16) | ((tag.get(position + 4) & 0xFF) << 8)
+                        | (tag.get(position + 5) & 0xFF);
+            } else if (major == 4) {
+                frameSize = syncsafe(tag, position + 4);
+            } else {
+                frameSize = tag.getInt(position + 4);
+            }
+            if (frameSize <= 0 || frameSize > limit - position - headerLength) {
+                return;
+            }
+            String key = frameKey(id);
+            // Сжатые, зашифрованные и десинхронизированные кадры пропускаются
+            boolean plain = major == 2 || tag.get(position + 9) == 0;
+            if (key != null && plain && !metadata.get(key).isPresent()) {
+                String text = decodeText(tag, position + headerLength, frameSize);
+                if (!text.isEmpty()) {
+                    metadata.put(key, "year".equals(key) && text.length() > 4 ? text.substring(0, 4) : text);
+                }
+            }
+            position += headerLength + frameSize;
+        }
+    }
+
+    private static String frameKey(String id) {
+        switch (id) {
+            case "TIT2":
+            case "TT2":
+                return "title";
+            case "TPE1":
+            case "TP1":
+                return "artist";
+            case "TALB":
+            case "TAL":
+                return "album";
+            case "TYER":
+            case "TYE":
+            case "TDRC":
+                return "year";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Декодирует текстовый кадр: первый байт задает кодировку, из
+     * нескольких значений (ID3v2.4) берется первое.
+     */
+    private static String decodeText(ByteBuffer tag, int offset, int length) {
+        Charset charset;
+        switch (tag.get(offset)) {
+            case 1:
+                charset = StandardCharsets.UTF_16;
+                break;
+            case 2:
+                charset = StandardCharsets.UTF_16BE;
+                break;
+            case 3:
+                charset = StandardCharsets.UTF_8;
+                break;
+            default:
+                charset = StandardCharsets.ISO_8859_1;
+        }
+        String text = new String(tag.array(), offset + 1, length - 1, charset);
+        int end = text.indexOf('\0');
+        return (end >= 0 ? text.substring(0, end) : text).trim();
+    }
+
+    private static void readId3v1(FileChannel channel, long size, FileMetadata metadata) throws IOException {
+        ByteBuffer tag = MetadataService.read(channel, size - ID3V1_LENGTH, ID3V1_LENGTH);
+        if (tag.remaining() < ID3V1_LENGTH || tag.get(0) != 'T' || tag.get(1) != 'A' || tag.get(2) != 'G') {
+            return;
+        }
+        putField(metadata, "title", tag, 3, 30);
+        putField(metadata, "artist", tag, 33, 30);
+        putField(metadata, "album", tag, 63, 30);
+        putField(metadata, "year", tag, 93, 4);
+    }
+
+    private static void putField(FileMetadata metadata, String key, ByteBuffer tag, int offset, int length) {
+        String text = new String(tag.array(), offset, length, StandardCharsets.ISO_8859_1);
+        int end = text.indexOf('\0');
+        text = (end >= 0 ? text.substring(0, end) : text).trim();
+        if (!text.isEmpty() && !metadata.get(key).isPresent()) {
+            metadata.put(key, text);
+        }
+    }
+
+    /**
+     * Находит первый корректный заголовок MPEG-кадра после тега и
+     * извлекает битрейт, частоту, число каналов и длительность.
+     */
+    private static void readFirstFrame(FileChannel channel, long size, long audioStart,
+                                       FileMetadata metadata) throws IOException {
+        ByteBuffer audio = MetadataService.read(channel, audioStart, FRAME_SEARCH_LENGTH);
+        for (int i = 0; i + 4 <= audio.remaining(); i++) {
+            int word = audio.getInt(i);
+            if ((word & 0xFFE00000) != 0xFFE00000) {
+                continue;
+            }
+            int versionBits = (word >>> 19) & 0x3;
+            int layerBits = (word >>> 17) & 0x3;
+            int bitrateIndex = (word >>> 12) & 0xF;
+            int rateIndex = (word >>> 10) & 0x3;
+            if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || rateIndex == 3) {
+                continue;
+            }
+            boolean mpeg1 = versionBits == 3;
+            int layer = 4 - layerBits;
+            boolean mono = ((word >>> 6) & 0x3) == 3;
+            int bitrate = BITRATES[mpeg1 ? layer - 1 : (layer == 1 ? 3 : 4)][bitrateIndex - 1];
+            int sampleRate = SAMPLE_RATES[rateIndex] >> (mpeg1 ? 0 : versionBits == 2 ? 1 : 2);
+            int samplesPerFrame = layer == 1 ? 384 : (layer == 3 && !mpeg1 ? 576 : 1152);
+
+            double duration = (size - audioStart - i) * 8.0 / (bitrate * 1000.0);
+            int sideInfo = layer == 3 ? (mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17)) : 0;
+            int xing = i + 4 + sideInfo;
+            if (xing + 16 <= audio.remaining()
+                    && (audio.getInt(xing) == XING || audio.getInt(xing) == INFO)
+                    && (audio.getInt(xing + 4) & 0x1) != 0) {
+                long frames = Integer.toUnsignedLong(audio.getInt(xing + 8));
+                duration = (double) frames * samplesPerFrame / sampleRate;
+                if ((audio.getInt(xing + 4) & 0x2) != 0 && duration > 0) {
+                    // Средний битрейт VBR по числу байт потока
+                    bitrate = (int) Math.round(Integer.toUnsignedLong(audio.getInt(xing + 12)) * 8 / duration / 1000);
+                }
+            }
+            metadata.put("bitrate", bitrate);
+            metadata.put("sampleRate", sampleRate);
+            metadata.put("channels", mono ? 1 : 2);
+            metadata.put("duration", String.format(Locale.ROOT, "%.1f", duration));
+            return;
+        }
+    }
+
+    private static int syncsafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21) | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7) | (buffer.get(offset + 3) & 0x7F);
+    }
+}
@@ -0,0 +1,155 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Метаданные MP4 обходом блоков (box) по заголовкам: для каждого блока
+ * читаются только размер и тип, содержимое пропускается смещением, поэтому
+ * медиаданные (mdat) не читаются, где бы ни лежал moov - в начале или в
+ * конце файла. Длительность берется из mvhd, размеры кадра - из tkhd
+ * первой видеодорожки, основной бренд - из ftyp.
+ * Ключи: brand, duration (секунды), width, height.
+ */
+final class Mp4MetadataExtractor implements MetadataExtractor {
+
+    /** Размер (4), тип (4) и 64-битный размер (8). */
+    private static final int BOX_HEADER_LENGTH = 16;
+    /** Ограничение на число блоков одного уровня для поврежденных файлов. */
+    private static final int MAX_BOXES = 4096;
+    private static final int FTYP = 0x66747970;
+    private static final int MOOV = 0x6D6F6F76;
+    private static final int MVHD = 0x6D766864;
+    private static final int TRAK = 0x7472616B;
+    private static final int TKHD = 0x746B6864;
+
+    @Override
+    public List<String> getExtensions() {
+        return Arrays.asList("mp4", "m4a", "m4v", "mov");
+    }
+
+    @Override
+    public void extract(FileChannel channel, long size, FileMetadata metadata) throws IOException {
+        long position = 0;
+        for (int box = 0; box < MAX_BOXES && position + 8 <= size; box++) {
+            ByteBuffer header = MetadataService.read(channel, position, BOX_HEADER_LENGTH);
+            long boxSize = boxSize(header, size - position);
+            if (boxSize < 0) {
+                return;
+            }
+            int type = header.getInt(4);
+            int headerLength = header.getInt(0) == 1 ? 16 : 8;
+            if (type == FTYP && boxSize >= 12) {
+                metadata.put("brand", new String(header.array(), 8, 4, StandardCharsets.ISO_8859_1).trim());
+            } else if (type == MOOV) {
+                readMovie(channel, position + headerLength, position + boxSize, metadata);
+                return;
+            }
+            position += boxSize;
+        }
+    }
+
+    private static void readMovie(FileChannel channel, long start, long end, FileMetadata metadata)
+            throws IOException {
+        long position = start;
+        for (int box = 0; box < MAX_BOXES && position + 8 <= end; box++) {
+            ByteBuffer header = MetadataService.read(channel, position, BOX_HEADER_LENGTH);
+            long boxSize = boxSize(header, end - position);
+            if (boxSize < 0) {
+                return;
+            }
+            int type = header.getInt(4);
+            int headerLength = header.getInt(0) == 1 ? 16 : 8;
+            if (type == MVHD) {
+                readMovieHeader(channel, position + headerLength, metadata);
+            } else if (type == TRAK && !metadata.get("width").isPresent()) {
+                readTrack(channel, position + headerLength, position + boxSize, metadata);
+            }
+            position += boxSize;
+        }
+    }
+
+    /**
+     * mvhd: версия 0 - 32-битные времена и длительность, версия 1 - 64-битные.
+     */
+    private static void readMovieHeader(FileChannel channel, long position, FileMetadata metadata)
+            throws IOException {
+        ByteBuffer mvhd = MetadataService.read(channel, position, 32);
+        if (mvhd.remaining() < 20) {
+            return;
+        }
+        long timescale;
+        long duration;
+        if (mvhd.get(0) == 1) {
+            if (mvhd.remaining() < 32) {
+                return;
+            }
+            timescale = Integer.toUnsignedLong(mvhd.getInt(20));
+            duration = mvhd.getLong(24);
+        } else {
+            timescale = Integer.toUnsignedLong(mvhd.getInt(12));
+            duration = Integer.toUnsignedLong(mvhd.getInt(16));
+        }
+        if (timescale > 0 && duration >= 0) {
+            metadata.put("duration", String.format(Locale.ROOT, "%.1f", (double) duration / timescale));
+        }
+    }
+
+    /**
+     * Ищет tkhd дорожки; размеры (16.16 с фиксированной точкой) ненулевые
+     * только у видеодорожек.
+     */
+    private static void readTrack(FileChannel channel, long start, long end, FileMetadata metadata)
+            throws IOException {
+        long position = start;
+        for (int box = 0; box < MAX_BOXES && position + 8 <= end; box++) {
+            ByteBuffer header = MetadataService.read(channel, position, BOX_HEADER_LENGTH);
+            long boxSize = boxSize(header, end - position);
+            if (boxSize < 0) {
+                return;
+            }
+            if (header.getInt(4) == TKHD) {
+                int headerLength = header.getInt(0) == 1 ? 16 : 8;
+                ByteBuffer tkhd = MetadataService.read(channel, position + headerLength, 96);
+                int offset = tkhd.remaining() > 0 && tkhd.get(0) == 1 ? 88 : 76;
+                if (tkhd.remaining() >= offset + 8) {
+                    long width = Integer.toUnsignedLong(tkhd.getInt(offset)) >>> 16;
+                    long height = Integer.toUnsignedLong(tkhd.getInt(offset + 4)) >>> 16;
+                    if (width > 0 && height > 0) {
+                        metadata.put("width", width);
+                        metadata.put("height", height);
+                    }
+                }
+                return;
+            }
+            position += boxSize;
+        }
+    }
+
+    /**
+     * Возвращает полный размер блока с учетом 64-битного размера (1) и
+     * блока до конца родителя (0), либо -1 для некорректного заголовка.
+     */
+    private static long boxSize(ByteBuffer header, long available) {
+        if (header.remaining() < 8) {
+            return -1;
+        }
+        long size = Integer.toUnsignedLong(header.getInt(0));
+        if (size == 1) {
+            if (header.remaining() < 16) {
+                return -1;
+            }
+            size = header.getLong(8);
+        } else if (size == 0) {
+            size = available;
+        }
+        return size < 8 || size > available ? -1 : size;
+    }
+}
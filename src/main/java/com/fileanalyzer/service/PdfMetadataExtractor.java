@@ -0,0 +1,84 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Метаданные PDF: версия из заголовка и оценка числа страниц. Читаются
+ * только начало и конец файла. Число страниц берется из словаря
+ * линеаризации (/Linearized ... /N), а если его нет - как наибольшее
+ * /Count среди узлов /Type /Pages в прочитанных окнах: корневой узел
+ * обычно лежит рядом с заголовком или с таблицей ссылок (/Count закладок
+ * не учитывается). В PDF 1.5+ со сжатыми потоками объектов значение
+ * может отсутствовать, поэтому это только оценка.
+ * Ключи: version, pagesHint.
+ */
+final class PdfMetadataExtractor implements MetadataExtractor {
+
+    /** Размер окна в начале и в конце файла. */
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    private static final Pattern VERSION = Pattern.compile("%PDF-(\\d\\.\\d)");
+    private static final Pattern LINEARIZED_PAGES = Pattern.compile("/Linearized\\b[^>]*?/N\\s+(\\d{1,9})");
+    /** Словарь без вложенных словарей. */
+    private static final Pattern DICTIONARY = Pattern.compile("<<([^<>]*)>>");
+    private static final Pattern PAGES_TYPE = Pattern.compile("/Type\\s*/Pages\\b");
+    private static final Pattern COUNT = Pattern.compile("/Count\\s+(\\d{1,9})\\b");
+
+    @Override
+    public List<String> getExtensions() {
+        return Collections.singletonList("pdf");
+    }
+
+    @Override
+    public void extract(FileChannel channel, long size, FileMetadata metadata) throws IOException {
+        String head = decode(MetadataService.read(channel, 0, (int) Math.min(size, WINDOW_SIZE)));
+        Matcher version = VERSION.matcher(head);
+        if (!version.find()) {
+            return;
+        }
+        metadata.put("version", version.group(1));
+
+        Matcher linearized = LINEARIZED_PAGES.matcher(head);
+        if (linearized.find()) {
+            metadata.put("pagesHint", linearized.group(1));
+            return;
+        }
+        long pages = maxCount(head);
+        if (size > WINDOW_SIZE) {
+            long tailStart = Math.max(WINDOW_SIZE, size - WINDOW_SIZE);
+            pages = Math.max(pages, maxCount(decode(MetadataService.read(channel, tailStart, (int) (size - tailStart)))));
+        }
+        if (pages > 0) {
+            metadata.put("pagesHint", pages);
+        }
+    }
+
+    private static long maxCount(String window) {
+        long max = 0;
+        Matcher dictionary = DICTIONARY.matcher(window);
+        while (dictionary.find()) {
+            String body = dictionary.group(1);
+            if (!PAGES_TYPE.matcher(body).find()) {
+                continue;
+            }
+            Matcher count = COUNT.matcher(body);
+            if (count.find()) {
+                max = Math.max(max, Long.parseLong(count.group(1)));
+            }
+        }
+        return max;
+    }
+
+    private static String decode(ByteBuffer buffer) {
+        return new String(buffer.array(), 0, buffer.remaining(), StandardCharsets.ISO_8859_1);
+    }
+}
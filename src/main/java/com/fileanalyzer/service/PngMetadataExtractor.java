@@ -0,0 +1,57 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Метаданные PNG из блока IHDR, который по спецификации идет сразу
+ * после 8-байтовой сигнатуры: одно чтение 21 байта по смещению 8.
+ * Ключи: width, height, bitDepth, colorType, interlaced.
+ */
+final class PngMetadataExtractor implements MetadataExtractor {
+
+    private static final int IHDR_OFFSET = 8;
+    /** Длина (4), тип (4) и данные IHDR (13). */
+    private static final int IHDR_LENGTH = 21;
+    private static final int IHDR_TYPE = 0x49484452;
+
+    @Override
+    public List<String> getExtensions() {
+        return Collections.singletonList("png");
+    }
+
+    @Override
+    public void extract(FileChannel channel, long size, FileMetadata metadata) throws IOException {
+        ByteBuffer ihdr = MetadataService.read(channel, IHDR_OFFSET, IHDR_LENGTH);
+        if (ihdr.remaining() < IHDR_LENGTH || ihdr.getInt(4) != IHDR_TYPE) {
+            return;
+        }
+        metadata.put("width", Integer.toUnsignedLong(ihdr.getInt(8)));
+        metadata.put("height", Integer.toUnsignedLong(ihdr.getInt(12)));
+        metadata.put("bitDepth", ihdr.get(16) & 0xFF);
+        metadata.put("colorType", colorTypeName(ihdr.get(17) & 0xFF));
+        metadata.put("interlaced", ihdr.get(20) != 0);
+    }
+
+    private static String colorTypeName(int colorType) {
+        switch (colorType) {
+            case 0:
+                return "grayscale";
+            case 2:
+                return "rgb";
+            case 3:
+                return "palette";
+            case 4:
+                return "grayscale+alpha";
+            case 6:
+                return "rgba";
+            default:
+                return String.valueOf(colorType);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.fileanalyzer.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Кэш результатов сопоставления сигнатур по префиксу заголовка.
+ *
+ * <p>В больших наборах восстанавливаемых файлов большинство заголовков
+ * повторяется (тысячи JPEG, начинающихся с FF D8 FF E0 ...), поэтому результат
+ * сопоставления можно запомнить по самим прочитанным байтам. Ключ - до
+ * {@link #MAX_KEY_BYTES} байт заголовка, упакованных в два {@code long}, и
+ * количество прочитанных байт: результат сопоставления зависит только от них.
+ *
+ * <p>Записи хранятся в открытой адресации с линейным пробированием в
+ * параллельных массивах примитивов. Пробирование ограничено окном из
+ * нескольких ячеек от исходной позиции ключа, поэтому размер таблицы
+ * ограничен, а промах стоит не больше одного окна. Если окно заполнено,
+ * запись для вытеснения выбирается алгоритмом "часы": стрелка обходит окно,
+ * снимая бит обращения, и вытесняет первую запись без него. Записи
+ * перезаписываются на месте и никогда не удаляются, поэтому пустая ячейка
+ * в окне означает отсутствие ключа.
+ *
+ * <p>Экземпляр не потокобезопасен и используется как кэш потока.
+ */
+public class PrefixResultCache {
+
+    /** Максимальная длина ключа в байтах. */
+    public static final int MAX_KEY_BYTES = 2 * Long.BYTES;
+    /** Предельное количество записей по умолчанию. */
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    /** Значение, возвращаемое при отсутствии записи. */
+    public static final int MISS = Integer.MIN_VALUE;
+
+    /** Количество ячеек, просматриваемых от исходной позиции ключа. */
+    private static final int PROBE_LIMIT = 8;
+
+    private final long[] keyHigh;
+    private final long[] keyLow;
+    private final byte[] keyLength;
+    private final int[] values;
+    private final boolean[] referenced;
+    private final int mask;
+    private int size;
+    private int hand;
+    private long evictions;
+
+    /**
+     * Конструктор кэша.
+     *
+     * @param maxEntries предельное количество записей (округляется вверх до степени двойки)
+     */
+    public PrefixResultCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        }
+        int capacity = Math.max(PROBE_LIMIT, Integer.highestOneBit(maxEntries - 1) << 1);
+        this.keyHigh = new long[capacity];
+        this.keyLow = new long[capacity];
+        this.keyLength = new byte[capacity];
+        this.values = new int[capacity];
+        this.referenced = new boolean[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Проверяет, помещается ли заголовок такой длины в ключ кэша.
+     *
+     * @param available количество прочитанных байт
+     * @return true, если результат для такого заголовка можно кэшировать
+     */
+    public static boolean isCacheable(int available) {
+        return available > 0 && available <= MAX_KEY_BYTES;
+    }
+
+    /**
+     * Ищет результат для заголовка.
+     *
+     * @param header буфер заголовка (данные читаются по абсолютным индексам от 0)
+     * @param available количество прочитанных байт (см. {@link #isCacheable(int)})
+     * @return сохраненный номер типа или {@link #MISS}
+     */
+    public int lookup(ByteBuffer header, int available) {
+        long high = CompiledSignatures.pack(header, 0, available);
+        long low = CompiledSignatures.pack(header, Long.BYTES, available);
+        int home = slot(high, low, available);
+        for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+            int slot = (home + probe) & mask;
+            if (keyLength[slot] == 0) {
+                return MISS;
+            }
+            if (keyHigh[slot] == high && keyLow[slot] == low && keyLength[slot] == available) {
+                referenced[slot] = true;
+                return values[slot];
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Сохраняет результат сопоставления для заголовка, вытесняя при
+     * необходимости давно не использовавшуюся запись.
+     *
+     * @param header буфер заголовка
+     * @param available количество прочитанных байт (см. {@link #isCacheable(int)})
+     * @param typeId номер типа
+     */
+    public void put(ByteBuffer header, int available, int typeId) {
+        long high = CompiledSignatures.pack(header, 0, available);
+        long low = CompiledSignatures.pack(header, Long.BYTES, available);
+        int home = slot(high, low, available);
+        int victim = -1;
+        for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+            int slot = (home + probe) & mask;
+            if (keyLength[slot] == 0) {
+                victim = slot;
+                size++;
+                break;
+            }
+            if (keyHigh[slot] == high && keyLow[slot] == low && keyLength[slot] == available) {
+                values[slot] = typeId;
+                return;
+            }
+        }
+        if (victim < 0) {
+            victim = evict(home);
+        }
+        keyHigh[victim] = high;
+        keyLow[victim] = low;
+        keyLength[victim] = (byte) available;
+        values[victim] = typeId;
+        referenced[victim] = false;
+    }
+
+    /**
+     * @return количество записей
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return количество вытесненных записей
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Выбирает запись для вытеснения в окне пробирования ключа: стрелка
+     * обходит окно, снимая биты обращения, и останавливается на первой
+     * записи без него. Стрелка общая для всей таблицы, поэтому обход
+     * начинается с разных позиций окна.
+     *
+     * @param home исходная позиция ключа
+     * @return позиция вытесняемой записи
+     */
+    private int evict(int home) {
+        evictions++;
+        while (true) {
+            int slot = (home + (hand++ & (PROBE_LIMIT - 1))) & mask;
+            if (!referenced[slot]) {
+                return slot;
+            }
+            referenced[slot] = false;
+        }
+    }
+
+    private int slot(long high, long low, int length) {
+        long hash = high * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(low, 29) ^ length;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
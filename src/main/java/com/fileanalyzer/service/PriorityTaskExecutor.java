@@ -0,0 +1,143 @@
+package com.fileanalyzer.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Общий исполнитель задач анализа с полосами приоритета.
+ *
+ * <p>Задачи ставятся в одну очередь с приоритетом: интерактивные запросы
+ * (анализ одного файла из интерфейса) извлекаются раньше любых фоновых задач
+ * пакетного анализа, а внутри полосы сохраняется порядок постановки.
+ * Выполняющиеся задачи не прерываются, поэтому интерактивный запрос ждет
+ * не дольше завершения одной фоновой операции.
+ */
+public class PriorityTaskExecutor {
+
+    /** Количество потоков общего исполнителя. */
+    public static final int SHARED_THREADS = IoScheduler.DEFAULT_MAX_CONCURRENCY;
+    /** Время жизни простаивающего потока, с. */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Полоса приоритета задачи. Полосы упорядочены по убыванию приоритета.
+     */
+    public enum Lane {
+        /** Запросы пользователя, ожидающего ответа. */
+        INTERACTIVE,
+        /** Фоновый пакетный анализ и восстановление. */
+        BATCH
+    }
+
+    private static volatile PriorityTaskExecutor shared;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Задача с полосой и порядковым номером постановки.
+     */
+    private static final class PrioritizedTask<T> extends FutureTask<T>
+            implements Comparable<PrioritizedTask<?>> {
+        private final Lane lane;
+        private final long sequence;
+
+        PrioritizedTask(Callable<T> callable, Lane lane, long sequence) {
+            super(callable);
+            this.lane = lane;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask<?> other) {
+            int byLane = lane.compareTo(other.lane);
+            return byLane != 0 ? byLane : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Конструктор исполнителя.
+     *
+     * @param threads максимальное количество потоков
+     * @param name префикс имени потоков
+     */
+    public PriorityTaskExecutor(int threads, String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Очередь не ограничена, поэтому пул растет только до threads потоков
+        this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Возвращает общий исполнитель приложения. Его потоки - демоны и
+     * завершаются сами при простое.
+     *
+     * @return общий исполнитель
+     */
+    public static PriorityTaskExecutor getShared() {
+        PriorityTaskExecutor instance = shared;
+        if (instance == null) {
+            synchronized (PriorityTaskExecutor.class) {
+                instance = shared;
+                if (instance == null) {
+                    instance = new PriorityTaskExecutor(SHARED_THREADS, "analyzer");
+                    shared = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Ставит задачу в очередь полосы.
+     *
+     * @param lane полоса приоритета
+     * @param task задача
+     * @param <T> тип результата
+     * @return результат задачи
+     */
+    public <T> Future<T> submit(Lane lane, Callable<T> task) {
+        PrioritizedTask<T> prioritized = new PrioritizedTask<>(task, lane, sequence.getAndIncrement());
+        executor.execute(prioritized);
+        return prioritized;
+    }
+
+    /**
+     * Ставит задачу без результата в очередь полосы.
+     *
+     * @param lane полоса приоритета
+     * @param task задача
+     * @return признак завершения задачи
+     */
+    public Future<?> submit(Lane lane, Runnable task) {
+        return submit(lane, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return количество задач, ожидающих выполнения
+     */
+    public int getQueuedTasks() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Останавливает потоки исполнителя. Для общего исполнителя не вызывается.
+     */
+    public void shutdownNow() {
+        executor.shutdownNow();
+    }
+}
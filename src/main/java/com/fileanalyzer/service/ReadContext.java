@@ -0,0 +1,129 @@
+package com.fileanalyzer.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Контекст чтения заголовков, привязанный к одному потоку.
+ * Содержит прямой {@link ByteBuffer}, размер которого равен окну сигнатур
+ * базы данных, и переиспользуется для всех файлов, анализируемых потоком.
+ * Благодаря этому чтение заголовка не создает новых массивов, а сопоставление
+ * с магическими числами выполняется прямо по буферу.
+ *
+ * <p>Экземпляр не является потокобезопасным и не должен передаваться
+ * между потоками.
+ */
+public class ReadContext {
+
+    private final ByteBuffer buffer;
+    private boolean endOfFile;
+
+    /**
+     * Конструктор контекста чтения.
+     *
+     * @param capacity размер буфера в байтах
+     */
+    public ReadContext(int capacity) {
+        this.buffer = ByteBuffer.allocateDirect(Math.max(1, capacity));
+    }
+
+    /**
+     * Читает начало файла в буфер контекста.
+     *
+     * @param path путь к файлу
+     * @return количество прочитанных байт
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public int readHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readHeader(channel);
+        }
+    }
+
+    /**
+     * Читает начало уже открытого канала в буфер контекста.
+     *
+     * @param channel открытый канал файла
+     * @return количество прочитанных байт
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public int readHeader(FileChannel channel) throws IOException {
+        return readHeader(channel, buffer.capacity());
+    }
+
+    /**
+     * Читает не более указанного количества байт начала канала.
+     * Используется как первый этап поэтапного чтения.
+     *
+     * @param channel открытый канал файла
+     * @param maxBytes максимальное количество байт для чтения
+     * @return количество прочитанных байт
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public int readHeader(FileChannel channel, int maxBytes) throws IOException {
+        buffer.clear();
+        buffer.limit(0);
+        endOfFile = false;
+        return readMore(channel, maxBytes);
+    }
+
+    /**
+     * Дочитывает заголовок позиционным чтением до указанной длины.
+     * Уже прочитанные байты сохраняются.
+     *
+     * @param channel открытый канал файла
+     * @param upTo требуемая длина заголовка (ограничивается емкостью буфера)
+     * @return общее количество прочитанных байт заголовка
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public int readMore(FileChannel channel, int upTo) throws IOException {
+        int target = Math.min(upTo, buffer.capacity());
+        int position = buffer.limit();
+        if (endOfFile || position >= target) {
+            return position;
+        }
+
+        buffer.limit(target);
+        buffer.position(position);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, buffer.position());
+            if (read < 0) {
+                endOfFile = true;
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.limit();
+    }
+
+    /**
+     * Проверяет, был ли достигнут конец файла при последнем чтении.
+     *
+     * @return true, если файл короче запрошенной длины
+     */
+    public boolean isEndOfFile() {
+        return endOfFile;
+    }
+
+    /**
+     * Возвращает буфер с последним прочитанным заголовком.
+     * Данные находятся в диапазоне от 0 до {@code limit()}.
+     *
+     * @return буфер заголовка
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Возвращает размер буфера.
+     *
+     * @return емкость буфера в байтах
+     */
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+}
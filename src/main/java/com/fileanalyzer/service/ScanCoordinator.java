@@ -0,0 +1,628 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.ScanResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Координатор распределенного сканирования несколькими рабочими процессами.
+ *
+ * <p>Координатор делит деревья каталогов на шарды, запускает рабочие JVM
+ * ({@link ScanWorker}) и раздает им шарды через локальный сокет. Результаты
+ * шарда накапливаются и передаются получателю только после сообщения о его
+ * завершении: если рабочий процесс аварийно завершился, его незавершенный шард
+ * возвращается в очередь и выполняется заново без дублирования результатов,
+ * а вместо упавшего процесса запускается новый. Когда очередь пуста, а часть
+ * процессов простаивает, координатор просит самый давно занятый процесс
+ * отдать половину необработанных каталогов (перераспределение работы при
+ * неравномерных шардах).
+ *
+ * <p>Порт координатора доступен любому локальному процессу, поэтому при
+ * каждом сканировании создается случайный токен. Он передается рабочим
+ * процессам через переменную окружения {@link ScanWorker#TOKEN_ENVIRONMENT}
+ * и проверяется в приветствии; соединения без верного токена закрываются.
+ */
+public class ScanCoordinator {
+
+    private static final Logger logger = LogManager.getLogger(ScanCoordinator.class);
+
+    /** Количество шардов на один рабочий процесс при начальном разбиении. */
+    public static final int DEFAULT_SHARDS_PER_WORKER = 4;
+
+    /** Интервал проверки состояния процессов, мс. */
+    private static final long POLL_INTERVAL_MILLIS = 200;
+    /** Минимальный интервал между запросами на передачу работы одному процессу, нс. */
+    private static final long SPLIT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    /** Время ожидания завершения процессов после команды EXIT, мс. */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+    /** Длина токена запуска в байтах. */
+    private static final int TOKEN_BYTES = 32;
+
+    /**
+     * Способ запуска рабочего процесса.
+     */
+    @FunctionalInterface
+    public interface WorkerLauncher {
+        /**
+         * Запускает рабочий процесс, который подключится к координатору.
+         *
+         * @param workerIndex номер процесса
+         * @param port порт координатора на локальном интерфейсе
+         * @param token токен запуска, который процесс должен передать в приветствии
+         * @return запущенный процесс
+         * @throws IOException если процесс не удалось запустить
+         */
+        Process launch(int workerIndex, int port, String token) throws IOException;
+    }
+
+    /**
+     * Шард - каталог, обрабатываемый одним рабочим процессом целиком.
+     */
+    private static final class Shard {
+        private final int id;
+        private final Path directory;
+        private final boolean recursive;
+        /** Каталоги, отданные другим шардам; при повторном выполнении пропускаются. */
+        private final Set<Path> excluded = new LinkedHashSet<>();
+        private final List<ScanResult> results = new ArrayList<>();
+
+        private Shard(int id, Path directory, boolean recursive) {
+            this.id = id;
+            this.directory = directory;
+            this.recursive = recursive;
+        }
+
+        private String toMessage() {
+            List<Object> fields = new ArrayList<>();
+            fields.add(id);
+            fields.add(recursive ? ScanProtocol.TREE : ScanProtocol.FILES);
+            fields.add(directory);
+            fields.addAll(excluded);
+            return ScanProtocol.message(ScanProtocol.SHARD, fields.toArray());
+        }
+    }
+
+    /**
+     * Подключенный рабочий процесс.
+     */
+    private static final class Worker {
+        private final int index;
+        private final Process process;
+        private Socket socket;
+        private Writer writer;
+        private Shard shard;
+        private long shardStarted;
+        private boolean splitPending;
+        private long splitRequested;
+        private boolean dead;
+
+        private Worker(int index, Process process) {
+            this.index = index;
+            this.process = process;
+        }
+
+        private void send(String message) throws IOException {
+            writer.write(message);
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    /** Событие от рабочего процесса: сообщение или null при разрыве соединения. */
+    private static final class Event {
+        private final String[] message;
+        private final Socket socket;
+
+        private Event(String[] message, Socket socket) {
+            this.message = message;
+            this.socket = socket;
+        }
+    }
+
+    private final DatabaseService databaseService;
+    private final int workerCount;
+    private final WorkerLauncher launcher;
+    private int shardsPerWorker = DEFAULT_SHARDS_PER_WORKER;
+    private int maxRestarts;
+
+    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    private final Map<Integer, Worker> workers = new HashMap<>();
+    private final Deque<Shard> queue = new ArrayDeque<>();
+    private String token;
+    private int nextShardId;
+    private int nextWorkerIndex;
+    private int restarts;
+    private long stolenShards;
+    private long reassignedShards;
+
+    /**
+     * Конструктор координатора, запускающего рабочие процессы текущей JVM
+     * с тем же classpath.
+     *
+     * @param databaseService сервис базы данных типов файлов
+     * @param workerCount количество рабочих процессов
+     */
+    public ScanCoordinator(DatabaseService databaseService, int workerCount) {
+        this(databaseService, workerCount, ScanCoordinator::launchJvm);
+    }
+
+    /**
+     * Конструктор координатора.
+     *
+     * @param databaseService сервис базы данных типов файлов
+     * @param workerCount количество рабочих процессов
+     * @param launcher способ запуска рабочих процессов
+     */
+    public ScanCoordinator(DatabaseService databaseService, int workerCount, WorkerLauncher launcher) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Количество рабочих процессов должно быть положительным");
+        }
+        this.databaseService = databaseService;
+        this.workerCount = workerCount;
+        this.launcher = launcher;
+        this.maxRestarts = workerCount * 2;
+    }
+
+    /**
+     * Запускает рабочий процесс {@link ScanWorker} в новой JVM.
+     * Токен передается через окружение, а не аргументами: командная строка
+     * видна другим пользователям.
+     *
+     * @param workerIndex номер процесса
+     * @param port порт координатора
+     * @param token токен запуска
+     * @return запущенный процесс
+     * @throws IOException если процесс не удалось запустить
+     */
+    public static Process launchJvm(int workerIndex, int port, String token) throws IOException {
+        if (System.getProperty("org.graalvm.nativeimage.imagecode") != null) {
+            throw new IOException("Рабочие JVM недоступны в native-образе: запустите cluster-scan через JVM");
+        }
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+        // Рабочие процессы берут базу сигнатур из общей таблицы координатора
+        String sharedTable = System.getProperty(DatabaseService.SHARED_TABLE_PROPERTY);
+        if (sharedTable != null) {
+            command.add("-D" + DatabaseService.SHARED_TABLE_PROPERTY + "=" + sharedTable);
+        }
+        command.addAll(List.of(ScanWorker.class.getName(), String.valueOf(port), String.valueOf(workerIndex)));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.environment().put(ScanWorker.TOKEN_ENVIRONMENT, token);
+        // Протокол идет через сокет; консольный журнал рабочих процессов не нужен
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    /**
+     * Устанавливает количество шардов на процесс при начальном разбиении.
+     *
+     * @param shardsPerWorker количество шардов
+     */
+    public void setShardsPerWorker(int shardsPerWorker) {
+        this.shardsPerWorker = Math.max(1, shardsPerWorker);
+    }
+
+    /**
+     * Устанавливает максимальное количество перезапусков упавших процессов.
+     *
+     * @param maxRestarts количество перезапусков
+     */
+    public void setMaxRestarts(int maxRestarts) {
+        this.maxRestarts = Math.max(0, maxRestarts);
+    }
+
+    /**
+     * Анализирует деревья каталогов силами рабочих процессов.
+     * Получатель вызывается только из потока, вызвавшего метод.
+     *
+     * @param roots корневые каталоги
+     * @param sink получатель результатов
+     * @return количество проанализированных файлов
+     * @throws IOException если все рабочие процессы завершились аварийно
+     */
+    public long scan(List<Path> roots, Consumer<ScanResult> sink) throws IOException {
+        planShards(roots);
+        token = newToken();
+        long total = 0;
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> acceptConnections(server), "scan-coordinator-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            for (int i = 0; i < workerCount; i++) {
+                startWorker(server.getLocalPort());
+            }
+
+            while (!queue.isEmpty() || workers.values().stream().anyMatch(worker -> worker.shard != null)) {
+                Event event = events.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    total += handle(event, sink);
+                }
+                checkProcesses(server.getLocalPort());
+                assignShards();
+                requestSplits();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Распределенное сканирование прервано", e);
+        } finally {
+            shutdownWorkers();
+        }
+        logger.info("Распределенное сканирование завершено. Файлов: {}, переданных шардов: {}, "
+                + "перезапущенных шардов: {}", total, stolenShards, reassignedShards);
+        return total;
+    }
+
+    /**
+     * Возвращает количество шардов, отданных загруженными процессами простаивающим.
+     *
+     * @return количество переданных шардов
+     */
+    public long getStolenShards() {
+        return stolenShards;
+    }
+
+    /**
+     * Возвращает количество шардов, выполненных повторно из-за сбоя процесса.
+     *
+     * @return количество повторно выполненных шардов
+     */
+    public long getReassignedShards() {
+        return reassignedShards;
+    }
+
+    /**
+     * Делит деревья каталогов на шарды обходом в ширину: каталог заменяется
+     * шардом из его собственных файлов и шардами вложенных каталогов, пока
+     * шардов не станет достаточно для равномерной загрузки процессов.
+     */
+    private void planShards(List<Path> roots) throws IOException {
+        Deque<Shard> expandable = new ArrayDeque<>();
+        for (Path root : roots) {
+            expandable.add(newShard(root.toAbsolutePath().normalize(), true));
+        }
+        int target = workerCount * shardsPerWorker;
+        while (!expandable.isEmpty() && queue.size() + expandable.size() < target) {
+            Shard shard = expandable.poll();
+            queue.add(newShard(shard.directory, false));
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(shard.directory, Files::isDirectory)) {
+                for (Path subdirectory : entries) {
+                    if (!Files.isSymbolicLink(subdirectory)) {
+                        expandable.add(newShard(subdirectory, true));
+                    }
+                }
+            }
+        }
+        queue.addAll(expandable);
+        logger.info("Деревья каталогов разбиты на {} шардов", queue.size());
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private Shard newShard(Path directory, boolean recursive) {
+        return new Shard(nextShardId++, directory, recursive);
+    }
+
+    private void startWorker(int port) throws IOException {
+        int index = nextWorkerIndex++;
+        workers.put(index, new Worker(index, launcher.launch(index, port, token)));
+    }
+
+    private void acceptConnections(ServerSocket server) {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread reader = new Thread(() -> readMessages(socket), "scan-coordinator-reader");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    logger.warn("Ошибка при подключении рабочего процесса: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Читает сообщения одного соединения и передает их в общую очередь событий.
+     * Разрыв соединения передается событием с пустым сообщением.
+     */
+    private void readMessages(Socket socket) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                events.add(new Event(ScanProtocol.parse(line), socket));
+            }
+        } catch (IOException e) {
+            logger.debug("Соединение с рабочим процессом закрыто: {}", e.getMessage());
+        }
+        events.add(new Event(null, socket));
+    }
+
+    private long handle(Event event, Consumer<ScanResult> sink) throws IOException {
+        Worker worker = findWorker(event.socket);
+        if (event.message == null) {
+            if (worker != null) {
+                markDead(worker);
+            }
+            return 0;
+        }
+
+        String[] message = event.message;
+        if (worker == null) {
+            // Первое сообщение соединения - приветствие с токеном запуска
+            if (!event.socket.isClosed() && !authenticate(message, event.socket)) {
+                logger.warn("Отклонено подключение без верного приветствия: {}", event.socket.getRemoteSocketAddress());
+                closeQuietly(event.socket);
+            }
+            return 0;
+        }
+        if (worker.dead) {
+            return 0;
+        }
+        if (message.length != expectedFields(message[0])) {
+            // Рабочий процесс нарушил протокол: его шард выполняется заново другим процессом
+            logger.warn("Некорректное сообщение рабочего процесса {}: {} ({} полей)",
+                    worker.index, message[0], message.length);
+            markDead(worker);
+            return 0;
+        }
+        if (worker.shard == null || !String.valueOf(worker.shard.id).equals(message[1])) {
+            return 0;
+        }
+
+        Shard shard = worker.shard;
+        try {
+            switch (message[0]) {
+                case ScanProtocol.RESULT:
+                    long size = Long.parseLong(message[3]);
+                    if (size < 0) {
+                        throw new NumberFormatException("Отрицательный размер: " + size);
+                    }
+                    FileType fileType = ScanProtocol.NO_TYPE.equals(message[2])
+                            ? null : databaseService.findFileTypeByExtension(message[2]).orElse(null);
+                    shard.results.add(new ScanResult(Paths.get(message[4]), size, fileType));
+                    return 0;
+                case ScanProtocol.OFFER:
+                    Path directory = Paths.get(message[2]);
+                    shard.excluded.add(directory);
+                    queue.add(newShard(directory, true));
+                    stolenShards++;
+                    return 0;
+                case ScanProtocol.OFFERED:
+                    worker.splitPending = false;
+                    return 0;
+                case ScanProtocol.DONE:
+                    // Шард завершен: результаты фиксируются и больше не будут получены повторно
+                    shard.results.forEach(sink);
+                    long count = shard.results.size();
+                    shard.results.clear();
+                    worker.shard = null;
+                    worker.splitPending = false;
+                    return count;
+                default:
+                    throw new IllegalStateException("Непроверенный тип сообщения: " + message[0]);
+            }
+        } catch (NumberFormatException | InvalidPathException e) {
+            logger.warn("Некорректное сообщение рабочего процесса {}: {}", worker.index, e.getMessage());
+            markDead(worker);
+            return 0;
+        }
+    }
+
+    /**
+     * Возвращает количество полей сообщения рабочего процесса вместе с типом.
+     * Приветствие допустимо только первым сообщением соединения.
+     *
+     * @return количество полей или -1 для неизвестного типа
+     */
+    private static int expectedFields(String type) {
+        switch (type) {
+            case ScanProtocol.RESULT:
+                return 5;
+            case ScanProtocol.OFFER:
+            case ScanProtocol.OFFERED:
+            case ScanProtocol.DONE:
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Проверяет приветствие {@code HELLO токен номер} и связывает соединение
+     * с рабочим процессом. Процесс, уже подключенный или завершенный,
+     * повторно не связывается.
+     *
+     * @return true, если приветствие принято
+     */
+    private boolean authenticate(String[] message, Socket socket) throws IOException {
+        if (message.length != 3 || !ScanProtocol.HELLO.equals(message[0])
+                || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                        message[1].getBytes(StandardCharsets.UTF_8))) {
+            return false;
+        }
+        Worker connected;
+        try {
+            connected = workers.get(Integer.parseInt(message[2]));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (connected == null || connected.dead || connected.socket != null) {
+            return false;
+        }
+        connected.socket = socket;
+        connected.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        return true;
+    }
+
+    private Worker findWorker(Socket socket) {
+        for (Worker worker : workers.values()) {
+            if (worker.socket == socket) {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Проверяет, не завершились ли процессы, и запускает замену упавшим.
+     */
+    private void checkProcesses(int port) throws IOException {
+        for (Worker worker : new ArrayList<>(workers.values())) {
+            if (!worker.dead && !worker.process.isAlive()) {
+                markDead(worker);
+            }
+        }
+        long alive = workers.values().stream().filter(worker -> !worker.dead).count();
+        while (alive < workerCount && restarts < maxRestarts) {
+            restarts++;
+            alive++;
+            startWorker(port);
+        }
+        if (alive == 0) {
+            throw new IOException("Все рабочие процессы завершились аварийно");
+        }
+    }
+
+    private void markDead(Worker worker) {
+        if (worker.dead) {
+            return;
+        }
+        worker.dead = true;
+        if (worker.shard != null) {
+            // Незафиксированные результаты отбрасываются, шард выполняется заново
+            logger.warn("Рабочий процесс {} завершился, шард {} возвращен в очередь",
+                    worker.index, worker.shard.directory);
+            worker.shard.results.clear();
+            queue.addFirst(worker.shard);
+            worker.shard = null;
+            reassignedShards++;
+        }
+        worker.process.destroy();
+        closeQuietly(worker.socket);
+    }
+
+    private void assignShards() {
+        for (Worker worker : workers.values()) {
+            if (queue.isEmpty()) {
+                return;
+            }
+            if (worker.dead || worker.writer == null || worker.shard != null) {
+                continue;
+            }
+            Shard shard = queue.poll();
+            try {
+                worker.shard = shard;
+                worker.shardStarted = System.nanoTime();
+                worker.splitPending = false;
+                worker.splitRequested = worker.shardStarted;
+                worker.send(shard.toMessage());
+            } catch (IOException e) {
+                logger.warn("Не удалось передать шард процессу {}: {}", worker.index, e.getMessage());
+                markDead(worker);
+            }
+        }
+    }
+
+    /**
+     * Если очередь пуста и есть простаивающие процессы, просит самый давно
+     * занятый процесс отдать часть работы.
+     */
+    private void requestSplits() {
+        if (!queue.isEmpty()) {
+            return;
+        }
+        long idle = workers.values().stream()
+                .filter(worker -> !worker.dead && worker.writer != null && worker.shard == null)
+                .count();
+        if (idle == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        workers.values().stream()
+                .filter(worker -> !worker.dead && worker.shard != null && worker.shard.recursive
+                        && !worker.splitPending && now - worker.splitRequested >= SPLIT_INTERVAL_NANOS)
+                .min((a, b) -> Long.compare(a.shardStarted, b.shardStarted))
+                .ifPresent(busiest -> {
+                    try {
+                        busiest.splitPending = true;
+                        busiest.splitRequested = now;
+                        busiest.send(ScanProtocol.message(ScanProtocol.SPLIT, busiest.shard.id));
+                    } catch (IOException e) {
+                        markDead(busiest);
+                    }
+                });
+    }
+
+    private void shutdownWorkers() {
+        for (Worker worker : workers.values()) {
+            if (!worker.dead && worker.writer != null) {
+                try {
+                    worker.send(ScanProtocol.EXIT);
+                } catch (IOException e) {
+                    logger.debug("Не удалось завершить процесс {}: {}", worker.index, e.getMessage());
+                }
+            }
+        }
+        for (Worker worker : workers.values()) {
+            try {
+                if (!worker.process.waitFor(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    worker.process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                worker.process.destroyForcibly();
+            }
+            closeQuietly(worker.socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.debug("Ошибка при закрытии соединения: {}", e.getMessage());
+        }
+    }
+}
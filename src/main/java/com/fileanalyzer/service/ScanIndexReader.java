@@ -0,0 +1,295 @@
+package com.fileanalyzer.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Чтение индекса результатов сканирования, созданного {@link ScanIndexWriter}.
+ * Блоки отображаются в память по требованию; при выполнении запроса блоки,
+ * в которых заведомо нет подходящих записей, пропускаются по оглавлению,
+ * а пути декодируются только для записей, прошедших фильтр по типу и размеру.
+ */
+public class ScanIndexReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final List<String> typeDictionary;
+    private final long[] blockOffsets;
+    private final int[] blockRecordCounts;
+    private final long[] blockTypeMasks;
+    private final long[] blockMaxSizes;
+    private final MappedByteBuffer[] mappedBlocks;
+    private final long recordCount;
+    private final long footerOffset;
+
+    /**
+     * Запись индекса.
+     */
+    public static final class Entry {
+        private final String path;
+        private final String extension;
+        private final long size;
+        private final long contentHash;
+
+        Entry(String path, String extension, long size, long contentHash) {
+            this.path = path;
+            this.extension = extension;
+            this.size = size;
+            this.contentHash = contentHash;
+        }
+
+        /**
+         * @return путь к файлу
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return расширение определенного типа или null, если тип не определен
+         */
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @return размер файла в байтах
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return хэш содержимого или 0, если он не вычислялся
+         */
+        public long getContentHash() {
+            return contentHash;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{path='" + path + "', extension=" + extension + ", size=" + size + '}';
+        }
+    }
+
+    /**
+     * Открывает индекс и читает его оглавление.
+     *
+     * @param indexFile путь к файлу индекса
+     * @throws IOException если файл не является индексом или не читается
+     */
+    public ScanIndexReader(Path indexFile) throws IOException {
+        this.channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < ScanIndexWriter.HEADER_SIZE + ScanIndexWriter.TRAILER_SIZE) {
+                throw new IOException("Файл слишком мал для индекса: " + indexFile);
+            }
+
+            ByteBuffer header = map(0, ScanIndexWriter.HEADER_SIZE);
+            if (header.getInt() != ScanIndexWriter.MAGIC || header.getInt() != ScanIndexWriter.VERSION) {
+                throw new IOException("Неподдерживаемый формат индекса: " + indexFile);
+            }
+
+            ByteBuffer trailer = map(fileSize - ScanIndexWriter.TRAILER_SIZE, ScanIndexWriter.TRAILER_SIZE);
+            this.footerOffset = trailer.getLong();
+            if (trailer.getInt() != ScanIndexWriter.MAGIC) {
+                throw new IOException("Индекс поврежден или не был закрыт: " + indexFile);
+            }
+
+            ByteBuffer footer = map(footerOffset, fileSize - ScanIndexWriter.TRAILER_SIZE - footerOffset);
+            int typeCount = footer.getInt();
+            List<String> types = new ArrayList<>(typeCount);
+            for (int i = 0; i < typeCount; i++) {
+                byte[] name = new byte[footer.getShort()];
+                footer.get(name);
+                types.add(new String(name, StandardCharsets.UTF_8));
+            }
+            this.typeDictionary = Collections.unmodifiableList(types);
+
+            int blocks = footer.getInt();
+            this.blockOffsets = new long[blocks];
+            this.blockRecordCounts = new int[blocks];
+            this.blockTypeMasks = new long[blocks];
+            this.blockMaxSizes = new long[blocks];
+            this.mappedBlocks = new MappedByteBuffer[blocks];
+            long total = 0;
+            for (int i = 0; i < blocks; i++) {
+                blockOffsets[i] = footer.getLong();
+                blockRecordCounts[i] = footer.getInt();
+                blockTypeMasks[i] = footer.getLong();
+                blockMaxSizes[i] = footer.getLong();
+                total += blockRecordCounts[i];
+            }
+            this.recordCount = total;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает общее количество записей в индексе.
+     *
+     * @return количество записей
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Возвращает словарь расширений, встречающихся в индексе.
+     *
+     * @return список расширений в порядке идентификаторов
+     */
+    public List<String> getTypeDictionary() {
+        return typeDictionary;
+    }
+
+    /**
+     * Выполняет запрос к индексу.
+     *
+     * @param extension расширение искомого типа или null для любых типов
+     * @param minSize минимальный размер файла в байтах
+     * @param pathPrefix каталог, в котором ищутся файлы, или null для всего индекса
+     * @param consumer получатель найденных записей
+     * @throws IOException если не удалось отобразить блок в память
+     */
+    public void query(String extension, long minSize, String pathPrefix, Consumer<Entry> consumer) throws IOException {
+        int wantedType = -1;
+        if (extension != null) {
+            wantedType = typeDictionary.indexOf(extension);
+            if (wantedType < 0) {
+                return;
+            }
+        }
+        byte[] prefix = pathPrefix != null ? pathPrefix.getBytes(StandardCharsets.UTF_8) : null;
+
+        byte[] pathBuffer = new byte[256];
+        for (int block = 0; block < blockOffsets.length; block++) {
+            if (wantedType >= 0 && (blockTypeMasks[block] & (1L << Math.min(wantedType, 63))) == 0) {
+                continue;
+            }
+            if (blockMaxSizes[block] < minSize) {
+                continue;
+            }
+
+            ByteBuffer data = block(block);
+            int n = data.getInt(0);
+            int typesPadded = (n + 7) & ~7;
+            int sizesBase = 8 + typesPadded;
+            int hashesBase = sizesBase + 8 * n;
+            int pathCursor = hashesBase + 8 * n;
+            int pathLength = 0;
+
+            for (int i = 0; i < n; i++) {
+                // Пути закодированы относительно предыдущего, поэтому декодируются все подряд
+                int shared = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data.get(pathCursor++);
+                    shared |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                int suffix = 0;
+                shift = 0;
+                do {
+                    b = data.get(pathCursor++);
+                    suffix |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                pathLength = shared + suffix;
+                if (pathLength > pathBuffer.length) {
+                    pathBuffer = Arrays.copyOf(pathBuffer, Math.max(pathLength, pathBuffer.length * 2));
+                }
+                data.position(pathCursor);
+                data.get(pathBuffer, shared, suffix);
+                pathCursor += suffix;
+
+                int typeId = data.get(8 + i) & 0xFF;
+                if (wantedType >= 0 && typeId != wantedType) {
+                    continue;
+                }
+                long size = data.getLong(sizesBase + 8 * i);
+                if (size < minSize) {
+                    continue;
+                }
+                if (prefix != null && !isUnder(pathBuffer, pathLength, prefix)) {
+                    continue;
+                }
+
+                String type = typeId < typeDictionary.size() ? typeDictionary.get(typeId) : null;
+                consumer.accept(new Entry(new String(pathBuffer, 0, pathLength, StandardCharsets.UTF_8),
+                        type, size, data.getLong(hashesBase + 8 * i)));
+            }
+        }
+    }
+
+    /**
+     * Возвращает все записи индекса, удовлетворяющие условиям.
+     *
+     * @param extension расширение искомого типа или null для любых типов
+     * @param minSize минимальный размер файла в байтах
+     * @param pathPrefix каталог, в котором ищутся файлы, или null для всего индекса
+     * @return список найденных записей
+     * @throws IOException если не удалось отобразить блок в память
+     */
+    public List<Entry> query(String extension, long minSize, String pathPrefix) throws IOException {
+        List<Entry> result = new ArrayList<>();
+        query(extension, minSize, pathPrefix, result::add);
+        return result;
+    }
+
+    /**
+     * Проверяет, лежит ли путь внутри каталога с учетом границы имени
+     * ("/x" содержит "/x/a", но не "/xy").
+     */
+    private static boolean isUnder(byte[] path, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (path[i] != prefix[i]) {
+                return false;
+            }
+        }
+        if (length == prefix.length || prefix.length == 0) {
+            return true;
+        }
+        byte last = prefix[prefix.length - 1];
+        byte next = path[prefix.length];
+        return last == '/' || last == '\\' || next == '/' || next == '\\';
+    }
+
+    private synchronized ByteBuffer block(int index) throws IOException {
+        MappedByteBuffer mapped = mappedBlocks[index];
+        if (mapped == null) {
+            long start = blockOffsets[index];
+            long end = index + 1 < blockOffsets.length ? blockOffsets[index + 1] : footerOffset;
+            mapped = (MappedByteBuffer) map(start, end - start);
+            mappedBlocks[index] = mapped;
+        }
+        return mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private ByteBuffer map(long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
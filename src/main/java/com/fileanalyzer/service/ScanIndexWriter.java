@@ -0,0 +1,332 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.ScanResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Потоковая запись индекса результатов сканирования в компактный колоночный формат.
+ * Результаты накапливаются только в пределах одного блока и сразу сбрасываются на диск,
+ * поэтому пакетное сканирование не держит все результаты в памяти.
+ *
+ * <p>Структура файла (порядок байт little-endian):
+ * <pre>
+ * заголовок: magic "FAIX", int версия, int размер блока
+ * блок:      int количество записей, int длина путей,
+ *            byte[n] идентификаторы типов (выравнивание до 8),
+ *            long[n] размеры, long[n] хэши,
+ *            пути с префиксным сжатием (varint общий префикс, varint длина суффикса, суффикс UTF-8)
+ * оглавление: словарь типов, для каждого блока смещение, количество записей,
+ *             битовая маска встречающихся типов и максимальный размер файла
+ * хвост:     long смещение оглавления, magic "FAIX"
+ * </pre>
+ */
+public class ScanIndexWriter implements Consumer<ScanResult>, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ScanIndexWriter.class);
+
+    /** Сигнатура файла индекса ("FAIX"). */
+    static final int MAGIC = 0x58494146;
+    /** Версия формата индекса. */
+    static final int VERSION = 1;
+    /** Размер заголовка файла в байтах. */
+    static final int HEADER_SIZE = 12;
+    /** Размер хвоста файла в байтах. */
+    static final int TRAILER_SIZE = 12;
+    /** Идентификатор типа для файлов, тип которых не определен. */
+    static final int UNKNOWN_TYPE_ID = 0xFF;
+    /** Максимальное количество различных типов в словаре. */
+    static final int MAX_TYPES = 255;
+    /** Количество записей в блоке по умолчанию. */
+    public static final int DEFAULT_BLOCK_SIZE = 16 * 1024;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final Map<String, Integer> typeIds = new HashMap<>();
+    private final List<String> typeDictionary = new ArrayList<>();
+    private final List<long[]> blockDescriptors = new ArrayList<>();
+
+    private final byte[] blockTypes;
+    private final long[] blockSizes;
+    private final long[] blockHashes;
+    private final byte[][] blockPaths;
+    private int blockCount;
+    private long position;
+    private long totalRecords;
+    private boolean closed;
+
+    /**
+     * Создает индекс с размером блока по умолчанию.
+     *
+     * @param target путь к файлу индекса (будет перезаписан)
+     * @throws IOException если не удалось создать файл
+     */
+    public ScanIndexWriter(Path target) throws IOException {
+        this(target, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Создает индекс.
+     *
+     * @param target путь к файлу индекса (будет перезаписан)
+     * @param blockSize количество записей в одном колоночном блоке
+     * @throws IOException если не удалось создать файл
+     */
+    public ScanIndexWriter(Path target, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным");
+        }
+        this.blockSize = blockSize;
+        this.blockTypes = new byte[blockSize];
+        this.blockSizes = new long[blockSize];
+        this.blockHashes = new long[blockSize];
+        this.blockPaths = new byte[blockSize][];
+        this.channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        ByteBuffer header = newBuffer(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(blockSize);
+        writeFully(header);
+    }
+
+    /**
+     * Добавляет результат сканирования в индекс.
+     * Ошибки записи передаются как {@link UncheckedIOException}.
+     *
+     * @param result результат анализа файла
+     */
+    @Override
+    public synchronized void accept(ScanResult result) {
+        if (closed) {
+            throw new IllegalStateException("Индекс уже закрыт");
+        }
+        blockTypes[blockCount] = (byte) typeIdOf(result);
+        blockSizes[blockCount] = result.getSize();
+        blockHashes[blockCount] = result.getContentHash();
+        blockPaths[blockCount] = result.getPath().toString().getBytes(StandardCharsets.UTF_8);
+        blockCount++;
+        totalRecords++;
+
+        if (blockCount == blockSize) {
+            try {
+                flushBlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество записанных результатов.
+     *
+     * @return количество записей
+     */
+    public synchronized long getRecordCount() {
+        return totalRecords;
+    }
+
+    /**
+     * Определяет идентификатор типа в словаре, добавляя новый тип при необходимости.
+     *
+     * @param result результат анализа
+     * @return идентификатор типа
+     */
+    private int typeIdOf(ScanResult result) {
+        if (!result.isDetected()) {
+            return UNKNOWN_TYPE_ID;
+        }
+        String extension = result.getFileType().getExtension();
+        Integer id = typeIds.get(extension);
+        if (id == null) {
+            if (typeDictionary.size() >= MAX_TYPES) {
+                logger.warn("Словарь типов индекса переполнен, тип {} записан как неизвестный", extension);
+                return UNKNOWN_TYPE_ID;
+            }
+            id = typeDictionary.size();
+            typeIds.put(extension, id);
+            typeDictionary.add(extension);
+        }
+        return id;
+    }
+
+    /**
+     * Записывает накопленный блок на диск в колоночном виде.
+     *
+     * @throws IOException если произошла ошибка записи
+     */
+    private void flushBlock() throws IOException {
+        if (blockCount == 0) {
+            return;
+        }
+
+        int n = blockCount;
+        sortBlockByPath(n);
+        byte[] encodedPaths = encodePaths(n);
+        int typesPadded = align8(n);
+
+        long typeMask = 0;
+        long maxSize = 0;
+        for (int i = 0; i < n; i++) {
+            int typeId = blockTypes[i] & 0xFF;
+            typeMask |= 1L << Math.min(typeId, 63);
+            maxSize = Math.max(maxSize, blockSizes[i]);
+        }
+
+        ByteBuffer buffer = newBuffer(8 + typesPadded + 16 * n + encodedPaths.length);
+        buffer.putInt(n).putInt(encodedPaths.length);
+        buffer.put(blockTypes, 0, n);
+        buffer.position(8 + typesPadded);
+        for (int i = 0; i < n; i++) {
+            buffer.putLong(blockSizes[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putLong(blockHashes[i]);
+        }
+        buffer.put(encodedPaths);
+
+        blockDescriptors.add(new long[]{position, n, typeMask, maxSize});
+        writeFully(buffer);
+
+        Arrays.fill(blockPaths, 0, n, null);
+        blockCount = 0;
+    }
+
+    /**
+     * Упорядочивает записи блока по пути. Результаты параллельного чтения
+     * приходят не в порядке обхода, а префиксное сжатие эффективно только
+     * для соседних путей из одного каталога.
+     *
+     * @param n количество записей в блоке
+     */
+    private void sortBlockByPath(int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(blockPaths[a], blockPaths[b]));
+
+        byte[] types = Arrays.copyOf(blockTypes, n);
+        long[] sizes = Arrays.copyOf(blockSizes, n);
+        long[] hashes = Arrays.copyOf(blockHashes, n);
+        byte[][] paths = Arrays.copyOf(blockPaths, n);
+        for (int i = 0; i < n; i++) {
+            int source = order[i];
+            blockTypes[i] = types[source];
+            blockSizes[i] = sizes[source];
+            blockHashes[i] = hashes[source];
+            blockPaths[i] = paths[source];
+        }
+    }
+
+    /**
+     * Кодирует пути блока с префиксным сжатием относительно предыдущего пути.
+     * Первый путь блока хранится целиком, чтобы блоки читались независимо.
+     *
+     * @param n количество путей в блоке
+     * @return закодированные пути
+     */
+    private byte[] encodePaths(int n) {
+        int capacity = 0;
+        for (int i = 0; i < n; i++) {
+            capacity += blockPaths[i].length + 10;
+        }
+        ByteBuffer out = ByteBuffer.allocate(capacity);
+
+        byte[] previous = new byte[0];
+        for (int i = 0; i < n; i++) {
+            byte[] current = blockPaths[i];
+            int shared = 0;
+            int limit = Math.min(previous.length, current.length);
+            while (shared < limit && previous[shared] == current[shared]) {
+                shared++;
+            }
+            putVarInt(out, shared);
+            putVarInt(out, current.length - shared);
+            out.put(current, shared, current.length - shared);
+            previous = current;
+        }
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    /**
+     * Завершает запись: сбрасывает последний блок, записывает оглавление и хвост.
+     *
+     * @throws IOException если произошла ошибка записи
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushBlock();
+
+            long footerOffset = position;
+            int dictionarySize = 0;
+            List<byte[]> names = new ArrayList<>();
+            for (String extension : typeDictionary) {
+                byte[] name = extension.getBytes(StandardCharsets.UTF_8);
+                names.add(name);
+                dictionarySize += 2 + name.length;
+            }
+
+            ByteBuffer footer = newBuffer(8 + dictionarySize + 28 * blockDescriptors.size() + TRAILER_SIZE);
+            footer.putInt(names.size());
+            for (byte[] name : names) {
+                footer.putShort((short) name.length).put(name);
+            }
+            footer.putInt(blockDescriptors.size());
+            for (long[] descriptor : blockDescriptors) {
+                footer.putLong(descriptor[0]).putInt((int) descriptor[1])
+                        .putLong(descriptor[2]).putLong(descriptor[3]);
+            }
+            footer.putLong(footerOffset).putInt(MAGIC);
+            writeFully(footer);
+            channel.force(true);
+
+            logger.info("Индекс сохранен: {} записей, {} блоков, {} типов, {} байт",
+                    totalRecords, blockDescriptors.size(), typeDictionary.size(), position);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int align8(int value) {
+        return (value + 7) & ~7;
+    }
+
+    private static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
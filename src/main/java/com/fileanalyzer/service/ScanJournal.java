@@ -0,0 +1,364 @@
+package com.fileanalyzer.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Журнал контрольных точек длительного пакетного анализа.
+ *
+ * <p>Журнал хранит фронт обхода - каталоги, которые еще предстоит прочитать, -
+ * и смещение последнего зафиксированного результата. Записи добавляются
+ * инкрементально: {@code +} для каталога, попавшего во фронт, {@code -} для
+ * обработанного каталога и {@code C} с количеством результатов и смещением
+ * выходного файла в момент фиксации. При возобновлении учитываются только
+ * записи до последней {@code C}: все, что было выведено позже, вызывающий код
+ * отбрасывает, обрезая вывод до зафиксированного смещения.
+ *
+ * <p>Запись в журнал выполняется при каждой контрольной точке, а fsync -
+ * не чаще интервала синхронизации, поэтому накладные расходы не зависят от
+ * количества файлов. Когда журнал разрастается, он переписывается снимком
+ * текущего фронта с атомарной заменой файла.
+ */
+public class ScanJournal implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ScanJournal.class);
+
+    /** Интервал между контрольными точками по умолчанию, мс. */
+    public static final long DEFAULT_CHECKPOINT_MILLIS = 1000;
+    /** Количество каталогов между контрольными точками по умолчанию. */
+    public static final int DEFAULT_CHECKPOINT_DIRECTORIES = 10_000;
+    /** Минимальный интервал между вызовами fsync по умолчанию, мс. */
+    public static final long DEFAULT_SYNC_MILLIS = 5000;
+
+    /** Размер журнала, после которого он переписывается снимком фронта. */
+    private static final long COMPACT_THRESHOLD_BYTES = 64L * 1024 * 1024;
+
+    private static final String ROOT = "ROOT";
+    private static final String PUSH = "+";
+    private static final String POP = "-";
+    private static final String COMMIT = "C";
+    private static final String END = "END";
+
+    /**
+     * Получатель результатов, вывод которого можно зафиксировать.
+     * Реализуется выходными файлами, чтобы журнал хранил их смещение.
+     */
+    public interface Output {
+        /**
+         * Сбрасывает буферы вывода.
+         *
+         * @param sync true, если данные нужно записать на диск (fsync)
+         * @return смещение вывода, до которого данные зафиксированы
+         * @throws IOException если вывод не удалось записать
+         */
+        long commit(boolean sync) throws IOException;
+    }
+
+    private final Path file;
+    private final Path root;
+    private final LinkedHashSet<Path> frontier = new LinkedHashSet<>();
+    private final List<String> pendingRecords = new ArrayList<>();
+    private long committedResults;
+    private long committedOffset;
+    private boolean resumed;
+    private boolean finished;
+
+    private long checkpointMillis = DEFAULT_CHECKPOINT_MILLIS;
+    private int checkpointDirectories = DEFAULT_CHECKPOINT_DIRECTORIES;
+    private long syncMillis = DEFAULT_SYNC_MILLIS;
+
+    private FileChannel channel;
+    private Writer writer;
+    private long lastSync;
+    private long checkpoints;
+    private long syncs;
+
+    private ScanJournal(Path file, Path root) {
+        this.file = file;
+        this.root = root;
+    }
+
+    /**
+     * Открывает журнал анализа каталога. Если журнал уже существует и относится
+     * к тому же каталогу, восстанавливает фронт обхода с последней контрольной точки.
+     *
+     * @param file файл журнала
+     * @param root корневой каталог анализа
+     * @return журнал
+     * @throws IOException если журнал не удалось прочитать или создать
+     */
+    public static ScanJournal open(Path file, Path root) throws IOException {
+        ScanJournal journal = new ScanJournal(file, root.toAbsolutePath().normalize());
+        if (Files.exists(file)) {
+            journal.replay();
+        }
+        if (!journal.resumed) {
+            journal.frontier.clear();
+            journal.frontier.add(journal.root);
+        }
+        journal.rewrite();
+        return journal;
+    }
+
+    /**
+     * Восстанавливает состояние из журнала. Записи после последней фиксации отбрасываются.
+     */
+    private void replay() throws IOException {
+        LinkedHashSet<Path> state = new LinkedHashSet<>();
+        List<String[]> uncommitted = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null || !ROOT.equals(ScanProtocol.parse(line)[0])
+                    || !root.equals(Paths.get(ScanProtocol.parse(line)[1]))) {
+                logger.warn("Журнал {} относится к другому каталогу и будет перезаписан", file);
+                return;
+            }
+            while ((line = reader.readLine()) != null) {
+                String[] record = ScanProtocol.parse(line);
+                if (COMMIT.equals(record[0]) && record.length == 3) {
+                    for (String[] change : uncommitted) {
+                        Path directory = Paths.get(change[1]);
+                        if (PUSH.equals(change[0])) {
+                            state.add(directory);
+                        } else {
+                            state.remove(directory);
+                        }
+                    }
+                    uncommitted.clear();
+                    committedResults = Long.parseLong(record[1]);
+                    committedOffset = Long.parseLong(record[2]);
+                    resumed = true;
+                } else if (END.equals(record[0])) {
+                    finished = true;
+                } else if ((PUSH.equals(record[0]) || POP.equals(record[0])) && record.length == 2) {
+                    uncommitted.add(record);
+                }
+                // Неполная последняя строка после сбоя пропускается
+            }
+        }
+        frontier.addAll(state);
+        if (resumed) {
+            logger.info("Анализ {} возобновляется: зафиксировано результатов {}, каталогов во фронте {}",
+                    root, committedResults, frontier.size());
+        }
+    }
+
+    /**
+     * Переписывает журнал снимком текущего состояния и атомарно заменяет файл.
+     */
+    private void rewrite() throws IOException {
+        closeWriter();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel snapshot = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer snapshotWriter = Channels.newWriter(snapshot, StandardCharsets.UTF_8);
+            snapshotWriter.write(ScanProtocol.message(ROOT, root) + "\n");
+            for (Path directory : frontier) {
+                snapshotWriter.write(ScanProtocol.message(PUSH, directory) + "\n");
+            }
+            snapshotWriter.write(ScanProtocol.message(COMMIT, committedResults, committedOffset) + "\n");
+            if (finished) {
+                snapshotWriter.write(END + "\n");
+            }
+            snapshotWriter.flush();
+            snapshot.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Устанавливает частоту контрольных точек.
+     *
+     * @param directories количество прочитанных каталогов между контрольными точками
+     * @param millis максимальный интервал между контрольными точками, мс
+     */
+    public void setCheckpointInterval(int directories, long millis) {
+        this.checkpointDirectories = Math.max(1, directories);
+        this.checkpointMillis = Math.max(0, millis);
+    }
+
+    /**
+     * Устанавливает минимальный интервал между вызовами fsync.
+     * Контрольные точки между синхронизациями записываются в кэш ОС и
+     * переживают падение процесса, но не отказ питания.
+     *
+     * @param syncMillis интервал, мс (0 - синхронизировать каждую контрольную точку)
+     */
+    public void setSyncInterval(long syncMillis) {
+        this.syncMillis = Math.max(0, syncMillis);
+    }
+
+    /**
+     * Извлекает фронт обхода для продолжения анализа. Последний каталог
+     * обрабатывается первым (обход в глубину).
+     *
+     * @return каталоги, которые еще не прочитаны
+     */
+    Deque<Path> takeFrontier() {
+        return new ArrayDeque<>(frontier);
+    }
+
+    /**
+     * Записывает изменение фронта: каталог добавлен в очередь обхода.
+     *
+     * @param directory каталог
+     */
+    void pushed(Path directory) {
+        frontier.add(directory);
+        pendingRecords.add(ScanProtocol.message(PUSH, directory));
+    }
+
+    /**
+     * Записывает изменение фронта: каталог прочитан и все его файлы переданы в пакет.
+     *
+     * @param directory каталог
+     */
+    void popped(Path directory) {
+        frontier.remove(directory);
+        pendingRecords.add(ScanProtocol.message(POP, directory));
+    }
+
+    /**
+     * Проверяет, пора ли делать контрольную точку.
+     *
+     * @param directories количество каталогов, прочитанных после последней точки
+     * @param sinceMillis время последней контрольной точки
+     * @return true, если контрольная точка нужна
+     */
+    boolean isCheckpointDue(int directories, long sinceMillis) {
+        return directories >= checkpointDirectories
+                || System.currentTimeMillis() - sinceMillis >= checkpointMillis;
+    }
+
+    /**
+     * Фиксирует контрольную точку: все результаты прочитанных каталогов уже
+     * переданы получателю. Сначала фиксируется вывод, затем журнал.
+     *
+     * @param results общее количество результатов
+     * @param output фиксируемый вывод или null
+     * @throws IOException если вывод или журнал не удалось записать
+     */
+    void checkpoint(long results, Output output) throws IOException {
+        boolean sync = System.currentTimeMillis() - lastSync >= syncMillis;
+        long offset = output != null ? output.commit(sync) : -1;
+        for (String record : pendingRecords) {
+            writer.write(record);
+            writer.write('\n');
+        }
+        pendingRecords.clear();
+        writer.write(ScanProtocol.message(COMMIT, results, offset));
+        writer.write('\n');
+        writer.flush();
+        committedResults = results;
+        committedOffset = offset;
+        checkpoints++;
+        if (sync) {
+            channel.force(false);
+            syncs++;
+            lastSync = System.currentTimeMillis();
+        }
+        if (channel.size() > COMPACT_THRESHOLD_BYTES) {
+            rewrite();
+        }
+    }
+
+    /**
+     * Отмечает анализ завершенным. Повторный запуск с этим журналом ничего не анализирует.
+     *
+     * @param results общее количество результатов
+     * @param output фиксируемый вывод или null
+     * @throws IOException если журнал не удалось записать
+     */
+    void finish(long results, Output output) throws IOException {
+        lastSync = Long.MIN_VALUE / 2;
+        checkpoint(results, output);
+        finished = true;
+        writer.write(END + "\n");
+        writer.flush();
+        channel.force(false);
+    }
+
+    /**
+     * Проверяет, возобновляется ли анализ с контрольной точки.
+     *
+     * @return true, если журнал содержал зафиксированную контрольную точку
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * Проверяет, был ли анализ завершен полностью.
+     *
+     * @return true, если журнал содержит отметку о завершении
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return количество результатов на момент последней контрольной точки
+     */
+    public long getCommittedResults() {
+        return committedResults;
+    }
+
+    /**
+     * Возвращает смещение вывода на момент последней контрольной точки.
+     * Перед возобновлением вывод нужно обрезать до этого смещения.
+     *
+     * @return смещение или -1, если вывод не фиксировался
+     */
+    public long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    /**
+     * @return количество контрольных точек в текущем запуске
+     */
+    public long getCheckpoints() {
+        return checkpoints;
+    }
+
+    /**
+     * @return количество вызовов fsync в текущем запуске
+     */
+    public long getSyncs() {
+        return syncs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeWriter();
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.flush();
+            channel.force(false);
+            writer.close();
+            writer = null;
+            channel = null;
+        }
+    }
+}
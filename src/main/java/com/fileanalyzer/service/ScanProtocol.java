@@ -0,0 +1,101 @@
+package com.fileanalyzer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Строковый протокол обмена между координатором распределенного сканирования
+ * и рабочими процессами. Каждое сообщение - одна строка UTF-8, поля разделены
+ * табуляцией; табуляция, перевод строки и обратная косая черта в значениях
+ * экранируются.
+ *
+ * <p>Координатор отправляет: {@code SHARD id TREE|FILES каталог [исключения...]},
+ * {@code SPLIT id}, {@code EXIT}. Рабочий процесс отправляет: {@code HELLO токен номер},
+ * {@code R id расширение размер путь}, {@code OFFER id каталог},
+ * {@code OFFERED id количество}, {@code DONE id количество}.
+ */
+final class ScanProtocol {
+
+    static final String HELLO = "HELLO";
+    static final String SHARD = "SHARD";
+    static final String SPLIT = "SPLIT";
+    static final String EXIT = "EXIT";
+    static final String RESULT = "R";
+    static final String OFFER = "OFFER";
+    static final String OFFERED = "OFFERED";
+    static final String DONE = "DONE";
+
+    /** Шард обходится рекурсивно. */
+    static final String TREE = "TREE";
+    /** Шард включает только файлы самого каталога. */
+    static final String FILES = "FILES";
+
+    /** Обозначение отсутствующего расширения (тип не определен). */
+    static final String NO_TYPE = "-";
+
+    private ScanProtocol() {
+    }
+
+    /**
+     * Формирует строку сообщения.
+     *
+     * @param type тип сообщения
+     * @param fields поля сообщения
+     * @return строка сообщения без перевода строки
+     */
+    static String message(String type, Object... fields) {
+        StringBuilder builder = new StringBuilder(type);
+        for (Object field : fields) {
+            builder.append('\t');
+            escape(String.valueOf(field), builder);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Разбирает строку сообщения на поля.
+     *
+     * @param line строка сообщения
+     * @return поля сообщения; первое поле - тип
+     */
+    static String[] parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                field.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private static void escape(String value, StringBuilder builder) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+    }
+}
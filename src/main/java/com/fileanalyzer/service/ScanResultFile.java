@@ -0,0 +1,69 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.ScanResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Текстовый файл результатов анализа: по строке "расширение, размер, путь"
+ * на файл (и метаданные четвертой колонкой, если они извлекались).
+ * Поддерживает фиксацию для {@link ScanJournal}: при возобновлении анализа
+ * файл обрезается до смещения последней контрольной точки, и новые
+ * результаты дописываются без дублей.
+ */
+public class ScanResultFile implements Consumer<ScanResult>, ScanJournal.Output, AutoCloseable {
+
+    private final FileChannel channel;
+    private final Writer writer;
+
+    /**
+     * Открывает файл результатов.
+     *
+     * @param file путь к файлу
+     * @param offset смещение, до которого сохраняется существующее содержимое
+     *               (0 - начать файл заново)
+     * @throws IOException если файл не удалось открыть
+     */
+    public ScanResultFile(Path file, long offset) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(Math.max(0, offset));
+        channel.position(channel.size());
+        this.writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+                StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void accept(ScanResult result) {
+        String extension = result.isDetected() ? result.getFileType().getExtension() : "unknown";
+        try {
+            writer.write(extension + "\t" + result.getSize() + "\t" + result.getPath()
+                    + (result.getMetadata() != null ? "\t" + result.getMetadata() : "") + "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long commit(boolean sync) throws IOException {
+        writer.flush();
+        if (sync) {
+            channel.force(false);
+        }
+        return channel.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,186 @@
+package com.fileanalyzer.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение фоновой нагрузки на файловый сервер при пакетном анализе и
+ * массовом восстановлении.
+ *
+ * <p>Объединяет два ведра токенов - по байтам и по файлам в секунду - и режим
+ * низкого приоритета. В режиме низкого приоритета троттлер сравнивает
+ * сглаженную задержку операций с базовой (минимальной наблюдаемой) и при ее
+ * росте, то есть при появлении очереди на устройстве из-за пользовательской
+ * нагрузки, вводит паузу перед каждой операцией. Пауза удваивается, пока
+ * задержка остается высокой, и уменьшается вдвое, когда устройство освобождается.
+ *
+ * <p>Экземпляр потокобезопасен и может использоваться несколькими сервисами
+ * одновременно, тогда лимиты действуют на их суммарную нагрузку.
+ */
+public class ScanThrottle {
+
+    private static final Logger logger = LogManager.getLogger(ScanThrottle.class);
+
+    /** Допустимое превышение задержки над базовой по умолчанию. */
+    public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+    /** Максимальная пауза перед операцией в режиме низкого приоритета по умолчанию, мс. */
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 500;
+
+    /** Коэффициент сглаживания задержки. */
+    private static final double SMOOTHING = 0.1;
+    /** Задержка, ниже которой колебания считаются шумом (чтение из кэша). */
+    private static final long NOISE_FLOOR_NANOS = 200_000;
+    /** Количество измерений, после которого пересматривается пауза. */
+    private static final int WINDOW_SAMPLES = 16;
+    /** Рост базовой задержки за окно, чтобы она подстраивалась под смену устройства. */
+    private static final double BASELINE_DRIFT = 1.05;
+    /** Минимальная ненулевая пауза. */
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private volatile TokenBucket bytesPerSecond;
+    private volatile TokenBucket filesPerSecond;
+    private volatile boolean lowPriority;
+    private volatile double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+    private volatile long maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_BACKOFF_MILLIS);
+
+    private double smoothedLatency;
+    private double baselineLatency = Double.MAX_VALUE;
+    private long windowMinLatency = Long.MAX_VALUE;
+    private int windowSamples;
+    private volatile long backoffNanos;
+    private long throttledNanos;
+
+    /**
+     * Устанавливает ограничение скорости чтения.
+     *
+     * @param bytes байт в секунду (0 - без ограничения)
+     */
+    public void setBytesPerSecond(long bytes) {
+        this.bytesPerSecond = bytes > 0 ? new TokenBucket(bytes) : null;
+    }
+
+    /**
+     * Устанавливает ограничение количества обрабатываемых файлов.
+     *
+     * @param files файлов в секунду (0 - без ограничения)
+     */
+    public void setFilesPerSecond(double files) {
+        this.filesPerSecond = files > 0 ? new TokenBucket(files) : null;
+    }
+
+    /**
+     * Включает или выключает режим низкого приоритета.
+     *
+     * @param lowPriority true, чтобы уступать устройство при росте задержки
+     */
+    public void setLowPriority(boolean lowPriority) {
+        this.lowPriority = lowPriority;
+        if (!lowPriority) {
+            backoffNanos = 0;
+        }
+    }
+
+    /**
+     * Настраивает реакцию режима низкого приоритета.
+     *
+     * @param tolerance во сколько раз задержка может превышать базовую до начала пауз
+     * @param maxBackoffMillis максимальная пауза перед операцией, мс
+     */
+    public void setBackoff(double tolerance, long maxBackoffMillis) {
+        if (tolerance <= 1.0) {
+            throw new IllegalArgumentException("Допуск должен быть больше 1");
+        }
+        this.latencyTolerance = tolerance;
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxBackoffMillis));
+    }
+
+    /**
+     * Ожидает разрешения на операцию с файлом: токены обоих ведер и паузу
+     * режима низкого приоритета.
+     *
+     * @param bytes количество байт, которые будут прочитаны или записаны
+     * @throws InterruptedException если ожидание было прервано
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        long waited = 0;
+        TokenBucket files = filesPerSecond;
+        if (files != null) {
+            waited += files.acquire(1);
+        }
+        TokenBucket bytesBucket = bytesPerSecond;
+        if (bytesBucket != null && bytes > 0) {
+            waited += bytesBucket.acquire(bytes);
+        }
+        long backoff = backoffNanos;
+        if (lowPriority && backoff > 0) {
+            TimeUnit.NANOSECONDS.sleep(backoff);
+            waited += backoff;
+        }
+        if (waited > 0) {
+            synchronized (this) {
+                throttledNanos += waited;
+            }
+        }
+    }
+
+    /**
+     * Учитывает задержку выполненной операции. В режиме низкого приоритета
+     * по окну измерений пересматривается пауза перед операциями.
+     *
+     * @param latencyNanos задержка операции в наносекундах
+     */
+    public synchronized void onLatency(long latencyNanos) {
+        smoothedLatency = smoothedLatency == 0
+                ? latencyNanos
+                : smoothedLatency + SMOOTHING * (latencyNanos - smoothedLatency);
+        windowMinLatency = Math.min(windowMinLatency, latencyNanos);
+        if (++windowSamples < WINDOW_SAMPLES) {
+            return;
+        }
+
+        baselineLatency = Math.min(baselineLatency * BASELINE_DRIFT, windowMinLatency);
+        boolean congested = smoothedLatency > NOISE_FLOOR_NANOS
+                && smoothedLatency > latencyTolerance * baselineLatency;
+        long previous = backoffNanos;
+        if (!lowPriority) {
+            backoffNanos = 0;
+        } else if (congested) {
+            backoffNanos = Math.min(maxBackoffNanos, Math.max(MIN_BACKOFF_NANOS, previous * 2));
+        } else {
+            backoffNanos = previous / 2 < MIN_BACKOFF_NANOS ? 0 : previous / 2;
+        }
+        if ((previous == 0) != (backoffNanos == 0)) {
+            logger.debug("Режим низкого приоритета: пауза {} мкс (задержка {} мкс, базовая {} мкс)",
+                    backoffNanos / 1000, (long) smoothedLatency / 1000, (long) baselineLatency / 1000);
+        }
+        windowMinLatency = Long.MAX_VALUE;
+        windowSamples = 0;
+    }
+
+    /**
+     * @return true, если включен режим низкого приоритета
+     */
+    public boolean isLowPriority() {
+        return lowPriority;
+    }
+
+    /**
+     * Возвращает текущую паузу перед операцией в режиме низкого приоритета.
+     *
+     * @return пауза в наносекундах
+     */
+    public long getBackoffNanos() {
+        return backoffNanos;
+    }
+
+    /**
+     * Возвращает суммарное время, проведенное в ожидании лимитов и пауз.
+     *
+     * @return время в наносекундах
+     */
+    public synchronized long getThrottledNanos() {
+        return throttledNanos;
+    }
+}
@@ -0,0 +1,197 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.ScanResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Рабочий процесс распределенного сканирования.
+ * Подключается к координатору через локальный сокет, получает шарды
+ * (поддеревья каталогов), анализирует их через {@link BatchScanService}
+ * и передает результаты обратно потоком сообщений {@link ScanProtocol}.
+ *
+ * <p>Шард обрабатывается по одному каталогу; необработанные вложенные каталоги
+ * хранятся в очереди. По запросу координатора половина этой очереди (каталоги,
+ * ближайшие к корню шарда и, как правило, самые крупные) отдается обратно
+ * как новые шарды - так простаивающие процессы забирают работу у загруженных.
+ */
+public class ScanWorker {
+
+    private static final Logger logger = LogManager.getLogger(ScanWorker.class);
+
+    /** Переменная окружения с токеном запуска, выданным координатором. */
+    public static final String TOKEN_ENVIRONMENT = "FILEANALYZER_WORKER_TOKEN";
+
+    private final BatchScanService batchScanService;
+    private final BlockingQueue<String[]> shards = new LinkedBlockingQueue<>();
+    private volatile boolean splitRequested;
+    private Writer writer;
+
+    /**
+     * Конструктор рабочего процесса.
+     *
+     * @param batchScanService сервис пакетного анализа
+     */
+    public ScanWorker(BatchScanService batchScanService) {
+        this.batchScanService = batchScanService;
+    }
+
+    /**
+     * Точка входа рабочего процесса: {@code ScanWorker <порт> <номер>}.
+     * Токен запуска берется из переменной окружения {@link #TOKEN_ENVIRONMENT}.
+     *
+     * @param args порт координатора на локальном интерфейсе и номер процесса
+     * @throws IOException если токен не задан или соединение с координатором нарушено
+     */
+    public static void main(String[] args) throws IOException {
+        String token = System.getenv(TOKEN_ENVIRONMENT);
+        if (token == null) {
+            throw new IOException("Не задана переменная окружения " + TOKEN_ENVIRONMENT);
+        }
+        DatabaseService databaseService = new DatabaseService();
+        FileAnalyzerService fileAnalyzerService = new FileAnalyzerService(databaseService);
+        ScanWorker worker = new ScanWorker(new BatchScanService(fileAnalyzerService));
+        worker.run(Integer.parseInt(args[0]), Integer.parseInt(args[1]), token);
+        System.exit(0);
+    }
+
+    /**
+     * Подключается к координатору и обрабатывает шарды до команды завершения.
+     *
+     * @param port порт координатора на локальном интерфейсе
+     * @param workerIndex номер рабочего процесса
+     * @param token токен запуска, выданный координатором
+     * @throws IOException если соединение с координатором нарушено
+     */
+    public void run(int port, int workerIndex, String token) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Thread commandReader = new Thread(() -> readCommands(reader), "scan-worker-commands");
+            commandReader.setDaemon(true);
+            commandReader.start();
+
+            send(ScanProtocol.message(ScanProtocol.HELLO, token, workerIndex), true);
+            while (true) {
+                String[] shard = shards.take();
+                if (shard.length == 0) {
+                    break;
+                }
+                processShard(shard);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Рабочий процесс {} завершен", workerIndex);
+    }
+
+    private void readCommands(BufferedReader reader) {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] message = ScanProtocol.parse(line);
+                switch (message[0]) {
+                    case ScanProtocol.SHARD:
+                        shards.add(message);
+                        break;
+                    case ScanProtocol.SPLIT:
+                        splitRequested = true;
+                        break;
+                    case ScanProtocol.EXIT:
+                        shards.add(new String[0]);
+                        return;
+                    default:
+                        logger.warn("Неизвестная команда координатора: {}", message[0]);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Соединение с координатором потеряно: {}", e.getMessage());
+        }
+        // Координатор недоступен: продолжать работу бессмысленно
+        shards.add(new String[0]);
+    }
+
+    /**
+     * Обрабатывает шард: {@code SHARD id TREE|FILES каталог [исключения...]}.
+     */
+    private void processShard(String[] shard) throws IOException {
+        String shardId = shard[1];
+        boolean recursive = ScanProtocol.TREE.equals(shard[2]);
+        Set<Path> excluded = new HashSet<>();
+        for (int i = 4; i < shard.length; i++) {
+            excluded.add(Paths.get(shard[i]));
+        }
+
+        Deque<Path> pending = new ArrayDeque<>();
+        pending.add(Paths.get(shard[3]));
+        splitRequested = false;
+        long count = 0;
+        while (!pending.isEmpty()) {
+            if (splitRequested) {
+                splitRequested = false;
+                offer(shardId, pending);
+            }
+            Path directory = pending.pollLast();
+            try {
+                count += batchScanService.scanDirectory(directory, result -> sendResult(shardId, result),
+                        subdirectory -> {
+                            if (recursive && !excluded.contains(subdirectory)) {
+                                pending.addLast(subdirectory);
+                            }
+                        });
+            } catch (IOException e) {
+                logger.warn("Не удалось прочитать каталог {}: {}", directory, e.getMessage());
+            }
+        }
+        send(ScanProtocol.message(ScanProtocol.DONE, shardId, count), true);
+    }
+
+    /**
+     * Отдает координатору половину необработанных каталогов шарда.
+     * Берутся каталоги из начала очереди: они ближе к корню шарда.
+     */
+    private void offer(String shardId, Deque<Path> pending) throws IOException {
+        int count = pending.size() / 2;
+        for (int i = 0; i < count; i++) {
+            send(ScanProtocol.message(ScanProtocol.OFFER, shardId, pending.pollFirst()), false);
+        }
+        send(ScanProtocol.message(ScanProtocol.OFFERED, shardId, count), true);
+    }
+
+    private void sendResult(String shardId, ScanResult result) {
+        String extension = result.isDetected() ? result.getFileType().getExtension() : ScanProtocol.NO_TYPE;
+        try {
+            send(ScanProtocol.message(ScanProtocol.RESULT, shardId, extension, result.getSize(),
+                    result.getPath().toAbsolutePath()), false);
+        } catch (IOException e) {
+            throw new IllegalStateException("Соединение с координатором потеряно", e);
+        }
+    }
+
+    private synchronized void send(String message, boolean flush) throws IOException {
+        writer.write(message);
+        writer.write('\n');
+        if (flush) {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.MagicNumber;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Таблица сигнатур в общем файле (например, в /dev/shm) для нескольких
+ * процессов анализатора на одной машине. Первый процесс разбирает
+ * filetypes.json и публикует таблицу в двоичном виде; остальные отображают
+ * файл в память только для чтения и восстанавливают типы без Jackson
+ * и разбора JSON.
+ *
+ * <p>Заголовок (32 байта, big-endian): магическое число, версия формата,
+ * версия базы (CRC32 исходного filetypes.json), число типов, длина и CRC32
+ * данных. Таблица с другой версией базы или поврежденными данными не
+ * используется. Каталог /dev/shm доступен на запись всем пользователям,
+ * поэтому принимается только обычный файл текущего пользователя без прав
+ * для группы и остальных (0600): таблицу, подложенную другим пользователем,
+ * процесс не читает и разбирает JSON сам. Файл никогда не изменяется на
+ * месте: новая таблица пишется во временный файл того же каталога и
+ * атомарно заменяет прежнюю, поэтому процессы, уже отобразившие прежнюю
+ * таблицу, дочитывают ее без ошибок.
+ */
+final class SharedSignatureTable {
+
+    private static final Logger logger = LogManager.getLogger(SharedSignatureTable.class);
+
+    /** "FAST": File Analyzer Signature Table. */
+    static final int MAGIC = 0x46415354;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    /** Ограничение размера таблицы: файл с большей длиной считается поврежденным. */
+    private static final int MAX_PAYLOAD_SIZE = 16 * 1024 * 1024;
+    private static final int NULL_STRING = -1;
+    private static final Set<PosixFilePermission> OWNER_ONLY =
+            EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+
+    private SharedSignatureTable() {
+    }
+
+    /**
+     * Вычисляет версию базы по содержимому исходного файла.
+     *
+     * @param source содержимое filetypes.json
+     * @return версия базы
+     */
+    static long databaseVersion(byte[] source) {
+        CRC32 crc = new CRC32();
+        crc.update(source);
+        return crc.getValue();
+    }
+
+    /**
+     * Отображает таблицу в память и восстанавливает типы файлов.
+     *
+     * @param file файл таблицы
+     * @param databaseVersion ожидаемая версия базы
+     * @return типы в порядке приоритета; пустой Optional, если файла нет,
+     *         он принадлежит другому пользователю или доступен ему,
+     *         версия другая или данные повреждены
+     */
+    static Optional<List<FileType>> open(Path file, long databaseVersion) {
+        try {
+            if (!isTrusted(file)) {
+                return Optional.empty();
+            }
+        } catch (NoSuchFileException e) {
+            logger.debug("Общая таблица сигнатур {} еще не опубликована", file);
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.warn("Не удалось проверить владельца общей таблицы сигнатур {}", file, e);
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > HEADER_SIZE + MAX_PAYLOAD_SIZE) {
+                logger.warn("Общая таблица сигнатур {} имеет неверный размер: {}", file, size);
+                return Optional.empty();
+            }
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (table.getInt(0) != MAGIC || table.getInt(4) != FORMAT_VERSION) {
+                logger.warn("Файл {} не является общей таблицей сигнатур версии {}", file, FORMAT_VERSION);
+                return Optional.empty();
+            }
+            if (table.getLong(8) != databaseVersion) {
+                logger.debug("Общая таблица сигнатур {} построена для другой версии базы", file);
+                return Optional.empty();
+            }
+            int typeCount = table.getInt(16);
+            int payloadLength = table.getInt(20);
+            if (payloadLength != size - HEADER_SIZE) {
+                logger.warn("Общая таблица сигнатур {} обрезана", file);
+                return Optional.empty();
+            }
+            ByteBuffer payload = table.position(HEADER_SIZE).slice();
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != table.getInt(24)) {
+                logger.warn("Контрольная сумма общей таблицы сигнатур {} не совпадает", file);
+                return Optional.empty();
+            }
+            return Optional.of(decode(payload, typeCount));
+        } catch (NoSuchFileException e) {
+            logger.debug("Общая таблица сигнатур {} еще не опубликована", file);
+            return Optional.empty();
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.warn("Не удалось прочитать общую таблицу сигнатур {}", file, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Проверяет, что таблицу создал текущий пользователь и другие
+     * пользователи не могут ее изменить: обычный файл (не ссылка), владелец -
+     * текущий пользователь, в POSIX-системах права не шире 0600.
+     *
+     * @param file файл таблицы
+     * @return true, если таблице можно доверять
+     * @throws IOException если атрибуты файла не удалось прочитать
+     */
+    private static boolean isTrusted(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isRegularFile()) {
+            logger.warn("Общая таблица сигнатур {} не является обычным файлом", file);
+            return false;
+        }
+        UserPrincipal owner = Files.getOwner(file, LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal currentUser = file.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!owner.equals(currentUser)) {
+            logger.warn("Общая таблица сигнатур {} принадлежит другому пользователю: {}", file, owner.getName());
+            return false;
+        }
+        if (Files.getFileStore(file).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file, LinkOption.NOFOLLOW_LINKS);
+            if (!OWNER_ONLY.containsAll(permissions)) {
+                logger.warn("Общая таблица сигнатур {} доступна другим пользователям: {}", file, permissions);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Публикует таблицу: записывает ее во временный файл рядом с целевым
+     * и атомарно заменяет им прежнюю таблицу.
+     *
+     * @param file файл таблицы
+     * @param databaseVersion версия базы
+     * @param fileTypes типы в порядке приоритета
+     * @throws IOException если файл не удалось записать или заменить
+     */
+    static void publish(Path file, long databaseVersion, List<FileType> fileTypes) throws IOException {
+        byte[] payload = encode(fileTypes);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(databaseVersion)
+                .putInt(fileTypes.size())
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .putInt(0)
+                .flip();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer[] buffers = {header, ByteBuffer.wrap(payload)};
+                while (buffers[1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        logger.info("Общая таблица сигнатур опубликована: {} ({} типов)", file, fileTypes.size());
+    }
+
+    private static byte[] encode(List<FileType> fileTypes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (FileType fileType : fileTypes) {
+                writeString(out, fileType.getExtension());
+                writeString(out, fileType.getDescription());
+                List<MagicNumber> magics = fileType.hasMagicNumbers() ? fileType.getMagicNumbers() : List.of();
+                out.writeInt(magics.size());
+                for (MagicNumber magic : magics) {
+                    byte[] magicBytes = magic.getBytes() != null ? magic.getBytes() : new byte[0];
+                    out.writeInt(magic.getOffset());
+                    writeString(out, magic.getHex());
+                    out.writeInt(magicBytes.length);
+                    out.write(magicBytes);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<FileType> decode(ByteBuffer payload, int typeCount) {
+        if (typeCount < 0) {
+            throw new IllegalArgumentException("Отрицательное число типов: " + typeCount);
+        }
+        List<FileType> fileTypes = new ArrayList<>(Math.min(typeCount, payload.remaining()));
+        for (int i = 0; i < typeCount; i++) {
+            String extension = readString(payload);
+            String description = readString(payload);
+            int magicCount = readLength(payload);
+            List<MagicNumber> magics = new ArrayList<>(magicCount);
+            for (int j = 0; j < magicCount; j++) {
+                int offset = payload.getInt();
+                String hex = readString(payload);
+                byte[] magicBytes = new byte[readLength(payload)];
+                payload.get(magicBytes);
+                magics.add(new MagicNumber(offset, magicBytes, hex));
+            }
+            fileTypes.add(new FileType(extension, description, List.copyOf(magics)));
+        }
+        if (payload.hasRemaining()) {
+            throw new IllegalArgumentException("Лишние данные после " + typeCount + " типов");
+        }
+        return List.copyOf(fileTypes);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > payload.remaining()) {
+            throw new IllegalArgumentException("Неверная длина строки: " + length);
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Читает длину и проверяет, что она не превышает остаток данных.
+     */
+    private static int readLength(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0 || length > payload.remaining()) {
+            throw new IllegalArgumentException("Неверная длина: " + length);
+        }
+        return length;
+    }
+}
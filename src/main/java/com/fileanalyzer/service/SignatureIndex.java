@@ -0,0 +1,134 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.MagicNumber;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Индекс сигнатур для поэтапного чтения заголовка.
+ * Сигнатуры пронумерованы в порядке типов базы данных, поэтому проход
+ * по кандидатам в порядке возрастания номеров сохраняет правило "побеждает
+ * первый подходящий тип". Кандидаты группируются по первому байту файла:
+ * сигнатуры со смещением 0 попадают только в корзину своего первого байта,
+ * сигнатуры с ненулевым смещением - во все корзины.
+ */
+public class SignatureIndex {
+
+    private final int[] signatureType;
+    private final int[] signatureOffset;
+    private final byte[][] signatureBytes;
+    private final int[][] candidatesByFirstByte;
+    private final int[] allSignatures;
+
+    /**
+     * Строит индекс по списку типов файлов.
+     *
+     * @param fileTypes типы файлов в порядке приоритета
+     */
+    public SignatureIndex(List<FileType> fileTypes) {
+        List<int[]> entries = new ArrayList<>();
+        List<byte[]> bytes = new ArrayList<>();
+        for (int typeIndex = 0; typeIndex < fileTypes.size(); typeIndex++) {
+            FileType fileType = fileTypes.get(typeIndex);
+            if (!fileType.hasMagicNumbers()) {
+                continue;
+            }
+            for (MagicNumber magic : fileType.getMagicNumbers()) {
+                if (magic.getBytes() == null || magic.getLength() == 0 || magic.getOffset() < 0) {
+                    continue;
+                }
+                entries.add(new int[]{typeIndex, magic.getOffset()});
+                bytes.add(magic.getBytes());
+            }
+        }
+
+        int count = entries.size();
+        signatureType = new int[count];
+        signatureOffset = new int[count];
+        signatureBytes = bytes.toArray(new byte[0][]);
+        allSignatures = new int[count];
+        for (int i = 0; i < count; i++) {
+            signatureType[i] = entries.get(i)[0];
+            signatureOffset[i] = entries.get(i)[1];
+            allSignatures[i] = i;
+        }
+
+        candidatesByFirstByte = new int[256][];
+        for (int value = 0; value < 256; value++) {
+            int[] bucket = new int[count];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                if (signatureOffset[i] > 0 || (signatureBytes[i][0] & 0xFF) == value) {
+                    bucket[size++] = i;
+                }
+            }
+            candidatesByFirstByte[value] = Arrays.copyOf(bucket, size);
+        }
+    }
+
+    /**
+     * Определяет, сколько байт заголовка нужно, чтобы однозначно выбрать тип.
+     * Сигнатуры, уже опровергнутые прочитанными байтами, отбрасываются;
+     * для оставшихся учитывается конец сигнатуры. Если прочитанных байт
+     * достаточно, возвращается {@code available}.
+     *
+     * @param header буфер с прочитанными байтами (с индекса 0)
+     * @param available количество прочитанных байт
+     * @return необходимое количество байт (не меньше {@code available})
+     */
+    public int requiredBytes(ByteBuffer header, int available) {
+        int required = available;
+        int[] candidates = candidatesFor(header, available);
+        for (int i : candidates) {
+            int offset = signatureOffset[i];
+            byte[] magic = signatureBytes[i];
+            int end = offset + magic.length;
+
+            int known = Math.min(end, available);
+            boolean consistent = true;
+            for (int position = offset; position < known; position++) {
+                if (header.get(position) != magic[position - offset]) {
+                    consistent = false;
+                    break;
+                }
+            }
+            if (!consistent) {
+                continue;
+            }
+            if (end <= available) {
+                // Сигнатура совпала целиком: более поздние кандидаты не нужны,
+                // но более ранние незавершенные могут потребовать дочитывания
+                return required;
+            }
+            required = Math.max(required, end);
+        }
+        return required;
+    }
+
+    /**
+     * Возвращает номер типа, к которому относится сигнатура.
+     *
+     * @param signature номер сигнатуры
+     * @return индекс типа в списке базы данных
+     */
+    public int getSignatureType(int signature) {
+        return signatureType[signature];
+    }
+
+    /**
+     * Возвращает количество сигнатур в индексе.
+     *
+     * @return количество сигнатур
+     */
+    public int size() {
+        return signatureType.length;
+    }
+
+    private int[] candidatesFor(ByteBuffer header, int available) {
+        return available > 0 ? candidatesByFirstByte[header.get(0) & 0xFF] : allSignatures;
+    }
+}
@@ -0,0 +1,105 @@
+package com.fileanalyzer.service;
+
+/**
+ * Ограничитель скорости по схеме "ведро токенов".
+ *
+ * <p>Токены накапливаются с заданной скоростью до емкости ведра, каждая операция
+ * расходует их по своей стоимости (например, количество прочитанных байт).
+ * Операция дороже емкости не блокируется навсегда: она дожидается полного ведра
+ * и уводит баланс в минус, поэтому следующие операции ждут, пока долг не будет
+ * погашен, и средняя скорость сохраняется.
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double ratePerSecond;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Конструктор ведра с емкостью, равной скорости за одну секунду.
+     *
+     * @param ratePerSecond скорость пополнения, токенов в секунду
+     */
+    public TokenBucket(double ratePerSecond) {
+        this(ratePerSecond, ratePerSecond);
+    }
+
+    /**
+     * Конструктор ведра.
+     *
+     * @param ratePerSecond скорость пополнения, токенов в секунду
+     * @param capacity емкость ведра (допустимый всплеск)
+     */
+    public TokenBucket(double ratePerSecond, double capacity) {
+        if (ratePerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Скорость и емкость должны быть положительными");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Расходует токены, ожидая их накопления при необходимости.
+     *
+     * @param cost стоимость операции
+     * @return время ожидания в наносекундах
+     * @throws InterruptedException если ожидание было прервано
+     */
+    public synchronized long acquire(double cost) throws InterruptedException {
+        long start = System.nanoTime();
+        double required = Math.min(cost, capacity);
+        refill();
+        while (tokens < required) {
+            long waitNanos = (long) Math.ceil((required - tokens) * NANOS_PER_SECOND / ratePerSecond);
+            // Монитор освобождается на время ожидания, чтобы другие потоки не блокировались на входе
+            wait(Math.max(1, waitNanos / 1_000_000), (int) (waitNanos % 1_000_000));
+            refill();
+        }
+        tokens -= cost;
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Расходует токены, если они есть, без ожидания.
+     *
+     * @param cost стоимость операции
+     * @return true, если токенов хватило
+     */
+    public synchronized boolean tryAcquire(double cost) {
+        refill();
+        if (tokens < Math.min(cost, capacity)) {
+            return false;
+        }
+        tokens -= cost;
+        return true;
+    }
+
+    /**
+     * @return скорость пополнения, токенов в секунду
+     */
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    /**
+     * Возвращает текущий баланс (отрицательный, если есть долг).
+     *
+     * @return количество токенов
+     */
+    public synchronized double getAvailable() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerSecond / NANOS_PER_SECOND);
+        lastRefill = now;
+    }
+}
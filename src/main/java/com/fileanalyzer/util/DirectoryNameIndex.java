@@ -0,0 +1,191 @@
+package com.fileanalyzer.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Индекс имен файлов одного каталога для выбора свободного имени при
+ * восстановлении. Каталог читается один раз, дальше имена выделяются
+ * в памяти: для каждой пары "имя - расширение" хранится следующий номер
+ * суффикса {@code _N}, поэтому выбор имени не требует проверок
+ * существования файлов.
+ *
+ * <p>Выделение имен синхронизировано, и один индекс каталога используют все
+ * потоки восстановления ({@link #forDirectory(Path)}). Файлы, созданные
+ * после чтения каталога другими процессами, обнаруживаются при копировании:
+ * копия создается только если файла еще нет, иначе выбирается следующее имя.
+ * Имена сравниваются без учета регистра, как в файловых системах Windows.
+ */
+public final class DirectoryNameIndex {
+
+    /** Количество каталогов, индексы которых хранятся между вызовами. */
+    private static final int MAX_CACHED_DIRECTORIES = 64;
+
+    private static final Map<Path, DirectoryNameIndex> CACHE =
+            new LinkedHashMap<Path, DirectoryNameIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, DirectoryNameIndex> eldest) {
+                    return size() > MAX_CACHED_DIRECTORIES;
+                }
+            };
+
+    private final Path directory;
+    private final Set<String> names = new HashSet<>();
+    private final Map<String, Integer> nextSuffixes = new HashMap<>();
+    private FileTime modified;
+    private int copiesInProgress;
+
+    /**
+     * Строит индекс по содержимому каталога.
+     *
+     * @param directory каталог
+     * @throws IOException если каталог не удалось прочитать
+     */
+    public DirectoryNameIndex(Path directory) throws IOException {
+        this.directory = directory;
+        this.modified = Files.getLastModifiedTime(directory);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                names.add(key(entry.getFileName().toString()));
+            }
+        }
+    }
+
+    /**
+     * Возвращает общий индекс каталога. Индекс перестраивается, если каталог
+     * изменялся не через него (например, из него удаляли файлы).
+     *
+     * @param directory каталог
+     * @return индекс каталога
+     * @throws IOException если каталог не удалось прочитать
+     */
+    public static DirectoryNameIndex forDirectory(Path directory) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        FileTime modified = Files.getLastModifiedTime(key);
+        synchronized (CACHE) {
+            DirectoryNameIndex cached = CACHE.get(key);
+            if (cached != null && cached.isCurrent(modified)) {
+                return cached;
+            }
+        }
+        // Каталог читается без блокировки кэша; при гонке остается первый индекс
+        DirectoryNameIndex index = new DirectoryNameIndex(key);
+        synchronized (CACHE) {
+            DirectoryNameIndex cached = CACHE.get(key);
+            if (cached != null && cached.isCurrent(modified)) {
+                return cached;
+            }
+            CACHE.put(key, index);
+            return index;
+        }
+    }
+
+    /**
+     * Выделяет свободное имя: {@code имя.расширение}, а если оно занято -
+     * {@code имя_1.расширение}, {@code имя_2.расширение} и так далее.
+     * Имя считается занятым сразу после выделения.
+     *
+     * @param baseName имя файла без расширения
+     * @param extension расширение без точки
+     * @return путь с выделенным именем
+     */
+    public synchronized Path allocate(String baseName, String extension) {
+        String pair = key(baseName) + '/' + key(extension);
+        int suffix = nextSuffixes.getOrDefault(pair, 0);
+        String name = fileName(baseName, extension, suffix);
+        while (!names.add(key(name))) {
+            name = fileName(baseName, extension, ++suffix);
+        }
+        nextSuffixes.put(pair, suffix + 1);
+        return directory.resolve(name);
+    }
+
+    /**
+     * Освобождает имя, файл с которым не удалось создать.
+     *
+     * @param path путь, выделенный {@link #allocate(String, String)}
+     */
+    public synchronized void release(Path path) {
+        names.remove(key(path.getFileName().toString()));
+    }
+
+    /**
+     * Копирует файл в каталог под свободным именем. Существующие файлы
+     * не перезаписываются: если имя заняли после чтения каталога,
+     * выбирается следующее.
+     *
+     * @param source исходный файл
+     * @param baseName имя копии без расширения
+     * @param extension расширение копии без точки
+     * @return путь созданной копии
+     * @throws IOException если копирование не удалось
+     */
+    public Path copy(Path source, String baseName, String extension) throws IOException {
+        synchronized (this) {
+            copiesInProgress++;
+        }
+        try {
+            while (true) {
+                Path target = allocate(baseName, extension);
+                try {
+                    Files.copy(source, target);
+                    return target;
+                } catch (FileAlreadyExistsException e) {
+                    // Имя занято другим процессом и остается отмеченным в индексе
+                } catch (IOException | RuntimeException e) {
+                    release(target);
+                    throw e;
+                }
+            }
+        } finally {
+            finishCopy();
+        }
+    }
+
+    /**
+     * Запоминает время изменения каталога после собственной записи,
+     * чтобы она не считалась внешним изменением.
+     */
+    private void finishCopy() {
+        FileTime current = null;
+        try {
+            current = Files.getLastModifiedTime(directory);
+        } catch (IOException e) {
+            // Время не обновляется: индекс будет перестроен при следующем обращении
+        }
+        synchronized (this) {
+            copiesInProgress--;
+            if (current != null) {
+                modified = current;
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что каталог не изменялся в обход индекса. Пока идут
+     * собственные копирования, изменения не различаются, и индекс
+     * считается актуальным: новые чужие файлы все равно обнаруживаются
+     * при копировании.
+     */
+    private synchronized boolean isCurrent(FileTime directoryModified) {
+        return copiesInProgress > 0 || modified.equals(directoryModified);
+    }
+
+    private static String fileName(String baseName, String extension, int suffix) {
+        return (suffix == 0 ? baseName : baseName + "_" + suffix) + "." + extension;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,8 +2,12 @@ package com.fileanalyzer.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
 
 /**
@@ -12,6 +16,10 @@ import java.util.Arrays;
  */
 public final class FileUtils {
 
+    private static final long FNV64_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV64_PRIME = 0x100000001b3L;
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
     private FileUtils() {
         // Утилитный класс не должен создавать экземпляры
     }
@@ -29,14 +37,21 @@ public final class FileUtils {
             throw new IOException("Файл не существует или не является файлом: " + file);
         }
 
-        byte[] allBytes = Files.readAllBytes(file.toPath());
-        int bytesToRead = Math.min(allBytes.length, maxBytes);
-        
-        return Arrays.copyOf(allBytes, bytesToRead);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // Читаем не больше, чем нужно, вместо загрузки всего файла в память
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(maxBytes, channel.size()));
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Дочитываем, пока буфер не заполнен или не достигнут конец файла
+            }
+            byte[] header = buffer.array();
+            return buffer.position() == header.length ? header : Arrays.copyOf(header, buffer.position());
+        }
     }
 
     /**
-     * Создает копию файла с новым расширением.
+     * Создает копию файла с новым расширением. Существующие файлы
+     * не перезаписываются: если имя занято, добавляется суффикс {@code _N},
+     * свободное имя выбирается по {@link DirectoryNameIndex} каталога.
      *
      * @param sourceFile исходный файл
      * @param newExtension новое расширение (без точки)
@@ -48,21 +63,9 @@ public final class FileUtils {
             throw new IOException("Исходный файл не существует");
         }
 
+        Path source = sourceFile.toPath().toAbsolutePath();
         String baseName = getFileNameWithoutExtension(sourceFile.getName());
-        String newFileName = baseName + "." + newExtension;
-        
-        File targetFile = new File(sourceFile.getParent(), newFileName);
-        
-        // Если файл с таким именем уже существует, добавляем суффикс
-        int counter = 1;
-        while (targetFile.exists()) {
-            String numberedFileName = baseName + "_" + counter + "." + newExtension;
-            targetFile = new File(sourceFile.getParent(), numberedFileName);
-            counter++;
-        }
-
-        Files.copy(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        return targetFile;
+        return DirectoryNameIndex.forDirectory(source.getParent()).copy(source, baseName, newExtension).toFile();
     }
 
     /**
@@ -117,6 +120,44 @@ public final class FileUtils {
                file.length() > 0;
     }
 
+    /**
+     * Проверяет по атрибутам, полученным при обходе каталога, имеет ли смысл
+     * открывать файл для анализа. В отличие от {@link #isValidForAnalysis(File)}
+     * не обращается к файловой системе.
+     *
+     * @param attributes атрибуты файла
+     * @return true для непустого обычного файла
+     */
+    public static boolean isValidForAnalysis(BasicFileAttributes attributes) {
+        return attributes != null && attributes.isRegularFile() && attributes.size() > 0;
+    }
+
+    /**
+     * Вычисляет 64-битный хэш FNV-1a всего содержимого файла.
+     * Файл читается последовательно блоками без загрузки целиком в память.
+     *
+     * @param path путь к файлу
+     * @return хэш содержимого
+     * @throws IOException если произошла ошибка при чтении файла
+     */
+    public static long hashFileContent(Path path) throws IOException {
+        long hash = FNV64_OFFSET_BASIS;
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+        byte[] data = buffer.array();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                int limit = buffer.position();
+                for (int i = 0; i < limit; i++) {
+                    hash ^= data[i] & 0xFF;
+                    hash *= FNV64_PRIME;
+                }
+                buffer.clear();
+            }
+        }
+        return hash;
+    }
+
     /**
      * Форматирует размер файла в человекочитаемый вид.
      *
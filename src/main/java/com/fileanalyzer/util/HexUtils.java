@@ -6,6 +6,18 @@ package com.fileanalyzer.util;
  */
 public final class HexUtils {
 
+    /** Шестнадцатеричные цифры в верхнем регистре. */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    /** Пары символов для каждого значения байта: [2 * b] и [2 * b + 1]. */
+    private static final char[] HEX_PAIRS = new char[512];
+
+    static {
+        for (int value = 0; value < 256; value++) {
+            HEX_PAIRS[2 * value] = HEX_DIGITS[value >>> 4];
+            HEX_PAIRS[2 * value + 1] = HEX_DIGITS[value & 0x0F];
+        }
+    }
+
     private HexUtils() {
         // Утилитный класс не должен создавать экземпляры
     }
@@ -47,14 +59,49 @@ public final class HexUtils {
             return "";
         }
 
-        StringBuilder sb = new StringBuilder();
+        char[] chars = new char[bytes.length * 3 - 1];
+        int position = 0;
         for (int i = 0; i < bytes.length; i++) {
             if (i > 0) {
-                sb.append(" ");
+                chars[position++] = ' ';
             }
-            sb.append(String.format("%02X", bytes[i] & 0xFF));
+            position = encodeByte(bytes[i], chars, position);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Записывает байт двумя шестнадцатеричными символами по таблице,
+     * без создания строк.
+     *
+     * @param value байт
+     * @param dest буфер символов
+     * @param position позиция записи
+     * @return позиция после записанных символов
+     */
+    public static int encodeByte(byte value, char[] dest, int position) {
+        int index = (value & 0xFF) << 1;
+        dest[position] = HEX_PAIRS[index];
+        dest[position + 1] = HEX_PAIRS[index + 1];
+        return position + 2;
+    }
+
+    /**
+     * Записывает число заданным количеством шестнадцатеричных цифр
+     * (старшие разряды, не поместившиеся в digits, отбрасываются).
+     *
+     * @param value число
+     * @param digits количество цифр
+     * @param dest буфер символов
+     * @param position позиция записи
+     * @return позиция после записанных символов
+     */
+    public static int encodeLong(long value, int digits, char[] dest, int position) {
+        for (int i = digits - 1; i >= 0; i--) {
+            dest[position + i] = HEX_DIGITS[(int) (value & 0x0F)];
+            value >>>= 4;
         }
-        return sb.toString();
+        return position + digits;
     }
 
     /**
@@ -1,6 +1,9 @@
 package com.fileanalyzer.view;
 
+import com.fileanalyzer.model.FileMetadata;
 import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.service.HexDump;
+import com.fileanalyzer.service.MetadataService;
 import com.fileanalyzer.util.FileUtils;
 import javafx.scene.control.Alert;
 import javafx.scene.control.TextArea;
@@ -8,20 +11,60 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Утилитный класс для создания диалоговых окон и отображения информации о файлах.
  */
 public final class FileInfoDialog {
 
+    private static final MetadataService METADATA_SERVICE = new MetadataService();
+
+    /** Подписи ключей метаданных; неизвестные ключи выводятся как есть. */
+    private static final Map<String, String> METADATA_LABELS = new HashMap<>();
+
+    static {
+        METADATA_LABELS.put("width", "Ширина");
+        METADATA_LABELS.put("height", "Высота");
+        METADATA_LABELS.put("bitDepth", "Глубина цвета, бит");
+        METADATA_LABELS.put("colorType", "Цветовая модель");
+        METADATA_LABELS.put("interlaced", "Чересстрочность");
+        METADATA_LABELS.put("components", "Компонентов цвета");
+        METADATA_LABELS.put("precision", "Точность, бит");
+        METADATA_LABELS.put("process", "Кодирование");
+        METADATA_LABELS.put("version", "Версия");
+        METADATA_LABELS.put("pagesHint", "Страниц (оценка)");
+        METADATA_LABELS.put("id3", "Версия ID3");
+        METADATA_LABELS.put("title", "Название");
+        METADATA_LABELS.put("artist", "Исполнитель");
+        METADATA_LABELS.put("album", "Альбом");
+        METADATA_LABELS.put("year", "Год");
+        METADATA_LABELS.put("bitrate", "Битрейт, кбит/с");
+        METADATA_LABELS.put("sampleRate", "Частота дискретизации, Гц");
+        METADATA_LABELS.put("channels", "Каналов");
+        METADATA_LABELS.put("duration", "Длительность, с");
+        METADATA_LABELS.put("brand", "Бренд");
+        METADATA_LABELS.put("name", "Исходное имя");
+        METADATA_LABELS.put("payload", "Содержимое");
+        METADATA_LABELS.put("uncompressedSize", "Размер без сжатия, байт");
+        METADATA_LABELS.put("blockSize", "Размер блока, КБ");
+        METADATA_LABELS.put("check", "Контрольная сумма");
+        METADATA_LABELS.put("contentSize", "Размер содержимого, байт");
+    }
+
     private FileInfoDialog() {
         // Утилитный класс не должен создавать экземпляры
     }
 
     /**
-     * Показывает диалог с подробной информацией о файле.
+     * Показывает диалог с подробной информацией о файле, метаданными
+     * определенного формата и просмотром его содержимого в шестнадцатеричном
+     * виде; совпавшие сигнатуры определенного типа подсвечиваются.
      *
      * @param file файл для отображения информации
      * @param detectedType определенный тип файла (может быть null)
@@ -45,10 +88,22 @@ public final class FileInfoDialog {
             info.append("Определенный тип: ").append(detectedType.getExtension().toUpperCase()).append("\n");
             info.append("Описание: ").append(detectedType.getDescription()).append("\n");
             info.append("Количество магических чисел: ").append(detectedType.getMagicNumbers().size()).append("\n");
+            appendMetadata(info, file, detectedType);
         } else {
             info.append("Тип файла: Не определен\n");
         }
 
+        HexDump hexDump = null;
+        HexViewerPane hexViewer = null;
+        try {
+            hexDump = new HexDump(file.toPath());
+            hexViewer = new HexViewerPane(hexDump, hexDump.findSignatureRanges(detectedType));
+        } catch (IOException e) {
+            info.append("\nПросмотр содержимого недоступен: ").append(e.getMessage()).append("\n");
+            closeQuietly(hexDump);
+            hexDump = null;
+        }
+
         TextArea textArea = new TextArea(info.toString());
         textArea.setEditable(false);
         textArea.setWrapText(true);
@@ -61,10 +116,61 @@ public final class FileInfoDialog {
         GridPane expContent = new GridPane();
         expContent.setMaxWidth(Double.MAX_VALUE);
         expContent.add(textArea, 0, 0);
+        if (hexViewer != null) {
+            GridPane.setVgrow(hexViewer, Priority.ALWAYS);
+            GridPane.setHgrow(hexViewer, Priority.ALWAYS);
+            expContent.add(hexViewer, 0, 1);
+        }
 
         alert.getDialogPane().setExpandableContent(expContent);
         alert.getDialogPane().setExpanded(true);
-        alert.showAndWait();
+        alert.setResizable(true);
+        try {
+            alert.showAndWait();
+        } finally {
+            closeQuietly(hexDump);
+        }
+    }
+
+    /**
+     * Добавляет метаданные файла, если для его типа есть извлекатель.
+     *
+     * @param info текст диалога
+     * @param file файл
+     * @param detectedType определенный тип файла
+     */
+    private static void appendMetadata(StringBuilder info, File file, FileType detectedType) {
+        if (!METADATA_SERVICE.supports(detectedType)) {
+            return;
+        }
+        try {
+            Optional<FileMetadata> metadata = METADATA_SERVICE.extract(file.toPath(), detectedType);
+            if (metadata.isPresent()) {
+                info.append("\nМетаданные:\n");
+                for (Map.Entry<String, String> entry : metadata.get().asMap().entrySet()) {
+                    info.append("  ").append(METADATA_LABELS.getOrDefault(entry.getKey(), entry.getKey()))
+                            .append(": ").append(entry.getValue()).append("\n");
+                }
+            }
+        } catch (IOException e) {
+            info.append("\nМетаданные недоступны: ").append(e.getMessage()).append("\n");
+        }
+    }
+
+    /**
+     * Закрывает файл просмотра, игнорируя ошибки закрытия.
+     *
+     * @param hexDump файл просмотра (может быть null)
+     */
+    private static void closeQuietly(HexDump hexDump) {
+        if (hexDump == null) {
+            return;
+        }
+        try {
+            hexDump.close();
+        } catch (IOException e) {
+            // Файл открыт только для чтения, данные не теряются
+        }
     }
 
     /**
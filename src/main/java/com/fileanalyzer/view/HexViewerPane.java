@@ -0,0 +1,182 @@
+package com.fileanalyzer.view;
+
+import com.fileanalyzer.service.HexDump;
+import javafx.geometry.Orientation;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Шестнадцатеричный и текстовый просмотр файла. Отрисовываются только
+ * видимые строки: положение полосы прокрутки задает номер первой строки
+ * с дробной частью, поэтому прокрутка плавная и не зависит от размера
+ * файла. Строки формирует {@link HexDump} в один переиспользуемый буфер,
+ * диапазоны найденных сигнатур подсвечиваются в обеих частях строки.
+ */
+public class HexViewerPane extends Region {
+
+    private static final Logger logger = LogManager.getLogger(HexViewerPane.class);
+
+    private static final Font FONT = Font.font("Monospaced", 12);
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color TEXT_COLOR = Color.web("#212121");
+    private static final Color HIGHLIGHT_COLOR = Color.web("#ffe082");
+    private static final double PADDING = 4;
+    private static final int VISIBLE_ROWS = 20;
+    /** Количество строк прокрутки на одно деление колеса мыши. */
+    private static final int WHEEL_ROWS = 3;
+    /** Смещение колеса мыши, соответствующее одному делению. */
+    private static final double WHEEL_DELTA = 40;
+
+    private final HexDump hexDump;
+    private final List<HexDump.Range> highlights;
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar scrollBar = new ScrollBar();
+    private final char[] row;
+    private final double charWidth;
+    private final double rowHeight;
+    private final double baseline;
+
+    /**
+     * Конструктор панели просмотра.
+     *
+     * @param hexDump открытый файл; закрывает вызывающий код
+     * @param highlights подсвечиваемые диапазоны
+     */
+    public HexViewerPane(HexDump hexDump, List<HexDump.Range> highlights) {
+        this.hexDump = hexDump;
+        this.highlights = highlights;
+        this.row = new char[hexDump.getRowLength()];
+
+        Text probe = new Text("0");
+        probe.setFont(FONT);
+        this.charWidth = probe.getLayoutBounds().getWidth();
+        this.rowHeight = Math.ceil(probe.getLayoutBounds().getHeight());
+        this.baseline = probe.getBaselineOffset();
+
+        scrollBar.setOrientation(Orientation.VERTICAL);
+        scrollBar.setUnitIncrement(1);
+        scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> draw());
+        getChildren().addAll(canvas, scrollBar);
+
+        setOnScroll(this::handleScroll);
+        setOnKeyPressed(this::handleKey);
+        setFocusTraversable(true);
+        setPrefSize(2 * PADDING + charWidth * row.length + scrollBar.prefWidth(-1), rowHeight * VISIBLE_ROWS);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double barWidth = scrollBar.prefWidth(-1);
+        double width = Math.max(0, getWidth() - barWidth);
+        double height = getHeight();
+        canvas.setWidth(width);
+        canvas.setHeight(height);
+        scrollBar.resizeRelocate(width, 0, barWidth, height);
+
+        double visibleRows = height / rowHeight;
+        scrollBar.setMax(Math.max(0, hexDump.getRowCount() - visibleRows));
+        scrollBar.setVisibleAmount(visibleRows);
+        scrollBar.setBlockIncrement(Math.max(1, Math.floor(visibleRows) - 1));
+        draw();
+    }
+
+    /**
+     * Отрисовывает видимые строки, начиная с частично видимой верхней.
+     */
+    private void draw() {
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        graphics.setFill(BACKGROUND);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setFont(FONT);
+
+        double value = Math.max(0, scrollBar.getValue());
+        long first = (long) value;
+        double y = -(value - first) * rowHeight;
+        long rows = hexDump.getRowCount();
+        try {
+            for (long current = first; current < rows && y < height; current++, y += rowHeight) {
+                drawHighlights(graphics, current, y);
+                int length = hexDump.formatRow(current, row);
+                graphics.setFill(TEXT_COLOR);
+                graphics.fillText(new String(row, 0, length), PADDING, y + baseline);
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось прочитать файл для просмотра: {}", e.getMessage());
+            graphics.setFill(TEXT_COLOR);
+            graphics.fillText("Не удалось прочитать файл: " + e.getMessage(), PADDING, y + baseline);
+        }
+    }
+
+    /**
+     * Подсвечивает части диапазонов, попадающие в строку.
+     */
+    private void drawHighlights(GraphicsContext graphics, long current, double y) {
+        long rowStart = current * HexDump.BYTES_PER_ROW;
+        long rowEnd = rowStart + HexDump.BYTES_PER_ROW;
+        graphics.setFill(HIGHLIGHT_COLOR);
+        for (HexDump.Range range : highlights) {
+            if (range.getEnd() <= rowStart || range.getStart() >= rowEnd) {
+                continue;
+            }
+            int from = (int) (Math.max(range.getStart(), rowStart) - rowStart);
+            int to = (int) (Math.min(range.getEnd(), rowEnd) - rowStart) - 1;
+            fillColumns(graphics, hexDump.getHexColumn(from), hexDump.getHexColumn(to) + 2, y);
+            fillColumns(graphics, hexDump.getAsciiColumn(from), hexDump.getAsciiColumn(to) + 1, y);
+        }
+    }
+
+    private void fillColumns(GraphicsContext graphics, int fromColumn, int toColumn, double y) {
+        graphics.fillRect(PADDING + fromColumn * charWidth, y, (toColumn - fromColumn) * charWidth, rowHeight);
+    }
+
+    private void handleScroll(ScrollEvent event) {
+        double rows = -event.getDeltaY() / WHEEL_DELTA * WHEEL_ROWS;
+        scrollTo(scrollBar.getValue() + rows);
+        event.consume();
+    }
+
+    private void handleKey(KeyEvent event) {
+        double page = scrollBar.getBlockIncrement();
+        switch (event.getCode()) {
+            case UP:
+                scrollTo(scrollBar.getValue() - 1);
+                break;
+            case DOWN:
+                scrollTo(scrollBar.getValue() + 1);
+                break;
+            case PAGE_UP:
+                scrollTo(scrollBar.getValue() - page);
+                break;
+            case PAGE_DOWN:
+                scrollTo(scrollBar.getValue() + page);
+                break;
+            case HOME:
+                scrollTo(0);
+                break;
+            case END:
+                scrollTo(scrollBar.getMax());
+                break;
+            default:
+                return;
+        }
+        event.consume();
+    }
+
+    private void scrollTo(double value) {
+        scrollBar.setValue(Math.max(scrollBar.getMin(), Math.min(scrollBar.getMax(), value)));
+    }
+}
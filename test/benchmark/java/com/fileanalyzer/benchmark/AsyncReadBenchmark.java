@@ -0,0 +1,117 @@
+package com.fileanalyzer.benchmark;
+
+import com.fileanalyzer.model.ScanResult;
+import com.fileanalyzer.service.AimdConcurrencyLimiter;
+import com.fileanalyzer.service.AsyncReadEngine;
+import com.fileanalyzer.service.DatabaseService;
+import com.fileanalyzer.service.FileAnalyzerService;
+import com.fileanalyzer.service.IoScheduler;
+import com.fileanalyzer.service.PriorityTaskExecutor;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сравнение синхронного чтения заголовков ({@link IoScheduler}) и
+ * асинхронного ({@link AsyncReadEngine}) на хранилище с большой задержкой.
+ * Задержку добавляет {@link LatencyFileSystem} к каждому открытию и чтению
+ * файлов корпуса; обход каталога выполняется заранее и в измерение не входит.
+ * Результаты всех вариантов сверяются с первым прогоном.
+ *
+ * <p>Запуск: {@code ./gradlew benchmarkAsyncReads -PlatencyMicros=2000 -PsmallFiles=20000}
+ */
+public class AsyncReadBenchmark {
+
+    private static final int[] SYNC_CONCURRENCY = {16, 64, 256};
+    private static final int[] ASYNC_OUTSTANDING = {16, 64, 256};
+
+    /**
+     * Точка входа бенчмарка.
+     *
+     * @param args каталог образцов, каталог корпуса, задержка в микросекундах, количество файлов
+     * @throws Exception если измерение не удалось
+     */
+    public static void main(String[] args) throws Exception {
+        Path samples = Paths.get(args.length > 0 ? args[0] : "test-files");
+        Path root = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("async-bench");
+        long latencyMicros = args.length > 2 ? Long.parseLong(args[2]) : 2000;
+        int smallFiles = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+
+        CorpusGenerator.Spec spec = new CorpusGenerator.Spec(smallFiles, 0, 0, 3, 0.05, 42);
+        if (new CorpusGenerator(samples, spec).generateIfMissing(root)) {
+            System.out.println("Сгенерирован корпус в " + root);
+        }
+
+        try (LatencyFileSystem fileSystem = new LatencyFileSystem(latencyMicros)) {
+            List<IoScheduler.ReadRequest> requests = requests(root, fileSystem);
+            System.out.printf("Файлов: %d, задержка операции: %d мкс%n", requests.size(), latencyMicros);
+            FileAnalyzerService analyzer = new FileAnalyzerService(new DatabaseService());
+
+            Map<Path, String> expected = null;
+            for (int concurrency : SYNC_CONCURRENCY) {
+                Map<Path, String> results = new ConcurrentHashMap<>();
+                long start = System.nanoTime();
+                try (IoScheduler scheduler = new IoScheduler(analyzer,
+                        new AimdConcurrencyLimiter(concurrency, concurrency, concurrency, 2.0),
+                        new PriorityTaskExecutor(concurrency, "sync-read"))) {
+                    scheduler.execute(requests, result -> record(results, result));
+                }
+                report("sync-threads-" + concurrency, requests.size(), start);
+                expected = verify(expected, results);
+            }
+            for (int outstanding : ASYNC_OUTSTANDING) {
+                Map<Path, String> results = new ConcurrentHashMap<>();
+                long start = System.nanoTime();
+                try (AsyncReadEngine engine = new AsyncReadEngine(analyzer, outstanding)) {
+                    engine.execute(requests, result -> record(results, result));
+                }
+                report("async-outstanding-" + outstanding, requests.size(), start);
+                expected = verify(expected, results);
+            }
+        }
+    }
+
+    /**
+     * Обходит корпус на локальной файловой системе и переносит пути
+     * в файловую систему с задержкой, сохраняя атрибуты обхода.
+     */
+    private static List<IoScheduler.ReadRequest> requests(Path root, LatencyFileSystem fileSystem)
+            throws IOException {
+        List<IoScheduler.ReadRequest> requests = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!file.getFileName().toString().equals(CorpusGenerator.MANIFEST)) {
+                    requests.add(new IoScheduler.ReadRequest(fileSystem.wrap(file), attrs));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return requests;
+    }
+
+    private static void record(Map<Path, String> results, ScanResult result) {
+        results.put(result.getPath(), result.getFileType() != null ? result.getFileType().getExtension() : "-");
+    }
+
+    private static void report(String name, int files, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-22s time=%.2fs rate=%.0f files/s%n", name, seconds, files / seconds);
+    }
+
+    private static Map<Path, String> verify(Map<Path, String> expected, Map<Path, String> results) {
+        if (expected != null && !expected.equals(results)) {
+            throw new IllegalStateException("Результаты вариантов различаются");
+        }
+        return results;
+    }
+}
@@ -0,0 +1,186 @@
+package com.fileanalyzer.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fileanalyzer.model.ScanResult;
+import com.fileanalyzer.service.AnalyzerStatistics;
+import com.fileanalyzer.service.BatchScanService;
+import com.fileanalyzer.service.DatabaseService;
+import com.fileanalyzer.service.FileAnalyzerService;
+import com.fileanalyzer.service.IoScheduler;
+import com.fileanalyzer.service.LatencyHistogram;
+import com.fileanalyzer.service.ScanResultFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сквозное измерение пакетного анализа на сгенерированном корпусе
+ * ({@link CorpusGenerator}): обход дерева, чтение заголовков, сопоставление
+ * сигнатур и запись отчета в файл результатов.
+ *
+ * <p>Для каждого прогона фиксируются файлы в секунду, МБ/с (по размеру
+ * файлов корпуса и по фактически прочитанным байтам), p50/p99 задержки
+ * обработки файла и пиковый объем резидентной памяти. Перед прогоном пик
+ * сбрасывается записью в {@code /proc/self/clear_refs}, если ядро это
+ * позволяет. Результаты дописываются строкой JSON в файл результатов
+ * (по строке на запуск бенчмарка), поэтому запуски разных версий можно
+ * сравнивать между собой.
+ *
+ * <p>Запуск: {@code ./gradlew benchmarkCorpus -PcorpusDir=<каталог>
+ * -PsmallFiles=1000000 -PbenchmarkLabel=<версия>}.
+ */
+public class CorpusBenchmark {
+
+    /**
+     * Точка входа бенчмарка.
+     *
+     * @param args параметры вида {@code --имя значение}: samples, corpus, small, huge,
+     *             huge-size, depth, corrupt, seed, runs, results, label
+     * @throws Exception если измерение не удалось
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        Path samples = Paths.get(options.getOrDefault("samples", "test-files"));
+        Path corpus = Paths.get(options.getOrDefault("corpus", "build/corpus"));
+        Path results = Paths.get(options.getOrDefault("results", "build/benchmark-results/corpus.jsonl"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "3"));
+        CorpusGenerator.Spec spec = new CorpusGenerator.Spec(
+                Integer.parseInt(options.getOrDefault("small", "1000000")),
+                Integer.parseInt(options.getOrDefault("huge", "2")),
+                Long.parseLong(options.getOrDefault("huge-size", Long.toString(512L * 1024 * 1024))),
+                Integer.parseInt(options.getOrDefault("depth", "6")),
+                Double.parseDouble(options.getOrDefault("corrupt", "0.02")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+
+        long start = System.nanoTime();
+        if (new CorpusGenerator(samples, spec).generateIfMissing(corpus)) {
+            System.out.printf("Корпус создан в %s за %.1f с%n", corpus, (System.nanoTime() - start) / 1e9);
+        }
+
+        FileAnalyzerService analyzer = new FileAnalyzerService(new DatabaseService());
+        Path report = Files.createTempFile("corpus-report", ".tsv");
+        List<Map<String, Object>> measurements = new ArrayList<>();
+        try {
+            for (int run = 0; run < runs; run++) {
+                Map<String, Object> measurement = run(analyzer, corpus, report);
+                measurements.add(measurement);
+                System.out.printf("прогон %d: %s%n", run, measurement);
+            }
+        } finally {
+            Files.deleteIfExists(report);
+        }
+
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("label", options.getOrDefault("label", "dev"));
+        record.put("timestamp", Instant.now().toString());
+        record.put("java", System.getProperty("java.version"));
+        record.put("os", System.getProperty("os.name") + " " + System.getProperty("os.version"));
+        record.put("cores", Runtime.getRuntime().availableProcessors());
+        record.put("corpus", new TreeMap<>(spec.toProperties()));
+        record.put("runs", measurements);
+        // Итог - прогон с медианной скоростью: первый прогон обычно идет с холодным кэшем
+        List<Map<String, Object>> sorted = new ArrayList<>(measurements);
+        sorted.sort(Comparator.comparingDouble(m -> (Double) m.get("filesPerSecond")));
+        record.put("median", sorted.get(sorted.size() / 2));
+
+        Files.createDirectories(results.toAbsolutePath().getParent());
+        String line = new ObjectMapper().writeValueAsString(record) + System.lineSeparator();
+        Files.write(results, line.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.out.println("Результаты дописаны в " + results);
+    }
+
+    private static Map<String, Object> run(FileAnalyzerService analyzer, Path corpus, Path report)
+            throws IOException {
+        boolean peakReset = resetPeakRss();
+        AnalyzerStatistics statistics = analyzer.getStatistics();
+        statistics.reset();
+        LongAdder corpusBytes = new LongAdder();
+
+        long files;
+        long start = System.nanoTime();
+        LatencyHistogram latencies;
+        try (IoScheduler scheduler = new IoScheduler(analyzer);
+             ScanResultFile output = new ScanResultFile(report, 0)) {
+            BatchScanService batch = new BatchScanService(analyzer, scheduler);
+            files = batch.scan(corpus, result -> write(output, result, corpusBytes));
+            output.commit(false);
+            latencies = scheduler.getLatencyHistogram();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Object> measurement = new LinkedHashMap<>();
+        measurement.put("files", files);
+        measurement.put("seconds", round(seconds));
+        measurement.put("filesPerSecond", round(files / seconds));
+        measurement.put("corpusMBPerSecond", round(corpusBytes.sum() / seconds / (1024 * 1024)));
+        measurement.put("readMBPerSecond", round(statistics.getBytesRead() / seconds / (1024 * 1024)));
+        measurement.put("p50Micros", round(latencies.getPercentile(50) / 1000.0));
+        measurement.put("p99Micros", round(latencies.getPercentile(99) / 1000.0));
+        measurement.put("peakRssMB", round(readPeakRssKilobytes() / 1024.0));
+        measurement.put("peakRssReset", peakReset);
+        return measurement;
+    }
+
+    private static void write(ScanResultFile output, ScanResult result, LongAdder corpusBytes) {
+        corpusBytes.add(result.getSize());
+        // Получатель вызывается из потоков чтения, файл результатов не потокобезопасен
+        synchronized (output) {
+            output.accept(result);
+        }
+    }
+
+    /**
+     * Сбрасывает пиковый объем резидентной памяти процесса (Linux 4.0+).
+     *
+     * @return true, если сброс выполнен
+     */
+    private static boolean resetPeakRss() {
+        try {
+            Files.write(Paths.get("/proc/self/clear_refs"), "5".getBytes(StandardCharsets.US_ASCII));
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static long readPeakRssKilobytes() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // /proc недоступен
+        }
+        return 0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Ожидался параметр вида --имя: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,193 @@
+package com.fileanalyzer.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Генератор воспроизводимого корпуса для сквозных измерений анализа:
+ * множество маленьких файлов в глубоком дереве каталогов, несколько очень
+ * больших файлов и доля поврежденных файлов (обрезанных до части заголовка
+ * или с испорченной сигнатурой). Заголовки, как и в
+ * {@link SyntheticTreeGenerator}, берутся из образцов test-files.
+ *
+ * <p>Параметры корпуса сохраняются в {@value #MANIFEST} в корне; если
+ * каталог уже содержит корпус с теми же параметрами, генерация пропускается.
+ */
+public class CorpusGenerator extends SyntheticTreeGenerator {
+
+    /** Файл с параметрами сгенерированного корпуса. */
+    public static final String MANIFEST = "corpus.properties";
+
+    /** Количество подкаталогов на каждом уровне дерева. */
+    private static final int FANOUT = 8;
+    /** Количество файлов в листовом каталоге. */
+    private static final int FILES_PER_DIRECTORY = 200;
+    private static final int MIN_SMALL_SIZE = 256;
+    private static final int MAX_SMALL_SIZE = 16 * 1024;
+    /** Длина начала файла, в которой портится сигнатура. */
+    private static final int DAMAGED_PREFIX = 16;
+
+    private final Spec spec;
+
+    /**
+     * Параметры корпуса.
+     */
+    public static final class Spec {
+        final int smallFiles;
+        final int hugeFiles;
+        final long hugeFileSize;
+        final int depth;
+        final double corruptShare;
+        final long seed;
+
+        /**
+         * Конструктор параметров.
+         *
+         * @param smallFiles количество маленьких файлов (256 байт - 16 КБ)
+         * @param hugeFiles количество больших файлов
+         * @param hugeFileSize размер большого файла в байтах
+         * @param depth глубина дерева каталогов
+         * @param corruptShare доля поврежденных маленьких файлов (0-1)
+         * @param seed начальное значение генератора случайных чисел
+         */
+        public Spec(int smallFiles, int hugeFiles, long hugeFileSize, int depth, double corruptShare, long seed) {
+            this.smallFiles = smallFiles;
+            this.hugeFiles = hugeFiles;
+            this.hugeFileSize = hugeFileSize;
+            this.depth = Math.max(1, depth);
+            this.corruptShare = corruptShare;
+            this.seed = seed;
+        }
+
+        /**
+         * @return параметры в виде свойств манифеста
+         */
+        public Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("smallFiles", Integer.toString(smallFiles));
+            properties.setProperty("hugeFiles", Integer.toString(hugeFiles));
+            properties.setProperty("hugeFileSize", Long.toString(hugeFileSize));
+            properties.setProperty("depth", Integer.toString(depth));
+            properties.setProperty("corruptShare", Double.toString(corruptShare));
+            properties.setProperty("seed", Long.toString(seed));
+            return properties;
+        }
+    }
+
+    /**
+     * Конструктор генератора.
+     *
+     * @param samplesDir каталог с образцами файлов (обычно test-files)
+     * @param spec параметры корпуса
+     * @throws IOException если образцы не удалось прочитать
+     */
+    public CorpusGenerator(Path samplesDir, Spec spec) throws IOException {
+        super(samplesDir, spec.seed);
+        this.spec = spec;
+    }
+
+    /**
+     * Генерирует корпус, если каталог не содержит корпус с теми же параметрами.
+     *
+     * @param root корневой каталог корпуса
+     * @return true, если корпус был сгенерирован
+     * @throws IOException если не удалось записать файлы
+     */
+    public boolean generateIfMissing(Path root) throws IOException {
+        Path manifest = root.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            Properties existing = new Properties();
+            try (Reader reader = Files.newBufferedReader(manifest)) {
+                existing.load(reader);
+            }
+            if (existing.equals(spec.toProperties())) {
+                return false;
+            }
+            throw new IOException("Каталог содержит корпус с другими параметрами: " + root);
+        }
+
+        Random random = getRandom();
+        for (int i = 0; i < spec.smallFiles; i++) {
+            Path file = directoryFor(root, i / FILES_PER_DIRECTORY).resolve("f" + i);
+            // Размер распределен логарифмически: маленьких файлов больше
+            int size = (int) (MIN_SMALL_SIZE * Math.pow((double) MAX_SMALL_SIZE / MIN_SMALL_SIZE, random.nextDouble()));
+            if (random.nextDouble() < spec.corruptShare) {
+                writeCorrupt(file, size, random);
+            } else {
+                writeFile(file, size);
+            }
+        }
+        for (int i = 0; i < spec.hugeFiles; i++) {
+            writeFile(root.resolve("huge").resolve("huge" + i), spec.hugeFileSize);
+        }
+
+        // Манифест пишется последним: прерванная генерация не считается готовым корпусом
+        try (Writer writer = Files.newBufferedWriter(manifest)) {
+            spec.toProperties().store(writer, "Параметры корпуса CorpusGenerator");
+        }
+        return true;
+    }
+
+    /**
+     * Каталог листа дерева: номер каталога записывается цифрами по основанию
+     * {@link #FANOUT}, по одной на уровень.
+     */
+    private Path directoryFor(Path root, int directory) {
+        Path path = root.resolve("tree");
+        int value = directory;
+        for (int level = 0; level < spec.depth; level++) {
+            path = path.resolve("n" + value % FANOUT);
+            value /= FANOUT;
+        }
+        return value == 0 ? path : path.resolve("x" + value);
+    }
+
+    /**
+     * Записывает поврежденный файл: либо только первые байты заголовка
+     * образца (файл обрезан), либо полный файл с испорченными байтами
+     * в начале.
+     */
+    private void writeCorrupt(Path file, int size, Random random) throws IOException {
+        Files.createDirectories(file.getParent());
+        byte[] header = getSampleHeaders().get(random.nextInt(getSampleHeaders().size()));
+        byte[] content;
+        if (random.nextBoolean()) {
+            content = new byte[Math.min(header.length, random.nextInt(DAMAGED_PREFIX))];
+            System.arraycopy(header, 0, content, 0, content.length);
+        } else {
+            content = new byte[size];
+            random.nextBytes(content);
+            System.arraycopy(header, 0, content, 0, Math.min(header.length, size));
+            int damaged = Math.min(DAMAGED_PREFIX, size);
+            for (int i = 0; i < 3 && damaged > 0; i++) {
+                content[random.nextInt(damaged)] ^= (byte) (1 + random.nextInt(255));
+            }
+        }
+        Files.write(file, content);
+    }
+
+    /**
+     * Генерирует корпус из командной строки.
+     *
+     * @param args каталог образцов, целевой каталог, число маленьких файлов,
+     *             число больших файлов, размер большого файла, глубина, доля поврежденных
+     * @throws IOException если генерация не удалась
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 7) {
+            System.err.println("Использование: <test-files> <каталог> <маленьких> <больших> <размер большого>"
+                    + " <глубина> <доля поврежденных>");
+            System.exit(2);
+        }
+        Spec spec = new Spec(Integer.parseInt(args[2]), Integer.parseInt(args[3]), Long.parseLong(args[4]),
+                Integer.parseInt(args[5]), Double.parseDouble(args[6]), 42);
+        boolean generated = new CorpusGenerator(Paths.get(args[0]), spec).generateIfMissing(Paths.get(args[1]));
+        System.out.println(generated ? "Корпус создан" : "Корпус с такими параметрами уже существует");
+    }
+}
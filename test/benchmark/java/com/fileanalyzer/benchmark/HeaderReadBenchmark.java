@@ -0,0 +1,112 @@
+package com.fileanalyzer.benchmark;
+
+import com.fileanalyzer.service.DatabaseService;
+import com.fileanalyzer.service.FileAnalyzerService;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Сравнение нагрузки на сборщик мусора при чтении заголовков:
+ * прежний путь (чтение файла целиком, {@code Arrays.copyOf}, новый массив на файл)
+ * и чтение в переиспользуемый прямой буфер контекста потока.
+ *
+ * <p>Выполняет заданное количество анализов (по умолчанию миллион) по кругу
+ * над сгенерированным набором файлов и выводит время, объем выделенной памяти
+ * и количество сборок мусора. Для подробного журнала GC задача Gradle
+ * {@code benchmarkHeaderReads} запускает JVM с {@code -Xlog:gc}.
+ */
+public class HeaderReadBenchmark {
+
+    private static final int DISTINCT_FILES = 1000;
+    private static final int FILE_SIZE = 16 * 1024;
+
+    /**
+     * Точка входа бенчмарка.
+     *
+     * @param args каталог образцов и необязательное количество анализов
+     * @throws Exception если измерение не удалось
+     */
+    public static void main(String[] args) throws Exception {
+        Path samples = Paths.get(args.length > 0 ? args[0] : "test-files");
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        Path root = Files.createTempDirectory("header-bench");
+        SyntheticTreeGenerator generator = new SyntheticTreeGenerator(samples, 42);
+        Path[] files = new Path[DISTINCT_FILES];
+        for (int i = 0; i < DISTINCT_FILES; i++) {
+            files[i] = generator.writeFile(root.resolve("file" + i), FILE_SIZE);
+        }
+
+        DatabaseService database = new DatabaseService();
+        FileAnalyzerService analyzer = new FileAnalyzerService(database);
+
+        // Прогрев JIT для обоих вариантов
+        runLegacy(database, files, iterations / 10);
+        runReadContext(analyzer, files, iterations / 10);
+
+        measure("legacy-copy", () -> runLegacy(database, files, iterations));
+        measure("read-context", () -> runReadContext(analyzer, files, iterations));
+
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        Files.delete(root);
+    }
+
+    private interface Body {
+        long run() throws Exception;
+    }
+
+    private static long runLegacy(DatabaseService database, Path[] files, int iterations) throws Exception {
+        long detected = 0;
+        for (int i = 0; i < iterations; i++) {
+            byte[] all = Files.readAllBytes(files[i % files.length]);
+            byte[] header = Arrays.copyOf(all, Math.min(all.length, FileAnalyzerService.HEADER_SIZE));
+            if (database.findFileTypeByMagicNumbers(header, header.length).isPresent()) {
+                detected++;
+            }
+        }
+        return detected;
+    }
+
+    private static long runReadContext(FileAnalyzerService analyzer, Path[] files, int iterations) throws Exception {
+        long detected = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (analyzer.analyzePath(files[i % files.length]).isPresent()) {
+                detected++;
+            }
+        }
+        return detected;
+    }
+
+    private static void measure(String name, Body body) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long gcBefore = gcCount();
+
+        long start = System.nanoTime();
+        long detected = body.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.printf("%-14s detected=%d time=%.2fs allocated=%dMB gc-count=%d%n",
+                name, detected, seconds, allocated / (1024 * 1024), gcCount() - gcBefore);
+    }
+
+    private static long gcCount() {
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+}
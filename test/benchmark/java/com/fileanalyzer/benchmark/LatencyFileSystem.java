@@ -0,0 +1,583 @@
+package com.fileanalyzer.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Локальная замена сетевого хранилища для измерений: файловая система
+ * поверх файловой системы по умолчанию, добавляющая задержку к открытию
+ * файла и к каждому чтению. Синхронные операции ждут в вызывающем потоке;
+ * асинхронное чтение {@link AsynchronousFileChannel} откладывается таймером
+ * и не занимает поток на время задержки, как запрос к удаленному серверу.
+ *
+ * <p>Поддерживаются только операции, нужные для анализа: открытие каналов
+ * для чтения и чтение атрибутов. Пути получаются через {@link #wrap(Path)}.
+ */
+public class LatencyFileSystem extends FileSystem {
+
+    private final FileSystem delegate = FileSystems.getDefault();
+    private final Provider provider = new Provider();
+    private final long latencyNanos;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "latency-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Конструктор файловой системы с задержкой.
+     *
+     * @param latencyMicros задержка одной операции в микросекундах
+     */
+    public LatencyFileSystem(long latencyMicros) {
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+    }
+
+    /**
+     * Возвращает путь этой файловой системы для локального пути.
+     *
+     * @param path путь файловой системы по умолчанию
+     * @return путь с задержкой операций
+     */
+    public Path wrap(Path path) {
+        return new LatencyPath(this, path);
+    }
+
+    private void delay() {
+        long deadline = System.nanoTime() + latencyNanos;
+        for (long left = latencyNanos; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+    }
+
+    private static Path unwrap(Path path) {
+        return path instanceof LatencyPath ? ((LatencyPath) path).delegate : path;
+    }
+
+    @Override
+    public FileSystemProvider provider() {
+        return provider;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !timer.isShutdown();
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public String getSeparator() {
+        return delegate.getSeparator();
+    }
+
+    @Override
+    public Iterable<Path> getRootDirectories() {
+        List<Path> roots = new ArrayList<>();
+        delegate.getRootDirectories().forEach(root -> roots.add(wrap(root)));
+        return roots;
+    }
+
+    @Override
+    public Iterable<FileStore> getFileStores() {
+        return delegate.getFileStores();
+    }
+
+    @Override
+    public Set<String> supportedFileAttributeViews() {
+        return delegate.supportedFileAttributeViews();
+    }
+
+    @Override
+    public Path getPath(String first, String... more) {
+        return wrap(delegate.getPath(first, more));
+    }
+
+    @Override
+    public PathMatcher getPathMatcher(String syntaxAndPattern) {
+        PathMatcher matcher = delegate.getPathMatcher(syntaxAndPattern);
+        return path -> matcher.matches(unwrap(path));
+    }
+
+    @Override
+    public UserPrincipalLookupService getUserPrincipalLookupService() {
+        return delegate.getUserPrincipalLookupService();
+    }
+
+    @Override
+    public WatchService newWatchService() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Путь файловой системы с задержкой.
+     */
+    private static final class LatencyPath implements Path {
+        private final LatencyFileSystem fileSystem;
+        private final Path delegate;
+
+        LatencyPath(LatencyFileSystem fileSystem, Path delegate) {
+            this.fileSystem = fileSystem;
+            this.delegate = delegate;
+        }
+
+        private Path wrap(Path path) {
+            return path != null ? new LatencyPath(fileSystem, path) : null;
+        }
+
+        @Override
+        public FileSystem getFileSystem() {
+            return fileSystem;
+        }
+
+        @Override
+        public boolean isAbsolute() {
+            return delegate.isAbsolute();
+        }
+
+        @Override
+        public Path getRoot() {
+            return wrap(delegate.getRoot());
+        }
+
+        @Override
+        public Path getFileName() {
+            return wrap(delegate.getFileName());
+        }
+
+        @Override
+        public Path getParent() {
+            return wrap(delegate.getParent());
+        }
+
+        @Override
+        public int getNameCount() {
+            return delegate.getNameCount();
+        }
+
+        @Override
+        public Path getName(int index) {
+            return wrap(delegate.getName(index));
+        }
+
+        @Override
+        public Path subpath(int beginIndex, int endIndex) {
+            return wrap(delegate.subpath(beginIndex, endIndex));
+        }
+
+        @Override
+        public boolean startsWith(Path other) {
+            return delegate.startsWith(unwrap(other));
+        }
+
+        @Override
+        public boolean endsWith(Path other) {
+            return delegate.endsWith(unwrap(other));
+        }
+
+        @Override
+        public Path normalize() {
+            return wrap(delegate.normalize());
+        }
+
+        @Override
+        public Path resolve(Path other) {
+            return wrap(delegate.resolve(unwrap(other)));
+        }
+
+        @Override
+        public Path relativize(Path other) {
+            return wrap(delegate.relativize(unwrap(other)));
+        }
+
+        @Override
+        public URI toUri() {
+            return delegate.toUri();
+        }
+
+        @Override
+        public Path toAbsolutePath() {
+            return wrap(delegate.toAbsolutePath());
+        }
+
+        @Override
+        public Path toRealPath(LinkOption... options) throws IOException {
+            return wrap(delegate.toRealPath(options));
+        }
+
+        @Override
+        public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int compareTo(Path other) {
+            return delegate.compareTo(unwrap(other));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof LatencyPath && delegate.equals(((LatencyPath) other).delegate);
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    /**
+     * Провайдер, добавляющий задержку к открытию и чтению.
+     */
+    private final class Provider extends FileSystemProvider {
+        private final FileSystemProvider delegateProvider = delegate.provider();
+
+        @Override
+        public String getScheme() {
+            return "latency";
+        }
+
+        @Override
+        public FileSystem newFileSystem(URI uri, Map<String, ?> env) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileSystem getFileSystem(URI uri) {
+            return LatencyFileSystem.this;
+        }
+
+        @Override
+        public Path getPath(URI uri) {
+            return wrap(delegateProvider.getPath(uri));
+        }
+
+        @Override
+        public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options,
+                                                  FileAttribute<?>... attrs) throws IOException {
+            return newFileChannel(path, options, attrs);
+        }
+
+        @Override
+        public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options,
+                                          FileAttribute<?>... attrs) throws IOException {
+            delay();
+            return new LatencyFileChannel(delegateProvider.newFileChannel(unwrap(path), options, attrs));
+        }
+
+        @Override
+        public AsynchronousFileChannel newAsynchronousFileChannel(Path path, Set<? extends OpenOption> options,
+                                                                  ExecutorService executor,
+                                                                  FileAttribute<?>... attrs) throws IOException {
+            // Открытие файла синхронно и на сетевом хранилище
+            delay();
+            return new LatencyAsyncChannel(
+                    delegateProvider.newAsynchronousFileChannel(unwrap(path), options, executor, attrs));
+        }
+
+        @Override
+        public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void createDirectory(Path dir, FileAttribute<?>... attrs) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(Path path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void copy(Path source, Path target, CopyOption... options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void move(Path source, Path target, CopyOption... options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isSameFile(Path path, Path path2) throws IOException {
+            return delegateProvider.isSameFile(unwrap(path), unwrap(path2));
+        }
+
+        @Override
+        public boolean isHidden(Path path) throws IOException {
+            return delegateProvider.isHidden(unwrap(path));
+        }
+
+        @Override
+        public FileStore getFileStore(Path path) throws IOException {
+            return delegateProvider.getFileStore(unwrap(path));
+        }
+
+        @Override
+        public void checkAccess(Path path, AccessMode... modes) throws IOException {
+            delay();
+            delegateProvider.checkAccess(unwrap(path), modes);
+        }
+
+        @Override
+        public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type,
+                                                                    LinkOption... options) {
+            return delegateProvider.getFileAttributeView(unwrap(path), type, options);
+        }
+
+        @Override
+        public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type,
+                                                                LinkOption... options) throws IOException {
+            delay();
+            return delegateProvider.readAttributes(unwrap(path), type, options);
+        }
+
+        @Override
+        public Map<String, Object> readAttributes(Path path, String attributes,
+                                                  LinkOption... options) throws IOException {
+            delay();
+            return delegateProvider.readAttributes(unwrap(path), attributes, options);
+        }
+
+        @Override
+        public void setAttribute(Path path, String attribute, Object value, LinkOption... options) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Синхронный канал: каждое чтение ждет задержку в вызывающем потоке.
+     */
+    private final class LatencyFileChannel extends FileChannel {
+        private final FileChannel channel;
+
+        LatencyFileChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            delay();
+            return channel.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            delay();
+            return channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            delay();
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            channel.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            delay();
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            delay();
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Асинхронный канал: чтение запускается по таймеру после задержки,
+     * поток на время задержки не занимается.
+     */
+    private final class LatencyAsyncChannel extends AsynchronousFileChannel {
+        private final AsynchronousFileChannel channel;
+
+        LatencyAsyncChannel(AsynchronousFileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public <A> void read(ByteBuffer dst, long position, A attachment,
+                             CompletionHandler<Integer, ? super A> handler) {
+            timer.schedule(() -> channel.read(dst, position, attachment, handler), latencyNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public Future<Integer> read(ByteBuffer dst, long position) {
+            return timer.schedule(() -> {
+                try {
+                    return channel.read(dst, position).get();
+                } catch (ExecutionException e) {
+                    throw new IOException(e.getCause());
+                }
+            }, latencyNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public AsynchronousFileChannel truncate(long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            channel.force(metaData);
+        }
+
+        @Override
+        public <A> void lock(long position, long size, boolean shared, A attachment,
+                             CompletionHandler<FileLock, ? super A> handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Future<FileLock> lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <A> void write(ByteBuffer src, long position, A attachment,
+                              CompletionHandler<Integer, ? super A> handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Future<Integer> write(ByteBuffer src, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.fileanalyzer.benchmark;
+
+import com.fileanalyzer.service.CompiledSignatures;
+import com.fileanalyzer.service.DatabaseService;
+import com.fileanalyzer.service.PrefixResultCache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Сопоставление заголовков со скомпилированными сигнатурами напрямую и через
+ * кэш префиксов на синтетическом наборе с перекошенным распределением:
+ * несколько десятков типичных заголовков (JPEG JFIF/Exif, PNG, PDF разных
+ * версий, ZIP, MP3, MP4) выбираются по закону Ципфа, а заданная доля
+ * заголовков уникальна (текстовые файлы и фрагменты без сигнатуры).
+ *
+ * <p>Запуск: {@code ./gradlew benchmarkPrefixCache}; необязательные аргументы -
+ * доля уникальных заголовков и количество заголовков в наборе.
+ */
+public class PrefixCacheBenchmark {
+
+    private static final int ROUNDS = 7;
+    private static final double ZIPF_EXPONENT = 1.2;
+
+    /**
+     * Точка входа бенчмарка.
+     *
+     * @param args доля уникальных заголовков и размер набора
+     */
+    public static void main(String[] args) {
+        double uniqueShare = args.length > 0 ? Double.parseDouble(args[0]) : 0.05;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20;
+
+        DatabaseService database = new DatabaseService();
+        CompiledSignatures signatures = database.getCompiledSignatures();
+        int window = Math.min(database.getMaxSignatureWindow(), PrefixResultCache.MAX_KEY_BYTES);
+        ByteBuffer corpus = generate(count, window, uniqueShare, new Random(42));
+        ByteBuffer header = corpus.duplicate();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (int i = 0; i < count; i++) {
+                checksum += signatures.match(header.position(i * window).slice(), window);
+            }
+            double matcherNanos = (System.nanoTime() - start) / (double) count;
+
+            PrefixResultCache cache = new PrefixResultCache(PrefixResultCache.DEFAULT_MAX_ENTRIES);
+            long hits = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                ByteBuffer slice = header.position(i * window).slice();
+                int typeId = cache.lookup(slice, window);
+                if (typeId == PrefixResultCache.MISS) {
+                    typeId = signatures.match(slice, window);
+                    cache.put(slice, window, typeId);
+                } else {
+                    hits++;
+                }
+                checksum -= typeId;
+            }
+            double cacheNanos = (System.nanoTime() - start) / (double) count;
+
+            System.out.printf("раунд %d: сопоставление %.1f нс, с кэшем %.1f нс на заголовок, "
+                            + "попаданий %.1f%%, вытеснений %d (контроль %d)%n",
+                    round, matcherNanos, cacheNanos, 100.0 * hits / count, cache.getEvictions(), checksum);
+        }
+    }
+
+    /**
+     * Формирует набор заголовков длиной окна, записанных подряд в один буфер.
+     */
+    private static ByteBuffer generate(int count, int window, double uniqueShare, Random random) {
+        byte[][] prefixes = commonPrefixes(window, random);
+        double[] cumulative = new double[prefixes.length];
+        double total = 0;
+        for (int rank = 0; rank < prefixes.length; rank++) {
+            total += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = total;
+        }
+
+        ByteBuffer corpus = ByteBuffer.allocateDirect(count * window);
+        byte[] unique = new byte[window];
+        for (int i = 0; i < count; i++) {
+            if (random.nextDouble() < uniqueShare) {
+                random.nextBytes(unique);
+                corpus.put(unique);
+                continue;
+            }
+            double point = random.nextDouble() * total;
+            int rank = 0;
+            while (cumulative[rank] < point) {
+                rank++;
+            }
+            corpus.put(prefixes[rank]);
+        }
+        return corpus.flip();
+    }
+
+    /**
+     * Типичные начала файлов распространенных форматов и их вариации
+     * (длина сегмента JFIF, версия PDF, флаги ZIP, бренд MP4).
+     */
+    private static byte[][] commonPrefixes(int window, Random random) {
+        String[] templates = {
+                "FF D8 FF E0 00 10 4A 46 49 46 00 01",
+                "FF D8 FF E1 1F FE 45 78 69 66 00 00",
+                "FF D8 FF E1 2A 40 45 78 69 66 00 00",
+                "89 50 4E 47 0D 0A 1A 0A 00 00 00 0D",
+                "FF D8 FF DB 00 84 00 06 04 05 06 05",
+                "25 50 44 46 2D 31 2E 34 0A 25 E2 E3",
+                "25 50 44 46 2D 31 2E 37 0D 0A 25 B5",
+                "50 4B 03 04 14 00 06 00 08 00 00 00",
+                "50 4B 03 04 0A 00 00 00 00 00 87 4E",
+                "49 44 33 03 00 00 00 00 1F 76 54 49",
+                "49 44 33 04 00 00 00 00 00 23 54 53",
+                "00 00 00 20 66 74 79 70 69 73 6F 6D",
+                "00 00 00 18 66 74 79 70 6D 70 34 32",
+                "FF FB 90 64 00 00 00 00 00 00 00 00",
+        };
+        byte[][] prefixes = new byte[templates.length + 20][];
+        for (int i = 0; i < templates.length; i++) {
+            String[] hex = templates[i].split(" ");
+            prefixes[i] = new byte[window];
+            for (int j = 0; j < Math.min(window, hex.length); j++) {
+                prefixes[i][j] = (byte) Integer.parseInt(hex[j], 16);
+            }
+        }
+        // Частые начала текстовых файлов
+        String[] texts = {"<?xml version", "<!DOCTYPE html", "{\n  \"name\"", "# README", "import java.",
+                "package com.", "#!/bin/bash\n", "<html>\n<head", "id,name,value", "[Settings]\n"};
+        for (int i = 0; i < 20; i++) {
+            byte[] text = texts[i % texts.length].getBytes(StandardCharsets.US_ASCII);
+            prefixes[templates.length + i] = new byte[window];
+            System.arraycopy(text, 0, prefixes[templates.length + i], 0, Math.min(window, text.length));
+            if (i >= texts.length) {
+                prefixes[templates.length + i][window - 1] = (byte) ('a' + random.nextInt(26));
+            }
+        }
+        return prefixes;
+    }
+}
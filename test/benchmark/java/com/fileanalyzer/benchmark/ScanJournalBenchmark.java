@@ -0,0 +1,79 @@
+package com.fileanalyzer.benchmark;
+
+import com.fileanalyzer.service.BatchScanService;
+import com.fileanalyzer.service.DatabaseService;
+import com.fileanalyzer.service.FileAnalyzerService;
+import com.fileanalyzer.service.ScanJournal;
+import com.fileanalyzer.service.ScanResultFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Накладные расходы контрольных точек: пакетный анализ в файл результатов
+ * без журнала и с журналом (настройки по умолчанию). Прогоны чередуются,
+ * чтобы прогрев JIT и кэша страниц не влиял на сравнение.
+ *
+ * <p>Запуск: {@code ./gradlew benchmarkJournal -PbenchmarkDir=<каталог>}
+ */
+public class ScanJournalBenchmark {
+
+    private static final int SMALL_FILES = 100_000;
+    private static final int ROUNDS = 5;
+
+    /**
+     * Точка входа бенчмарка.
+     *
+     * @param args каталог образцов и необязательный рабочий каталог
+     * @throws Exception если измерение не удалось
+     */
+    public static void main(String[] args) throws Exception {
+        Path samples = Paths.get(args.length > 0 ? args[0] : "test-files");
+        Path root = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("journal-bench");
+        if (!Files.exists(root.resolve("d0"))) {
+            System.out.println("Генерация дерева в " + root + "...");
+            new SyntheticTreeGenerator(samples, 42).generate(root, SMALL_FILES, 0, 0);
+        }
+        Path output = Files.createTempFile("journal-bench", ".tsv");
+        Path journalFile = Files.createTempFile("journal-bench", ".journal");
+
+        BatchScanService batch = new BatchScanService(new FileAnalyzerService(new DatabaseService()));
+        double plain = 0;
+        double journaled = 0;
+        long checkpoints = 0;
+        long syncs = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            try (ScanResultFile file = new ScanResultFile(output, 0)) {
+                batch.scan(root, file);
+                file.commit(true);
+            }
+            double plainSeconds = (System.nanoTime() - start) / 1e9;
+
+            Files.deleteIfExists(journalFile);
+            start = System.nanoTime();
+            try (ScanJournal journal = ScanJournal.open(journalFile, root);
+                 ScanResultFile file = new ScanResultFile(output, 0)) {
+                batch.scan(root, file, journal);
+                checkpoints = journal.getCheckpoints();
+                syncs = journal.getSyncs();
+            }
+            double journaledSeconds = (System.nanoTime() - start) / 1e9;
+
+            // Первый раунд - прогрев
+            if (round > 0) {
+                plain += plainSeconds;
+                journaled += journaledSeconds;
+            }
+            System.out.printf("раунд %d: без журнала %.2fs, с журналом %.2fs%n", round, plainSeconds, journaledSeconds);
+        }
+
+        System.out.printf("Итого: без журнала %.2fs, с журналом %.2fs, накладные расходы %.1f%% "
+                        + "(контрольных точек %d, fsync %d, журнал %d байт)%n",
+                plain, journaled, (journaled / plain - 1) * 100, checkpoints, syncs, Files.size(journalFile));
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(journalFile);
+    }
+}
@@ -0,0 +1,137 @@
+package com.fileanalyzer.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Время холодного запуска консольного анализа и пиковый объем резидентной
+ * памяти: от запуска процесса до его завершения после {@code scan}
+ * небольшого каталога. Каждый вариант (JVM, JVM с архивом AppCDS и, если
+ * указан, native-образ) запускается отдельным процессом несколько раз,
+ * запуски вариантов чередуются; выводятся медиана и минимум.
+ *
+ * <p>Пиковая память читается из {@code VmHWM} в {@code /proc/<pid>/status},
+ * который опрашивается, пока процесс жив, поэтому измеряется только в Linux
+ * и может немного занижаться для очень коротких процессов.
+ *
+ * <p>Запуск: {@code ./gradlew benchmarkStartup} (архив создается задачей
+ * {@code cdsArchiveHeadless}) или {@code ./gradlew benchmarkNative} для
+ * сравнения с native-образом задачи {@code nativeImage}.
+ */
+public class StartupBenchmark {
+
+    private static final int RUNS = 15;
+    private static final long POLL_MILLIS = 2;
+
+    /**
+     * Точка входа бенчмарка.
+     *
+     * @param args архив AppCDS, classpath приложения, каталог для анализа
+     *             и необязательно {@code --native <исполняемый файл>}
+     * @throws Exception если запуск не удался
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Аргументы: <архив.jsa> <classpath> <каталог> [--native <файл>]");
+            System.exit(2);
+        }
+        Path archive = Paths.get(args[0]);
+        String classpath = args[1];
+        String directory = args[2];
+        Path nativeImage = args.length > 4 && "--native".equals(args[3]) ? Paths.get(args[4]) : null;
+        if (!Files.exists(archive)) {
+            System.err.println("Архив не найден: " + archive);
+            System.exit(2);
+        }
+        if (nativeImage != null && !Files.isExecutable(nativeImage)) {
+            System.err.println("Native-образ не найден: " + nativeImage);
+            System.exit(2);
+        }
+
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        List<String> plain = List.of(java, "-cp", classpath, "com.fileanalyzer.HeadlessApp", "scan", directory);
+        List<String> shared = new ArrayList<>(plain);
+        shared.add(1, "-XX:SharedArchiveFile=" + archive);
+        variants.put("без архива", plain);
+        variants.put("с AppCDS", shared);
+        if (nativeImage != null) {
+            variants.put("native", List.of(nativeImage.toString(), "scan", directory));
+        }
+
+        // Первый запуск каждого варианта прогревает кэш страниц и не учитывается
+        for (List<String> command : variants.values()) {
+            run(command);
+        }
+        Map<String, long[]> millis = new LinkedHashMap<>();
+        Map<String, long[]> kilobytes = new LinkedHashMap<>();
+        for (String name : variants.keySet()) {
+            millis.put(name, new long[RUNS]);
+            kilobytes.put(name, new long[RUNS]);
+        }
+        for (int i = 0; i < RUNS; i++) {
+            for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+                long[] sample = run(variant.getValue());
+                millis.get(variant.getKey())[i] = sample[0];
+                kilobytes.get(variant.getKey())[i] = sample[1];
+            }
+        }
+        for (String name : variants.keySet()) {
+            report(name, millis.get(name), kilobytes.get(name));
+        }
+    }
+
+    /**
+     * Запускает процесс и ждет его завершения.
+     *
+     * @return время работы в миллисекундах и пиковая память в килобайтах (0, если неизвестна)
+     */
+    private static long[] run(List<String> command) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        Path status = Paths.get("/proc", Long.toString(process.pid()), "status");
+        long peakKilobytes = 0;
+        while (process.isAlive()) {
+            peakKilobytes = Math.max(peakKilobytes, readPeakKilobytes(status));
+            Thread.sleep(POLL_MILLIS);
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("Процесс завершился с кодом " + exitCode + ": " + command);
+        }
+        return new long[] {elapsed, peakKilobytes};
+    }
+
+    private static long readPeakKilobytes(Path status) {
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Процесс уже завершился или /proc недоступен
+        }
+        return 0;
+    }
+
+    private static void report(String name, long[] millis, long[] kilobytes) {
+        long[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        long[] memory = kilobytes.clone();
+        Arrays.sort(memory);
+        System.out.printf("%-12s медиана %d мс, минимум %d мс, пиковая память (медиана) %.1f МиБ%n",
+                name, sorted[sorted.length / 2], sorted[0], memory[memory.length / 2] / 1024.0);
+    }
+}
@@ -0,0 +1,141 @@
+package com.fileanalyzer.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Генератор синтетического дерева файлов для измерений производительности.
+ * Заголовки файлов берутся из образцов в каталоге test-files, остальное
+ * содержимое заполняется псевдослучайными байтами. При одинаковом seed
+ * генерируется одинаковое дерево.
+ */
+public class SyntheticTreeGenerator {
+
+    /** Сколько байт начала образца копируется в сгенерированный файл. */
+    private static final int SAMPLE_HEADER_SIZE = 4096;
+    /** Количество файлов в одном каталоге. */
+    private static final int FILES_PER_DIRECTORY = 500;
+
+    private final List<byte[]> sampleHeaders;
+    private final Random random;
+
+    /**
+     * Конструктор генератора.
+     *
+     * @param samplesDir каталог с образцами файлов (обычно test-files)
+     * @param seed начальное значение генератора случайных чисел
+     * @throws IOException если образцы не удалось прочитать
+     */
+    public SyntheticTreeGenerator(Path samplesDir, long seed) throws IOException {
+        this.sampleHeaders = loadSampleHeaders(samplesDir);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Генерирует дерево из маленьких и больших файлов.
+     *
+     * @param root корневой каталог (будет создан)
+     * @param smallFiles количество маленьких файлов (1-64 КБ)
+     * @param largeFiles количество больших файлов
+     * @param largeFileSize размер большого файла в байтах
+     * @return список созданных файлов
+     * @throws IOException если не удалось записать файлы
+     */
+    public List<Path> generate(Path root, int smallFiles, int largeFiles, long largeFileSize) throws IOException {
+        List<Path> created = new ArrayList<>(smallFiles + largeFiles);
+        for (int i = 0; i < smallFiles; i++) {
+            Path dir = root.resolve("d" + (i / FILES_PER_DIRECTORY));
+            created.add(writeFile(dir.resolve("file" + i), 1024 + random.nextInt(63 * 1024)));
+        }
+        for (int i = 0; i < largeFiles; i++) {
+            created.add(writeFile(root.resolve("large").resolve("large" + i), largeFileSize));
+        }
+        return created;
+    }
+
+    /**
+     * Записывает файл с заголовком случайного образца.
+     *
+     * @param file путь к файлу
+     * @param size размер файла
+     * @return путь к созданному файлу
+     * @throws IOException если запись не удалась
+     */
+    protected Path writeFile(Path file, long size) throws IOException {
+        Files.createDirectories(file.getParent());
+        byte[] header = sampleHeaders.get(random.nextInt(sampleHeaders.size()));
+        byte[] chunk = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            long remaining = size;
+            int headerBytes = (int) Math.min(header.length, remaining);
+            out.write(header, 0, headerBytes);
+            remaining -= headerBytes;
+            while (remaining > 0) {
+                random.nextBytes(chunk);
+                int length = (int) Math.min(chunk.length, remaining);
+                out.write(chunk, 0, length);
+                remaining -= length;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Возвращает заголовки загруженных образцов.
+     *
+     * @return список заголовков
+     */
+    protected List<byte[]> getSampleHeaders() {
+        return sampleHeaders;
+    }
+
+    /**
+     * Возвращает генератор случайных чисел генератора дерева.
+     *
+     * @return генератор случайных чисел
+     */
+    protected Random getRandom() {
+        return random;
+    }
+
+    private static List<byte[]> loadSampleHeaders(Path samplesDir) throws IOException {
+        List<byte[]> headers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(samplesDir)) {
+            for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                if (Files.isRegularFile(file)) {
+                    byte[] content = Files.readAllBytes(file);
+                    headers.add(Arrays.copyOf(content, Math.min(content.length, SAMPLE_HEADER_SIZE)));
+                }
+            }
+        }
+        if (headers.isEmpty()) {
+            throw new IOException("В каталоге нет образцов файлов: " + samplesDir);
+        }
+        return headers;
+    }
+
+    /**
+     * Генерирует дерево из командной строки.
+     *
+     * @param args каталог образцов, целевой каталог, число маленьких и больших файлов
+     * @throws IOException если генерация не удалась
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Использование: <test-files> <целевой каталог> <маленьких> <больших>");
+            System.exit(2);
+        }
+        SyntheticTreeGenerator generator = new SyntheticTreeGenerator(Paths.get(args[0]), 42);
+        List<Path> files = generator.generate(Paths.get(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]), 64L * 1024 * 1024);
+        System.out.println("Создано файлов: " + files.size());
+    }
+}
@@ -0,0 +1,156 @@
+package com.fileanalyzer.tools;
+
+import com.fileanalyzer.model.FragmentClass;
+import com.fileanalyzer.service.FragmentModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Обучение биграммной модели классов фрагментов по размеченным образцам.
+ * Для каждого класса подсчитываются биграммы групп байт, после чего модель
+ * записывается в компактном виде (см. {@link FragmentModel}).
+ *
+ * <p>Из образцов удаляются заголовки, чтобы модель описывала именно тело
+ * данных: у JPEG пропускается все до начала скана (маркер SOS), у MP3 - тег
+ * ID3v2. Текстовые образцы дополнительно сжимаются Deflate и используются
+ * как образцы класса сжатых данных.
+ *
+ * <p>Использование: {@code FragmentModelTrainer <файл модели> КЛАСС=путь...},
+ * где путь - файл или каталог, КЛАСС - имя из {@link FragmentClass}.
+ */
+public class FragmentModelTrainer {
+
+    private final long[][] counts = new long[FragmentModel.CLASSES.length][FragmentModel.CELLS];
+    private final ByteArrayOutputStream textCorpus = new ByteArrayOutputStream();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: FragmentModelTrainer <файл модели> КЛАСС=путь...");
+            System.exit(1);
+        }
+
+        FragmentModelTrainer trainer = new FragmentModelTrainer();
+        for (int i = 1; i < args.length; i++) {
+            int separator = args[i].indexOf('=');
+            FragmentClass fragmentClass = FragmentClass.valueOf(args[i].substring(0, separator));
+            for (Path file : listFiles(Paths.get(args[i].substring(separator + 1)))) {
+                trainer.addSample(fragmentClass, Files.readAllBytes(file));
+            }
+        }
+        trainer.addDeflatedText();
+
+        Path output = Paths.get(args[0]);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream outputStream = Files.newOutputStream(output)) {
+            trainer.write(outputStream);
+        }
+        trainer.printSummary();
+        System.out.println("Модель записана: " + output);
+    }
+
+    /**
+     * Добавляет образец класса.
+     *
+     * @param fragmentClass класс образца
+     * @param data содержимое образца
+     */
+    public void addSample(FragmentClass fragmentClass, byte[] data) {
+        int start = 0;
+        if (fragmentClass == FragmentClass.JPEG_BODY) {
+            start = jpegScanStart(data);
+        } else if (fragmentClass == FragmentClass.MP3_STREAM) {
+            start = id3TagEnd(data);
+        } else if (fragmentClass == FragmentClass.TEXT) {
+            textCorpus.write(data, 0, data.length);
+        }
+        count(fragmentClass, data, start, data.length);
+    }
+
+    /**
+     * Добавляет сжатый текстовый корпус как образец сжатых данных.
+     */
+    public void addDeflatedText() {
+        byte[] text = textCorpus.toByteArray();
+        if (text.length == 0) {
+            return;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setInput(text);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            compressed.write(buffer, 0, length);
+        }
+        deflater.end();
+        byte[] data = compressed.toByteArray();
+        count(FragmentClass.COMPRESSED_OR_ENCRYPTED, data, 0, data.length);
+    }
+
+    /**
+     * Записывает обученную модель.
+     *
+     * @param outputStream поток для записи
+     * @throws IOException если запись не удалась
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        FragmentModel.write(counts, outputStream);
+    }
+
+    private void printSummary() {
+        for (int c = 0; c < counts.length; c++) {
+            System.out.printf("%-24s биграмм: %d%n", FragmentModel.CLASSES[c], Arrays.stream(counts[c]).sum());
+        }
+    }
+
+    private void count(FragmentClass fragmentClass, byte[] data, int start, int end) {
+        int index = Arrays.asList(FragmentModel.CLASSES).indexOf(fragmentClass);
+        if (index < 0) {
+            throw new IllegalArgumentException("Класс не обучается: " + fragmentClass);
+        }
+        for (int i = start + 1; i < end; i++) {
+            counts[index][FragmentModel.cell(data[i - 1] & 0xFF, data[i] & 0xFF)]++;
+        }
+    }
+
+    private static int jpegScanStart(byte[] data) {
+        for (int i = 2; i + 3 < data.length; i++) {
+            if ((data[i] & 0xFF) == 0xFF && (data[i + 1] & 0xFF) == 0xDA) {
+                int segmentLength = ((data[i + 2] & 0xFF) << 8) | (data[i + 3] & 0xFF);
+                return Math.min(data.length, i + 2 + segmentLength);
+            }
+        }
+        return 0;
+    }
+
+    private static int id3TagEnd(byte[] data) {
+        if (data.length < 10 || data[0] != 'I' || data[1] != 'D' || data[2] != '3') {
+            return 0;
+        }
+        int size = ((data[6] & 0x7F) << 21) | ((data[7] & 0x7F) << 14) | ((data[8] & 0x7F) << 7) | (data[9] & 0x7F);
+        return Math.min(data.length, 10 + size);
+    }
+
+    private static List<Path> listFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.ScanResult;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Тесты для асинхронного чтения заголовков.
+ */
+class AsyncReadEngineTest {
+
+    @Test
+    void testResultsMatchSynchronousAnalysis() throws IOException, InterruptedException {
+        Path root = Files.createTempDirectory("async-read");
+        try {
+            try (Stream<Path> files = Files.list(Paths.get("test-files"))) {
+                for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                    Files.copy(file, root.resolve(file.getFileName()));
+                }
+            }
+            Files.createFile(root.resolve("empty"));
+            Files.write(root.resolve("short.txt"), "short".getBytes(StandardCharsets.UTF_8));
+            // Фрагмент без сигнатуры: тип определяется по выборке содержимого
+            byte[] noise = new byte[64 * 1024];
+            new Random(7).nextBytes(noise);
+            Files.write(root.resolve("fragment"), noise);
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 32 * 1024) {
+                text.append("строка текста без сигнатуры ").append(text.length()).append('\n');
+            }
+            Files.write(root.resolve("notes"), text.toString().getBytes(StandardCharsets.UTF_8));
+
+            FileAnalyzerService analyzer = new FileAnalyzerService(new DatabaseService());
+            List<IoScheduler.ReadRequest> requests = requests(root);
+            Map<String, String> expected = new TreeMap<>();
+            try (IoScheduler scheduler = new IoScheduler(analyzer)) {
+                scheduler.execute(requests, result -> record(expected, root, result));
+            }
+            Map<String, String> actual = new TreeMap<>();
+            try (AsyncReadEngine engine = new AsyncReadEngine(analyzer, 4)) {
+                engine.execute(requests, result -> record(actual, root, result));
+                assertEquals(requests.size() - 1, engine.getLatencyHistogram().getCount());
+            }
+
+            assertEquals(expected, actual);
+            assertEquals("null:0", actual.get("empty"));
+            assertTrue(actual.get("test-picture.png").startsWith("png:"), actual.toString());
+            // Статистика обоих проходов: пустой файл пропущен, фрагменты классифицированы одинаково
+            AnalyzerStatistics statistics = analyzer.getStatistics();
+            assertEquals(2, statistics.getFilesSkipped());
+            assertTrue(statistics.getFragmentsClassified() > 0);
+            assertEquals(0, statistics.getFragmentsClassified() % 2);
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    @Test
+    void testSharedExecutorWithFewerThreadsThanOperations() throws IOException, InterruptedException {
+        Path root = Files.createTempDirectory("async-read-pool");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 200; i++) {
+                Files.write(root.resolve("file" + i), ("content " + i).getBytes(StandardCharsets.UTF_8));
+            }
+            FileAnalyzerService analyzer = new FileAnalyzerService(new DatabaseService());
+            List<ScanResult> results = new ArrayList<>();
+            // Обработчики завершения не блокируют поток, поэтому одного потока достаточно
+            try (AsyncReadEngine engine = new AsyncReadEngine(analyzer, 16, executor)) {
+                engine.execute(requests(root), result -> {
+                    synchronized (results) {
+                        results.add(result);
+                    }
+                });
+            }
+            assertEquals(200, results.size());
+            assertTrue(results.stream().allMatch(result -> "txt".equals(result.getFileType().getExtension())));
+            assertFalse(executor.isShutdown());
+            assertThrows(IllegalArgumentException.class, () -> new AsyncReadEngine(analyzer, 0));
+        } finally {
+            executor.shutdownNow();
+            deleteTree(root);
+        }
+    }
+
+    private static List<IoScheduler.ReadRequest> requests(Path root) throws IOException {
+        List<IoScheduler.ReadRequest> requests = new ArrayList<>();
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                requests.add(new IoScheduler.ReadRequest(file,
+                        Files.readAttributes(file, BasicFileAttributes.class)));
+            }
+        }
+        return requests;
+    }
+
+    private static void record(Map<String, String> results, Path root, ScanResult result) {
+        String type = result.getFileType() != null ? result.getFileType().getExtension() : "null";
+        synchronized (results) {
+            results.put(root.relativize(result.getPath()).toString(), type + ":" + result.getSize());
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
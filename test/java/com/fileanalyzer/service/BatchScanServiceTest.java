@@ -0,0 +1,89 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.ScanResult;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Тесты для пакетного обхода каталогов с атрибутами из обхода.
+ */
+class BatchScanServiceTest {
+
+    @Test
+    void testEmptySpecialFilesAndLinkLoopsAreNotOpened() throws IOException, InterruptedException {
+        Path root = Files.createTempDirectory("batch-scan");
+        try {
+            Files.copy(Paths.get("test-files/test-picture.png"), root.resolve("picture.png"));
+            Files.createFile(root.resolve("empty"));
+            Files.createDirectories(root.resolve("sub"));
+            boolean links = createLink(root.resolve("link.png"), root.resolve("picture.png"))
+                    && createLink(root.resolve("sub").resolve("loop"), root);
+            // Открытие канала FIFO для чтения заблокировало бы обход; в Windows FIFO нет
+            if (!System.getProperty("os.name").startsWith("Windows")) {
+                Process mkfifo = new ProcessBuilder("mkfifo", root.resolve("pipe").toString()).start();
+                assertEquals(0, mkfifo.waitFor(), "mkfifo завершился с ошибкой");
+            }
+
+            FileAnalyzerService analyzer = new FileAnalyzerService(new DatabaseService());
+            BatchScanService service = new BatchScanService(analyzer);
+            Map<String, ScanResult> results = scan(service, root);
+
+            assertEquals(2, results.size(), results.toString());
+            assertEquals("png", results.get("picture.png").getFileType().getExtension());
+            assertNull(results.get("empty").getFileType());
+            assertEquals(0, results.get("empty").getSize());
+            assertEquals(1, analyzer.getStatistics().getFilesAnalyzed());
+            assertEquals(1, analyzer.getStatistics().getFilesSkipped());
+
+            if (links) {
+                service.setFollowLinks(true);
+                results = scan(service, root);
+                assertEquals(3, results.size(), results.toString());
+                assertEquals("png", results.get("link.png").getFileType().getExtension());
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    void testAnalyzeSingleFileUsesAttributes() throws IOException {
+        FileAnalyzerService analyzer = new FileAnalyzerService(new DatabaseService());
+        BatchScanService service = new BatchScanService(analyzer);
+        Path file = Paths.get("test-files/test-picture.png");
+
+        ScanResult result = service.analyze(file);
+        assertEquals("png", result.getFileType().getExtension());
+        assertEquals(Files.size(file), result.getSize());
+
+        ScanResult missing = service.analyze(Paths.get("test-files/missing"));
+        assertNull(missing.getFileType());
+        assertEquals(0, missing.getSize());
+    }
+
+    private static Map<String, ScanResult> scan(BatchScanService service, Path root) throws IOException {
+        Map<String, ScanResult> results = new TreeMap<>();
+        service.scan(root, result -> results.put(root.relativize(result.getPath()).toString(), result));
+        return results;
+    }
+
+    private static boolean createLink(Path link, Path target) {
+        try {
+            Files.createSymbolicLink(link, target);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+}
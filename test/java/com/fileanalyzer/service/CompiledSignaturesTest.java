@@ -0,0 +1,137 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.MagicNumber;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Тесты для скомпилированного представления сигнатур.
+ */
+class CompiledSignaturesTest {
+
+    @Test
+    void testMatchesStreamMatcher() {
+        DatabaseService service = new DatabaseService();
+        CompiledSignatures signatures = service.getCompiledSignatures();
+        List<FileType> fileTypes = service.getAllFileTypes();
+        Random random = new Random(7);
+        byte[] header = new byte[FileAnalyzerService.HEADER_SIZE];
+
+        for (int i = 0; i < 20_000; i++) {
+            random.nextBytes(header);
+            // Часть заголовков начинается с настоящей сигнатуры
+            if (i % 2 == 0) {
+                FileType fileType = fileTypes.get(random.nextInt(fileTypes.size()));
+                if (fileType.hasMagicNumbers()) {
+                    MagicNumber magic = fileType.getMagicNumbers().get(0);
+                    System.arraycopy(magic.getBytes(), 0, header, magic.getOffset(), magic.getLength());
+                }
+            }
+            int length = random.nextInt(header.length + 1);
+
+            Optional<FileType> expected = service.findFileTypeByMagicNumbers(header, length);
+            int typeId = signatures.match(header, length);
+            FileType actual = typeId != CompiledSignatures.NO_MATCH ? signatures.getType(typeId)
+                    : length > 0 ? service.getFallbackType() : null;
+            assertEquals(expected.orElse(null), actual, "Расхождение для длины " + length);
+        }
+    }
+
+    @Test
+    void testLongSignatureAndOffset() {
+        FileType longType = type("long", new MagicNumber(0, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, null));
+        FileType offsetType = type("offset", new MagicNumber(3, new byte[]{(byte) 0xAB}, null));
+        CompiledSignatures signatures = new CompiledSignatures(List.of(longType, offsetType));
+
+        byte[] header = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+        assertEquals(0, signatures.match(ByteBuffer.wrap(header), header.length));
+        assertEquals(CompiledSignatures.NO_MATCH, signatures.match(header, 9));
+
+        header[9] = 0;
+        header[3] = (byte) 0xAB;
+        assertEquals(1, signatures.match(header, 4));
+        assertSame(offsetType, signatures.getType(1));
+        assertEquals(10, signatures.getWindow());
+    }
+
+    @Test
+    void testApproximateMatchesNaiveCount() {
+        FileType longType = type("long", new MagicNumber(0, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, null));
+        FileType shortType = type("short", new MagicNumber(2, new byte[]{1, 2, 3, 4, 5}, null));
+        FileType tinyType = type("tiny", new MagicNumber(0, new byte[]{1, 2}, null));
+        List<FileType> fileTypes = List.of(longType, shortType, tinyType);
+        CompiledSignatures signatures = new CompiledSignatures(fileTypes);
+        Random random = new Random(11);
+        byte[] header = new byte[12];
+
+        for (int i = 0; i < 20_000; i++) {
+            // Сигнатура с несколькими случайно испорченными байтами
+            random.nextBytes(header);
+            MagicNumber magic = fileTypes.get(random.nextInt(fileTypes.size())).getMagicNumbers().get(0);
+            System.arraycopy(magic.getBytes(), 0, header, magic.getOffset(), magic.getLength());
+            for (int damaged = random.nextInt(4); damaged > 0; damaged--) {
+                header[random.nextInt(header.length)] ^= (byte) (1 << random.nextInt(8));
+            }
+            int maxMismatches = random.nextInt(4);
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+
+            int expected = CompiledSignatures.NO_MATCH;
+            int expectedMismatches = Integer.MAX_VALUE;
+            for (int s = 0; s < fileTypes.size(); s++) {
+                MagicNumber candidate = fileTypes.get(s).getMagicNumbers().get(0);
+                int mismatches = naiveMismatches(header, candidate).length;
+                int allowed = CompiledSignatures.allowedMismatches(candidate.getLength(), maxMismatches);
+                if (mismatches <= allowed && mismatches < expectedMismatches) {
+                    expected = s;
+                    expectedMismatches = mismatches;
+                }
+                assertArrayEquals(naiveMismatches(header, candidate), signatures.mismatchOffsets(buffer, s));
+            }
+            assertEquals(expected, signatures.matchApproximate(buffer, header.length, maxMismatches));
+        }
+    }
+
+    @Test
+    void testAllowedMismatches() {
+        assertEquals(0, CompiledSignatures.allowedMismatches(3, 2));
+        assertEquals(1, CompiledSignatures.allowedMismatches(4, 2));
+        assertEquals(2, CompiledSignatures.allowedMismatches(8, 2));
+        assertEquals(1, CompiledSignatures.allowedMismatches(10, 1));
+        assertEquals(0, CompiledSignatures.allowedMismatches(10, 0));
+    }
+
+    @Test
+    void testHexParsing() {
+        MagicNumber magic = new MagicNumber();
+        magic.setHex(" 89 50\t4e 47 ");
+        assertArrayEquals(new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47}, magic.getBytes());
+
+        magic.setHex("FF D");
+        assertEquals(0, magic.getLength());
+    }
+
+    private static int[] naiveMismatches(byte[] header, MagicNumber magic) {
+        int[] offsets = new int[magic.getLength()];
+        int count = 0;
+        for (int j = 0; j < magic.getLength(); j++) {
+            if (header[magic.getOffset() + j] != magic.getBytes()[j]) {
+                offsets[count++] = magic.getOffset() + j;
+            }
+        }
+        return Arrays.copyOf(offsets, count);
+    }
+
+    private static FileType type(String extension, MagicNumber magic) {
+        FileType fileType = new FileType();
+        fileType.setExtension(extension);
+        fileType.setMagicNumbers(List.of(magic));
+        return fileType;
+    }
+}
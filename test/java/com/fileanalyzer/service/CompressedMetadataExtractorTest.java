@@ -0,0 +1,163 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Тесты для определения содержимого сжатых потоков.
+ */
+class CompressedMetadataExtractorTest {
+
+    private final DatabaseService databaseService = new DatabaseService();
+    private final MetadataService metadataService = new MetadataService(databaseService);
+
+    @Test
+    void testGzipPayloads() throws IOException {
+        byte[] tar = new byte[1024];
+        System.arraycopy("backup/data.sql".getBytes(StandardCharsets.US_ASCII), 0, tar, 0, 15);
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, tar, 257, 8);
+        Map<String, String> tarGz = extract(gzip("backup.tar", tar), "gz");
+        assertEquals("backup.tar", tarGz.get("name"));
+        assertEquals("tar", tarGz.get("payload"));
+        assertEquals("1024", tarGz.get("uncompressedSize"));
+
+        byte[] png = Files.readAllBytes(Paths.get("test-files/test-picture.png"));
+        assertEquals("png", extract(gzip(null, png), "gz").get("payload"));
+
+        StringBuilder dump = new StringBuilder("-- PostgreSQL database dump\n\n");
+        for (int i = 0; i < 100; i++) {
+            dump.append("INSERT INTO users (id, name) VALUES (").append(i).append(", 'user").append(i).append("');\n");
+        }
+        assertEquals("sql", extract(gzip("dump.sql", dump.toString().getBytes(StandardCharsets.US_ASCII)), "gz")
+                .get("payload"));
+    }
+
+    @Test
+    void testDecompressionBombIsBounded() throws IOException {
+        Path file = Files.createTempFile("bomb", ".gz");
+        try {
+            byte[] zeros = new byte[1024 * 1024];
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+                for (int i = 0; i < 256; i++) {
+                    out.write(zeros);
+                }
+            }
+            FileType gz = databaseService.findFileTypeByExtension("gz").orElseThrow();
+            long start = System.nanoTime();
+            Map<String, String> metadata = metadataService.extract(file, gz).orElseThrow().asMap();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(String.valueOf(256L * 1024 * 1024), metadata.get("uncompressedSize"));
+            assertTrue(elapsedMillis < 2000, "Распаковка заняла " + elapsedMillis + " мс");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testCorruptGzipStream() throws IOException {
+        byte[] corrupt = new byte[2048];
+        for (int i = 0; i < corrupt.length; i++) {
+            corrupt[i] = (byte) (i * 31 + 7);
+        }
+        byte[] header = {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, 3};
+        System.arraycopy(header, 0, corrupt, 0, header.length);
+        Path file = write(".gz", corrupt);
+        try {
+            FileType gz = databaseService.findFileTypeByExtension("gz").orElseThrow();
+            assertFalse(metadataService.extract(file, gz).orElseThrow().get("payload").isPresent());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testOtherStreamHeadersAndDetection() throws IOException {
+        FileAnalyzerService analyzer = new FileAnalyzerService(databaseService);
+        byte[] bzip2 = {'B', 'Z', 'h', '9', 0x31, 0x41, 0x59, 0x26, 0x53, 0x59};
+        byte[] xz = {(byte) 0xFD, '7', 'z', 'X', 'Z', 0, 0, 0x04, (byte) 0xE6, (byte) 0xD6, (byte) 0xB4, 0x46};
+        // Одиночный сегмент, 2-байтовый размер содержимого: 0x0100 + 256 = 512
+        byte[] zstd = {0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0x60, 0x00, 0x01, 0, 0, 0};
+
+        assertEquals("900", extract(bzip2, "bz2").get("blockSize"));
+        assertEquals("crc64", extract(xz, "xz").get("check"));
+        assertEquals("512", extract(zstd, "zst").get("contentSize"));
+
+        String[] extensions = {"bz2", "xz", "zst"};
+        byte[][] contents = {bzip2, xz, zstd};
+        for (int i = 0; i < extensions.length; i++) {
+            Path file = write("." + extensions[i], contents[i]);
+            try {
+                assertEquals(extensions[i], analyzer.analyzePath(file).map(FileType::getExtension).orElse(null));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+        Path gz = write(".gz", gzip(null, new byte[16]));
+        try {
+            assertEquals("gz", analyzer.analyzePath(gz).map(FileType::getExtension).orElse(null));
+        } finally {
+            Files.deleteIfExists(gz);
+        }
+    }
+
+    private Map<String, String> extract(byte[] content, String extension) throws IOException {
+        Path file = write("." + extension, content);
+        try {
+            FileType fileType = databaseService.findFileTypeByExtension(extension).orElseThrow();
+            return metadataService.extract(file, fileType).orElseThrow().asMap();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Path write(String suffix, byte[] content) throws IOException {
+        Path file = Files.createTempFile("compressed", suffix);
+        Files.write(file, content);
+        return file;
+    }
+
+    /**
+     * Собирает член GZIP вручную: GZIPOutputStream не записывает исходное имя.
+     */
+    private static byte[] gzip(String name, byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {0x1F, (byte) 0x8B, 8, (byte) (name != null ? 0x08 : 0), 0, 0, 0, 0, 0, 3});
+        if (name != null) {
+            out.write(name.getBytes(StandardCharsets.ISO_8859_1));
+            out.write(0);
+        }
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(content);
+        deflater.finish();
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        writeIntLe(out, (int) crc.getValue());
+        writeIntLe(out, content.length);
+        return out.toByteArray();
+    }
+
+    private static void writeIntLe(ByteArrayOutputStream out, int value) {
+        for (int i = 0; i < 4; i++) {
+            out.write(value >>> (8 * i));
+        }
+    }
+}
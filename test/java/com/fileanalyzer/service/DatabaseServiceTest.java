@@ -1,8 +1,12 @@
 package com.fileanalyzer.service;
 
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.MagicNumber;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
+
 /**
  * Тесты для сервиса базы данных.
  */
@@ -21,4 +25,30 @@ class DatabaseServiceTest {
         // Проверяем, что сервис может найти типы файлов
         assertNotNull(service.getAllFileTypes());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testInvalidSignaturesAreDroppedOnLoad() {
+        MagicNumber badHex = new MagicNumber();
+        badHex.setHex("ZZ");
+        MagicNumber negativeOffset = new MagicNumber(-1, new byte[]{0x41}, "41");
+        MagicNumber valid = new MagicNumber(0, new byte[]{0x42}, "42");
+        FileType broken = new FileType("broken", null, List.of(badHex));
+        FileType mixed = new FileType("mixed", null, List.of(badHex, negativeOffset, valid));
+        FileType txt = new FileType("txt", null, null);
+
+        DatabaseService service = new DatabaseService(List.of(broken, mixed, txt));
+
+        List<FileType> fileTypes = service.getAllFileTypes();
+        assertFalse(badHex.isValid());
+        assertFalse(fileTypes.get(0).hasMagicNumbers());
+        assertEquals(List.of(valid), fileTypes.get(1).getMagicNumbers());
+        assertSame(txt, fileTypes.get(2));
+        // Пустая сигнатура не попадает в базу и не совпадает с любым заголовком
+        byte[] header = {0x41, 0x41};
+        assertEquals("txt", service.findFileTypeByMagicNumbers(header, header.length)
+                .map(FileType::getExtension).orElse(null));
+        header[0] = 0x42;
+        assertEquals("mixed", service.findFileTypeByMagicNumbers(header, header.length)
+                .map(FileType::getExtension).orElse(null));
+    }
+}
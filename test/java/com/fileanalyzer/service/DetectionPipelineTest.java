@@ -0,0 +1,191 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.DetectionResult;
+import com.fileanalyzer.model.FileType;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Тесты для конвейера детекторов типа файла.
+ */
+class DetectionPipelineTest {
+
+    private final DatabaseService databaseService = new DatabaseService();
+
+    /**
+     * Детектор с фиксированным ответом для проверки порядка и статистики.
+     */
+    private static final class FixedDetector implements FileTypeDetector {
+        private final String name;
+        private final int cost;
+        private final Optional<DetectionResult> result;
+
+        FixedDetector(String name, int cost, FileType type, double confidence) {
+            this.name = name;
+            this.cost = cost;
+            this.result = type == null ? Optional.empty() : Optional.of(new DetectionResult(type, confidence, name));
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+
+        @Override
+        public int getRequiredBytes() {
+            return 0;
+        }
+
+        @Override
+        public Optional<DetectionResult> detect(DetectionContext context) {
+            return result;
+        }
+    }
+
+    /**
+     * Детектор собственного формата: сигнатура "FAX1" по смещению 16.
+     */
+    private static final class InHouseDetector implements FileTypeDetector {
+        private FileType type;
+
+        @Override
+        public String getName() {
+            return "fax";
+        }
+
+        @Override
+        public int getCost() {
+            return 2;
+        }
+
+        @Override
+        public int getRequiredBytes() {
+            return 20;
+        }
+
+        @Override
+        public void init(DatabaseService databaseService) {
+            type = databaseService.findFileTypeByExtension("bin").orElseThrow();
+        }
+
+        @Override
+        public Optional<DetectionResult> detect(DetectionContext context) throws IOException {
+            if (context.require(20) < 20) {
+                return Optional.empty();
+            }
+            byte[] magic = new byte[4];
+            for (int i = 0; i < magic.length; i++) {
+                magic[i] = context.getHeader().get(16 + i);
+            }
+            return Arrays.equals(magic, "FAX1".getBytes(StandardCharsets.US_ASCII))
+                    ? Optional.of(new DetectionResult(type, 1.0, getName())) : Optional.empty();
+        }
+    }
+
+    @Test
+    void testServiceLoaderFindsBundledDetector() throws IOException {
+        List<FileTypeDetector> detectors = DetectionPipeline.loadDetectors(databaseService);
+        assertTrue(detectors.stream().anyMatch(detector -> detector instanceof ByteOrderMarkDetector));
+
+        FileAnalyzerService analyzer = new FileAnalyzerService(databaseService);
+        Path text = Files.createTempFile("utf16", ".dat");
+        try {
+            Files.write(text, "\uFEFFтекст в UTF-16".repeat(100).getBytes(StandardCharsets.UTF_16LE));
+            assertEquals("txt", analyzer.analyzePath(text).map(FileType::getExtension).orElse(null));
+            assertEquals(1, stage(analyzer.getDetectionPipeline(), "bom").getConfident());
+            assertEquals(0, stage(analyzer.getDetectionPipeline(), "content").getCalls());
+        } finally {
+            Files.deleteIfExists(text);
+        }
+    }
+
+    @Test
+    void testPluginReadsFurtherHeaderAndSignaturesShortCircuit() throws IOException {
+        InHouseDetector plugin = new InHouseDetector();
+        plugin.init(databaseService);
+        FileAnalyzerService analyzer = new FileAnalyzerService(databaseService, Collections.singletonList(plugin));
+        Path file = Files.createTempFile("inhouse", ".dat");
+        try {
+            byte[] content = new byte[4096];
+            System.arraycopy("FAX1".getBytes(StandardCharsets.US_ASCII), 0, content, 16, 4);
+            Files.write(file, content);
+
+            assertEquals("bin", analyzer.analyzePath(file).map(FileType::getExtension).orElse(null));
+            assertEquals("png", analyzer.analyzePath(Paths.get("test-files/test-picture.png"))
+                    .map(FileType::getExtension).orElse(null));
+
+            DetectionPipeline pipeline = analyzer.getDetectionPipeline();
+            assertEquals(2, stage(pipeline, "signatures").getCalls());
+            assertEquals(1, stage(pipeline, "signatures").getConfident());
+            // PNG распознан по сигнатуре, до стороннего детектора дело не дошло
+            assertEquals(1, stage(pipeline, "fax").getCalls());
+            assertEquals(0, stage(pipeline, "content").getCalls());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testBestUnconfidentAnswerAndAdaptiveOrder() throws IOException {
+        FileType bin = databaseService.findFileTypeByExtension("bin").orElseThrow();
+        FileType txt = databaseService.findFileTypeByExtension("txt").orElseThrow();
+        FixedDetector useless = new FixedDetector("useless", 1, null, 0);
+        FixedDetector guess = new FixedDetector("guess", 2, txt, 0.3);
+        FixedDetector expert = new FixedDetector("expert", 5, bin, 1.0);
+
+        DetectionPipeline unconfident = new DetectionPipeline(Arrays.asList(guess, useless),
+                DetectionPipeline.DEFAULT_CONFIDENCE_THRESHOLD);
+        DetectionPipeline pipeline = new DetectionPipeline(Arrays.asList(expert, useless, guess),
+                DetectionPipeline.DEFAULT_CONFIDENCE_THRESHOLD);
+        assertEquals(Arrays.asList("useless", "guess", "expert"), names(pipeline));
+
+        Path file = Files.createTempFile("pipeline", ".dat");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Files.write(file, new byte[]{1, 2, 3, 4});
+            DetectionContext first = new DetectionContext(new ReadContext(8));
+            first.begin(channel, 4, -1);
+            assertSame(txt, unconfident.detect(first).map(DetectionResult::getFileType).orElse(null));
+
+            DetectionContext context = new DetectionContext(new ReadContext(8));
+            for (int i = 0; i < DetectionPipeline.REORDER_INTERVAL; i++) {
+                context.begin(channel, 4, -1);
+                assertSame(bin, pipeline.detect(context).map(DetectionResult::getFileType).orElse(null));
+            }
+            // Единственный детектор с уверенными ответами вызывается первым
+            assertEquals("expert", names(pipeline).get(0));
+            context.begin(channel, 4, -1);
+            pipeline.detect(context);
+            assertEquals(DetectionPipeline.REORDER_INTERVAL, stage(pipeline, "useless").getCalls());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static DetectionPipeline.Stage stage(DetectionPipeline pipeline, String name) {
+        return pipeline.getStages().stream()
+                .filter(stage -> stage.getDetector().getName().equals(name))
+                .findFirst().orElseThrow();
+    }
+
+    private static List<String> names(DetectionPipeline pipeline) {
+        return Arrays.asList(pipeline.getStages().stream()
+                .map(stage -> stage.getDetector().getName()).toArray(String[]::new));
+    }
+}
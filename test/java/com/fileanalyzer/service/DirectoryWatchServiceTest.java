@@ -0,0 +1,131 @@
+package com.fileanalyzer.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Тесты для сервиса инкрементального анализа каталогов.
+ */
+class DirectoryWatchServiceTest {
+
+    private static final byte[] PNG_HEADER = {(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A, 0, 0};
+    private static final byte[] PDF_HEADER = {0x25, 0x50, 0x44, 0x46, 0x2D, 0x31, 0x2E, 0x34};
+
+    private Path root;
+    private DirectoryWatchService watchService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("watch-test");
+        BatchScanService batchScanService = new BatchScanService(new FileAnalyzerService(new DatabaseService()));
+        watchService = new DirectoryWatchService(batchScanService, 50);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        watchService.close();
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testInitialScanFillsIndex() throws IOException {
+        Path image = Files.write(root.resolve("image"), PNG_HEADER);
+
+        watchService.start(root);
+
+        assertEquals("png", watchService.getDetectedType(image).getExtension());
+    }
+
+    @Test
+    void testCreatedFileIsClassified() throws Exception {
+        watchService.start(root);
+        Path subDir = Files.createDirectory(root.resolve("nested"));
+        Path document = Files.write(subDir.resolve("document"), PDF_HEADER);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (watchService.getDetectedType(document) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertNotNull(watchService.getDetectedType(document));
+        assertEquals("pdf", watchService.getDetectedType(document).getExtension());
+    }
+
+    @Test
+    void testOverflowRegistersDirectoriesCreatedMeanwhile() throws IOException {
+        // Потоки обработки не запущены: события о новых каталогах не доставляются
+        watchService.watch(root);
+        Path nested = Files.createDirectories(root.resolve("late").resolve("inner"));
+        Path image = Files.write(nested.resolve("image"), PNG_HEADER);
+        assertFalse(watchService.isWatched(nested));
+
+        watchService.handleEvent(root, overflow());
+        watchService.handleEvent(nested.getParent(), overflow());
+        watchService.flushPending();
+
+        assertEquals("png", watchService.getDetectedType(image).getExtension());
+        assertTrue(watchService.isWatched(nested.getParent()));
+        assertTrue(watchService.isWatched(nested));
+
+        // Удаленный каталог перестает отслеживаться
+        Files.delete(image);
+        Files.delete(nested);
+        watchService.handleEvent(root, overflow());
+        watchService.flushPending();
+        watchService.handleEvent(nested.getParent(), deleted(nested.getFileName()));
+
+        assertNull(watchService.getDetectedType(image));
+        assertFalse(watchService.isWatched(nested));
+        assertTrue(watchService.isWatched(root));
+    }
+
+    @Test
+    void testRescanRemovesDeletedFiles() throws IOException {
+        Path image = Files.write(root.resolve("image"), PNG_HEADER);
+        watchService.start(root);
+        Files.delete(image);
+
+        watchService.rescanSubtree(root);
+
+        assertNull(watchService.getDetectedType(image));
+    }
+
+    private static WatchEvent<Object> overflow() {
+        return event(StandardWatchEventKinds.OVERFLOW, null);
+    }
+
+    private static WatchEvent<Path> deleted(Path name) {
+        return event(StandardWatchEventKinds.ENTRY_DELETE, name);
+    }
+
+    private static <T> WatchEvent<T> event(WatchEvent.Kind<T> kind, T context) {
+        return new WatchEvent<>() {
+            @Override
+            public Kind<T> kind() {
+                return kind;
+            }
+
+            @Override
+            public int count() {
+                return 1;
+            }
+
+            @Override
+            public T context() {
+                return context;
+            }
+        };
+    }
+}
@@ -1,12 +1,29 @@
 package com.fileanalyzer.service;
 
+import com.fileanalyzer.model.DetectionResult;
 import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.ScanResult;
+import com.fileanalyzer.util.DirectoryNameIndex;
+import com.fileanalyzer.util.FileUtils;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 /**
  * Тесты для сервиса восстановления файлов.
@@ -29,4 +46,132 @@ class FileRestoreServiceTest {
             service.restoreFileExtension(null, fileType);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void testExistingFilesAreNotOverwritten() throws IOException {
+        Path dir = Files.createTempDirectory("restore-names");
+        try {
+            Path source = write(dir.resolve("photo.dat"), "new");
+            write(dir.resolve("photo.jpg"), "existing");
+            write(dir.resolve("photo_1.jpg"), "existing");
+            FileType jpg = new FileType();
+            jpg.setExtension(".jpg");
+            FileRestoreService service = new FileRestoreService();
+
+            File first = service.restoreFileExtension(source.toFile(), jpg);
+            assertEquals("photo_2.jpg", first.getName());
+            assertEquals("existing", read(dir.resolve("photo.jpg")));
+            assertEquals("new", read(first.toPath()));
+
+            File second = service.restoreFileExtension(source.toFile(), jpg);
+            assertEquals("photo_3.jpg", second.getName());
+
+            // Расширение уже правильное (с точностью до регистра): копия не нужна
+            Path correct = write(dir.resolve("image.JPG"), "jpg");
+            assertEquals(correct.toFile(), service.restoreFileExtension(correct.toFile(), jpg));
+
+            File copy = FileUtils.copyFileWithNewExtension(source.toFile(), "jpg");
+            assertEquals("photo_4.jpg", copy.getName());
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    @Test
+    void testNamesCreatedByOtherProcessesAreSkipped() throws IOException {
+        Path dir = Files.createTempDirectory("restore-external");
+        try {
+            Path source = write(dir.resolve("data"), "new");
+            DirectoryNameIndex index = new DirectoryNameIndex(dir);
+            // Файл появился после чтения каталога
+            write(dir.resolve("data.bin"), "external");
+
+            Path target = index.copy(source, "data", "bin");
+            assertEquals("data_1.bin", target.getFileName().toString());
+            assertEquals("external", read(dir.resolve("data.bin")));
+            assertEquals("Data_2.BIN", index.allocate("Data", "BIN").getFileName().toString());
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    @Test
+    void testConcurrentWorkersGetUniqueNames() throws Exception {
+        Path dir = Files.createTempDirectory("restore-concurrent");
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        try {
+            Path source = write(dir.resolve("file0001"), "content");
+            write(dir.resolve("file0001.txt"), "existing");
+            Set<String> names = ConcurrentHashMap.newKeySet();
+            List<Future<File>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(workers.submit(() -> FileUtils.copyFileWithNewExtension(source.toFile(), "txt")));
+            }
+            for (Future<File> future : futures) {
+                assertTrue(names.add(future.get().getName()));
+            }
+            assertEquals(200, names.size());
+            assertFalse(names.contains("file0001.txt"));
+            assertTrue(names.contains("file0001_200.txt"));
+            assertEquals("existing", read(dir.resolve("file0001.txt")));
+        } finally {
+            workers.shutdownNow();
+            deleteTree(dir);
+        }
+    }
+
+    @Test
+    void testDamagedHeaderIsRepairedInCopy() throws IOException {
+        Path dir = Files.createTempDirectory("restore-repair");
+        try {
+            byte[] original = Files.readAllBytes(Paths.get("test-files/test-picture.png"));
+            byte[] damaged = original.clone();
+            damaged[1] = 'Q';
+            damaged[6] = 0;
+            Path source = Files.write(dir.resolve("picture"), damaged);
+            FileAnalyzerService analyzer = new FileAnalyzerService(new DatabaseService());
+
+            // Без неточного сопоставления поврежденный заголовок не распознается
+            Optional<DetectionResult> exact = analyzer.detectPath(source);
+            assertTrue(exact.isPresent());
+            assertNotEquals("png", exact.get().getFileType().getExtension());
+
+            analyzer.setMaxHeaderMismatches(2);
+            DetectionResult detection = analyzer.detectPath(source).orElseThrow();
+            assertEquals("png", detection.getFileType().getExtension());
+            assertTrue(detection.isApproximate());
+            assertArrayEquals(new int[]{1, 6}, detection.getDamagedOffsets());
+            assertArrayEquals(new byte[]{'P', 0x1A}, detection.getExpectedBytes());
+            assertTrue(detection.getConfidence() < 0.9);
+
+            FileRestoreService service = new FileRestoreService();
+            File copy = service.restoreFileExtension(source.toFile(), detection, true);
+            assertEquals("picture.png", copy.getName());
+            assertArrayEquals(original, Files.readAllBytes(copy.toPath()));
+            assertArrayEquals(damaged, Files.readAllBytes(source));
+
+            // Пакетное восстановление исправляет заголовок так же
+            service.setHeaderRepair(analyzer);
+            ScanResult result = new ScanResult(source, damaged.length, detection.getFileType());
+            List<File> restored = service.restoreAll(List.of(result), null);
+            assertEquals("picture_1.png", restored.get(0).getName());
+            assertArrayEquals(original, Files.readAllBytes(restored.get(0).toPath()));
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    private static Path write(Path path, String content) throws IOException {
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
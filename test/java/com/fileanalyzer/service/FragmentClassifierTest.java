@@ -0,0 +1,69 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.FragmentClass;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Тесты для классификации содержимого файлов без сигнатуры.
+ */
+class FragmentClassifierTest {
+
+    private final FragmentClassifier classifier =
+            new FragmentClassifier(FragmentModel.loadDefault(), FragmentClassifier.DEFAULT_SAMPLE_SIZE);
+
+    @Test
+    void testHeaderlessFragments() throws IOException {
+        byte[] jpeg = Files.readAllBytes(Paths.get("test-files/test-image.jpg"));
+        byte[] mp3 = Files.readAllBytes(Paths.get("test-files/test-music.mp3"));
+        byte[] random = new byte[20000];
+        new Random(42).nextBytes(random);
+        byte[] text = "Съешь же ещё этих мягких французских булок, да выпей чаю.\n"
+                .repeat(40).getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(FragmentClass.JPEG_BODY, classifier.classify(jpeg, 1000, jpeg.length - 1000));
+        assertEquals(FragmentClass.MP3_STREAM, classifier.classify(mp3, 1000, mp3.length - 1000));
+        assertEquals(FragmentClass.COMPRESSED_OR_ENCRYPTED, classifier.classify(random, 0, random.length));
+        assertEquals(FragmentClass.TEXT, classifier.classify(text, 0, text.length));
+        assertEquals(FragmentClass.UNKNOWN, classifier.classify(text, 0, 100));
+    }
+
+    @Test
+    void testMp3FrameLength() {
+        // MPEG-1 Layer III, 128 кбит/с, 44100 Гц, без заполнения
+        assertEquals(417, FragmentClassifier.mp3FrameLength(0xFFFB9064));
+        assertEquals(0, FragmentClassifier.mp3FrameLength(0xFFFBF064));
+        assertEquals(0, FragmentClassifier.mp3FrameLength(0x12345678));
+    }
+
+    @Test
+    void testAnalyzerUsesContentClassWithoutSignature() throws IOException {
+        DatabaseService databaseService = new DatabaseService();
+        FileAnalyzerService analyzer = new FileAnalyzerService(databaseService);
+        byte[] jpeg = Files.readAllBytes(Paths.get("test-files/test-image.jpg"));
+        Path fragment = Files.createTempFile("fragment", ".dat");
+        try {
+            Files.write(fragment, Arrays.copyOfRange(jpeg, 1000, jpeg.length));
+
+            assertEquals("jpg", analyzer.analyzePath(fragment).map(FileType::getExtension).orElse(null));
+            assertEquals(1, analyzer.getStatistics().getFragmentsClassified());
+            assertEquals("txt", analyzer.analyzePath(Paths.get("test-files/test-unknown"))
+                    .map(FileType::getExtension).orElse(null));
+            assertEquals(1, analyzer.getStatistics().getFragmentsClassified());
+
+            analyzer.setFragmentClassification(false);
+            assertEquals("txt", analyzer.analyzePath(fragment).map(FileType::getExtension).orElse(null));
+        } finally {
+            Files.deleteIfExists(fragment);
+        }
+    }
+}
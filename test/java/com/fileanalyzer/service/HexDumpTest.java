@@ -0,0 +1,119 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.util.HexUtils;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Тесты для постраничного шестнадцатеричного просмотра.
+ */
+class HexDumpTest {
+
+    @Test
+    void testRowsAndSignatureRanges() throws IOException {
+        Path png = Paths.get("test-files/test-picture.png");
+        FileType pngType = new DatabaseService().findFileTypeByExtension("png").orElseThrow();
+        try (HexDump dump = new HexDump(png)) {
+            char[] row = new char[dump.getRowLength()];
+            int length = dump.formatRow(0, row);
+            assertEquals("00000000  89 50 4E 47 0D 0A 1A 0A  00 00 00 0D 49 48 44 52  |.PNG........IHDR|",
+                    new String(row, 0, length));
+            assertEquals(Files.size(png), dump.size());
+            assertEquals((Files.size(png) + 15) / 16, dump.getRowCount());
+
+            List<HexDump.Range> ranges = dump.findSignatureRanges(pngType);
+            assertFalse(ranges.isEmpty());
+            assertEquals(0, ranges.get(0).getStart());
+            assertEquals(8, ranges.get(0).getEnd());
+            assertTrue(dump.findSignatureRanges(null).isEmpty());
+        }
+    }
+
+    @Test
+    void testPartialLastRow() throws IOException {
+        Path file = Files.createTempFile("hex-dump", ".bin");
+        try {
+            Files.write(file, "0123456789ABCDEFxyz".getBytes(StandardCharsets.US_ASCII));
+            try (HexDump dump = new HexDump(file)) {
+                char[] row = new char[dump.getRowLength()];
+                int length = dump.formatRow(1, row);
+                assertEquals("00000010  78 79 7A                                          |xyz|",
+                        new String(row, 0, length));
+                assertEquals(dump.getAsciiColumn(0), new String(row, 0, length).indexOf('x', 20));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testRowsBeyondMappingLimit() throws IOException {
+        long size = 5L * 1024 * 1024 * 1024 + 3;
+        Path dir = Files.createTempDirectory("hex-dump-large");
+        Path file = dir.resolve("large.bin");
+        boolean mapped = false;
+        try {
+            // Если файловая система не поддерживает разреженные файлы, файл займет size байт
+            assumeTrue(Files.getFileStore(dir).getUsableSpace() > size, "Недостаточно места для файла 5 ГБ");
+            try (SeekableByteChannel channel = Files.newByteChannel(file,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+                // Разреженный файл: место на диске занимают только записанные байты
+                channel.position(size - 3);
+                channel.write(ByteBuffer.wrap(new byte[] {'E', 'N', 'D'}));
+            }
+            mapped = true;
+            try (HexDump dump = new HexDump(file)) {
+                char[] row = new char[dump.getRowLength()];
+                int length = dump.formatRow(dump.getRowCount() - 1, row);
+                String last = new String(row, 0, length);
+                assertTrue(last.startsWith("140000000  45 4E 44 "), last);
+                assertTrue(last.endsWith("|END|"), last);
+                length = dump.formatRow(0, row);
+                assertTrue(new String(row, 0, length).startsWith("000000000  00 00"));
+            }
+        } finally {
+            deleteUnlessMapped(dir, file, mapped);
+        }
+    }
+
+    @Test
+    void testLookupTableEncoderMatchesFormat() {
+        byte[] all = new byte[256];
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) i;
+            expected.append(i > 0 ? " " : "").append(String.format("%02X", i));
+        }
+        assertEquals(expected.toString(), HexUtils.bytesToHexString(all));
+        assertEquals("", HexUtils.bytesToHexString(new byte[0]));
+
+        char[] digits = new char[10];
+        assertEquals(10, HexUtils.encodeLong(0x1234ABCDEFL, 10, digits, 0));
+        assertEquals("1234ABCDEF", new String(digits));
+    }
+
+    /**
+     * Удаляет файл и каталог. Окна HexDump освобождаются только сборщиком
+     * мусора, а в Windows отображенный файл удалить нельзя: такой файл
+     * (разреженный, несколько килобайт на диске) остается во временном каталоге.
+     */
+    private static void deleteUnlessMapped(Path dir, Path file, boolean mapped) throws IOException {
+        if (mapped && System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+}
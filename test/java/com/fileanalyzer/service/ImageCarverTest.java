@@ -0,0 +1,122 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.CarvedRegion;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Тесты для поиска файлов в образе диска.
+ */
+class ImageCarverTest {
+
+    private static final int CHUNK = 64 * 1024;
+
+    @Test
+    void testFindsFilesAcrossChunkBoundaries() throws IOException {
+        byte[] jpeg = Files.readAllBytes(Paths.get("test-files/test-image.jpg"));
+        byte[] png = Files.readAllBytes(Paths.get("test-files/test-picture.png"));
+        byte[] image = new byte[4 * CHUNK];
+        System.arraycopy(jpeg, 0, image, 1000, jpeg.length);
+        // PNG начинается за несколько байт до границы блока: сигнатура пересекает границу
+        int pngOffset = CHUNK - 3;
+        System.arraycopy(png, 0, image, pngOffset, png.length);
+        // Второй JPEG без завершающего маркера в конце образа
+        int tailOffset = image.length - 4096;
+        System.arraycopy(jpeg, 0, image, tailOffset, 4096);
+
+        List<CarvedRegion> regions = carve(image, 1);
+
+        assertEquals(3, regions.size());
+        assertRegion(regions.get(0), 1000, 1000 + jpeg.length, "jpg", CarvedRegion.EndReason.FOOTER);
+        assertRegion(regions.get(1), pngOffset, pngOffset + png.length, "png", CarvedRegion.EndReason.FOOTER);
+        assertRegion(regions.get(2), tailOffset, image.length, "jpg", CarvedRegion.EndReason.END_OF_IMAGE);
+    }
+
+    @Test
+    void testSectorAlignmentAndNextHeaderEnd() throws IOException {
+        byte[] jpeg = Files.readAllBytes(Paths.get("test-files/test-image.jpg"));
+        byte[] png = Files.readAllBytes(Paths.get("test-files/test-picture.png"));
+        byte[] image = new byte[2 * CHUNK];
+        // Обрезанный JPEG: его конец определяется началом следующего файла
+        System.arraycopy(jpeg, 0, image, 4096, 2048);
+        System.arraycopy(png, 0, image, 8192, png.length);
+        System.arraycopy(jpeg, 0, image, 30_001, jpeg.length);
+
+        List<CarvedRegion> regions = carve(image, 512);
+
+        assertEquals(2, regions.size());
+        assertRegion(regions.get(0), 4096, 8192, "jpg", CarvedRegion.EndReason.NEXT_HEADER);
+        assertRegion(regions.get(1), 8192, 8192 + png.length, "png", CarvedRegion.EndReason.FOOTER);
+    }
+
+    @Test
+    void testFindsFilesAcrossSegmentBoundaries() throws IOException {
+        byte[] jpeg = Files.readAllBytes(Paths.get("test-files/test-image.jpg"));
+        byte[] png = Files.readAllBytes(Paths.get("test-files/test-picture.png"));
+        int segment = CHUNK;
+        byte[] image = new byte[4 * segment];
+        // Сигнатура PNG пересекает границу первого и второго сегментов
+        int pngOffset = segment - 3;
+        System.arraycopy(png, 0, image, pngOffset, png.length);
+        // Завершающий маркер JPEG лежит в следующем сегменте
+        int jpegOffset = 2 * segment - 4096;
+        System.arraycopy(jpeg, 0, image, jpegOffset, jpeg.length);
+        // Начало сегмента входит в перекрытие предыдущего: файл должен найтись один раз
+        int overlapOffset = 3 * segment;
+        System.arraycopy(jpeg, 0, image, overlapOffset, jpeg.length);
+
+        List<CarvedRegion> regions = carve(image, 1, segment, CHUNK / 4);
+
+        assertEquals(3, regions.size(), regions.toString());
+        assertRegion(regions.get(0), pngOffset, pngOffset + png.length, "png", CarvedRegion.EndReason.FOOTER);
+        assertRegion(regions.get(1), jpegOffset, jpegOffset + jpeg.length, "jpg", CarvedRegion.EndReason.FOOTER);
+        assertRegion(regions.get(2), overlapOffset, overlapOffset + jpeg.length, "jpg",
+                CarvedRegion.EndReason.FOOTER);
+
+        // Прямое чтение отображения при выравнивании: PNG не на границе выравнивания
+        regions = carve(image, 8, segment, CHUNK / 4);
+
+        assertEquals(2, regions.size(), regions.toString());
+        assertRegion(regions.get(0), jpegOffset, jpegOffset + jpeg.length, "jpg", CarvedRegion.EndReason.FOOTER);
+        assertRegion(regions.get(1), overlapOffset, overlapOffset + jpeg.length, "jpg",
+                CarvedRegion.EndReason.FOOTER);
+    }
+
+    private List<CarvedRegion> carve(byte[] content, int alignment) throws IOException {
+        return carve(content, alignment, ImageCarver.DEFAULT_SEGMENT_SIZE, CHUNK);
+    }
+
+    private List<CarvedRegion> carve(byte[] content, int alignment, long segmentSize, int chunkSize)
+            throws IOException {
+        Path image = Files.createTempFile("carve", ".img");
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            Files.write(image, content);
+            ImageCarver carver = new ImageCarver(new DatabaseService(), pool, segmentSize);
+            carver.setChunkSize(chunkSize);
+            carver.setAlignment(alignment);
+            List<CarvedRegion> regions = new ArrayList<>();
+            assertEquals(carver.carve(image, regions::add), regions.size());
+            return regions;
+        } finally {
+            pool.shutdown();
+            Files.deleteIfExists(image);
+        }
+    }
+
+    private static void assertRegion(CarvedRegion region, long offset, long end, String extension,
+                                     CarvedRegion.EndReason reason) {
+        assertEquals(offset, region.getOffset(), region.toString());
+        assertEquals(end, region.getEnd(), region.toString());
+        assertEquals(extension, region.getFileType().getExtension());
+        assertEquals(reason, region.getEndReason(), region.toString());
+    }
+}
@@ -0,0 +1,84 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.ScanResult;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Тесты для планировщика чтения и адаптивного ограничителя параллелизма.
+ */
+class IoSchedulerTest {
+
+    private static final long FAST = 50_000;
+    private static final long SLOW = 20_000_000;
+
+    @Test
+    void testLimiterGrowsWhileLatencyIsFlat() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 32, 4, 2.0);
+        for (int i = 0; i < 500; i++) {
+            limiter.onSample(FAST);
+        }
+        assertEquals(32, limiter.getLimit());
+    }
+
+    @Test
+    void testLimiterBacksOffWhenLatencyRises() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 32, 16, 2.0);
+        for (int i = 0; i < 16; i++) {
+            limiter.onSample(i == 0 ? 1_000_000 : SLOW);
+        }
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void testParseFileKey() {
+        long[] locality = IoScheduler.parseFileKey("(dev=803,ino=1234567)");
+        assertEquals(0x803, locality[0]);
+        assertEquals(1234567, locality[1]);
+        assertEquals(-1, IoScheduler.parseFileKey(null)[1]);
+    }
+
+    @Test
+    void testRequestsAreSortedByInode() {
+        List<IoScheduler.ReadRequest> requests = new ArrayList<>();
+        requests.add(new IoScheduler.ReadRequest(Paths.get("c"), 1, "(dev=1,ino=30)"));
+        requests.add(new IoScheduler.ReadRequest(Paths.get("a"), 1, "(dev=1,ino=10)"));
+        requests.add(new IoScheduler.ReadRequest(Paths.get("b"), 1, "(dev=1,ino=20)"));
+
+        requests.sort(IoScheduler.LOCALITY_ORDER);
+
+        assertEquals(Paths.get("a"), requests.get(0).getPath());
+        assertEquals(Paths.get("c"), requests.get(2).getPath());
+    }
+
+    @Test
+    void testExecuteClassifiesAllFiles() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("io-scheduler");
+        List<IoScheduler.ReadRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Path file = Files.write(dir.resolve("doc" + i), new byte[]{0x25, 0x50, 0x44, 0x46, 0x2D});
+            requests.add(new IoScheduler.ReadRequest(file, 5, null));
+        }
+
+        Map<Path, ScanResult> results = new ConcurrentHashMap<>();
+        try (IoScheduler scheduler = new IoScheduler(new FileAnalyzerService(new DatabaseService()))) {
+            scheduler.execute(requests, result -> results.put(result.getPath(), result));
+        }
+
+        assertEquals(50, results.size());
+        assertTrue(results.values().stream().allMatch(r -> "pdf".equals(r.getFileType().getExtension())));
+        for (IoScheduler.ReadRequest request : requests) {
+            Files.delete(request.getPath());
+        }
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,39 @@
+package com.fileanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для гистограммы задержек.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(50_000_000, histogram.getPercentile(50), 50_000_000 / 16.0);
+        assertEquals(99_000_000, histogram.getPercentile(99), 99_000_000 / 16.0);
+        assertTrue(histogram.getPercentile(100) >= 100_000_000);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    void testBucketBoundsAreMonotonic() {
+        long previous = -1;
+        for (int bucket = 0; previous != Long.MAX_VALUE; bucket++) {
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertTrue(upper > previous, "Корзина " + bucket);
+            assertEquals(bucket, LatencyHistogram.bucket(upper));
+            assertEquals(bucket, LatencyHistogram.bucket(previous + 1));
+            previous = upper;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileMetadata;
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.ScanResult;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Тесты для извлечения метаданных форматов.
+ */
+class MetadataServiceTest {
+
+    private final DatabaseService databaseService = new DatabaseService();
+    private final MetadataService metadataService = new MetadataService();
+
+    @Test
+    void testSampleFiles() throws IOException {
+        Map<String, String> png = extract(Paths.get("test-files/test-picture.png"), "png");
+        assertEquals("512", png.get("width"));
+        assertEquals("512", png.get("height"));
+        assertEquals("rgba", png.get("colorType"));
+
+        Map<String, String> jpg = extract(Paths.get("test-files/test-image.jpg"), "jpg");
+        assertEquals("225", jpg.get("width"));
+        assertEquals("225", jpg.get("height"));
+        assertEquals("3", jpg.get("components"));
+
+        Map<String, String> pdf = extract(Paths.get("test-files/test-pdf-document.pdf"), "pdf");
+        assertEquals("1.7", pdf.get("version"));
+        // /Count 5 у закладок не должен приниматься за число страниц
+        assertEquals("3", pdf.get("pagesHint"));
+
+        Map<String, String> mp3 = extract(Paths.get("test-files/test-music.mp3"), "mp3");
+        assertEquals("44100", mp3.get("sampleRate"));
+        // 124 кадра по 1152 отсчета из заголовка Info
+        assertEquals("3.2", mp3.get("duration"));
+
+        Map<String, String> mp4 = extract(Paths.get("test-files/test-mp4-video.mp4"), "mp4");
+        assertEquals("isom", mp4.get("brand"));
+        assertTrue(mp4.containsKey("duration"));
+    }
+
+    @Test
+    void testJpegSkipsSegmentsBeforeProgressiveFrame() throws IOException {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        jpeg.write(new byte[] {(byte) 0xFF, (byte) 0xD8});
+        // APP1 на 1000 байт и заполняющий байт перед SOF2
+        jpeg.write(new byte[] {(byte) 0xFF, (byte) 0xE1, 0x03, (byte) 0xEA});
+        jpeg.write(new byte[1000]);
+        jpeg.write(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xC2, 0x00, 0x11, 0x08,
+                0x02, 0x58, 0x03, 0x20, 0x03});
+        jpeg.write(new byte[64]);
+        Path file = write(".jpg", jpeg.toByteArray());
+        try {
+            Map<String, String> metadata = extract(file, "jpg");
+            assertEquals("800", metadata.get("width"));
+            assertEquals("600", metadata.get("height"));
+            assertEquals("progressive", metadata.get("process"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testMp3Id3v2TextFrames() throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frame(frames, "TIT2", 0, "Title".getBytes(StandardCharsets.ISO_8859_1));
+        frame(frames, "TPE1", 1, utf16("Исполнитель"));
+        frame(frames, "TYER", 0, "1999".getBytes(StandardCharsets.ISO_8859_1));
+        frames.write(new byte[32]);
+        byte[] tag = frames.toByteArray();
+
+        ByteArrayOutputStream mp3 = new ByteArrayOutputStream();
+        mp3.write(new byte[] {'I', 'D', '3', 3, 0, 0});
+        mp3.write(new byte[] {(byte) (tag.length >> 21 & 0x7F), (byte) (tag.length >> 14 & 0x7F),
+                (byte) (tag.length >> 7 & 0x7F), (byte) (tag.length & 0x7F)});
+        mp3.write(tag);
+        // MPEG-1 Layer III, 128 кбит/с, 44100 Гц, моно; 1 секунда данных
+        for (int i = 0; i < 38; i++) {
+            mp3.write(new byte[] {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, (byte) 0xC0});
+            mp3.write(new byte[417 - 4]);
+        }
+        Path file = write(".mp3", mp3.toByteArray());
+        try {
+            Map<String, String> metadata = extract(file, "mp3");
+            assertEquals("2.3", metadata.get("id3"));
+            assertEquals("Title", metadata.get("title"));
+            assertEquals("Исполнитель", metadata.get("artist"));
+            assertEquals("1999", metadata.get("year"));
+            assertEquals("128", metadata.get("bitrate"));
+            assertEquals("1", metadata.get("channels"));
+            assertEquals("1.0", metadata.get("duration"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testMp4MovieBoxAfterLargeSizeMediaData() throws IOException {
+        // mdat с 64-битным размером (поле размера 1), за ним moov
+        byte[] media = new byte[100];
+        ByteBuffer mdat = ByteBuffer.allocate(16 + media.length).putInt(1)
+                .put("mdat".getBytes(StandardCharsets.ISO_8859_1)).putLong(16 + media.length).put(media);
+        // mvhd версии 1: шкала 1000, длительность 90500
+        ByteBuffer mvhd = ByteBuffer.allocate(32).put((byte) 1).position(20);
+        mvhd.putInt(1000).putLong(90500);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(box("ftyp", "mp42".getBytes(StandardCharsets.ISO_8859_1)));
+        out.write(mdat.array());
+        out.write(box("moov", box("mvhd", mvhd.array())));
+        Path file = write(".mp4", out.toByteArray());
+
+        // Обрезанный файл: mdat объявлен на 5 ГБ, moov за пределами файла
+        ByteBuffer truncated = ByteBuffer.allocate(12 + 16 + media.length)
+                .put(box("ftyp", "mp42".getBytes(StandardCharsets.ISO_8859_1)))
+                .putInt(1).put("mdat".getBytes(StandardCharsets.ISO_8859_1)).putLong(5L * 1024 * 1024 * 1024);
+        Path truncatedFile = write(".mp4", truncated.array());
+        try {
+            Map<String, String> metadata = extract(file, "mp4");
+            assertEquals("mp42", metadata.get("brand"));
+            assertEquals("90.5", metadata.get("duration"));
+
+            metadata = extract(truncatedFile, "mp4");
+            assertEquals("mp42", metadata.get("brand"));
+            assertNull(metadata.get("duration"));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(truncatedFile);
+        }
+    }
+
+    @Test
+    void testBatchScanAttachesMetadata() throws IOException {
+        Path directory = Files.createTempDirectory("metadata-batch");
+        try {
+            Files.copy(Paths.get("test-files/test-picture.png"), directory.resolve("picture"));
+            Files.copy(Paths.get("test-files/test-text.txt"), directory.resolve("text"));
+            BatchScanService batchScanService = new BatchScanService(new FileAnalyzerService(databaseService));
+            batchScanService.setMetadataService(metadataService);
+            List<ScanResult> results = new ArrayList<>();
+            batchScanService.scan(directory, results::add);
+
+            assertEquals(2, results.size());
+            for (ScanResult result : results) {
+                FileMetadata metadata = result.getMetadata();
+                if (result.getPath().endsWith("picture")) {
+                    assertNotNull(metadata);
+                    assertTrue(metadata.toString().startsWith("width=512;height=512;"), metadata.toString());
+                } else {
+                    assertNull(metadata);
+                }
+            }
+        } finally {
+            try (var paths = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private Map<String, String> extract(Path file, String extension) throws IOException {
+        FileType fileType = databaseService.findFileTypeByExtension(extension).orElseThrow();
+        return metadataService.extract(file, fileType).orElseThrow().asMap();
+    }
+
+    private static Path write(String suffix, byte[] content) throws IOException {
+        Path file = Files.createTempFile("metadata", suffix);
+        Files.write(file, content);
+        return file;
+    }
+
+    private static void frame(ByteArrayOutputStream out, String id, int encoding, byte[] text) throws IOException {
+        out.write(id.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(ByteBuffer.allocate(4).putInt(text.length + 1).array());
+        out.write(new byte[] {0, 0, (byte) encoding});
+        out.write(text);
+    }
+
+    private static byte[] utf16(String text) {
+        // StandardCharsets.UTF_16 добавляет метку порядка байтов, как того требует кодировка 1
+        return text.getBytes(StandardCharsets.UTF_16);
+    }
+
+    private static byte[] box(String type, byte[] payload) {
+        return ByteBuffer.allocate(8 + payload.length).putInt(8 + payload.length)
+                .put(type.getBytes(StandardCharsets.ISO_8859_1)).put(payload).array();
+    }
+}
@@ -0,0 +1,89 @@
+package com.fileanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Тесты для кэша результатов по префиксу заголовка.
+ */
+class PrefixResultCacheTest {
+
+    @Test
+    void testKeyIncludesLengthAndAllKeyBytes() {
+        PrefixResultCache cache = new PrefixResultCache(16);
+        ByteBuffer header = ByteBuffer.allocateDirect(16);
+        for (int i = 0; i < 16; i++) {
+            header.put(i, (byte) i);
+        }
+        cache.put(header, 16, 3);
+        cache.put(header, 4, 5);
+
+        assertEquals(3, cache.lookup(header, 16));
+        assertEquals(5, cache.lookup(header, 4));
+        assertEquals(PrefixResultCache.MISS, cache.lookup(header, 8));
+
+        header.put(15, (byte) 0x7F);
+        assertEquals(PrefixResultCache.MISS, cache.lookup(header, 16));
+        assertFalse(PrefixResultCache.isCacheable(17));
+    }
+
+    @Test
+    void testEvictionKeepsSizeBoundedAndValuesConsistent() {
+        PrefixResultCache cache = new PrefixResultCache(64);
+        ByteBuffer header = ByteBuffer.allocate(8);
+        Random random = new Random(11);
+
+        for (int i = 0; i < 100_000; i++) {
+            // Горячие ключи 0..15 и редкие ключи из большого диапазона
+            long key = random.nextInt(4) == 0 ? random.nextInt(100_000) : random.nextInt(16);
+            header.putLong(0, key);
+            int value = cache.lookup(header, 8);
+            if (value == PrefixResultCache.MISS) {
+                cache.put(header, 8, (int) key);
+            } else {
+                assertEquals(key, value);
+            }
+            assertTrue(cache.size() <= 64);
+        }
+        assertTrue(cache.getEvictions() > 0);
+
+        // Часто используемые ключи не вытесняются редкими
+        int hot = 0;
+        for (int key = 0; key < 16; key++) {
+            header.putLong(0, key);
+            if (cache.lookup(header, 8) == key) {
+                hot++;
+            }
+        }
+        assertTrue(hot >= 12, "Горячих ключей в кэше: " + hot);
+    }
+
+    @Test
+    void testRepeatedHeadersHitCache() throws IOException {
+        FileAnalyzerService service = new FileAnalyzerService(new DatabaseService());
+        service.setPrefixCaching(true);
+        File file = new File("test-files/test-image.jpg");
+        for (int i = 0; i < 10; i++) {
+            assertEquals("jpg", service.analyzeFile(file).orElseThrow().getExtension());
+        }
+        AnalyzerStatistics statistics = service.getStatistics();
+        assertEquals(1, statistics.getPrefixCacheMisses());
+        assertEquals(9, statistics.getPrefixCacheHits());
+        assertEquals(0.9, statistics.getPrefixCacheHitRate(), 1e-9);
+    }
+
+    @Test
+    void testCacheIsOffByDefault() throws IOException {
+        FileAnalyzerService service = new FileAnalyzerService(new DatabaseService());
+        File file = new File("test-files/test-image.jpg");
+        for (int i = 0; i < 3; i++) {
+            assertEquals("jpg", service.analyzeFile(file).orElseThrow().getExtension());
+        }
+        assertEquals(0, service.getStatistics().getPrefixCacheHits() + service.getStatistics().getPrefixCacheMisses());
+    }
+}
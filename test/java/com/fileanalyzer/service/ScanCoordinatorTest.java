@@ -0,0 +1,237 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.ScanResult;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Тесты для распределенного сканирования несколькими рабочими процессами.
+ */
+class ScanCoordinatorTest {
+
+    private static final String[] SAMPLES = {"test-image.jpg", "test-picture.png", "test-text.txt", "test-unknown"};
+
+    @Test
+    void testWorkersProduceSameResultsAsSingleProcess() throws IOException {
+        Path root = createSkewedTree();
+        try {
+            DatabaseService databaseService = new DatabaseService();
+            Map<String, String> expected = new TreeMap<>();
+            new BatchScanService(new FileAnalyzerService(databaseService))
+                    .scan(root, result -> expected.put(result.getPath().toString(), extension(result)));
+
+            ScanCoordinator coordinator = new ScanCoordinator(databaseService, 3);
+            // Один шард на процесс: большое поддерево достается одному процессу,
+            // остальные забирают у него каталоги
+            coordinator.setShardsPerWorker(1);
+            Map<String, String> actual = collect(coordinator, root);
+
+            assertEquals(expected, actual);
+            assertTrue(coordinator.getStolenShards() > 0);
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    @Test
+    void testShardOfKilledWorkerIsReassigned() throws IOException {
+        Path root = createSkewedTree();
+        try {
+            DatabaseService databaseService = new DatabaseService();
+            ScanCoordinator coordinator = new ScanCoordinator(databaseService, 2,
+                    (index, port, token) -> index == 0 ? launchCrashingWorker(port, index, token)
+                            : ScanCoordinator.launchJvm(index, port, token));
+            List<String> paths = new ArrayList<>();
+            long total = coordinator.scan(List.of(root), result -> paths.add(result.getPath().toString()));
+
+            assertEquals(fileCount(root), total);
+            assertEquals(total, paths.stream().distinct().count());
+            assertTrue(coordinator.getReassignedShards() >= 1);
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    @Test
+    void testWorkerSendingMalformedMessagesIsReplaced() throws IOException {
+        Path root = createSkewedTree();
+        try {
+            DatabaseService databaseService = new DatabaseService();
+            ScanCoordinator coordinator = new ScanCoordinator(databaseService, 2,
+                    (index, port, token) -> index == 0 ? launchCrashingWorker(port, index, token, "malformed")
+                            : ScanCoordinator.launchJvm(index, port, token));
+            List<String> paths = new ArrayList<>();
+            long total = coordinator.scan(List.of(root), result -> paths.add(result.getPath().toString()));
+
+            assertEquals(fileCount(root), total);
+            assertEquals(total, paths.stream().distinct().count());
+            assertFalse(paths.stream().anyMatch(path -> path.endsWith("partial")));
+            assertTrue(coordinator.getReassignedShards() >= 1);
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    @Test
+    void testConnectionsWithoutTokenAreRejected() throws Exception {
+        Path root = createSkewedTree();
+        try {
+            DatabaseService databaseService = new DatabaseService();
+            List<CompletableFuture<Boolean>> intruders = new ArrayList<>();
+            ScanCoordinator coordinator = new ScanCoordinator(databaseService, 2, (index, port, token) -> {
+                if (index == 0) {
+                    // Чужие процессы подключаются раньше рабочих и выдают себя за процесс 0
+                    intruders.add(connectIntruder(port, ScanProtocol.message(ScanProtocol.HELLO, "wrong", 0)));
+                    intruders.add(connectIntruder(port, ScanProtocol.message(ScanProtocol.HELLO, 0)));
+                    intruders.add(connectIntruder(port, ScanProtocol.message(ScanProtocol.DONE, 0, 1)));
+                }
+                return ScanCoordinator.launchJvm(index, port, token);
+            });
+            List<String> paths = new ArrayList<>();
+            long total = coordinator.scan(List.of(root), result -> paths.add(result.getPath().toString()));
+
+            assertEquals(fileCount(root), total);
+            assertEquals(total, paths.stream().distinct().count());
+            for (CompletableFuture<Boolean> intruder : intruders) {
+                assertTrue(intruder.get(10, TimeUnit.SECONDS), "Соединение без токена не закрыто");
+            }
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    /**
+     * Подключается к координатору и отправляет сообщение.
+     *
+     * @return true, когда координатор закрыл соединение, не выдав ни одного шарда
+     */
+    private static CompletableFuture<Boolean> connectIntruder(int port, String message) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        writer.write(message + "\n");
+        writer.flush();
+        return CompletableFuture.supplyAsync(() -> {
+            try (socket; BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                return reader.readLine() == null;
+            } catch (IOException e) {
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Рабочий процесс, который принимает шард, отправляет часть результатов
+     * и аварийно завершается, не сообщив о завершении шарда. В режиме
+     * {@code malformed} вместо этого отправляет сообщения с неверными полями
+     * и ждет, пока координатор не закроет соединение.
+     */
+    static class CrashingWorker {
+        public static void main(String[] args) throws IOException {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+                Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                writer.write(ScanProtocol.message(ScanProtocol.HELLO,
+                        System.getenv(ScanWorker.TOKEN_ENVIRONMENT), args[1]) + "\n");
+                writer.flush();
+                String[] shard = ScanProtocol.parse(reader.readLine());
+                writer.write(ScanProtocol.message(ScanProtocol.RESULT, shard[1], "txt", 1,
+                        Paths.get(shard[3], "partial")) + "\n");
+                if (args.length > 2) {
+                    writer.write(ScanProtocol.message(ScanProtocol.RESULT, shard[1], "txt", "size", "x") + "\n");
+                    writer.write(ScanProtocol.message(ScanProtocol.DONE) + "\n");
+                    writer.write("\n");
+                    writer.flush();
+                    while (reader.readLine() != null) {
+                        // Ожидание закрытия соединения координатором
+                    }
+                    return;
+                }
+                writer.flush();
+            }
+            Runtime.getRuntime().halt(3);
+        }
+    }
+
+    private static Process launchCrashingWorker(int port, int index, String token, String... mode)
+            throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                CrashingWorker.class.getName(), String.valueOf(port), String.valueOf(index)));
+        command.addAll(List.of(mode));
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().put(ScanWorker.TOKEN_ENVIRONMENT, token);
+        return builder.start();
+    }
+
+    private static Map<String, String> collect(ScanCoordinator coordinator, Path root) throws IOException {
+        Map<String, String> results = new TreeMap<>();
+        coordinator.scan(List.of(root), result -> assertNull(
+                results.put(result.getPath().toString(), extension(result))));
+        return results;
+    }
+
+    private static String extension(ScanResult result) {
+        return result.isDetected() ? result.getFileType().getExtension() : null;
+    }
+
+    /**
+     * Создает дерево, в котором почти все файлы находятся в одном поддереве.
+     */
+    private static Path createSkewedTree() throws IOException {
+        Path root = Files.createTempDirectory("cluster-scan").toAbsolutePath();
+        Files.createDirectories(root.resolve("small"));
+        copySamples(root.resolve("small"), "s");
+        for (int i = 0; i < 200; i++) {
+            Path directory = root.resolve("big").resolve("part" + (i / 20)).resolve("dir" + i);
+            Files.createDirectories(directory);
+            copySamples(directory, "f");
+        }
+        return root;
+    }
+
+    private static void copySamples(Path directory, String prefix) throws IOException {
+        for (int i = 0; i < SAMPLES.length; i++) {
+            Files.copy(Paths.get("test-files", SAMPLES[i]), directory.resolve(prefix + i + "-" + SAMPLES[i]),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static long fileCount(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.ScanResult;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Тесты для записи и чтения колоночного индекса результатов сканирования.
+ */
+class ScanIndexTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void testRoundTripAcrossBlocks() throws IOException {
+        Path indexFile = Files.createTempFile("scan-index", ".faix");
+        FileType pdf = new FileType("pdf", "PDF", List.of());
+        FileType jpg = new FileType("jpg", "JPEG", List.of());
+
+        try (ScanIndexWriter writer = new ScanIndexWriter(indexFile, 4)) {
+            for (int i = 0; i < 10; i++) {
+                FileType type = i % 3 == 0 ? pdf : (i % 3 == 1 ? jpg : null);
+                writer.accept(new ScanResult(Paths.get("/archive/docs/file" + i), i * 5 * MB, type, i));
+            }
+        }
+
+        try (ScanIndexReader reader = new ScanIndexReader(indexFile)) {
+            assertEquals(10, reader.getRecordCount());
+            assertEquals(10, reader.query(null, 0, null).size());
+
+            List<ScanIndexReader.Entry> bigPdfs = reader.query("pdf", 10 * MB, "/archive");
+            assertEquals(3, bigPdfs.size());
+            assertEquals("/archive/docs/file3", bigPdfs.get(0).getPath());
+            assertEquals(15 * MB, bigPdfs.get(0).getSize());
+            assertEquals(3, bigPdfs.get(0).getContentHash());
+
+            assertTrue(reader.query("pdf", 0, "/arch").isEmpty());
+            assertTrue(reader.query("png", 0, null).isEmpty());
+            assertNull(reader.query(null, 0, "/archive/docs/file2").get(0).getExtension());
+        } finally {
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    @Test
+    void testRejectsUnclosedIndex() throws IOException {
+        Path indexFile = Files.createTempFile("scan-index", ".faix");
+        Files.write(indexFile, new byte[32]);
+        try {
+            assertThrows(IOException.class, () -> new ScanIndexReader(indexFile));
+        } finally {
+            Files.deleteIfExists(indexFile);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.fileanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Тесты для анализа с контрольными точками и его возобновления.
+ */
+class ScanJournalTest {
+
+    @Test
+    void testJournaledScanMatchesPlainScan() throws IOException {
+        Path root = createTree();
+        Path journalFile = root.resolveSibling(root.getFileName() + ".journal");
+        Path outputFile = root.resolveSibling(root.getFileName() + ".tsv");
+        try {
+            BatchScanService batchScanService = new BatchScanService(new FileAnalyzerService(new DatabaseService()));
+            Set<String> expected = new HashSet<>();
+            batchScanService.scan(root, result -> expected.add(result.getPath().toString()));
+
+            try (ScanJournal journal = ScanJournal.open(journalFile, root);
+                 ScanResultFile output = new ScanResultFile(outputFile, 0)) {
+                journal.setCheckpointInterval(3, 0);
+                assertEquals(expected.size(), batchScanService.scan(root, output, journal));
+                assertTrue(journal.getCheckpoints() > 1);
+            }
+
+            assertEquals(expected, outputPaths(outputFile));
+            try (ScanJournal journal = ScanJournal.open(journalFile, root)) {
+                assertTrue(journal.isFinished());
+            }
+        } finally {
+            deleteTree(root, journalFile, outputFile);
+        }
+    }
+
+    @Test
+    void testResumeAfterCrashSkipsCompletedSubtrees() throws IOException {
+        Path root = createTree();
+        Path journalFile = root.resolveSibling(root.getFileName() + ".journal");
+        Path outputFile = root.resolveSibling(root.getFileName() + ".tsv");
+        try {
+            BatchScanService batchScanService = new BatchScanService(new FileAnalyzerService(new DatabaseService()));
+            long total = countFiles(root);
+
+            // Первый запуск "падает" на четвертой контрольной точке
+            try (ScanJournal journal = ScanJournal.open(journalFile, root);
+                 ScanResultFile output = new CrashingResultFile(outputFile, 4)) {
+                journal.setCheckpointInterval(3, 0);
+                assertThrows(IOException.class, () -> batchScanService.scan(root, output, journal));
+            }
+
+            long resumedFrom;
+            try (ScanJournal journal = ScanJournal.open(journalFile, root)) {
+                assertTrue(journal.isResumed());
+                assertFalse(journal.isFinished());
+                resumedFrom = journal.getCommittedResults();
+                assertTrue(resumedFrom > 0 && resumedFrom < total);
+                try (ScanResultFile output = new ScanResultFile(outputFile, journal.getCommittedOffset())) {
+                    assertEquals(total, batchScanService.scan(root, output, journal));
+                }
+            }
+
+            List<String> lines = Files.readAllLines(outputFile, StandardCharsets.UTF_8);
+            assertEquals(total, lines.size());
+            assertEquals(total, outputPaths(outputFile).size());
+        } finally {
+            deleteTree(root, journalFile, outputFile);
+        }
+    }
+
+    /**
+     * Файл результатов, фиксация которого завершается ошибкой на заданной контрольной точке.
+     */
+    private static class CrashingResultFile extends ScanResultFile {
+        private int remaining;
+
+        CrashingResultFile(Path file, int crashAt) throws IOException {
+            super(file, 0);
+            this.remaining = crashAt;
+        }
+
+        @Override
+        public long commit(boolean sync) throws IOException {
+            if (--remaining == 0) {
+                super.commit(false);
+                throw new IOException("Имитация сбоя");
+            }
+            return super.commit(sync);
+        }
+    }
+
+    private static Path createTree() throws IOException {
+        Path root = Files.createTempDirectory("journal-scan").toAbsolutePath();
+        String[] samples = {"test-image.jpg", "test-picture.png", "test-text.txt"};
+        for (int i = 0; i < 30; i++) {
+            Path directory = root.resolve("a" + (i % 3)).resolve("b" + i);
+            Files.createDirectories(directory);
+            for (String sample : samples) {
+                Files.copy(Paths.get("test-files", sample), directory.resolve(sample));
+            }
+        }
+        return root;
+    }
+
+    private static Set<String> outputPaths(Path outputFile) throws IOException {
+        return Files.readAllLines(outputFile, StandardCharsets.UTF_8).stream()
+                .map(line -> line.substring(line.lastIndexOf('\t') + 1))
+                .collect(Collectors.toSet());
+    }
+
+    private static long countFiles(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static void deleteTree(Path root, Path... extra) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+        for (Path path : extra) {
+            Files.deleteIfExists(path);
+        }
+    }
+}
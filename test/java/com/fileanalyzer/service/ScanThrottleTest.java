@@ -0,0 +1,79 @@
+package com.fileanalyzer.service;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тесты для ограничения нагрузки и полос приоритета.
+ */
+class ScanThrottleTest {
+
+    @Test
+    void testTokenBucketLimitsRate() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, 10);
+        long start = System.nanoTime();
+        for (int i = 0; i < 30; i++) {
+            bucket.acquire(1);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 10 токенов из ведра сразу, остальные 20 - со скоростью 100 в секунду
+        assertTrue(elapsedMillis >= 150, "Слишком быстро: " + elapsedMillis + " мс");
+        assertFalse(bucket.tryAcquire(10));
+    }
+
+    @Test
+    void testLowPriorityBacksOffWhileLatencyIsHigh() {
+        ScanThrottle throttle = new ScanThrottle();
+        throttle.setLowPriority(true);
+        for (int i = 0; i < 64; i++) {
+            throttle.onLatency(1_000_000);
+        }
+        assertEquals(0, throttle.getBackoffNanos());
+
+        for (int i = 0; i < 64; i++) {
+            throttle.onLatency(20_000_000);
+        }
+        long backoff = throttle.getBackoffNanos();
+        assertTrue(backoff > 0);
+
+        for (int i = 0; i < 256; i++) {
+            throttle.onLatency(1_000_000);
+        }
+        assertEquals(0, throttle.getBackoffNanos());
+    }
+
+    @Test
+    void testInteractiveTasksJumpAheadOfBatch() throws Exception {
+        PriorityTaskExecutor executor = new PriorityTaskExecutor(1, "test");
+        try {
+            CountDownLatch blocker = new CountDownLatch(1);
+            executor.submit(PriorityTaskExecutor.Lane.BATCH, () -> {
+                blocker.await();
+                return null;
+            });
+            List<String> order = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                int number = i;
+                executor.submit(PriorityTaskExecutor.Lane.BATCH, () -> order.add("batch" + number));
+            }
+            Future<?> interactive = executor.submit(PriorityTaskExecutor.Lane.INTERACTIVE,
+                    () -> order.add("interactive"));
+            assertEquals(6, executor.getQueuedTasks());
+
+            blocker.countDown();
+            interactive.get(5, TimeUnit.SECONDS);
+            executor.submit(PriorityTaskExecutor.Lane.BATCH, () -> { }).get(5, TimeUnit.SECONDS);
+            assertEquals("interactive", order.get(0));
+            assertEquals("batch0", order.get(1));
+            assertEquals(6, order.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.MagicNumber;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Тесты для общей таблицы сигнатур.
+ */
+class SharedSignatureTableTest {
+
+    @Test
+    void testPublishedTableMatchesParsedDatabase() throws IOException {
+        Path dir = Files.createTempDirectory("shared-table");
+        try {
+            Path table = dir.resolve("signatures");
+            List<FileType> parsed = new DatabaseService((Path) null).getAllFileTypes();
+
+            // Первый процесс разбирает JSON и публикует таблицу
+            new DatabaseService(table);
+            Optional<List<FileType>> shared = SharedSignatureTable.open(table, databaseVersion());
+            assertTrue(shared.isPresent());
+            assertEquals(parsed.size(), shared.get().size());
+            for (int i = 0; i < parsed.size(); i++) {
+                FileType expected = parsed.get(i);
+                FileType actual = shared.get().get(i);
+                assertEquals(expected.getExtension(), actual.getExtension());
+                assertEquals(expected.getDescription(), actual.getDescription());
+                assertEquals(expected.getMagicNumbers().size(), actual.getMagicNumbers().size());
+                for (int j = 0; j < expected.getMagicNumbers().size(); j++) {
+                    MagicNumber magic = expected.getMagicNumbers().get(j);
+                    assertEquals(magic.getOffset(), actual.getMagicNumbers().get(j).getOffset());
+                    assertEquals(magic.getHex(), actual.getMagicNumbers().get(j).getHex());
+                    assertArrayEquals(magic.getBytes(), actual.getMagicNumbers().get(j).getBytes());
+                }
+            }
+
+            // Второй процесс сопоставляет по таблице так же, как по JSON
+            DatabaseService reader = new DatabaseService(table);
+            byte[] png = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+            assertEquals("png", reader.findFileTypeByMagicNumbers(ByteBuffer.wrap(png), png.length)
+                    .map(FileType::getExtension).orElse(null));
+            assertEquals(new DatabaseService((Path) null).getMaxSignatureWindow(), reader.getMaxSignatureWindow());
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    @Test
+    void testTableIsUsedWithoutParsing() throws IOException {
+        Path dir = Files.createTempDirectory("shared-table");
+        try {
+            Path table = dir.resolve("signatures");
+            FileType custom = new FileType("custom", "Тип только из таблицы",
+                    List.of(new MagicNumber(0, new byte[]{1, 2, 3}, "01 02 03")));
+            SharedSignatureTable.publish(table, databaseVersion(), List.of(custom));
+
+            List<FileType> fileTypes = new DatabaseService(table).getAllFileTypes();
+            assertEquals(1, fileTypes.size());
+            assertEquals("custom", fileTypes.get(0).getExtension());
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    @Test
+    void testStaleOrDamagedTableIsReplaced() throws IOException {
+        Path dir = Files.createTempDirectory("shared-table");
+        try {
+            Path table = dir.resolve("signatures");
+            FileType custom = new FileType("custom", null, List.of());
+            long version = databaseVersion();
+
+            // Таблица другой версии базы заменяется разобранной базой
+            SharedSignatureTable.publish(table, version + 1, List.of(custom));
+            assertTrue(SharedSignatureTable.open(table, version).isEmpty());
+            assertTrue(new DatabaseService(table).getAllFileTypes().size() > 1);
+            assertTrue(SharedSignatureTable.open(table, version).get().size() > 1);
+
+            // Поврежденные данные не проходят проверку контрольной суммы
+            SharedSignatureTable.publish(table, version, List.of(custom));
+            try (FileChannel channel = FileChannel.open(table, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{'X'}), SharedSignatureTable.HEADER_SIZE + 4);
+            }
+            assertTrue(SharedSignatureTable.open(table, version).isEmpty());
+            assertTrue(new DatabaseService(table).getAllFileTypes().size() > 1);
+
+            // Обрезанный файл
+            try (FileChannel channel = FileChannel.open(table, StandardOpenOption.WRITE)) {
+                channel.truncate(SharedSignatureTable.HEADER_SIZE + 1);
+            }
+            assertTrue(SharedSignatureTable.open(table, version).isEmpty());
+            assertTrue(SharedSignatureTable.open(dir.resolve("missing"), version).isEmpty());
+
+            // Временные файлы публикации не остаются в каталоге
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    @Test
+    void testForeignOrWritableTableIsRejected() throws IOException {
+        Path dir = Files.createTempDirectory("shared-table");
+        try {
+            assumeTrue(Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class),
+                    "Права POSIX не поддерживаются");
+            Path table = dir.resolve("signatures");
+            long version = databaseVersion();
+            SharedSignatureTable.publish(table, version, List.of(new FileType("custom", null, List.of())));
+            assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(table));
+            assertTrue(SharedSignatureTable.open(table, version).isPresent());
+
+            // Таблицу, доступную на запись другим, мог подменить кто угодно
+            Files.setPosixFilePermissions(table, PosixFilePermissions.fromString("rw-rw-rw-"));
+            assertTrue(SharedSignatureTable.open(table, version).isEmpty());
+            assertTrue(new DatabaseService(table).getAllFileTypes().size() > 1);
+            // Разобранная база опубликована заново с правами владельца
+            assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(table));
+
+            // Ссылка на таблицу не принимается, даже если таблица своя
+            Path link = dir.resolve("link");
+            Files.createSymbolicLink(link, table);
+            assertTrue(SharedSignatureTable.open(link, version).isEmpty());
+
+            // Таблица другого пользователя (смена владельца требует прав администратора)
+            UserPrincipal nobody;
+            try {
+                nobody = table.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName("nobody");
+                Files.setOwner(table, nobody);
+            } catch (IOException | UnsupportedOperationException e) {
+                return;
+            }
+            assertTrue(SharedSignatureTable.open(table, version).isEmpty());
+            assertTrue(new DatabaseService(table).getAllFileTypes().size() > 1);
+            // В собственном каталоге чужая таблица заменяется своей
+            assertNotEquals(nobody, Files.getOwner(table));
+            assertTrue(SharedSignatureTable.open(table, version).isPresent());
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    @Test
+    void testMappedTableSurvivesReplacement() throws IOException {
+        Path dir = Files.createTempDirectory("shared-table");
+        try {
+            Path table = dir.resolve("signatures");
+            long version = databaseVersion();
+            SharedSignatureTable.publish(table, version, List.of(new FileType("old", null, List.of())));
+            try (FileChannel reader = FileChannel.open(table, StandardOpenOption.READ)) {
+                ByteBuffer mapped = reader.map(FileChannel.MapMode.READ_ONLY, 0, reader.size());
+
+                SharedSignatureTable.publish(table, version, List.of(new FileType("new", null, List.of())));
+                // Уже отображенная таблица не изменилась, новые процессы видят новую
+                assertEquals(SharedSignatureTable.MAGIC, mapped.getInt(0));
+                assertEquals('o', mapped.get(SharedSignatureTable.HEADER_SIZE + 4));
+                assertEquals("new", SharedSignatureTable.open(table, version).get().get(0).getExtension());
+            }
+        } finally {
+            deleteTree(dir);
+        }
+    }
+
+    private static long databaseVersion() throws IOException {
+        try (InputStream inputStream = SharedSignatureTableTest.class.getClassLoader()
+                .getResourceAsStream("filetypes.json")) {
+            return SharedSignatureTable.databaseVersion(inputStream.readAllBytes());
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.fileanalyzer.service;
+
+import com.fileanalyzer.model.FileType;
+import com.fileanalyzer.model.MagicNumber;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Дифференциальные тесты оптимизированного сопоставления сигнатур.
+ *
+ * <p>На случайных базах сигнатур и случайных заголовках все оптимизированные
+ * пути сравниваются с эталоном - сопоставлением через Stream API
+ * {@link DatabaseService#findFileTypeByMagicNumbers(byte[], int)}:
+ * скомпилированные сигнатуры на массиве и на буферах (в куче, прямом,
+ * с обратным порядком байт и мусором за пределами прочитанного), кэш
+ * префиксов и поэтапное дочитывание заголовка по {@link SignatureIndex}.
+ * Базы строятся из небольшого алфавита байт, чтобы сигнатуры часто
+ * пересекались, а заголовки обрезаются около концов сигнатур.
+ *
+ * <p>Обычный запуск проверяет несколько сотен баз. Длинная сессия:
+ * {@code ./gradlew fuzzSignatures -PfuzzSeconds=600}; при расхождении
+ * в сообщении выводится зерно, воспроизводящее базу через
+ * {@code -PfuzzSeed=<зерно>}.
+ */
+class SignatureFuzzTest {
+
+    private static final String SEED_PROPERTY = "fileanalyzer.fuzz.seed";
+    private static final String SECONDS_PROPERTY = "fileanalyzer.fuzz.seconds";
+    private static final int DEFAULT_DATABASES = 300;
+    private static final int HEADERS_PER_DATABASE = 400;
+    private static final int MAX_HEADER = 48;
+    private static final byte[] ALPHABET = {0x00, 0x01, 0x41, 0x42, (byte) 0x7F, (byte) 0x80, (byte) 0xFF};
+
+    @Test
+    void testOptimizedMatchersAgreeWithReference() {
+        Long fixedSeed = Long.getLong(SEED_PROPERTY);
+        long seconds = Long.getLong(SECONDS_PROPERTY, 0L);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        Random seeds = new Random(fixedSeed != null ? fixedSeed : 20240611L);
+
+        int databases = 0;
+        do {
+            long seed = fixedSeed != null ? fixedSeed : seeds.nextLong();
+            checkDatabase(seed);
+            databases++;
+        } while (fixedSeed == null && (databases < DEFAULT_DATABASES || System.nanoTime() < deadline));
+    }
+
+    @Test
+    void testEmptyAndOversizedHeaders() {
+        DatabaseService database = new DatabaseService(List.of(
+                type("txt"),
+                type("end", new MagicNumber(4, bytes(0x41, 0x42), null))));
+        CompiledSignatures signatures = database.getCompiledSignatures();
+        byte[] header = {0, 0, 0, 0, 0x41, 0x42};
+
+        assertTrue(database.findFileTypeByMagicNumbers(ByteBuffer.wrap(header), 0).isEmpty());
+        assertEquals(CompiledSignatures.NO_MATCH, signatures.match(header, 5));
+        assertEquals(1, signatures.match(header, 6));
+        // Длина больше буфера ограничивается его размером
+        assertEquals(1, signatures.match(header, 100));
+        assertEquals(6, database.getSignatureIndex().requiredBytes(ByteBuffer.wrap(header), 5));
+    }
+
+    /**
+     * Проверяет все пути сопоставления на одной случайной базе.
+     */
+    private static void checkDatabase(long seed) {
+        Random random = new Random(seed);
+        List<FileType> fileTypes = randomDatabase(random);
+        DatabaseService database = new DatabaseService(fileTypes);
+        CompiledSignatures signatures = database.getCompiledSignatures();
+        PrefixResultCache cache = new PrefixResultCache(8);
+        List<MagicNumber> magics = new ArrayList<>();
+        fileTypes.stream().filter(FileType::hasMagicNumbers).forEach(fileType -> magics.addAll(fileType.getMagicNumbers()));
+
+        byte[] header = new byte[MAX_HEADER];
+        ByteBuffer heap = ByteBuffer.allocate(MAX_HEADER);
+        ByteBuffer direct = ByteBuffer.allocateDirect(MAX_HEADER);
+        ByteBuffer littleEndian = ByteBuffer.allocate(MAX_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < HEADERS_PER_DATABASE; i++) {
+            int available = randomHeader(random, magics, header);
+            String context = "зерно " + seed + ", заголовок " + i + ", длина " + available;
+            FileType expected = database.findFileTypeByMagicNumbers(header, available).orElse(null);
+
+            int typeId = signatures.match(header, available);
+            assertSame(expected, resolve(database, typeId, available), context + ": массив");
+
+            for (ByteBuffer buffer : new ByteBuffer[] {heap, direct, littleEndian}) {
+                fill(buffer, header, available, random);
+                assertSame(expected, database.findFileTypeByMagicNumbers(buffer, available).orElse(null),
+                        context + ": буфер " + buffer);
+            }
+
+            if (PrefixResultCache.isCacheable(available)) {
+                int cached = cache.lookup(heap, available);
+                if (cached == PrefixResultCache.MISS) {
+                    cache.put(heap, available, signatures.match(heap, available));
+                } else {
+                    assertEquals(typeId, cached, context + ": кэш префиксов");
+                }
+            }
+
+            assertSame(expected, resolve(database, readIncrementally(database, heap, available, random), available),
+                    context + ": поэтапное чтение");
+        }
+    }
+
+    /**
+     * Повторяет цикл чтения {@code FileAnalyzerService.analyzeChannel}: начинает
+     * со случайного количества байт и дочитывает, пока индекс требует больше.
+     * Результат должен совпадать с сопоставлением всего заголовка.
+     */
+    private static int readIncrementally(DatabaseService database, ByteBuffer header, int available, Random random) {
+        SignatureIndex index = database.getSignatureIndex();
+        if (available <= 0) {
+            return CompiledSignatures.NO_MATCH;
+        }
+        int read = 1 + random.nextInt(available);
+        while (read < available) {
+            int required = Math.min(index.requiredBytes(header, read), available);
+            if (required <= read) {
+                break;
+            }
+            read = required;
+        }
+        return database.getCompiledSignatures().match(header, read);
+    }
+
+    private static FileType resolve(DatabaseService database, int typeId, int available) {
+        if (available <= 0) {
+            return null;
+        }
+        return typeId != CompiledSignatures.NO_MATCH
+                ? database.getCompiledSignatures().getType(typeId)
+                : database.getFallbackType();
+    }
+
+    /**
+     * Копирует заголовок в буфер, заполняя байты за пределами прочитанных
+     * случайными значениями: они не должны влиять на результат.
+     */
+    private static void fill(ByteBuffer buffer, byte[] header, int available, Random random) {
+        buffer.clear();
+        buffer.put(header, 0, available);
+        while (buffer.hasRemaining()) {
+            buffer.put(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Формирует заголовок: случайные байты алфавита, часто с одной или
+     * несколькими сигнатурами базы (иногда с искаженным байтом), и длину,
+     * близкую к концу одной из сигнатур.
+     *
+     * @return количество прочитанных байт
+     */
+    private static int randomHeader(Random random, List<MagicNumber> magics, byte[] header) {
+        for (int i = 0; i < header.length; i++) {
+            header[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        int end = random.nextInt(header.length + 1);
+        int embedded = magics.isEmpty() ? 0 : random.nextInt(3);
+        for (int n = 0; n < embedded; n++) {
+            MagicNumber magic = magics.get(random.nextInt(magics.size()));
+            byte[] bytes = magic.getBytes();
+            if (bytes == null || magic.getOffset() < 0 || magic.getOffset() + bytes.length > header.length) {
+                continue;
+            }
+            System.arraycopy(bytes, 0, header, magic.getOffset(), bytes.length);
+            if (bytes.length > 0 && random.nextInt(4) == 0) {
+                header[magic.getOffset() + random.nextInt(bytes.length)] ^= 1;
+            }
+            end = magic.getOffset() + bytes.length;
+        }
+        return Math.max(0, Math.min(header.length, end + random.nextInt(5) - 2));
+    }
+
+    /**
+     * Формирует базу типов: сигнатуры разной длины (в том числе ровно 8 и
+     * длиннее 8 байт), со смещениями, пересекающимися префиксами, дубликатами,
+     * типы без сигнатур и тип TXT в случайной позиции.
+     */
+    private static List<FileType> randomDatabase(Random random) {
+        int count = 1 + random.nextInt(24);
+        List<FileType> fileTypes = new ArrayList<>();
+        List<byte[]> previous = new ArrayList<>();
+        for (int id = 0; id < count; id++) {
+            int signatures = random.nextInt(4);
+            List<MagicNumber> magics = new ArrayList<>();
+            for (int s = 0; s < signatures; s++) {
+                byte[] bytes;
+                if (!previous.isEmpty() && random.nextInt(4) == 0) {
+                    // Продолжение или обрезка уже существующей сигнатуры
+                    byte[] base = previous.get(random.nextInt(previous.size()));
+                    bytes = Arrays.copyOf(base, Math.max(1, base.length + random.nextInt(7) - 3));
+                } else {
+                    int[] lengths = {1, 2, 3, 4, 7, 8, 9, 12, 16, 17, 20};
+                    bytes = new byte[lengths[random.nextInt(lengths.length)]];
+                }
+                for (int i = 0; i < bytes.length; i++) {
+                    if (bytes[i] == 0 || random.nextInt(8) == 0) {
+                        bytes[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+                    }
+                }
+                if (random.nextInt(40) == 0) {
+                    // Некорректная запись базы (пустая сигнатура из неверной HEX строки) отбрасывается при загрузке
+                    bytes = new byte[0];
+                }
+                previous.add(bytes);
+                int offset = random.nextInt(3) == 0 ? random.nextInt(MAX_HEADER - bytes.length + 1) : 0;
+                if (random.nextInt(40) == 0) {
+                    offset = -1;
+                }
+                magics.add(new MagicNumber(offset, bytes, null));
+            }
+            String extension = random.nextInt(count) == 0 ? "txt" : "t" + id;
+            fileTypes.add(signatures == 0 ? type(extension) : new FileType(extension, null, magics));
+        }
+        return fileTypes;
+    }
+
+    private static FileType type(String extension, MagicNumber... magics) {
+        return new FileType(extension, null, magics.length == 0 ? null : List.of(magics));
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}